@@ -27,6 +27,7 @@
 #include "common/VoltContainer.hpp"
 #include "common/UndoReleaseAction.h"
 #include "common/UndoQuantumReleaseInterest.h"
+#include "common/UndoTupleRun.h"
 #include "boost/unordered_set.hpp"
 
 class StreamedTableTest;
@@ -49,7 +50,7 @@ protected:
 
 public:
     inline UndoQuantum(int64_t undoToken, Pool *dataPool)
-        : m_undoToken(undoToken), m_dataPool(dataPool) {}
+        : m_undoToken(undoToken), m_lastTupleRun(NULL), m_dataPool(dataPool) {}
     inline virtual ~UndoQuantum() {}
 
     /**
@@ -75,6 +76,27 @@ public:
         }
     }
 
+    /**
+     * Record a single tuple insert or delete as a compact entry. Consecutive entries for the same
+     * target and kind share one UndoTupleRunAction, any other action registered in between starts
+     * a new run so the overall undo/release order is unchanged. Only for actions that need no
+     * synchronization across sites.
+     */
+    inline void registerUndoTuple(UndoTupleRunTarget *target, UndoTupleRunAction::Kind kind, char *tuple,
+                                  UndoQuantumReleaseInterest *interest = NULL) {
+        vassert(target);
+        if (m_lastTupleRun == NULL || m_undoActions.back() != m_lastTupleRun ||
+                ! m_lastTupleRun->extends(target, kind)) {
+            m_lastTupleRun = new (*this) UndoTupleRunAction(target, kind, m_dataPool);
+            m_undoActions.push_back(m_lastTupleRun);
+        }
+        m_lastTupleRun->append(tuple);
+
+        if (interest != NULL && interest->isNewReleaseInterest(m_undoToken)) {
+           m_interests.push_back(interest);
+        }
+    }
+
     /**
      * removeInterest is an UndoQuantumReleaseInterest which will be removed
      * from the list of interested parties if it had been previously added.
@@ -140,12 +162,18 @@ public:
     }
 
     inline const UndoReleaseAction* getLastUndoActionForTest() { return m_undoActions.back(); }
+    inline char* getLastUndoTupleForTest() {
+        return (m_lastTupleRun != NULL && m_undoActions.back() == m_lastTupleRun) ?
+                m_lastTupleRun->getLastTupleForTest() : NULL;
+    }
 
     void* allocateAction(size_t sz) { return m_dataPool->allocate(sz); }
 private:
     const int64_t m_undoToken;
     std::deque<UndoReleaseAction*> m_undoActions;
     std::list<UndoQuantumReleaseInterest*> m_interests;
+    // the run compact tuple entries are appended to while it is still the last action
+    UndoTupleRunAction* m_lastTupleRun;
 protected:
     Pool *m_dataPool;
 };
@@ -0,0 +1,136 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#pragma once
+
+#include <cstddef>
+#include <stdint.h>
+
+#include "common/debuglog.h"
+#include "common/Pool.hpp"
+#include "common/UndoReleaseAction.h"
+
+namespace voltdb {
+
+/*
+ * Owner of the tuples recorded in an UndoTupleRunAction. Each call hands over one chunk of
+ * the run with its tuples in the order they were registered, so there is one virtual call
+ * per chunk rather than one per tuple.
+ */
+class UndoTupleRunTarget {
+public:
+    virtual ~UndoTupleRunTarget() {}
+
+    // undo implementations must walk the tuples from the back
+    virtual void undoInsertedTuples(char* const* tuples, size_t count) = 0;
+    virtual void undoDeletedTuples(char* const* tuples, size_t count) = 0;
+    virtual void releaseDeletedTuples(char* const* tuples, size_t count) = 0;
+};
+
+/*
+ * Compact undo record for a sequence of single tuple inserts or deletes against the same
+ * table. Instead of an undo action object per tuple, the quantum keeps extending the run at
+ * the tail of its action list with one tuple pointer per row, stored in chunks allocated
+ * from the quantum's data pool. Chunks start small and double in capacity so that runs cut
+ * short by interleaved actions stay cheap.
+ *
+ * Releasing an insert run is free, releasing a delete run finalizes its tuples a chunk at a time.
+ */
+class UndoTupleRunAction : public UndoReleaseAction {
+public:
+    enum Kind {
+        INSERT,
+        DELETE
+    };
+
+    UndoTupleRunAction(UndoTupleRunTarget* target, Kind kind, Pool* pool)
+        : m_target(target), m_kind(kind), m_pool(pool), m_first(allocateChunk(MIN_CHUNK_TUPLES, NULL)), m_last(m_first)
+    {}
+
+    virtual ~UndoTupleRunAction() {}
+
+    inline bool extends(UndoTupleRunTarget const* target, Kind kind) const {
+        return m_target == target && m_kind == kind;
+    }
+
+    inline void append(char* tuple) {
+        if (m_last->m_count == m_last->m_capacity) {
+            uint32_t capacity = m_last->m_capacity * 2;
+            m_last = allocateChunk(capacity < MAX_CHUNK_TUPLES ? capacity : MAX_CHUNK_TUPLES, m_last);
+        }
+        m_last->m_tuples[m_last->m_count++] = tuple;
+    }
+
+    /*
+     * Undo the run from its most recent tuple back to the first one
+     */
+    void undo() {
+        for (Chunk* chunk = m_last; chunk != NULL; chunk = chunk->m_prev) {
+            if (m_kind == INSERT) {
+                m_target->undoInsertedTuples(chunk->m_tuples, chunk->m_count);
+            } else {
+                m_target->undoDeletedTuples(chunk->m_tuples, chunk->m_count);
+            }
+        }
+    }
+
+    void release() {
+        if (m_kind == INSERT) {
+            // inserted tuples stay in the table, nothing is held for them
+            return;
+        }
+        for (Chunk* chunk = m_first; chunk != NULL; chunk = chunk->m_next) {
+            m_target->releaseDeletedTuples(chunk->m_tuples, chunk->m_count);
+        }
+    }
+
+    inline char* getLastTupleForTest() const {
+        return m_last->m_count == 0 ? NULL : m_last->m_tuples[m_last->m_count - 1];
+    }
+
+private:
+    struct Chunk {
+        Chunk* m_prev;
+        Chunk* m_next;
+        uint32_t m_count;
+        uint32_t m_capacity;
+        char* m_tuples[1];
+    };
+
+    static const uint32_t MIN_CHUNK_TUPLES = 8;
+    static const uint32_t MAX_CHUNK_TUPLES = 1024;
+
+    Chunk* allocateChunk(uint32_t capacity, Chunk* prev) {
+        Chunk* chunk = static_cast<Chunk*>(m_pool->allocate(offsetof(Chunk, m_tuples) + capacity * sizeof(char*)));
+        chunk->m_prev = prev;
+        chunk->m_next = NULL;
+        chunk->m_count = 0;
+        chunk->m_capacity = capacity;
+        if (prev != NULL) {
+            prev->m_next = chunk;
+        }
+        return chunk;
+    }
+
+    UndoTupleRunTarget* const m_target;
+    const Kind m_kind;
+    Pool* const m_pool;
+    Chunk* const m_first;
+    Chunk* m_last;
+};
+
+}
@@ -105,6 +105,7 @@ map<PlanNodeType, string> const mapOfPlanNodeType {
    {PLAN_NODE_TYPE_NESTLOOP, "NESTLOOP"},
    {PLAN_NODE_TYPE_NESTLOOPINDEX, "NESTLOOPINDEX"},
    {PLAN_NODE_TYPE_MERGEJOIN, "MERGEJOIN"},
+   {PLAN_NODE_TYPE_HASHJOIN, "HASHJOIN"},
    {PLAN_NODE_TYPE_UPDATE, "UPDATE"},
    {PLAN_NODE_TYPE_INSERT, "INSERT"},
    {PLAN_NODE_TYPE_DELETE, "DELETE"},
@@ -188,6 +188,7 @@ enum PlanNodeType {
     PLAN_NODE_TYPE_NESTLOOP         = 20,
     PLAN_NODE_TYPE_NESTLOOPINDEX    = 21,
     PLAN_NODE_TYPE_MERGEJOIN        = 22,
+    PLAN_NODE_TYPE_HASHJOIN         = 23,
 
     //
     // Operator Nodes
@@ -368,7 +369,7 @@ enum QuantifierType {
 enum TableIndexType {
     BALANCED_TREE_INDEX     = 1,
     HASH_TABLE_INDEX        = 2,
-    BTREE_INDEX             = 3, // unused
+    BTREE_INDEX             = 3, // B+tree variant of BALANCED_TREE_INDEX
     COVERING_CELL_INDEX     = 4
 };
 
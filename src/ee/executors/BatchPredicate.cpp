@@ -0,0 +1,353 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include <cmath>
+#include <limits>
+
+#include "common/NValue.hpp"
+#include "common/TupleSchema.h"
+#include "common/ValuePeeker.hpp"
+#include "common/tabletuple.h"
+#include "executors/BatchPredicate.hpp"
+#include "expressions/abstractexpression.h"
+#include "expressions/tuplevalueexpression.h"
+
+namespace voltdb {
+
+// A node of a compiled predicate.  eval narrows the count tuple indexes in
+// input down to the ones for which the node is true, keeping their order,
+// and returns how many there are.  output may be the same array as input.
+class BatchPredicateNode {
+public:
+    virtual ~BatchPredicateNode() {}
+    virtual bool bind(const TupleSchema* schema) = 0;
+    virtual int eval(char* const* tuples, const uint16_t* input, int count, uint16_t* output) = 0;
+};
+
+namespace {
+
+// The bound right hand side of a column comparison
+struct Operand {
+    uint32_t offset;
+    int64_t intValue;
+    double doubleValue;
+};
+
+typedef int (*Filter)(char* const* tuples, const uint16_t* input, int count, uint16_t* output,
+        const Operand& operand);
+
+// Three way comparisons returning the same sign as NValue::compare
+struct OpEq  { static bool test(int cmp) { return cmp == 0; } };
+struct OpNe  { static bool test(int cmp) { return cmp != 0; } };
+struct OpLt  { static bool test(int cmp) { return cmp < 0; } };
+struct OpGt  { static bool test(int cmp) { return cmp > 0; } };
+struct OpLte { static bool test(int cmp) { return cmp <= 0; } };
+struct OpGte { static bool test(int cmp) { return cmp >= 0; } };
+
+template <typename T>
+inline int threeWay(T lhs, T rhs) {
+    return (lhs > rhs) - (lhs < rhs);
+}
+
+// NaN sorts below every other double and is equal to itself, like NValue::compareDoubleValue
+inline int threeWayDouble(double lhs, double rhs) {
+    if (std::isnan(lhs)) {
+        return std::isnan(rhs) ? 0 : -1;
+    }
+    if (std::isnan(rhs)) {
+        return 1;
+    }
+    return threeWay(lhs, rhs);
+}
+
+// The null of every integer type is the smallest value of that type.
+// Indexes are written unconditionally and only kept when the tuple
+// qualifies, so the loop has no data dependent branch.
+template <typename T, typename OP>
+int filterIntegers(char* const* tuples, const uint16_t* input, int count, uint16_t* output,
+        const Operand& operand) {
+    const T nullValue = std::numeric_limits<T>::min();
+    const uint32_t offset = TUPLE_HEADER_SIZE + operand.offset;
+    const int64_t rhs = operand.intValue;
+    int selected = 0;
+    for (int i = 0; i < count; ++i) {
+        const uint16_t idx = input[i];
+        const T value = *reinterpret_cast<const T*>(tuples[idx] + offset);
+        output[selected] = idx;
+        selected += (value != nullValue) & OP::test(threeWay<int64_t>(value, rhs));
+    }
+    return selected;
+}
+
+template <typename OP>
+int filterDoubles(char* const* tuples, const uint16_t* input, int count, uint16_t* output,
+        const Operand& operand) {
+    const uint32_t offset = TUPLE_HEADER_SIZE + operand.offset;
+    const double rhs = operand.doubleValue;
+    int selected = 0;
+    for (int i = 0; i < count; ++i) {
+        const uint16_t idx = input[i];
+        const double value = *reinterpret_cast<const double*>(tuples[idx] + offset);
+        output[selected] = idx;
+        selected += !(value <= DOUBLE_NULL) & OP::test(threeWayDouble(value, rhs));
+    }
+    return selected;
+}
+
+template <typename OP>
+Filter filterFor(ValueType columnType) {
+    switch (columnType) {
+        case ValueType::tTINYINT:
+            return &filterIntegers<int8_t, OP>;
+        case ValueType::tSMALLINT:
+            return &filterIntegers<int16_t, OP>;
+        case ValueType::tINTEGER:
+            return &filterIntegers<int32_t, OP>;
+        case ValueType::tBIGINT:
+        case ValueType::tTIMESTAMP:
+            return &filterIntegers<int64_t, OP>;
+        case ValueType::tDOUBLE:
+            return &filterDoubles<OP>;
+        default:
+            return NULL;
+    }
+}
+
+Filter filterFor(ExpressionType op, ValueType columnType) {
+    switch (op) {
+        case EXPRESSION_TYPE_COMPARE_EQUAL:
+            return filterFor<OpEq>(columnType);
+        case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+            return filterFor<OpNe>(columnType);
+        case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+            return filterFor<OpLt>(columnType);
+        case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+            return filterFor<OpGt>(columnType);
+        case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+            return filterFor<OpLte>(columnType);
+        case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+            return filterFor<OpGte>(columnType);
+        default:
+            return NULL;
+    }
+}
+
+bool isIntegerType(ValueType type) {
+    switch (type) {
+        case ValueType::tTINYINT:
+        case ValueType::tSMALLINT:
+        case ValueType::tINTEGER:
+        case ValueType::tBIGINT:
+        case ValueType::tTIMESTAMP:
+            return true;
+        default:
+            return false;
+    }
+}
+
+// The comparison with the column on the other side
+ExpressionType reverseComparison(ExpressionType op) {
+    switch (op) {
+        case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+            return EXPRESSION_TYPE_COMPARE_GREATERTHAN;
+        case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+            return EXPRESSION_TYPE_COMPARE_LESSTHAN;
+        case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+            return EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO;
+        case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+            return EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO;
+        default:
+            return op;
+    }
+}
+
+bool isColumn(const AbstractExpression* expr) {
+    return expr->getExpressionType() == EXPRESSION_TYPE_VALUE_TUPLE &&
+            static_cast<const TupleValueExpression*>(expr)->getTupleIdx() == 0;
+}
+
+bool isValue(const AbstractExpression* expr) {
+    return expr->getExpressionType() == EXPRESSION_TYPE_VALUE_CONSTANT ||
+            expr->getExpressionType() == EXPRESSION_TYPE_VALUE_PARAMETER;
+}
+
+/** column <op> constant or parameter */
+class ComparisonNode : public BatchPredicateNode {
+    const ExpressionType m_op;
+    const int m_columnIndex;
+    const AbstractExpression* const m_value;
+    Filter m_filter = NULL;
+    Operand m_operand;
+public:
+    ComparisonNode(ExpressionType op, int columnIndex, const AbstractExpression* value)
+        : m_op(op), m_columnIndex(columnIndex), m_value(value) {}
+
+    bool bind(const TupleSchema* schema) {
+        if (m_columnIndex >= schema->columnCount()) {
+            return false;
+        }
+        const TupleSchema::ColumnInfo* columnInfo = schema->getColumnInfo(m_columnIndex);
+        const ValueType columnType = columnInfo->getVoltType();
+        NValue value = m_value->eval(NULL, NULL);
+        if (value.isNull()) {
+            // comparisons with null are never true
+            m_filter = NULL;
+            return filterFor(m_op, columnType) != NULL;
+        }
+        const ValueType valueType = ValuePeeker::peekValueType(value);
+        if (columnType == ValueType::tDOUBLE) {
+            if (valueType != ValueType::tDOUBLE && !isIntegerType(valueType)) {
+                return false;
+            }
+            m_operand.doubleValue = valueType == ValueType::tDOUBLE ?
+                    ValuePeeker::peekDouble(value) :
+                    static_cast<double>(ValuePeeker::peekAsRawInt64(value));
+        }
+        else if (isIntegerType(valueType)) {
+            // An integer column compared to a double or decimal is left to NValue
+            m_operand.intValue = ValuePeeker::peekAsRawInt64(value);
+        }
+        else {
+            return false;
+        }
+        m_operand.offset = columnInfo->offset;
+        m_filter = filterFor(m_op, columnType);
+        return m_filter != NULL;
+    }
+
+    int eval(char* const* tuples, const uint16_t* input, int count, uint16_t* output) {
+        return m_filter == NULL ? 0 : m_filter(tuples, input, count, output, m_operand);
+    }
+};
+
+class AndNode : public BatchPredicateNode {
+    boost::scoped_ptr<BatchPredicateNode> m_left;
+    boost::scoped_ptr<BatchPredicateNode> m_right;
+public:
+    AndNode(BatchPredicateNode* left, BatchPredicateNode* right) : m_left(left), m_right(right) {}
+
+    bool bind(const TupleSchema* schema) {
+        return m_left->bind(schema) && m_right->bind(schema);
+    }
+
+    int eval(char* const* tuples, const uint16_t* input, int count, uint16_t* output) {
+        // the right side only looks at what survived the left side
+        count = m_left->eval(tuples, input, count, output);
+        return count == 0 ? 0 : m_right->eval(tuples, output, count, output);
+    }
+};
+
+class OrNode : public BatchPredicateNode {
+    boost::scoped_ptr<BatchPredicateNode> m_left;
+    boost::scoped_ptr<BatchPredicateNode> m_right;
+    std::vector<uint16_t> m_scratch;
+    std::vector<uint8_t> m_hits;
+public:
+    OrNode(BatchPredicateNode* left, BatchPredicateNode* right)
+        : m_left(left), m_right(right),
+          m_scratch(BatchPredicate::BATCH_SIZE), m_hits(BatchPredicate::BATCH_SIZE) {}
+
+    bool bind(const TupleSchema* schema) {
+        return m_left->bind(schema) && m_right->bind(schema);
+    }
+
+    int eval(char* const* tuples, const uint16_t* input, int count, uint16_t* output) {
+        uint16_t* scratch = &m_scratch[0];
+        uint8_t* hits = &m_hits[0];
+        int selected = m_left->eval(tuples, input, count, scratch);
+        for (int i = 0; i < selected; ++i) {
+            hits[scratch[i]] = 1;
+        }
+        selected = m_right->eval(tuples, input, count, scratch);
+        for (int i = 0; i < selected; ++i) {
+            hits[scratch[i]] = 1;
+        }
+        // input is only read at or ahead of the write position, so it may be output
+        selected = 0;
+        for (int i = 0; i < count; ++i) {
+            const uint16_t idx = input[i];
+            output[selected] = idx;
+            selected += hits[idx];
+            hits[idx] = 0;
+        }
+        return selected;
+    }
+};
+
+BatchPredicateNode* compileNode(const AbstractExpression* expr) {
+    const ExpressionType type = expr->getExpressionType();
+    if (type == EXPRESSION_TYPE_CONJUNCTION_AND || type == EXPRESSION_TYPE_CONJUNCTION_OR) {
+        BatchPredicateNode* left = compileNode(expr->getLeft());
+        if (left == NULL) {
+            return NULL;
+        }
+        BatchPredicateNode* right = compileNode(expr->getRight());
+        if (right == NULL) {
+            delete left;
+            return NULL;
+        }
+        if (type == EXPRESSION_TYPE_CONJUNCTION_AND) {
+            return new AndNode(left, right);
+        }
+        return new OrNode(left, right);
+    }
+    if (filterFor(type, ValueType::tBIGINT) == NULL) {
+        // not one of the plain comparisons
+        return NULL;
+    }
+    const AbstractExpression* left = expr->getLeft();
+    const AbstractExpression* right = expr->getRight();
+    if (isColumn(left) && isValue(right)) {
+        return new ComparisonNode(type,
+                static_cast<const TupleValueExpression*>(left)->getColumnId(), right);
+    }
+    if (isValue(left) && isColumn(right)) {
+        return new ComparisonNode(reverseComparison(type),
+                static_cast<const TupleValueExpression*>(right)->getColumnId(), left);
+    }
+    return NULL;
+}
+
+} // end anonymous namespace
+
+BatchPredicate::BatchPredicate(BatchPredicateNode* root) : m_root(root), m_all(BATCH_SIZE) {
+    for (int i = 0; i < BATCH_SIZE; ++i) {
+        m_all[i] = static_cast<uint16_t>(i);
+    }
+}
+
+BatchPredicate::~BatchPredicate() {
+}
+
+BatchPredicate* BatchPredicate::compile(const AbstractExpression* predicate) {
+    if (predicate == NULL) {
+        return NULL;
+    }
+    BatchPredicateNode* root = compileNode(predicate);
+    return root == NULL ? NULL : new BatchPredicate(root);
+}
+
+bool BatchPredicate::bind(const TupleSchema* schema) {
+    return m_root->bind(schema);
+}
+
+int BatchPredicate::eval(char* const* tuples, int count, uint16_t* selected) {
+    vassert(count <= BATCH_SIZE);
+    return m_root->eval(tuples, &m_all[0], count, selected);
+}
+
+} // end namespace voltdb
@@ -0,0 +1,80 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#pragma once
+
+#include <cstdint>
+#include <vector>
+
+#include "boost/scoped_ptr.hpp"
+
+namespace voltdb {
+
+// Forward declarations
+class AbstractExpression;
+class TupleSchema;
+class BatchPredicateNode;
+
+/**
+ * A scan predicate compiled into loops over blocks of tuples.
+ *
+ * Comparisons of a fixed width numeric column against a constant or a
+ * parameter, combined with AND and OR, are evaluated a block of tuples at
+ * a time straight from tuple storage, without building an NValue for each
+ * column value or making a virtual eval call per tuple.  The result of a
+ * block is a selection vector: the indexes, in ascending order, of the
+ * tuples for which the predicate is true.
+ *
+ * Any other predicate shape is rejected by compile(), and a predicate
+ * whose parameters turn out not to be usable by the fast path is rejected
+ * by bind(), in which case the caller evaluates the predicate tuple at a
+ * time as before.
+ */
+class BatchPredicate {
+    boost::scoped_ptr<BatchPredicateNode> m_root;
+    std::vector<uint16_t> m_all;
+
+    explicit BatchPredicate(BatchPredicateNode* root);
+public:
+    /** The maximum number of tuples evaluated by one call to eval */
+    static const int BATCH_SIZE = 1024;
+
+    /**
+     * Produce a batch predicate for the given scan predicate, or NULL if
+     * the predicate has a shape the batch evaluation does not handle.
+     */
+    static BatchPredicate* compile(const AbstractExpression* predicate);
+
+    /** This destructor is required for forward declarations to be useful */
+    ~BatchPredicate();
+
+    /**
+     * Prepare for scanning tuples of the given schema with the current
+     * values of the constants and parameters of the predicate. Returns false
+     * if the predicate can not be evaluated in batches for these values.
+     */
+    bool bind(const TupleSchema* schema);
+
+    /**
+     * Evaluate the predicate on count tuples, given by their addresses,
+     * and fill selected with the indexes of the qualifying ones.
+     * Returns the number of qualifying tuples.
+     */
+    int eval(char* const* tuples, int count, uint16_t* selected);
+};
+
+} // end namespace voltdb
@@ -44,10 +44,14 @@
  */
 
 #include <tuple>
+#include "common/LargeTempTableBlockCache.h"
 #include "common/SerializableEEException.h"
+#include "common/executorcontext.hpp"
+#include "execution/ExecutorVector.h"
 #include "executors/aggregateexecutor.h"
 #include "plannodes/aggregatenode.h"
 #include "plannodes/limitnode.h"
+#include "storage/tablefactory.h"
 #include "storage/temptable.h"
 
 #include "hyperloglog/hyperloglog.hpp" // for APPROX_COUNT_DISTINCT
@@ -721,12 +725,37 @@ void AggregateExecutorBase::p_execute_finish() {
 
 AggregateHashExecutor::~AggregateHashExecutor() {}
 
+namespace {
+// Upper bound on the number of partitions one spill splits the groups into.
+// Each partition pins a block cache slot while it is being written.
+const int MAX_SPILL_PARTITIONS = 16;
+}
+
+bool AggregateHashExecutor::p_init(AbstractPlanNode* abstract_node, const ExecutorVector& executorVector) {
+    m_isLargeQuery = executorVector.isLargeQuery();
+    return AggregateExecutorBase::p_init(abstract_node, executorVector);
+}
+
 TableTuple AggregateHashExecutor::p_execute_init(
         const NValueArray& params, ProgressMonitorProxy* pmp,
         const TupleSchema * schema, AbstractTempTable* newTempTable,
         CountingPostfilter* parentPostfilter) {
     VOLT_TRACE("hash aggregate executor init..");
     m_hash.clear();
+    m_spillPartitions.clear();
+    m_spilling = false;
+    m_spillPass = 0;
+    m_canSpill = false;
+    if (m_isLargeQuery) {
+        LargeTempTableBlockCache& lttBlockCache = ExecutorContext::getExecutorContext()->lttBlockCache();
+        // While spilling, one more block is pinned by the input being scanned
+        // and one by the output table being filled.
+        m_spillFanout = std::min(MAX_SPILL_PARTITIONS,
+                lttBlockCache.maxCacheSizeInBlocks() - 2);
+        // Leave the other half of the cache to the input and output tables.
+        m_spillThreshold = lttBlockCache.maxCacheSizeInBytes() / 2;
+        m_canSpill = m_spillFanout > 0;
+    }
     return AggregateExecutorBase::p_execute_init(params, pmp, schema, newTempTable, parentPostfilter);
 }
 
@@ -763,8 +792,18 @@ void AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
 
     // Group not found. Make a new entry in the hash for this new group.
     if (keyIter == m_hash.end()) {
+        if (m_spilling) {
+            // No room for more groups, set the tuple aside for a later pass.
+            spillTuple(nextTuple, nextGroupByKeyTuple);
+            return;
+        }
         VOLT_TRACE("hash aggregate: new group..");
         aggregateRow = new (m_memoryPool, m_aggTypes.size()) AggregateRow();
+        if (m_canSpill) {
+            // The input may be a large temp table whose blocks get unpinned or
+            // released under the group, so keep copies of its non-inlined values.
+            copyNonInlinedKeyValues(nextGroupByKeyTuple);
+        }
         m_hash.insert(HashAggregateMapType::value_type(nextGroupByKeyTuple, aggregateRow));
 
         initAggInstances(aggregateRow);
@@ -773,11 +812,19 @@ void AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
                     m_inputSchema->tupleLength() + TUPLE_HEADER_SIZE));
         TableTuple passThroughTupleSource = TableTuple(storage, m_inputSchema);
 
-        aggregateRow->recordPassThroughTuple(passThroughTupleSource, nextTuple);
+        if (m_canSpill) {
+            aggregateRow->recordPassThroughTupleCopy(passThroughTupleSource, nextTuple, &m_memoryPool);
+        } else {
+            aggregateRow->recordPassThroughTuple(passThroughTupleSource, nextTuple);
+        }
         // The map is referencing the current key tuple for use by the new group,
         // so force a new tuple allocation to hold the next candidate key.
         nextGroupByKeyTuple.move(nullptr);
 
+        if (m_canSpill && groupMemoryInBytes() > m_spillThreshold) {
+            startSpilling();
+        }
+
         if (m_aggTypes.empty()) {
             insertOutputTuple(aggregateRow);
             return;
@@ -790,9 +837,46 @@ void AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
     advanceAggs(aggregateRow, nextTuple);
 }
 
-void AggregateHashExecutor::p_execute_finish() {
-    VOLT_TRACE("finalizing..");
+int64_t AggregateHashExecutor::groupMemoryInBytes() const {
+    // The pool holds the keys, pass through tuples and aggregates of the groups;
+    // the hash map allocates its nodes and buckets on the heap.
+    return m_memoryPool.getAllocatedMemory() +
+        m_hash.size() * (sizeof(HashAggregateMapType::value_type) + 2 * sizeof(void*)) +
+        m_hash.bucket_count() * sizeof(void*);
+}
+
+void AggregateHashExecutor::copyNonInlinedKeyValues(TableTuple& groupByKeyTuple) {
+    const TupleSchema* schema = groupByKeyTuple.getSchema();
+    for (uint16_t ii = 0; ii < schema->getUninlinedObjectColumnCount(); ii++) {
+        const uint16_t columnIndex = schema->getUninlinedObjectColumnInfoIndex(ii);
+        groupByKeyTuple.setNValueAllocateForObjectCopies(columnIndex,
+                groupByKeyTuple.getNValue(columnIndex), &m_memoryPool);
+    }
+}
+
+void AggregateHashExecutor::startSpilling() {
+    VOLT_DEBUG("hash aggregate: spilling pass %d after %zu groups into %d partitions",
+               m_spillPass, m_hash.size(), m_spillFanout);
+    std::vector<std::string> columnNames;
+    for (int ii = 0; ii < m_inputSchema->columnCount(); ii++) {
+        columnNames.push_back("C" + std::to_string(ii));
+    }
+    for (int ii = 0; ii < m_spillFanout; ii++) {
+        m_spillPartitions.emplace_back(TableFactory::buildLargeTempTable(
+                    "HASH_AGGREGATE_SPILL", TupleSchema::createTupleSchema(m_inputSchema), columnNames));
+    }
+    m_spilling = true;
+}
+
+void AggregateHashExecutor::spillTuple(const TableTuple& tuple, const TableTuple& groupByKeyTuple) {
+    // Seed the hash with the pass number, so that a partition spilled again
+    // by the pass aggregating it is split up differently.
+    size_t partition = groupByKeyTuple.hashCode(m_spillPass + 1) % m_spillPartitions.size();
+    TableTuple spilledTuple(tuple);
+    m_spillPartitions[partition]->insertTuple(spilledTuple);
+}
 
+void AggregateHashExecutor::outputGroups() {
     // If there is no aggregation, results are already inserted already
     if (! m_aggTypes.empty()) {
         for (auto iter : m_hash) {
@@ -803,9 +887,56 @@ void AggregateHashExecutor::p_execute_finish() {
             delete aggregateRow;
         }
     }
+    m_hash.clear();
+}
+
+void AggregateHashExecutor::aggregateSpilledPartitions() {
+    std::vector<std::pair<std::unique_ptr<LargeTempTable>, int>> pending;
+    int nextPass = m_spillPass + 1;
+    while (true) {
+        // Partitions spilled by the pass that just finished are aggregated next.
+        for (auto& partition : m_spillPartitions) {
+            partition->finishInserts();
+            if (partition->activeTupleCount() > 0) {
+                pending.emplace_back(std::move(partition), nextPass);
+            }
+        }
+        m_spillPartitions.clear();
+        m_spilling = false;
+
+        if (pending.empty() || ! m_postfilter.isUnderLimit()) {
+            break;
+        }
+        std::unique_ptr<LargeTempTable> partition = std::move(pending.back().first);
+        m_spillPass = pending.back().second;
+        pending.pop_back();
+        nextPass = m_spillPass + 1;
+
+        // All groups of the previous pass have been output, so their memory can be reused.
+        TableTuple& nextGroupByKeyTuple = m_nextGroupByKeyStorage;
+        nextGroupByKeyTuple.move(nullptr);
+        m_memoryPool.purge();
+
+        VOLT_DEBUG("hash aggregate: pass %d over %" PRId64 " spilled tuples",
+                   m_spillPass, partition->activeTupleCount());
+        TableTuple spilledTuple(partition->schema());
+        TableIterator it = partition->iteratorDeletingAsWeGo();
+        while (it.next(spilledTuple)) {
+            p_execute_tuple(spilledTuple);
+        }
+        outputGroups();
+    }
+}
+
+void AggregateHashExecutor::p_execute_finish() {
+    VOLT_TRACE("finalizing..");
+
+    outputGroups();
+    if (! m_spillPartitions.empty()) {
+        aggregateSpilledPartitions();
+    }
 
     // Clean up
-    m_hash.clear();
     AggregateExecutorBase::p_execute_finish();
 }
 
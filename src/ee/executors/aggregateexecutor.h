@@ -54,6 +54,9 @@
 #include "expressions/abstractexpression.h"
 #include "execution/ProgressMonitorProxy.h"
 #include "executors/executorutil.h"
+#include "storage/LargeTempTable.h"
+
+#include <memory>
 
 namespace voltdb {
 
@@ -133,6 +136,13 @@ struct AggregateRow {
         passThroughTupleSource.copy(tuple);
         m_passThroughTuple = passThroughTupleSource;
     }
+
+    // Like recordPassThroughTuple, but also copies the non-inlined values into the given pool
+    // for tuples whose storage may go away while the group is still being aggregated.
+    void recordPassThroughTupleCopy(TableTuple &passThroughTupleSource, const TableTuple &tuple, Pool* pool) {
+        passThroughTupleSource.copyForPersistentInsert(tuple, pool);
+        m_passThroughTuple = passThroughTupleSource;
+    }
 };
 
 /**
@@ -244,7 +254,32 @@ std::unordered_map<TableTuple, AggregateRow*, TableTupleHasher, TableTupleEquali
  */
 class AggregateHashExecutor : public AggregateExecutorBase {
     HashAggregateMapType m_hash;
+
+    /*
+     * Large queries can spill groups to large temp table blocks. Once the groups in memory
+     * outgrow m_spillThreshold bytes, the groups already in memory are kept and aggregated
+     * as usual, but the input tuples of any other group are set aside in m_spillPartitions,
+     * partitioned by a hash of the group by key. Each partition is then aggregated in a pass
+     * of its own after the in-memory groups have been output, possibly spilling again.
+     */
+    bool m_isLargeQuery = false;
+    bool m_canSpill = false;
+    bool m_spilling = false;
+    int64_t m_spillThreshold = 0;
+    int m_spillFanout = 0;
+    // spill recursion depth of the pass in progress, also seeds the partitioning hash
+    int m_spillPass = 0;
+    std::vector<std::unique_ptr<LargeTempTable>> m_spillPartitions;
+
+    bool p_init(AbstractPlanNode* abstract_node, const ExecutorVector& executorVector) override;
     bool p_execute(const NValueArray& params) override;
+
+    int64_t groupMemoryInBytes() const;
+    void copyNonInlinedKeyValues(TableTuple& groupByKeyTuple);
+    void startSpilling();
+    void spillTuple(const TableTuple& tuple, const TableTuple& groupByKeyTuple);
+    void outputGroups();
+    void aggregateSpilledPartitions();
 public:
     AggregateHashExecutor(VoltDBEngine* engine, AbstractPlanNode* abstract_node) :
         AggregateExecutorBase(engine, abstract_node) { }
@@ -257,6 +292,12 @@ public:
             CountingPostfilter* parentPredicate = nullptr) override;
     void p_execute_tuple(const TableTuple& nextTuple) override;
     void p_execute_finish() override;
+
+    void cleanupMemoryPool() override {
+        m_spillPartitions.clear();
+        m_spilling = false;
+        AggregateExecutorBase::cleanupMemoryPool();
+    }
 };
 
 /**
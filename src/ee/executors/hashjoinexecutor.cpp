@@ -0,0 +1,329 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+#include "hashjoinexecutor.h"
+
+#include "common/LargeTempTableBlockCache.h"
+#include "common/executorcontext.hpp"
+#include "execution/ExecutorVector.h"
+#include "execution/ProgressMonitorProxy.h"
+#include "executors/aggregateexecutor.h"
+#include "plannodes/hashjoinnode.h"
+#include "plannodes/limitnode.h"
+#include "storage/LargeTempTable.h"
+#include "storage/TempTableLimits.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+
+#include <climits>
+#include <memory>
+
+using namespace std;
+using namespace voltdb;
+
+namespace {
+// Upper bound on the number of partitions each input is split into when spilling.
+// Each partition pins a block cache slot while it is being written.
+const int MAX_SPILL_PARTITIONS = 16;
+// Partitions still too big after this many rounds of partitioning are most likely
+// skewed towards a few keys that no hash can split, so they are joined in memory.
+const int MAX_SPILL_DEPTH = 3;
+// Rough size of a hash table entry: the node holding the hash and the tuple
+// address, its next pointer and the bucket pointing to it.
+const int64_t HASH_ENTRY_BYTES = sizeof(std::pair<const size_t, char*>) + 3 * sizeof(void*);
+
+vector<unique_ptr<LargeTempTable>> createPartitions(const TupleSchema* schema, int fanout) {
+    vector<string> columnNames;
+    for (int ii = 0; ii < schema->columnCount(); ii++) {
+        columnNames.push_back("C" + std::to_string(ii));
+    }
+    vector<unique_ptr<LargeTempTable>> partitions;
+    for (int ii = 0; ii < fanout; ii++) {
+        partitions.emplace_back(TableFactory::buildLargeTempTable(
+                    "HASH_JOIN_SPILL", TupleSchema::createTupleSchema(schema), columnNames));
+    }
+    return partitions;
+}
+}
+
+bool HashJoinExecutor::p_init(AbstractPlanNode* abstractNode, const ExecutorVector& executorVector) {
+    VOLT_TRACE("init HashJoin Executor");
+
+    m_node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    vassert(m_node);
+
+    // Init parent first
+    if (!AbstractJoinExecutor::p_init(abstractNode, executorVector)) {
+        return false;
+    }
+    // The planner only picks hash joins for INNER and LEFT joins
+    vassert(m_joinType != JOIN_TYPE_FULL);
+    vassert( ! m_node->getOuterHashKeys().empty());
+
+    // NULL tuples for left joins
+    p_init_null_tuples(m_node->getInputTable(), m_node->getInputTable(1));
+
+    m_isLargeQuery = executorVector.isLargeQuery();
+    m_limits = const_cast<TempTableLimits*>(executorVector.limits());
+    return true;
+}
+
+bool HashJoinExecutor::p_execute(const NValueArray &params) {
+    VOLT_DEBUG("executing HashJoin...");
+    vassert(m_node->getInputTableCount() == 2);
+
+    // output table must be a temp table
+    vassert(m_tmpOutputTable);
+
+    Table* outerTable = m_node->getInputTable();
+    vassert(outerTable);
+    Table* innerTable = m_node->getInputTable(1);
+    vassert(innerTable);
+
+    VOLT_TRACE ("input table left:\n %s", outerTable->debug().c_str());
+    VOLT_TRACE ("input table right:\n %s", innerTable->debug().c_str());
+
+    m_canSpill = false;
+    if (m_isLargeQuery) {
+        LargeTempTableBlockCache& lttBlockCache = ExecutorContext::getExecutorContext()->lttBlockCache();
+        // While partitioning, one more block is pinned by the input being scanned
+        // and one by the output table being filled.
+        m_spillFanout = std::min(MAX_SPILL_PARTITIONS, lttBlockCache.maxCacheSizeInBlocks() - 2);
+        // Leave the other half of the cache to the input and output tables.
+        m_spillThreshold = lttBlockCache.maxCacheSizeInBytes() / 2;
+        // The hash table is charged to the temp table limits as well, so spill
+        // before it takes up what is left of them.
+        if (m_limits->getMemoryLimit() > 0) {
+            m_spillThreshold = std::min(m_spillThreshold,
+                                        (m_limits->getMemoryLimit() - m_limits->getAllocated()) / 2);
+        }
+        m_canSpill = m_spillFanout > 1;
+    }
+
+    LimitPlanNode* limitNode = dynamic_cast<LimitPlanNode*>(m_node->getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+    int limit = CountingPostfilter::NO_LIMIT;
+    int offset = CountingPostfilter::NO_OFFSET;
+    if (limitNode) {
+        tie(limit, offset) = limitNode->getLimitAndOffset(params);
+    }
+
+    ProgressMonitorProxy pmp(m_engine->getExecutorContext(), this);
+    m_pmp = &pmp;
+    m_postfilter = CountingPostfilter(m_tmpOutputTable, m_node->getWherePredicate(), limit, offset);
+    m_outerCols = outerTable->columnCount();
+    m_innerCols = innerTable->columnCount();
+
+    if (m_aggExec != NULL) {
+        VOLT_TRACE("Init inline aggregate...");
+        const TupleSchema * aggInputSchema = m_node->getTupleSchemaPreAgg();
+        m_joinTuple = m_aggExec->p_execute_init(params, &pmp, aggInputSchema, m_tmpOutputTable, &m_postfilter);
+    } else {
+        m_joinTuple = m_tmpOutputTable->tempTuple();
+    }
+
+    // A previous execution that threw may have left its hash table behind
+    releaseHashTable();
+    joinTables(outerTable, innerTable, 0);
+
+    if (m_aggExec != NULL) {
+        m_aggExec->p_execute_finish();
+    }
+
+    releaseHashTable();
+    m_pmp = nullptr;
+    return true;
+}
+
+void HashJoinExecutor::joinTables(Table* outerTable, Table* innerTable, int depth) {
+    if (m_canSpill && depth < MAX_SPILL_DEPTH && hashTableBytes(innerTable) > m_spillThreshold) {
+        partitionAndJoin(outerTable, innerTable, depth);
+        return;
+    }
+
+    buildHashTable(innerTable);
+    VOLT_TRACE("hash join: built hash table of %zu inner tuples at depth %d", m_hashTable.size(), depth);
+
+    TableTuple outerTuple(outerTable->schema());
+    TableIterator outerIterator = outerTable->iteratorDeletingAsWeGo();
+    while (m_postfilter.isUnderLimit() && outerIterator.next(outerTuple)) {
+        m_pmp->countdownProgress();
+        probeHashTable(outerTuple, innerTable->schema());
+    }
+
+    releaseHashTable();
+}
+
+int64_t HashJoinExecutor::hashTableBytes(Table* innerTable) const {
+    // Every inner tuple gets an entry, even when the hash table points into a
+    // persistent or temp table that a scan passed through unchanged.
+    int64_t bytes = innerTable->activeTupleCount() * HASH_ENTRY_BYTES;
+    // The tuples of a large temp table are copied as well.
+    if (dynamic_cast<LargeTempTable*>(innerTable) != nullptr) {
+        bytes += innerTable->allocatedBlockCount() * LargeTempTableBlock::BLOCK_SIZE_IN_BYTES;
+    }
+    return bytes;
+}
+
+void HashJoinExecutor::releaseHashTable() {
+    m_hashTable.clear();
+    m_memoryPool.purge();
+    while (m_hashTableBytes > 0) {
+        int bytes = static_cast<int>(std::min<int64_t>(m_hashTableBytes, INT_MAX));
+        m_limits->reduceAllocated(bytes);
+        m_hashTableBytes -= bytes;
+    }
+}
+
+void HashJoinExecutor::partitionAndJoin(Table* outerTable, Table* innerTable, int depth) {
+    // Seed the hash with the depth, so that a partition that is partitioned
+    // again gets split up differently.
+    const size_t seed = depth + 1;
+    VOLT_DEBUG("hash join: partitioning %" PRId64 " inner tuples into %d partitions at depth %d",
+               innerTable->activeTupleCount(), m_spillFanout, depth);
+    const vector<AbstractExpression*>& innerKeys = m_node->getInnerHashKeys();
+    vector<unique_ptr<LargeTempTable>> innerPartitions = createPartitions(innerTable->schema(), m_spillFanout);
+    TableTuple innerTuple(innerTable->schema());
+    TableIterator innerIterator = innerTable->iteratorDeletingAsWeGo();
+    while (innerIterator.next(innerTuple)) {
+        m_pmp->countdownProgress();
+        size_t hash;
+        // Inner tuples with NULL keys can not match and are never null-padded
+        if (hashKeys(innerKeys, nullptr, &innerTuple, seed, hash)) {
+            innerPartitions[hash % m_spillFanout]->insertTuple(innerTuple);
+        }
+    }
+    for (auto& partition : innerPartitions) {
+        partition->finishInserts();
+    }
+
+    vector<unique_ptr<LargeTempTable>> outerPartitions = createPartitions(outerTable->schema(), m_spillFanout);
+    TableTuple outerTuple(outerTable->schema());
+    TableIterator outerIterator = outerTable->iteratorDeletingAsWeGo();
+    while (m_postfilter.isUnderLimit() && outerIterator.next(outerTuple)) {
+        m_pmp->countdownProgress();
+        size_t hash;
+        if (outerTupleCanMatch(outerTuple, seed, hash)) {
+            outerPartitions[hash % m_spillFanout]->insertTuple(outerTuple);
+        } else if (m_joinType == JOIN_TYPE_LEFT) {
+            outputNullPaddedTuple(outerTuple);
+        }
+    }
+    for (auto& partition : outerPartitions) {
+        partition->finishInserts();
+    }
+
+    for (int ii = 0; ii < m_spillFanout && m_postfilter.isUnderLimit(); ii++) {
+        if (outerPartitions[ii]->activeTupleCount() > 0) {
+            joinTables(outerPartitions[ii].get(), innerPartitions[ii].get(), depth + 1);
+        }
+        // Release the blocks of the pair as soon as it is done
+        outerPartitions[ii].reset();
+        innerPartitions[ii].reset();
+    }
+}
+
+void HashJoinExecutor::buildHashTable(Table* innerTable) {
+    const vector<AbstractExpression*>& innerKeys = m_node->getInnerHashKeys();
+    // The blocks of a large temp table get unpinned or released under the hash table,
+    // so its tuples are copied. Tuples of other tables stay where they are.
+    const bool copyTuples = dynamic_cast<LargeTempTable*>(innerTable) != nullptr;
+    TableTuple innerTuple(innerTable->schema());
+    const int entryBytes = static_cast<int>(HASH_ENTRY_BYTES + (copyTuples ? innerTuple.tupleLength() : 0));
+    TableIterator innerIterator = copyTuples ? innerTable->iteratorDeletingAsWeGo() : innerTable->iterator();
+    while (innerIterator.next(innerTuple)) {
+        m_pmp->countdownProgress();
+        size_t hash;
+        if ( ! hashKeys(innerKeys, nullptr, &innerTuple, 0, hash)) {
+            // A NULL key does not equal anything
+            continue;
+        }
+        char* storage = innerTuple.address();
+        if (copyTuples) {
+            storage = reinterpret_cast<char*>(m_memoryPool.allocate(innerTuple.tupleLength()));
+            TableTuple copiedTuple(storage, innerTuple.getSchema());
+            copiedTuple.copyForPersistentInsert(innerTuple, &m_memoryPool);
+        }
+        m_hashTable.emplace(hash, storage);
+        // Fails the query once the fragment runs out of temp table memory,
+        // the same as a temp table holding the inner input would.
+        m_hashTableBytes += entryBytes;
+        m_limits->increaseAllocated(entryBytes);
+    }
+}
+
+void HashJoinExecutor::probeHashTable(const TableTuple& outerTuple, const TupleSchema* innerSchema) {
+    AbstractExpression* joinPredicate = m_node->getJoinPredicate();
+    // did this probe find at least one match for this tuple?
+    bool outerMatch = false;
+    size_t hash;
+    if (outerTupleCanMatch(outerTuple, 0, hash)) {
+        m_joinTuple.setNValues(0, outerTuple, 0, m_outerCols);
+        TableTuple innerTuple(innerSchema);
+        auto range = m_hashTable.equal_range(hash);
+        for (auto it = range.first; it != range.second && m_postfilter.isUnderLimit(); ++it) {
+            innerTuple.move(it->second);
+            // The join predicate includes the key equalities, which also weeds out hash collisions
+            if (joinPredicate == nullptr || joinPredicate->eval(&outerTuple, &innerTuple).isTrue()) {
+                outerMatch = true;
+                // Filter the joined tuple
+                if (m_postfilter.eval(&outerTuple, &innerTuple)) {
+                    // Matched! Complete the joined tuple with the inner column values.
+                    m_joinTuple.setNValues(m_outerCols, innerTuple, 0, m_innerCols);
+                    outputTuple(m_postfilter, m_joinTuple, *m_pmp);
+                }
+            }
+        }
+    }
+
+    if (m_joinType == JOIN_TYPE_LEFT && ! outerMatch && m_postfilter.isUnderLimit()) {
+        outputNullPaddedTuple(outerTuple);
+    }
+}
+
+void HashJoinExecutor::outputNullPaddedTuple(const TableTuple& outerTuple) {
+    const TableTuple& nullInnerTuple = m_null_inner_tuple.tuple();
+    // Still needs to pass the filter
+    if (m_postfilter.eval(&outerTuple, &nullInnerTuple)) {
+        m_joinTuple.setNValues(0, outerTuple, 0, m_outerCols);
+        m_joinTuple.setNValues(m_outerCols, nullInnerTuple, 0, m_innerCols);
+        outputTuple(m_postfilter, m_joinTuple, *m_pmp);
+    }
+}
+
+bool HashJoinExecutor::outerTupleCanMatch(const TableTuple& outerTuple, size_t seed, size_t& hash) const {
+    // For outer joins if outer tuple fails pre-join predicate
+    // (join expression based on the outer table only)
+    // it can't match any of inner tuples
+    AbstractExpression* preJoinPredicate = m_node->getPreJoinPredicate();
+    if (preJoinPredicate != nullptr && ! preJoinPredicate->eval(&outerTuple, nullptr).isTrue()) {
+        return false;
+    }
+    return hashKeys(m_node->getOuterHashKeys(), &outerTuple, nullptr, seed, hash);
+}
+
+bool HashJoinExecutor::hashKeys(const vector<AbstractExpression*>& keys,
+                                const TableTuple* outerTuple, const TableTuple* innerTuple,
+                                size_t seed, size_t& hash) {
+    hash = seed;
+    for (AbstractExpression* key : keys) {
+        NValue value = key->eval(outerTuple, innerTuple);
+        if (value.isNull()) {
+            return false;
+        }
+        hash = value.hashCombine(hash);
+    }
+    return true;
+}
@@ -0,0 +1,90 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#pragma once
+
+#include "common/common.h"
+#include "common/Pool.hpp"
+#include "common/valuevector.h"
+#include "executors/abstractjoinexecutor.h"
+#include "executors/executorutil.h"
+
+#include <unordered_map>
+
+namespace voltdb {
+
+class HashJoinPlanNode;
+class TempTableLimits;
+
+/**
+ * Equi-join that builds a hash table on the inner input and streams the outer
+ * input through it, so each outer tuple is matched with a lookup rather than a
+ * scan of the inner input. Supports INNER and LEFT joins.
+ *
+ * The memory held by the hash table is charged to the temp table limits of the
+ * fragment. In large queries the inner input may not fit in memory. When the
+ * hash table of the inner input, whatever kind of table it is, would take more
+ * than half of the block cache or of the temp table memory left, both inputs
+ * are split into large temp table partitions by a hash of their keys and each
+ * pair of partitions is joined on its own, partitioning again if still too big.
+ */
+class HashJoinExecutor : public AbstractJoinExecutor {
+public:
+    HashJoinExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node) :
+        AbstractJoinExecutor(engine, abstract_node) { }
+private:
+    // Hash of the inner tuple key -> inner tuple storage
+    typedef std::unordered_multimap<size_t, char*> HashTable;
+
+    bool p_init(AbstractPlanNode*, const ExecutorVector& executorVector);
+    bool p_execute(const NValueArray &params);
+
+    void joinTables(Table* outerTable, Table* innerTable, int depth);
+    void partitionAndJoin(Table* outerTable, Table* innerTable, int depth);
+    void buildHashTable(Table* innerTable);
+    void probeHashTable(const TableTuple& outerTuple, const TupleSchema* innerSchema);
+    void outputNullPaddedTuple(const TableTuple& outerTuple);
+    bool outerTupleCanMatch(const TableTuple& outerTuple, size_t seed, size_t& hash) const;
+    int64_t hashTableBytes(Table* innerTable) const;
+    void releaseHashTable();
+
+    static bool hashKeys(const std::vector<AbstractExpression*>& keys,
+                         const TableTuple* outerTuple, const TableTuple* innerTuple,
+                         size_t seed, size_t& hash);
+
+    HashJoinPlanNode* m_node = nullptr;
+    bool m_isLargeQuery = false;
+    TempTableLimits* m_limits = nullptr;
+    bool m_canSpill = false;
+    int64_t m_spillThreshold = 0;
+    int m_spillFanout = 0;
+
+    HashTable m_hashTable;
+    // Holds copies of inner tuples whose large temp table blocks are released while building
+    Pool m_memoryPool;
+    // Bytes of the hash table and its tuple copies charged to m_limits
+    int64_t m_hashTableBytes = 0;
+
+    // State of the join in progress
+    CountingPostfilter m_postfilter;
+    ProgressMonitorProxy* m_pmp = nullptr;
+    TableTuple m_joinTuple;
+    int m_outerCols = 0;
+    int m_innerCols = 0;
+};
+
+}
@@ -82,6 +82,14 @@ bool SeqScanExecutor::p_init(AbstractPlanNode* abstract_node,
     // confuses things.
     vassert(m_aggExec == NULL || m_insertExec == NULL);
 
+    // Persistent tables keep every tuple in place for the whole scan, so the
+    // addresses of a block of tuples can be collected and filtered together.
+    // An inline insert could be writing to the scanned table, so leave that
+    // to the tuple at a time loop.
+    if (node->isPersistentTableScan() && m_insertExec == NULL) {
+        m_batchPredicate.reset(BatchPredicate::compile(node->getPredicate()));
+    }
+
     //
     // OPTIMIZATION: If there is no predicate for this SeqScan,
     // then we want to just set our OutputTable pointer to be the
@@ -191,6 +199,11 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
         TableTuple tuple(input_table->schema());
         TableIterator iterator = input_table->iteratorDeletingAsWeGo();
         AbstractExpression *predicate = node->getPredicate();
+        BatchPredicate* batchPredicate = NULL;
+        if (m_batchPredicate && m_batchPredicate->bind(input_table->schema())) {
+            // The batch predicate does all of the filtering
+            batchPredicate = m_batchPredicate.get();
+        }
 
         if (predicate)
         {
@@ -203,7 +216,9 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             std::tie(limit, offset) = limit_node->getLimitAndOffset(params);
         }
         // Initialize the postfilter
-        CountingPostfilter postfilter(m_tmpOutputTable, predicate, limit, offset);
+        CountingPostfilter postfilter(m_tmpOutputTable,
+                                      batchPredicate == NULL ? predicate : NULL,
+                                      limit, offset);
 
         ProgressMonitorProxy pmp(m_engine->getExecutorContext(), this);
         TableTuple temp_tuple;
@@ -251,45 +266,53 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             temp_tuple = m_tmpOutputTable->tempTuple();
         }
 
-        while (postfilter.isUnderLimit() && iterator.next(tuple))
-        {
-#if   defined(VOLT_TRACE_ENABLED)
-            int tuple_ctr = 0;
-#endif
-            VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
-                       tuple.debug(input_table->name()).c_str(),
-                       ++tuple_ctr,
-                       (int)input_table->activeTupleCount());
-            pmp.countdownProgress();
-
+        if (batchPredicate != NULL) {
             //
-            // For each tuple we need to evaluate it against our predicate and limit/offset
+            // Collect a block of tuples, evaluate the predicate on all of
+            // them at once and only visit the ones it selected.
             //
-            if (postfilter.eval(&tuple, NULL))
+            char* batch[BatchPredicate::BATCH_SIZE];
+            uint16_t selected[BatchPredicate::BATCH_SIZE];
+            int count = BatchPredicate::BATCH_SIZE;
+            while (postfilter.isUnderLimit() && count == BatchPredicate::BATCH_SIZE) {
+                count = 0;
+                while (count < BatchPredicate::BATCH_SIZE && iterator.next(tuple)) {
+                    batch[count++] = tuple.address();
+                    pmp.countdownProgress();
+                }
+                int selectedCount = batchPredicate->eval(batch, count, selected);
+                for (int ctr = 0; ctr < selectedCount && postfilter.isUnderLimit(); ctr++) {
+                    tuple.move(batch[selected[ctr]]);
+                    // Only limit and offset are left for the postfilter
+                    if (postfilter.eval(&tuple, NULL)) {
+                        projectAndOutputTuple(tuple, temp_tuple, projectionNode, num_of_columns);
+                        pmp.countdownProgress();
+                    }
+                }
+            }
+        }
+        else {
+            while (postfilter.isUnderLimit() && iterator.next(tuple))
             {
+#if   defined(VOLT_TRACE_ENABLED)
+                int tuple_ctr = 0;
+#endif
+                VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
+                           tuple.debug(input_table->name()).c_str(),
+                           ++tuple_ctr,
+                           (int)input_table->activeTupleCount());
+                pmp.countdownProgress();
+
                 //
-                // Nested Projection
-                // Project (or replace) values from input tuple
+                // For each tuple we need to evaluate it against our predicate and limit/offset
                 //
-                if (projectionNode != NULL)
-                {
-                    VOLT_TRACE("inline projection...");
-                    // Project the scanned table row onto
-                    // the columns of the select list in the
-                    // select statement.
-                    for (int ctr = 0; ctr < num_of_columns; ctr++) {
-                        NValue value = projectionNode->getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
-                        temp_tuple.setNValue(ctr, value);
-                    }
-                    outputTuple(temp_tuple);
-                }
-                else
+                if (postfilter.eval(&tuple, NULL))
                 {
-                    outputTuple(tuple);
+                    projectAndOutputTuple(tuple, temp_tuple, projectionNode, num_of_columns);
+                    pmp.countdownProgress();
                 }
-                pmp.countdownProgress();
-            }
-        } // end while we have more tuples to scan
+            } // end while we have more tuples to scan
+        }
 
         if (m_aggExec != NULL) {
             m_aggExec->p_execute_finish();
@@ -307,6 +330,30 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
     return true;
 }
 
+void SeqScanExecutor::projectAndOutputTuple(TableTuple& tuple, TableTuple& temp_tuple,
+                                            ProjectionPlanNode* projectionNode, int num_of_columns) {
+    //
+    // Nested Projection
+    // Project (or replace) values from input tuple
+    //
+    if (projectionNode != NULL)
+    {
+        VOLT_TRACE("inline projection...");
+        // Project the scanned table row onto
+        // the columns of the select list in the
+        // select statement.
+        for (int ctr = 0; ctr < num_of_columns; ctr++) {
+            NValue value = projectionNode->getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
+            temp_tuple.setNValue(ctr, value);
+        }
+        outputTuple(temp_tuple);
+    }
+    else
+    {
+        outputTuple(tuple);
+    }
+}
+
 /*
  * We may output a tuple to an inline aggregate or
  * inline insert node.  If there is a limit or projection, this will have
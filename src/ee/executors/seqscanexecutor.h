@@ -48,11 +48,13 @@
 #include "common/common.h"
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
+#include "executors/BatchPredicate.hpp"
 #include "execution/VoltDBEngine.h"
 
 namespace voltdb {
     class AggregateExecutorBase;
     class InsertExecutor;
+    class ProjectionPlanNode;
 
     class SeqScanExecutor : public AbstractExecutor {
         // These are logically local variables to p_execute.
@@ -63,6 +65,9 @@ namespace voltdb {
         // freeing them.
         AggregateExecutorBase* m_aggExec = nullptr;
         InsertExecutor* m_insertExec = nullptr;
+        // The scan predicate compiled for evaluation a block of tuples
+        // at a time, when it has a shape that allows it.
+        boost::scoped_ptr<BatchPredicate> m_batchPredicate;
 
         /**
          * Output a tuple.  This may send the tuple to an
@@ -70,6 +75,13 @@ namespace voltdb {
          * tuple to the output table.
          */
         void outputTuple(TableTuple& tuple);
+
+        /**
+         * Apply the inline projection, if any, to a tuple which
+         * passed the predicate and output the result.
+         */
+        void projectAndOutputTuple(TableTuple& tuple, TableTuple& temp_tuple,
+                                   ProjectionPlanNode* projectionNode, int num_of_columns);
     public:
         SeqScanExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
             : AbstractExecutor(engine, abstract_node) {}
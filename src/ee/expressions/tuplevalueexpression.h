@@ -84,6 +84,8 @@ class TupleValueExpression : public AbstractExpression {
         return (buffer.str());
     }
 
+    int getTupleIdx() const {return this->tuple_idx;}
+
     int getColumnId() const {return this->value_idx;}
 
   protected:
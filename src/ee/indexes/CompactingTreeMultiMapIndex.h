@@ -47,23 +47,27 @@
 #define COMPACTINGTREEMULTIMAPINDEX_H_
 
 #include <iostream>
+#include <type_traits>
 #include <common/debuglog.h>
 #include "indexes/tableindex.h"
 #include "common/tabletuple.h"
+#include "structures/BTreeMap.h"
 #include "structures/CompactingMap.h"
 
 namespace voltdb {
 
 /**
- * Index implemented as a Binary Tree Multimap.
+ * Index implemented as a Binary Tree Multimap, or as a B+tree when useBTree is set.
  * @see TableIndex
  */
-template<typename KeyValuePair, bool hasRank>
+template<typename KeyValuePair, bool hasRank, bool useBTree=false>
 class CompactingTreeMultiMapIndex : public TableIndex
 {
     typedef typename KeyValuePair::first_type KeyType;
     typedef typename KeyType::KeyComparator KeyComparator;
-    typedef CompactingMap<KeyValuePair, KeyComparator, hasRank> MapType;
+    typedef typename std::conditional<useBTree,
+            BTreeMap<KeyValuePair, KeyComparator, hasRank>,
+            CompactingMap<KeyValuePair, KeyComparator, hasRank> >::type MapType;
     typedef typename MapType::iterator MapIterator;
     typedef std::pair<MapIterator, MapIterator> MapRange;
 
@@ -414,11 +418,16 @@ class CompactingTreeMultiMapIndex : public TableIndex
         return (ret);
     }
 
-    std::string getTypeName() const { return "CompactingTreeMultiMapIndex"; };
+    std::string getTypeName() const {
+        return useBTree ? "BTreeMultiMapIndex" : "CompactingTreeMultiMapIndex";
+    };
 
     MapIterator findKey(const TableTuple *searchKey) const {
         KeyType tempKey(searchKey);
         MapIterator rv = m_entries.lowerBound(tempKey);
+        if (rv.isEnd()) {
+            return rv;
+        }
         KeyType rvKey = rv.key();
         setPointerValue(tempKey, MAXPOINTER);
         if (m_cmp(rvKey, tempKey) <= 0) {
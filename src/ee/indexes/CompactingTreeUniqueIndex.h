@@ -47,24 +47,28 @@
 #define COMPACTINGTREEUNIQUEINDEX_H_
 
 #include <iostream>
+#include <type_traits>
 #include <common/debuglog.h>
 
 #include "common/debuglog.h"
 #include "common/tabletuple.h"
 #include "indexes/tableindex.h"
+#include "structures/BTreeMap.h"
 #include "structures/CompactingMap.h"
 
 namespace voltdb {
 
 /**
- * Index implemented as a Binary Tree Unique Map.
+ * Index implemented as a Binary Tree Unique Map, or as a B+tree when useBTree is set.
  * @see TableIndex
  */
-template<typename KeyValuePair, bool hasRank>
+template<typename KeyValuePair, bool hasRank, bool useBTree=false>
 class CompactingTreeUniqueIndex : public TableIndex {
     typedef typename KeyValuePair::first_type KeyType;
     typedef typename KeyType::KeyComparator KeyComparator;
-    typedef CompactingMap<KeyValuePair, KeyComparator, hasRank> MapType;
+    typedef typename std::conditional<useBTree,
+            BTreeMap<KeyValuePair, KeyComparator, hasRank>,
+            CompactingMap<KeyValuePair, KeyComparator, hasRank> >::type MapType;
     typedef typename MapType::iterator MapIterator;
 
     ~CompactingTreeUniqueIndex() {};
@@ -389,11 +393,11 @@ class CompactingTreeUniqueIndex : public TableIndex {
     }
 
     std::string getTypeName() const {
-        return "CompactingTreeUniqueIndex";
+        return useBTree ? "BTreeUniqueIndex" : "CompactingTreeUniqueIndex";
     };
 
     virtual TableIndex *cloneEmptyNonCountingTreeIndex() const {
-        return new CompactingTreeUniqueIndex<KeyValuePair, false >(TupleSchema::createTupleSchema(getKeySchema()), m_scheme);
+        return new CompactingTreeUniqueIndex<KeyValuePair, false, useBTree>(TupleSchema::createTupleSchema(getKeySchema()), m_scheme);
     }
 
 
@@ -45,6 +45,7 @@
 
 #include <common/debuglog.h>
 #include <iostream>
+#include <boost/algorithm/string/predicate.hpp>
 #include "indexes/tableindexfactory.h"
 #include "common/TupleSchemaBuilder.h"
 #include "indexes/indexkey.h"
@@ -58,25 +59,34 @@ namespace voltdb {
 
 class TableIndexPicker
 {
+    template <template <typename, bool, bool> class TTreeIndex, class TKeyValuePair>
+    TableIndex *getTreeInstance() const
+    {
+        if (m_scheme.countable) {
+            if (m_useBTree) {
+                return new TTreeIndex<TKeyValuePair, true, true>(m_keySchema, m_scheme);
+            }
+            return new TTreeIndex<TKeyValuePair, true, false>(m_keySchema, m_scheme);
+        }
+        if (m_useBTree) {
+            return new TTreeIndex<TKeyValuePair, false, true>(m_keySchema, m_scheme);
+        }
+        return new TTreeIndex<TKeyValuePair, false, false>(m_keySchema, m_scheme);
+    }
+
     template <class TKeyType>
     TableIndex *getInstanceForKeyType() const
     {
         if (m_scheme.unique) {
             if (m_type != BALANCED_TREE_INDEX) {
                 return new CompactingHashUniqueIndex<TKeyType >(m_keySchema, m_scheme);
-            } else if (m_scheme.countable) {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, true>(m_keySchema, m_scheme);
-            } else {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, false>(m_keySchema, m_scheme);
             }
+            return getTreeInstance<CompactingTreeUniqueIndex, NormalKeyValuePair<TKeyType> >();
         } else {
             if (m_type != BALANCED_TREE_INDEX) {
                 return new CompactingHashMultiMapIndex<TKeyType >(m_keySchema, m_scheme);
-            } else if (m_scheme.countable) {
-                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, true>(m_keySchema, m_scheme);
-            } else {
-                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, false>(m_keySchema, m_scheme);
             }
+            return getTreeInstance<CompactingTreeMultiMapIndex, PointerKeyValuePair<TKeyType> >();
         }
     }
 
@@ -179,17 +189,9 @@ public:
         }
 
         if (m_scheme.unique) {
-            if (m_scheme.countable) {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TupleKey>, true >(m_keySchema, m_scheme);
-            } else {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TupleKey>, false>(m_keySchema, m_scheme);
-            }
-        }
-        if (m_scheme.countable) {
-            return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TupleKey>, true >(m_keySchema, m_scheme);
-        } else {
-            return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TupleKey>, false>(m_keySchema, m_scheme);
+            return getTreeInstance<CompactingTreeUniqueIndex, NormalKeyValuePair<TupleKey> >();
         }
+        return getTreeInstance<CompactingTreeMultiMapIndex, PointerKeyValuePair<TupleKey> >();
     }
 
     TableIndexPicker(const TupleSchema *keySchema, bool intsOnly, bool inlinesOrColumnsOnly,
@@ -199,8 +201,20 @@ public:
         m_keySize(keySchema->tupleLength()),
         m_intsOnly(intsOnly),
         m_inlinesOrColumnsOnly(inlinesOrColumnsOnly),
-        m_type(scheme.type)
-    {}
+        m_type(scheme.type),
+        m_useBTree(false)
+    {
+        // Tree indexes go in a B+tree rather than the red-black CompactingMap
+        // when asked for, either by type or, as with hash indexes, by a hint
+        // in the index name.
+        if (m_type == BTREE_INDEX) {
+            m_type = BALANCED_TREE_INDEX;
+            m_useBTree = true;
+        }
+        else if (m_type == BALANCED_TREE_INDEX) {
+            m_useBTree = boost::algorithm::icontains(scheme.name, "BTREE");
+        }
+    }
 
 private:
     const TableIndexScheme &m_scheme;
@@ -209,6 +223,7 @@ private:
     bool m_intsOnly;
     bool m_inlinesOrColumnsOnly;
     TableIndexType m_type;
+    bool m_useBTree;
 };
 
 static CoveringCellIndex* getCoveringCellIndexInstance(const TableIndexScheme &scheme) {
@@ -0,0 +1,52 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#pragma once
+
+#include "abstractjoinnode.h"
+
+namespace voltdb {
+
+/**
+ * Equi-join of an outer input streamed against a hash table built from the
+ * inner input. The hash keys are pairs of outer and inner expressions of the
+ * same type taken from the equality conjuncts of the join predicate, which is
+ * still evaluated in full on every candidate pair.
+ */
+class HashJoinPlanNode : public AbstractJoinPlanNode {
+public:
+    HashJoinPlanNode() {}
+    ~HashJoinPlanNode() {}
+    PlanNodeType getPlanNodeType() const;
+    std::string debugInfo(const std::string& spacer) const;
+
+    const std::vector<AbstractExpression*>& getOuterHashKeys() const {
+        return m_outerHashKeys;
+    }
+    const std::vector<AbstractExpression*>& getInnerHashKeys() const {
+        return m_innerHashKeys;
+    }
+private:
+    void loadFromJSONObject(PlannerDomValue obj);
+
+    // Expressions on the outer tuple, evaluated once per outer tuple to probe the hash table
+    OwningExpressionVector m_outerHashKeys;
+    // Expressions on the inner tuple, evaluated once per inner tuple to build the hash table
+    OwningExpressionVector m_innerHashKeys;
+};
+
+} // namespace voltdb
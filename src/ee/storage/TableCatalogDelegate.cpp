@@ -209,6 +209,7 @@ getIndexIdFromMap(TableIndexType type, bool countable, bool isUnique,
     // add the type of the index
     switch (type) {
     case BALANCED_TREE_INDEX:
+    case BTREE_INDEX:
         retval += "B";
         break;
     case HASH_TABLE_INDEX:
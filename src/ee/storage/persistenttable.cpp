@@ -894,9 +894,13 @@ void PersistentTable::doInsertTupleCommon(TableTuple& source, TableTuple& target
            //* enable for debug */ std::cout << "DEBUG: inserting " << (void*)target.address()
            //* enable for debug */           << " { " << target.debugNoHeader() << " } "
            //* enable for debug */           << " copied to " << (void*)tupleData << std::endl;
-            UndoReleaseAction* undoAction = createInstanceFromPool<PersistentTableUndoInsertAction>(
-                  *uq->getPool(), tupleData, &m_surgeon);
-            SynchronizedThreadLock::addUndoAction(isReplicatedTable(), uq, undoAction);
+            if (isReplicatedTable()) {
+                UndoReleaseAction* undoAction = createInstanceFromPool<PersistentTableUndoInsertAction>(
+                      *uq->getPool(), tupleData, &m_surgeon);
+                SynchronizedThreadLock::addUndoAction(true, uq, undoAction);
+            } else {
+                uq->registerUndoTuple(&m_surgeon, UndoTupleRunAction::INSERT, tupleData);
+            }
             if (isTableWithExportInserts(m_tableType)) {
                 vassert(m_shadowStream != nullptr);
 
@@ -1300,9 +1304,13 @@ void PersistentTable::deleteTuple(TableTuple& target, bool fallible, bool remove
         target.setPendingDeleteOnUndoReleaseTrue();
         ++m_tuplesPinnedByUndo;
         ++m_invisibleTuplesPendingDeleteCount;
-        UndoReleaseAction* undoAction = createInstanceFromPool<PersistentTableUndoDeleteAction>(
-              *uq->getPool(), target.address(), &m_surgeon);
-        SynchronizedThreadLock::addUndoAction(isReplicatedTable(), uq, undoAction, this);
+        if (isReplicatedTable()) {
+            UndoReleaseAction* undoAction = createInstanceFromPool<PersistentTableUndoDeleteAction>(
+                  *uq->getPool(), target.address(), &m_surgeon);
+            SynchronizedThreadLock::addUndoAction(true, uq, undoAction, this);
+        } else {
+            uq->registerUndoTuple(&m_surgeon, UndoTupleRunAction::DELETE, target.address(), this);
+        }
         if (isTableWithExportDeletes(m_tableType)) {
             vassert(m_shadowStream != nullptr);
             if (!isReplicatedTable() || ec->getPartitionId() == 0) {
@@ -68,6 +68,7 @@
 #include "storage/DRTupleStream.h"
 #include "storage/streamedtable.h"
 #include "common/UndoQuantumReleaseInterest.h"
+#include "common/UndoTupleRun.h"
 #include "common/ThreadLocalPool.h"
 #include "common/SynchronizedThreadLock.h"
 #include <map>
@@ -95,7 +96,7 @@ class TableIndex;
  * normally-private stuff in PersistentTable.
  * Holds persistent state produced by contexts, e.g. the elastic index.
  */
-class PersistentTableSurgeon {
+class PersistentTableSurgeon : public UndoTupleRunTarget {
     friend class PersistentTable;
     friend class ::CopyOnWriteTest;
 
@@ -119,6 +120,11 @@ public:
     void deleteTupleRelease(char* tuple);
     void deleteTupleStorage(TableTuple& tuple, TBPtr block = TBPtr(NULL));
 
+    // Compact undo records of single tuple inserts and deletes, see UndoTupleRunAction
+    void undoInsertedTuples(char* const* tuples, size_t count) override;
+    void undoDeletedTuples(char* const* tuples, size_t count) override;
+    void releaseDeletedTuples(char* const* tuples, size_t count) override;
+
     size_t getSnapshotPendingBlockCount() const;
     size_t getSnapshotPendingLoadBlockCount() const;
     bool blockCountConsistent() const;
@@ -921,6 +927,24 @@ inline void PersistentTableSurgeon::deleteTupleRelease(char* tuple) {
     m_table.deleteTupleRelease(tuple);
 }
 
+inline void PersistentTableSurgeon::undoInsertedTuples(char* const* tuples, size_t count) {
+    while (count > 0) {
+        m_table.deleteTupleForUndo(tuples[--count]);
+    }
+}
+
+inline void PersistentTableSurgeon::undoDeletedTuples(char* const* tuples, size_t count) {
+    while (count > 0) {
+        m_table.insertTupleForUndo(tuples[--count]);
+    }
+}
+
+inline void PersistentTableSurgeon::releaseDeletedTuples(char* const* tuples, size_t count) {
+    for (size_t i = 0; i < count; ++i) {
+        m_table.deleteTupleRelease(tuples[i]);
+    }
+}
+
 inline void PersistentTableSurgeon::deleteTupleStorage(TableTuple& tuple, TBPtr block) {
     m_table.deleteTupleStorage(tuple, block);
 }
@@ -0,0 +1,866 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef BTREEMAP_H_
+#define BTREEMAP_H_
+
+#include "structures/CompactingMap.h"
+
+#include <cstdlib>
+#include <cstring>
+#include <new>
+#include <stdint.h>
+#include <type_traits>
+#include <utility>
+#include <common/debuglog.h>
+
+namespace voltdb {
+
+// Entries that fit in a node of the given size, with a floor that keeps
+// very wide keys from degenerating into a binary tree.
+inline constexpr int btreeNodeCapacity(std::size_t nodeBytes, std::size_t entryBytes) {
+    return (nodeBytes / entryBytes) > 8 ? static_cast<int>(nodeBytes / entryBytes) : 8;
+}
+
+/**
+ * B+tree with the same stl::map-like interface as CompactingMap, so that
+ * tree indexes can use either one.
+ *
+ * Entries live sorted in wide, cache-line-aligned leaves that are chained
+ * for range scans, so a lookup touches a handful of nodes instead of one
+ * node per tree level and an iterator walks memory sequentially. Inner
+ * nodes keep the separator keys and child pointers in separate arrays so a
+ * binary search over the separators stays within a few cache lines. When
+ * hasRank is set, inner nodes also keep the entry count of each child to
+ * answer rank queries in O(log n).
+ *
+ * A separator is a bytewise, non-owning copy of the smallest key of the
+ * subtree to its right. It is refreshed whenever that minimum changes, so
+ * it never outlives the entry it was copied from. This only works for key
+ * types that stay valid when their bytes are copied, which holds for all of
+ * the index key types in indexkey.h but not for something like std::string.
+ *
+ * Like CompactingMap, iterators are invalidated by any mutation of the map.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank=false>
+class BTreeMap {
+    typedef typename KeyValuePair::first_type Key;
+    typedef typename KeyValuePair::second_type Data;
+    typedef typename std::aligned_storage<sizeof(Key), alignof(Key)>::type KeyStorage;
+
+    static const std::size_t CACHE_LINE_SIZE = 64;
+    static const std::size_t NODE_BYTES = 1024;
+
+    struct InnerNode;
+
+    struct NodeHeader {
+        InnerNode *parent;
+        // entries of a leaf, children of an inner node
+        int count;
+        bool isLeaf;
+    };
+
+    static const int LEAF_CAPACITY = btreeNodeCapacity(NODE_BYTES, sizeof(KeyValuePair));
+    static const int INNER_CAPACITY = btreeNodeCapacity(NODE_BYTES,
+            sizeof(Key) + sizeof(void*) + (hasRank ? sizeof(int64_t) : 0));
+
+    struct LeafNode : public NodeHeader {
+        LeafNode *prev;
+        LeafNode *next;
+        KeyValuePair kv[LEAF_CAPACITY];
+    };
+
+    struct InnerNode : public NodeHeader {
+        // separator i is the smallest key under children[i + 1]
+        KeyStorage seps[INNER_CAPACITY - 1];
+        NodeHeader *children[INNER_CAPACITY];
+        int64_t counts[hasRank ? INNER_CAPACITY : 1];
+
+        const Key &sep(int i) const { return *reinterpret_cast<const Key*>(&seps[i]); }
+        void setSep(int i, const Key &key) { ::memcpy(&seps[i], &key, sizeof(Key)); }
+    };
+
+    // Compare only the key proper of keys that carry a tuple address
+    struct WithoutPointer {
+        const Compare &m_comper;
+        WithoutPointer(const Compare &comper) : m_comper(comper) {}
+        int operator()(const Key &lhs, const Key &rhs) const { return m_comper.compareWithoutPointer(lhs, rhs); }
+    };
+
+    int64_t m_count;
+    NodeHeader *m_root;
+    size_t m_bytesAllocated;
+    bool m_unique;
+    Compare m_comper;
+
+public:
+    class iterator {
+        friend class BTreeMap<KeyValuePair, Compare, hasRank>;
+    protected:
+        LeafNode *m_leaf;
+        int m_idx;
+        iterator(LeafNode *leaf, int idx) : m_leaf(leaf), m_idx(idx) {}
+    public:
+        iterator() : m_leaf(NULL), m_idx(0) {}
+        iterator(const iterator &iter) : m_leaf(iter.m_leaf), m_idx(iter.m_idx) {}
+        const Key &key() const { return m_leaf->kv[m_idx].getKey(); }
+        const Data &value() const { return m_leaf->kv[m_idx].getValue(); }
+        void setValue(const Data &value) { m_leaf->kv[m_idx].setValue(value); }
+        void moveNext() {
+            if (++m_idx == m_leaf->count) {
+                m_leaf = m_leaf->next;
+                m_idx = 0;
+            }
+        }
+        void movePrev() {
+            if (m_leaf == NULL) {
+                return;
+            }
+            if (m_idx-- == 0) {
+                m_leaf = m_leaf->prev;
+                m_idx = (m_leaf == NULL) ? 0 : m_leaf->count - 1;
+            }
+        }
+        bool isEnd() const { return m_leaf == NULL; }
+        bool equals(const iterator &iter) const {
+            if (isEnd()) {
+                return iter.isEnd();
+            }
+            return m_leaf == iter.m_leaf && m_idx == iter.m_idx;
+        }
+    };
+
+    BTreeMap(bool unique, Compare comper);
+    ~BTreeMap();
+
+    bool insert(std::pair<Key, Data> value) { return (insert(value.first, value.second) == NULL); };
+    const Data *insert(const Key &key, const Data &data);
+    bool erase(const Key &key);
+    bool erase(iterator &iter);
+
+    iterator find(const Key &key) const;
+    iterator findRank(int64_t ith) const;
+    int64_t size() const { return m_count; }
+    iterator begin() const;
+    iterator rbegin() const;
+
+    iterator lowerBound(const Key &key) const { return bound(key, m_comper, false); }
+    iterator upperBound(const Key &key) const;
+    // do upperBound(key) but treat null values in key as maximum
+    iterator upperBoundNullAsMax(const Key &key) const;
+
+    std::pair<iterator, iterator> equalRange(const Key &key) const {
+        return std::pair<iterator, iterator>(lowerBound(key), upperBound(key));
+    }
+
+    size_t bytesAllocated() const { return m_bytesAllocated; }
+
+    // Must pass a key that already in map, or else return -1
+    int64_t rankLower(const Key& key) const;
+    int64_t rankUpper(const Key& key) const;
+
+    /**
+     * For debugging: verify ordering, separators, parent links and counts. SLOW.
+     */
+    bool verify() const;
+
+private:
+    static const Key &keyOf(const Key &key) { return key; }
+    static const Key &keyOf(const KeyValuePair &kv) { return kv.getKey(); }
+
+    // Index of the first of n entries that is not less than key
+    // (not less or equal to key when upper is set).
+    template<typename Cmp, typename Entry>
+    static int search(const Entry *entries, int n, const Key &key, const Cmp &cmp, bool upper) {
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >> 1;
+            int c = cmp(keyOf(entries[mid]), key);
+            if (c < 0 || (upper && c == 0)) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    template<typename Cmp>
+    LeafNode *descend(const Key &key, const Cmp &cmp, bool upper) const {
+        NodeHeader *n = m_root;
+        while (!n->isLeaf) {
+            InnerNode *inner = static_cast<InnerNode*>(n);
+            n = inner->children[search(inner->seps, inner->count - 1, key, SepCmp<Cmp>(cmp), upper)];
+        }
+        return static_cast<LeafNode*>(n);
+    }
+
+    // Separators are stored as raw bytes, compare them as keys
+    template<typename Cmp>
+    struct SepCmp {
+        const Cmp &m_cmp;
+        SepCmp(const Cmp &cmp) : m_cmp(cmp) {}
+        int operator()(const KeyStorage &lhs, const Key &rhs) const {
+            return m_cmp(*reinterpret_cast<const Key*>(&lhs), rhs);
+        }
+    };
+    static const KeyStorage &keyOf(const KeyStorage &sep) { return sep; }
+
+    template<typename Cmp>
+    iterator bound(const Key &key, const Cmp &cmp, bool upper) const {
+        LeafNode *leaf = descend(key, cmp, upper);
+        int idx = search(leaf->kv, leaf->count, key, cmp, upper);
+        if (idx == leaf->count) {
+            // everything in the next leaf sorts after the separator we passed
+            return iterator(leaf->next, 0);
+        }
+        return iterator(leaf, idx);
+    }
+
+    template<typename Cmp>
+    int64_t countBefore(const Key &key, const Cmp &cmp, bool orEqual) const;
+
+    LeafNode *newLeaf();
+    InnerNode *newInner();
+    void freeNode(NodeHeader *n);
+    void freeSubtree(NodeHeader *n);
+
+    static int capacity(const NodeHeader *n) { return n->isLeaf ? LEAF_CAPACITY : INNER_CAPACITY; }
+    static int childIndex(const InnerNode *p, const NodeHeader *n);
+    static int64_t subtreeCount(const NodeHeader *n);
+    static const Key &minKey(const NodeHeader *n);
+    static void resetSlot(KeyValuePair &kv) {
+        kv.~KeyValuePair();
+        new (&kv) KeyValuePair();
+    }
+
+    void bumpCounts(NodeHeader *n, int64_t delta);
+    void refreshSeparator(NodeHeader *n);
+    void insertIntoLeaf(LeafNode *leaf, int idx, const Key &key, const Data &data);
+    void insertChild(InnerNode *p, int pos, NodeHeader *child);
+    void attachSibling(NodeHeader *n, NodeHeader *sibling);
+    void eraseAt(LeafNode *leaf, int idx);
+    void removeChild(InnerNode *p, int i);
+    void mergeChildren(InnerNode *p, int i);
+    void rebalance(NodeHeader *n);
+    bool verify(const NodeHeader *n, const Key *lower, int64_t &count) const;
+};
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+BTreeMap<KeyValuePair, Compare, hasRank>::BTreeMap(bool unique, Compare comper)
+    : m_count(0),
+      m_root(NULL),
+      m_bytesAllocated(0),
+      m_unique(unique),
+      m_comper(comper)
+{
+    m_root = newLeaf();
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+BTreeMap<KeyValuePair, Compare, hasRank>::~BTreeMap()
+{
+    freeSubtree(m_root);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename BTreeMap<KeyValuePair, Compare, hasRank>::LeafNode *
+BTreeMap<KeyValuePair, Compare, hasRank>::newLeaf()
+{
+    void *memory = NULL;
+    if (posix_memalign(&memory, CACHE_LINE_SIZE, sizeof(LeafNode)) != 0) {
+        throw std::bad_alloc();
+    }
+    LeafNode *leaf = new (memory) LeafNode();
+    leaf->parent = NULL;
+    leaf->count = 0;
+    leaf->isLeaf = true;
+    leaf->prev = NULL;
+    leaf->next = NULL;
+    m_bytesAllocated += sizeof(LeafNode);
+    return leaf;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename BTreeMap<KeyValuePair, Compare, hasRank>::InnerNode *
+BTreeMap<KeyValuePair, Compare, hasRank>::newInner()
+{
+    void *memory = NULL;
+    if (posix_memalign(&memory, CACHE_LINE_SIZE, sizeof(InnerNode)) != 0) {
+        throw std::bad_alloc();
+    }
+    InnerNode *inner = new (memory) InnerNode();
+    inner->parent = NULL;
+    inner->count = 0;
+    inner->isLeaf = false;
+    m_bytesAllocated += sizeof(InnerNode);
+    return inner;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void BTreeMap<KeyValuePair, Compare, hasRank>::freeNode(NodeHeader *n)
+{
+    if (n->isLeaf) {
+        LeafNode *leaf = static_cast<LeafNode*>(n);
+        leaf->~LeafNode();
+        m_bytesAllocated -= sizeof(LeafNode);
+    }
+    else {
+        // separators are raw bytes, nothing to destroy
+        m_bytesAllocated -= sizeof(InnerNode);
+    }
+    free(n);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void BTreeMap<KeyValuePair, Compare, hasRank>::freeSubtree(NodeHeader *n)
+{
+    if (!n->isLeaf) {
+        InnerNode *inner = static_cast<InnerNode*>(n);
+        for (int i = 0; i < inner->count; ++i) {
+            freeSubtree(inner->children[i]);
+        }
+    }
+    freeNode(n);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int BTreeMap<KeyValuePair, Compare, hasRank>::childIndex(const InnerNode *p, const NodeHeader *n)
+{
+    for (int i = 0; i < p->count; ++i) {
+        if (p->children[i] == n) {
+            return i;
+        }
+    }
+    vassert(false);
+    return -1;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t BTreeMap<KeyValuePair, Compare, hasRank>::subtreeCount(const NodeHeader *n)
+{
+    if (n->isLeaf) {
+        return n->count;
+    }
+    const InnerNode *inner = static_cast<const InnerNode*>(n);
+    int64_t total = 0;
+    for (int i = 0; i < inner->count; ++i) {
+        total += inner->counts[i];
+    }
+    return total;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+const typename BTreeMap<KeyValuePair, Compare, hasRank>::Key &
+BTreeMap<KeyValuePair, Compare, hasRank>::minKey(const NodeHeader *n)
+{
+    while (!n->isLeaf) {
+        n = static_cast<const InnerNode*>(n)->children[0];
+    }
+    vassert(n->count > 0);
+    return static_cast<const LeafNode*>(n)->kv[0].getKey();
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void BTreeMap<KeyValuePair, Compare, hasRank>::bumpCounts(NodeHeader *n, int64_t delta)
+{
+    while (n->parent != NULL) {
+        InnerNode *p = n->parent;
+        p->counts[childIndex(p, n)] += delta;
+        n = p;
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void BTreeMap<KeyValuePair, Compare, hasRank>::refreshSeparator(NodeHeader *n)
+{
+    // The smallest key of n changed: fix the separator of the lowest
+    // ancestor that has n's subtree to the right of one of its separators.
+    const Key &key = minKey(n);
+    while (n->parent != NULL) {
+        InnerNode *p = n->parent;
+        int i = childIndex(p, n);
+        if (i > 0) {
+            p->setSep(i - 1, key);
+            return;
+        }
+        n = p;
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+const typename BTreeMap<KeyValuePair, Compare, hasRank>::Data *
+BTreeMap<KeyValuePair, Compare, hasRank>::insert(const Key &key, const Data &value)
+{
+    // Unique maps insert before an equal key so it can be detected,
+    // duplicates go after the existing ones.
+    LeafNode *leaf = descend(key, m_comper, !m_unique);
+    int idx = search(leaf->kv, leaf->count, key, m_comper, !m_unique);
+    if (m_unique) {
+        if (idx < leaf->count) {
+            if (m_comper(leaf->kv[idx].getKey(), key) == 0) {
+                return &leaf->kv[idx].getValue();
+            }
+        }
+        else if (leaf->next != NULL && m_comper(leaf->next->kv[0].getKey(), key) == 0) {
+            return &leaf->next->kv[0].getValue();
+        }
+    }
+
+    if (hasRank) {
+        bumpCounts(leaf, 1);
+    }
+    if (leaf->count < LEAF_CAPACITY) {
+        insertIntoLeaf(leaf, idx, key, value);
+    }
+    else {
+        // Split in half, except when appending past the last leaf, where
+        // a fresh leaf keeps ascending inserts from leaving half-empty nodes.
+        const int mid = (idx == LEAF_CAPACITY && leaf->next == NULL) ? LEAF_CAPACITY : LEAF_CAPACITY / 2;
+        LeafNode *right = newLeaf();
+        for (int i = mid; i < LEAF_CAPACITY; ++i) {
+            right->kv[i - mid] = leaf->kv[i];
+            resetSlot(leaf->kv[i]);
+        }
+        right->count = LEAF_CAPACITY - mid;
+        leaf->count = mid;
+        right->prev = leaf;
+        right->next = leaf->next;
+        if (leaf->next != NULL) {
+            leaf->next->prev = right;
+        }
+        leaf->next = right;
+
+        if (idx < mid || (idx == mid && mid < LEAF_CAPACITY)) {
+            insertIntoLeaf(leaf, idx, key, value);
+        }
+        else {
+            insertIntoLeaf(right, idx - mid, key, value);
+        }
+        attachSibling(leaf, right);
+    }
+    if (idx == 0) {
+        refreshSeparator(leaf);
+    }
+    m_count++;
+    return NULL;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void BTreeMap<KeyValuePair, Compare, hasRank>::insertIntoLeaf(LeafNode *leaf, int idx, const Key &key, const Data &data)
+{
+    vassert(leaf->count < LEAF_CAPACITY);
+    for (int i = leaf->count; i > idx; --i) {
+        leaf->kv[i] = leaf->kv[i - 1];
+    }
+    leaf->kv[idx].setKeyValuePair(key, data);
+    leaf->count++;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void BTreeMap<KeyValuePair, Compare, hasRank>::attachSibling(NodeHeader *n, NodeHeader *sibling)
+{
+    // Hook a node split off from n into the tree right after n
+    if (n->parent == NULL) {
+        InnerNode *root = newInner();
+        root->children[0] = n;
+        root->count = 1;
+        if (hasRank) {
+            root->counts[0] = subtreeCount(n);
+        }
+        n->parent = root;
+        m_root = root;
+    }
+    InnerNode *p = n->parent;
+    insertChild(p, childIndex(p, n) + 1, sibling);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void BTreeMap<KeyValuePair, Compare, hasRank>::insertChild(InnerNode *p, int pos, NodeHeader *child)
+{
+    vassert(pos > 0);
+    if (p->count == INNER_CAPACITY) {
+        const int mid = INNER_CAPACITY / 2;
+        InnerNode *right = newInner();
+        for (int i = mid; i < INNER_CAPACITY; ++i) {
+            right->children[i - mid] = p->children[i];
+            right->children[i - mid]->parent = right;
+            if (hasRank) {
+                right->counts[i - mid] = p->counts[i];
+            }
+        }
+        // separator mid - 1 moves up to become the one for right
+        for (int i = mid; i < INNER_CAPACITY - 1; ++i) {
+            right->seps[i - mid] = p->seps[i];
+        }
+        right->count = INNER_CAPACITY - mid;
+        p->count = mid;
+
+        if (pos <= mid) {
+            insertChild(p, pos, child);
+        }
+        else {
+            insertChild(right, pos - mid, child);
+        }
+        attachSibling(p, right);
+        return;
+    }
+
+    for (int i = p->count; i > pos; --i) {
+        p->children[i] = p->children[i - 1];
+        p->seps[i - 1] = p->seps[i - 2];
+        if (hasRank) {
+            p->counts[i] = p->counts[i - 1];
+        }
+    }
+    p->children[pos] = child;
+    p->setSep(pos - 1, minKey(child));
+    child->parent = p;
+    p->count++;
+    if (hasRank) {
+        // the child was split off its left neighbour, recount both
+        p->counts[pos] = subtreeCount(child);
+        p->counts[pos - 1] = subtreeCount(p->children[pos - 1]);
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool BTreeMap<KeyValuePair, Compare, hasRank>::erase(const Key &key)
+{
+    iterator iter = find(key);
+    if (iter.isEnd()) {
+        return false;
+    }
+    eraseAt(iter.m_leaf, iter.m_idx);
+    return true;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool BTreeMap<KeyValuePair, Compare, hasRank>::erase(iterator &iter)
+{
+    vassert(!iter.isEnd());
+    eraseAt(iter.m_leaf, iter.m_idx);
+    return true;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void BTreeMap<KeyValuePair, Compare, hasRank>::eraseAt(LeafNode *leaf, int idx)
+{
+    if (hasRank) {
+        bumpCounts(leaf, -1);
+    }
+    // Shifting left swaps the erased entry towards the end, where
+    // resetting the slot releases whatever it owns.
+    for (int i = idx; i < leaf->count - 1; ++i) {
+        leaf->kv[i] = leaf->kv[i + 1];
+    }
+    resetSlot(leaf->kv[leaf->count - 1]);
+    leaf->count--;
+    m_count--;
+    if (idx == 0 && leaf->count > 0) {
+        refreshSeparator(leaf);
+    }
+    rebalance(leaf);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void BTreeMap<KeyValuePair, Compare, hasRank>::removeChild(InnerNode *p, int i)
+{
+    // drop the separator in front of child i, or the one after it for the first child
+    const int sep = (i > 0) ? i - 1 : 0;
+    for (int j = sep; j < p->count - 2; ++j) {
+        p->seps[j] = p->seps[j + 1];
+    }
+    for (int j = i; j < p->count - 1; ++j) {
+        p->children[j] = p->children[j + 1];
+        if (hasRank) {
+            p->counts[j] = p->counts[j + 1];
+        }
+    }
+    p->count--;
+    if (i == 0 && p->count > 0) {
+        refreshSeparator(p);
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void BTreeMap<KeyValuePair, Compare, hasRank>::mergeChildren(InnerNode *p, int i)
+{
+    // fold children[i + 1] into children[i]
+    NodeHeader *left = p->children[i];
+    NodeHeader *right = p->children[i + 1];
+    vassert(left->isLeaf == right->isLeaf);
+    if (left->isLeaf) {
+        LeafNode *l = static_cast<LeafNode*>(left);
+        LeafNode *r = static_cast<LeafNode*>(right);
+        for (int j = 0; j < r->count; ++j) {
+            l->kv[l->count + j] = r->kv[j];
+        }
+        l->count += r->count;
+        l->next = r->next;
+        if (r->next != NULL) {
+            r->next->prev = l;
+        }
+    }
+    else {
+        InnerNode *l = static_cast<InnerNode*>(left);
+        InnerNode *r = static_cast<InnerNode*>(right);
+        // the parent's separator between the two is the smallest key of right
+        l->seps[l->count - 1] = p->seps[i];
+        for (int j = 0; j < r->count; ++j) {
+            if (j < r->count - 1) {
+                l->seps[l->count + j] = r->seps[j];
+            }
+            l->children[l->count + j] = r->children[j];
+            r->children[j]->parent = l;
+            if (hasRank) {
+                l->counts[l->count + j] = r->counts[j];
+            }
+        }
+        l->count += r->count;
+    }
+    removeChild(p, i + 1);
+    if (hasRank) {
+        p->counts[i] = subtreeCount(left);
+    }
+    freeNode(right);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void BTreeMap<KeyValuePair, Compare, hasRank>::rebalance(NodeHeader *n)
+{
+    InnerNode *p = n->parent;
+    if (p == NULL) {
+        // shrink the tree when the root is left with a single child
+        while (!m_root->isLeaf && m_root->count == 1) {
+            NodeHeader *child = static_cast<InnerNode*>(m_root)->children[0];
+            freeNode(m_root);
+            child->parent = NULL;
+            m_root = child;
+        }
+        return;
+    }
+    if (n->count >= capacity(n) / 4) {
+        return;
+    }
+    const int i = childIndex(p, n);
+    if (n->count == 0) {
+        if (n->isLeaf) {
+            LeafNode *leaf = static_cast<LeafNode*>(n);
+            if (leaf->prev != NULL) {
+                leaf->prev->next = leaf->next;
+            }
+            if (leaf->next != NULL) {
+                leaf->next->prev = leaf->prev;
+            }
+        }
+        removeChild(p, i);
+        freeNode(n);
+    }
+    else if (i + 1 < p->count && n->count + p->children[i + 1]->count <= capacity(n)) {
+        mergeChildren(p, i);
+    }
+    else if (i > 0 && p->children[i - 1]->count + n->count <= capacity(n)) {
+        mergeChildren(p, i - 1);
+    }
+    else {
+        return;
+    }
+    rebalance(p);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename BTreeMap<KeyValuePair, Compare, hasRank>::iterator
+BTreeMap<KeyValuePair, Compare, hasRank>::find(const Key &key) const
+{
+    iterator iter = lowerBound(key);
+    if (!iter.isEnd() && m_comper(iter.key(), key) == 0) {
+        return iter;
+    }
+    return iterator();
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename BTreeMap<KeyValuePair, Compare, hasRank>::iterator
+BTreeMap<KeyValuePair, Compare, hasRank>::findRank(int64_t ith) const
+{
+    if (!hasRank || ith < 1 || ith > m_count) {
+        return iterator();
+    }
+    NodeHeader *n = m_root;
+    while (!n->isLeaf) {
+        InnerNode *inner = static_cast<InnerNode*>(n);
+        int i = 0;
+        while (ith > inner->counts[i]) {
+            ith -= inner->counts[i];
+            ++i;
+        }
+        n = inner->children[i];
+    }
+    return iterator(static_cast<LeafNode*>(n), static_cast<int>(ith - 1));
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename BTreeMap<KeyValuePair, Compare, hasRank>::iterator
+BTreeMap<KeyValuePair, Compare, hasRank>::begin() const
+{
+    if (m_count == 0) {
+        return iterator();
+    }
+    NodeHeader *n = m_root;
+    while (!n->isLeaf) {
+        n = static_cast<InnerNode*>(n)->children[0];
+    }
+    return iterator(static_cast<LeafNode*>(n), 0);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename BTreeMap<KeyValuePair, Compare, hasRank>::iterator
+BTreeMap<KeyValuePair, Compare, hasRank>::rbegin() const
+{
+    if (m_count == 0) {
+        return iterator();
+    }
+    NodeHeader *n = m_root;
+    while (!n->isLeaf) {
+        n = static_cast<InnerNode*>(n)->children[n->count - 1];
+    }
+    return iterator(static_cast<LeafNode*>(n), n->count - 1);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename BTreeMap<KeyValuePair, Compare, hasRank>::iterator
+BTreeMap<KeyValuePair, Compare, hasRank>::upperBound(const Key &key) const
+{
+    Key tmpKey(key);
+    setPointerValue(tmpKey, MAXPOINTER);
+    return bound(tmpKey, m_comper, true);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename BTreeMap<KeyValuePair, Compare, hasRank>::iterator
+BTreeMap<KeyValuePair, Compare, hasRank>::upperBoundNullAsMax(const Key &key) const
+{
+    Key tmpKey(key);
+    setPointerValue(tmpKey, MAXPOINTER);
+    return bound(tmpKey, m_comper.getNullAsMaxComparator(), true);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+template<typename Cmp>
+int64_t BTreeMap<KeyValuePair, Compare, hasRank>::countBefore(const Key &key, const Cmp &cmp, bool orEqual) const
+{
+    int64_t ct = 0;
+    NodeHeader *n = m_root;
+    while (!n->isLeaf) {
+        InnerNode *inner = static_cast<InnerNode*>(n);
+        int i = search(inner->seps, inner->count - 1, key, SepCmp<Cmp>(cmp), orEqual);
+        for (int j = 0; j < i; ++j) {
+            ct += inner->counts[j];
+        }
+        n = inner->children[i];
+    }
+    LeafNode *leaf = static_cast<LeafNode*>(n);
+    return ct + search(leaf->kv, leaf->count, key, cmp, orEqual);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t BTreeMap<KeyValuePair, Compare, hasRank>::rankLower(const Key& key) const
+{
+    if (!hasRank || find(key).isEnd()) {
+        return -1;
+    }
+    // only compare the "data" part of the key
+    return countBefore(key, WithoutPointer(m_comper), false) + 1;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t BTreeMap<KeyValuePair, Compare, hasRank>::rankUpper(const Key& key) const
+{
+    if (!hasRank || find(key).isEnd()) {
+        return -1;
+    }
+    if (m_unique) {
+        return rankLower(key);
+    }
+    return countBefore(key, WithoutPointer(m_comper), true);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool BTreeMap<KeyValuePair, Compare, hasRank>::verify() const
+{
+    int64_t count = 0;
+    if (m_root->parent != NULL || !verify(m_root, NULL, count)) {
+        return false;
+    }
+    if (count != m_count) {
+        return false;
+    }
+    // the leaf chain must visit every entry in order
+    int64_t chained = 0;
+    const Key *prev = NULL;
+    for (iterator iter = begin(); !iter.isEnd(); iter.moveNext()) {
+        if (prev != NULL && m_comper(*prev, iter.key()) > (m_unique ? -1 : 0)) {
+            return false;
+        }
+        prev = &iter.key();
+        ++chained;
+    }
+    return chained == m_count;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool BTreeMap<KeyValuePair, Compare, hasRank>::verify(const NodeHeader *n, const Key *lower, int64_t &count) const
+{
+    if (n != m_root && n->count == 0) {
+        return false;
+    }
+    if (n->isLeaf) {
+        const LeafNode *leaf = static_cast<const LeafNode*>(n);
+        // a separator is exactly the smallest key to its right
+        if (lower != NULL && m_comper(*lower, leaf->kv[0].getKey()) != 0) {
+            return false;
+        }
+        count += leaf->count;
+        return true;
+    }
+    const InnerNode *inner = static_cast<const InnerNode*>(n);
+    for (int i = 0; i < inner->count; ++i) {
+        const NodeHeader *child = inner->children[i];
+        if (child->parent != inner) {
+            return false;
+        }
+        if (i > 0 && child->isLeaf && m_comper(inner->sep(i - 1), minKey(child)) != 0) {
+            return false;
+        }
+        int64_t childCount = 0;
+        if (!verify(child, (i > 0) ? &inner->sep(i - 1) : lower, childCount)) {
+            return false;
+        }
+        if (hasRank && inner->counts[i] != childCount) {
+            return false;
+        }
+        count += childCount;
+    }
+    return true;
+}
+
+} // namespace voltdb
+
+#endif // BTREEMAP_H_
@@ -0,0 +1,285 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google_voltpatches.common.base.Preconditions;
+
+/**
+ * Hash map from primitive {@code long} keys to object values using open addressing with linear probing. Keys are
+ * never boxed and no per entry objects are allocated, which makes it suitable for maps keyed by transaction ids or
+ * handles that see an insert and a remove for every transaction.
+ * <p>
+ * {@code null} values are not supported, {@link #get(long)} returning {@code null} means the key is absent. Removal
+ * shifts colliding entries back instead of leaving tombstones so lookups stay short under constant churn.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LongObjectHashMap<V> {
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    public interface EntryPredicate<V> {
+        boolean test(long key, V value);
+    }
+
+    private static final int MIN_CAPACITY = 16;
+    // Resize once more than half of the slots are used, which keeps probe sequences short
+    private static final int MAX_LOAD_SHIFT = 1;
+
+    private long[] m_keys;
+    private Object[] m_values;
+    private int m_mask;
+    private int m_size;
+
+    public LongObjectHashMap() {
+        this(MIN_CAPACITY >> MAX_LOAD_SHIFT);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0, "Negative expected size %s", expectedSize);
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int size) {
+        long required = Math.max(MIN_CAPACITY, (long) size << MAX_LOAD_SHIFT);
+        Preconditions.checkArgument(required <= 1 << 30, "Map too large: %s", size);
+        return Integer.highestOneBit((int) required - 1) << 1;
+    }
+
+    private void allocate(int capacity) {
+        m_keys = new long[capacity];
+        m_values = new Object[capacity];
+        m_mask = capacity - 1;
+    }
+
+    /**
+     * Spread the key bits so keys which only differ in their high bits, like transaction ids from one partition,
+     * do not collide
+     */
+    private static int slot(long key, int mask) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int mask = m_mask;
+        for (int i = slot(key, mask); m_values[i] != null; i = (i + 1) & mask) {
+            if (m_keys[i] == key) {
+                return (V) m_values[i];
+            }
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the previous value associated with {@code key} or {@code null} if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Preconditions.checkNotNull(value);
+        int mask = m_mask;
+        int i = slot(key, mask);
+        for (; m_values[i] != null; i = (i + 1) & mask) {
+            if (m_keys[i] == key) {
+                V previous = (V) m_values[i];
+                m_values[i] = value;
+                return previous;
+            }
+        }
+        m_keys[i] = key;
+        m_values[i] = value;
+        if (++m_size > (m_values.length >> MAX_LOAD_SHIFT)) {
+            rehash(m_values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return the value which was associated with {@code key} or {@code null} if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int mask = m_mask;
+        for (int i = slot(key, mask); m_values[i] != null; i = (i + 1) & mask) {
+            if (m_keys[i] == key) {
+                V previous = (V) m_values[i];
+                removeSlot(i);
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Empty the slot and move following entries of the same probe sequence back so no lookup has to skip a hole
+     */
+    private void removeSlot(int hole) {
+        int mask = m_mask;
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (m_values[i] == null) {
+                break;
+            }
+            int home = slot(m_keys[i], mask);
+            // Move the entry into the hole unless its home slot lies cyclically in (hole, i]
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                m_keys[hole] = m_keys[i];
+                m_values[hole] = m_values[i];
+                hole = i;
+            }
+        }
+        m_values[hole] = null;
+        --m_size;
+    }
+
+    public void clear() {
+        if (m_size > 0) {
+            Arrays.fill(m_values, null);
+            m_size = 0;
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] keys = m_keys;
+        Object[] values = m_values;
+        allocate(capacity);
+        int mask = m_mask;
+        for (int j = 0; j < values.length; ++j) {
+            if (values[j] != null) {
+                int i = slot(keys[j], mask);
+                while (m_values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                m_keys[i] = keys[j];
+                m_values[i] = values[j];
+            }
+        }
+    }
+
+    /**
+     * Slot to start a scan from so that no run of occupied slots wraps around it. Entries shifted back by a removal
+     * during the scan then always land in the current or a not yet visited slot.
+     */
+    private int scanStart() {
+        int start = 0;
+        while (m_values[start] != null) {
+            ++start;
+        }
+        return start;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        if (m_size == 0) {
+            return;
+        }
+        int mask = m_mask;
+        int start = scanStart();
+        for (int n = 1; n <= mask; ++n) {
+            int i = (start + n) & mask;
+            if (m_values[i] != null) {
+                consumer.accept(m_keys[i], (V) m_values[i]);
+            }
+        }
+    }
+
+    /**
+     * Remove all entries matching {@code predicate}
+     *
+     * @return number of entries removed
+     */
+    @SuppressWarnings("unchecked")
+    public int removeIf(EntryPredicate<? super V> predicate) {
+        if (m_size == 0) {
+            return 0;
+        }
+        int removed = 0;
+        int mask = m_mask;
+        int start = scanStart();
+        for (int n = 1; n <= mask; ++n) {
+            int i = (start + n) & mask;
+            // A removal can shift the next entry into this slot so check it again
+            while (m_values[i] != null && predicate.test(m_keys[i], (V) m_values[i])) {
+                removeSlot(i);
+                ++removed;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return a new array holding all keys in no particular order
+     */
+    public long[] keys() {
+        long[] keys = new long[m_size];
+        int k = 0;
+        for (int i = 0; i < m_values.length; ++i) {
+            if (m_values[i] != null) {
+                keys[k++] = m_keys[i];
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * @return a new list holding all values in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> values = new ArrayList<>(m_size);
+        for (Object value : m_values) {
+            if (value != null) {
+                values.add((V) value);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+}
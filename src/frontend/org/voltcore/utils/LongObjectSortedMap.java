@@ -0,0 +1,159 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.util.Arrays;
+
+import com.google_voltpatches.common.base.Preconditions;
+
+/**
+ * Sorted map from primitive {@code long} keys to object values, kept as parallel sorted arrays. Lookups are binary
+ * searches and entries are accessed by index in key order, so iterating allocates nothing. Inserts and removes move
+ * the tail of the arrays, which makes this a replacement for small {@code TreeMap<Long, V>} instances such as the
+ * per replica or per site maps created for each transaction, not for large maps.
+ * <p>
+ * {@code null} values are not supported. This class is not thread-safe.
+ */
+public class LongObjectSortedMap<V> {
+    private static final long[] EMPTY_KEYS = new long[0];
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    private long[] m_keys;
+    private Object[] m_values;
+    private int m_size;
+
+    public LongObjectSortedMap() {
+        m_keys = EMPTY_KEYS;
+        m_values = EMPTY_VALUES;
+    }
+
+    public LongObjectSortedMap(int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0, "Negative expected size %s", expectedSize);
+        m_keys = new long[expectedSize];
+        m_values = new Object[expectedSize];
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    /**
+     * @return index of {@code key} if present, otherwise {@code -(insertion point) - 1}
+     */
+    public int indexOf(long key) {
+        return Arrays.binarySearch(m_keys, 0, m_size, key);
+    }
+
+    public long keyAt(int index) {
+        checkIndex(index);
+        return m_keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int index) {
+        checkIndex(index);
+        return (V) m_values[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) m_values[index];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return the previous value associated with {@code key} or {@code null} if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Preconditions.checkNotNull(value);
+        int index = indexOf(key);
+        if (index >= 0) {
+            V previous = (V) m_values[index];
+            m_values[index] = value;
+            return previous;
+        }
+        index = -index - 1;
+        if (m_size == m_keys.length) {
+            int capacity = Math.max(4, m_size + (m_size >> 1));
+            m_keys = Arrays.copyOf(m_keys, capacity);
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+        System.arraycopy(m_keys, index, m_keys, index + 1, m_size - index);
+        System.arraycopy(m_values, index, m_values, index + 1, m_size - index);
+        m_keys[index] = key;
+        m_values[index] = value;
+        ++m_size;
+        return null;
+    }
+
+    /**
+     * @return the value which was associated with {@code key} or {@code null} if there was none
+     */
+    public V remove(long key) {
+        int index = indexOf(key);
+        return index < 0 ? null : removeAt(index);
+    }
+
+    /**
+     * Remove the entry at {@code index}, shifting all following entries down by one
+     *
+     * @return the removed value
+     */
+    @SuppressWarnings("unchecked")
+    public V removeAt(int index) {
+        checkIndex(index);
+        V previous = (V) m_values[index];
+        int moved = m_size - index - 1;
+        System.arraycopy(m_keys, index + 1, m_keys, index, moved);
+        System.arraycopy(m_values, index + 1, m_values, index, moved);
+        m_values[--m_size] = null;
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(m_values, 0, m_size, null);
+        m_size = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= m_size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < m_size; ++i) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(m_keys[i]).append('=').append(m_values[i]);
+        }
+        return sb.append('}').toString();
+    }
+}
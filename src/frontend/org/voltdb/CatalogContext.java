@@ -193,6 +193,7 @@ public class CatalogContext {
         if (hasSchemaChange) {
             m_defaultProcs = new DefaultProcedureManager(database);
             m_ptool = new PlannerTool(database, m_catalogInfo.m_catalogHash);
+            m_ptool.inheritCachedPlans(plannerTool);
         } else {
             m_defaultProcs = defaultProcManager;
             m_ptool = plannerTool.updateWhenNoSchemaChange(database, m_catalogInfo.m_catalogHash);
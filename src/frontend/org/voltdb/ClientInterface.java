@@ -87,6 +87,7 @@ import org.voltdb.catalog.SnapshotSchedule;
 import org.voltdb.client.ClientAuthScheme;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcedureCallback;
+import org.voltdb.client.ProcedureInvocationType;
 import org.voltdb.client.TLSHandshaker;
 import org.voltdb.common.Constants;
 import org.voltdb.dtxn.InitiatorStats.InvocationInfo;
@@ -102,6 +103,7 @@ import org.voltdb.messaging.LocalMailbox;
 import org.voltdb.messaging.MigratePartitionLeaderMessage;
 import org.voltdb.security.AuthenticationRequest;
 import org.voltdb.utils.MiscUtils;
+import org.voltdb.utils.SerializationHelper;
 import org.voltdb.utils.VoltTrace;
 
 import com.google_voltpatches.common.base.Charsets;
@@ -821,10 +823,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             try {
                 final ClientResponseImpl error = handleRead(message, this, c);
                 if (error != null) {
-                    ByteBuffer buf = ByteBuffer.allocate(error.getSerializedSize() + 4);
-                    buf.putInt(buf.capacity() - 4);
-                    error.flattenToBuffer(buf).flip();
-                    c.writeStream().enqueue(buf);
+                    enqueueError(c, error);
                 }
             } catch (Exception e) {
                 throw new RuntimeException(e);
@@ -947,10 +946,21 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         {
             buf.putInt(buf.capacity() - 4);
             clientResponse.flattenToBuffer(buf);
+            if (clientResponse.hasStreamedResults()) {
+                // the rows follow in chunks, the last one releases the results
+                final WriteStream stream = cihm.connection.writeStream();
+                stream.enqueue(new ResultChunkWork(clientResponse, stream));
+            }
+            else {
+                clientResponse.releasePooledResults();
+            }
         }
 
         @Override
         public void cancel() {
+            if (clientResponse != null) {
+                clientResponse.releasePooledResults();
+            }
         }
 
         public void setRestartMispartitionedTxn(boolean restart) {
@@ -973,6 +983,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 clientData = cihm.findHandle(response.getClientInterfaceHandle());
             }
             if (clientData == null) {
+                if (clientResponse != null) {
+                    clientResponse.releasePooledResults();
+                }
                 return DeferredSerialization.EMPTY_MESSAGE_LENGTH;
             }
 
@@ -980,6 +993,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             if (response.isMispartitioned() || response.isMisrouted()) {
                 // If the transaction is restarted, don't send a response to the client yet.
                 if (restartTransaction(clientData.m_messageSize, clientData.m_creationTimeNanos)) {
+                    clientResponse.releasePooledResults();
                     return DeferredSerialization.EMPTY_MESSAGE_LENGTH;
                 }
             }
@@ -1008,6 +1022,11 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             clientResponse.setClientHandle(clientData.m_clientHandle);
             clientResponse.setClusterRoundtrip((int)TimeUnit.NANOSECONDS.toMillis(delta));
             clientResponse.setHashes(null); // not part of wire protocol
+            if (clientData.m_streamResults &&
+                    clientResponse.getStatus() == ClientResponse.SUCCESS &&
+                    clientResponse.getResults().length > 0) {
+                clientResponse.setStreamedResults(true);
+            }
 
             return clientResponse.getSerializedSize() + 4;
         }
@@ -1226,6 +1245,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                         cihm.connection.writeStream().fastEnqueue(new ClientResponseWork(response, cihm, procedure));
                         Iv2Trace.logFinishTransaction(response, m_mailbox.getHSId());
                     }
+                    else if (response.getClientResponseData() != null) {
+                        response.getClientResponseData().releasePooledResults();
+                    }
                 }
                 else if (message instanceof BinaryPayloadMessage) {
                     handlePartitionFailOver((BinaryPayloadMessage)message);
@@ -1512,7 +1534,17 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
      *
      * * return True if an error was generated and needs to be returned to the client
      */
+    private static void enqueueError(Connection c, ClientResponseImpl error) {
+        ByteBuffer buf = ByteBuffer.allocate(error.getSerializedSize() + 4);
+        buf.putInt(buf.capacity() - 4);
+        error.flattenToBuffer(buf).flip();
+        c.writeStream().enqueue(buf);
+    }
+
     final ClientResponseImpl handleRead(ByteBuffer buf, ClientInputHandler handler, Connection ccxn) {
+        if (buf.get(buf.position()) == ProcedureInvocationType.BATCH.getValue()) {
+            return handleBatchRead(buf, handler, ccxn);
+        }
         StoredProcedureInvocation task = new StoredProcedureInvocation();
         try {
             task.initFromBuffer(buf);
@@ -1543,6 +1575,54 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         return errResp;
     }
 
+    /**
+     * Unpack a frame carrying several invocations of one procedure and dispatch
+     * each of them. The procedure name and the user are only resolved once;
+     * errors are written back per invocation, each under its own client handle.
+     */
+    private ClientResponseImpl handleBatchRead(ByteBuffer buf, ClientInputHandler handler, Connection ccxn) {
+        final byte[] procNameBytes;
+        final int count;
+        try {
+            buf.get(); // version
+            procNameBytes = SerializationHelper.getVarbinary(buf);
+            if (procNameBytes == null || procNameBytes.length == 0) {
+                throw new IOException("Procedure name cannot be empty in batched invocation deserialization.");
+            }
+            count = buf.getInt();
+        } catch (Exception ex) {
+            return new ClientResponseImpl(
+                    ClientResponseImpl.UNEXPECTED_FAILURE,
+                    new VoltTable[0], ex.getMessage(), ccxn.connectionId());
+        }
+
+        final AuthUser user =  m_catalogContext.get().authSystem.getUser(handler.getUserName());
+        for (int i = 0; i < count; i++) {
+            final StoredProcedureInvocation task = new StoredProcedureInvocation();
+            try {
+                task.initFromBatchEntry(procNameBytes, buf);
+            } catch (Exception ex) {
+                // the rest of the frame can't be trusted
+                return new ClientResponseImpl(
+                        ClientResponseImpl.UNEXPECTED_FAILURE,
+                        new VoltTable[0], ex.getMessage(), ccxn.connectionId());
+            }
+            final ClientResponseImpl errResp;
+            if (user == null) {
+                String errorMessage = "User " + handler.getUserName() + " has been removed from the system via a catalog update";
+                authLog.info(errorMessage);
+                errResp = errorResponse(ccxn, task.clientHandle, ClientResponse.UNEXPECTED_FAILURE, errorMessage, null, false);
+            }
+            else {
+                errResp = m_dispatcher.dispatch(task, handler, ccxn, user, null, false);
+            }
+            if (errResp != null) {
+                enqueueError(ccxn, errResp);
+            }
+        }
+        return null;
+    }
+
     public Procedure getProcedureFromName(String procName) {
         return InvocationDispatcher.getProcedureFromName(procName, m_catalogContext.get());
     }
@@ -18,14 +18,11 @@
 package org.voltdb;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.Connection;
+import org.voltcore.utils.LongObjectHashMap;
 
 import com.google_voltpatches.common.collect.ImmutableMap;
 import com.google_voltpatches.common.collect.ImmutableMap.Builder;
@@ -94,8 +91,11 @@ public class ClientInterfaceHandleManager
         final long m_creationTimeNanos;
         final String m_procName;
         final long m_initiatorHSId;
+        // the client accepts the results as a header followed by row chunks
+        final boolean m_streamResults;
         Iv2InFlight(long ciHandle, long clientHandle,
-                int messageSize, long creationTimeNanos, String procName, long initiatorHSId)
+                int messageSize, long creationTimeNanos, String procName, long initiatorHSId,
+                boolean streamResults)
         {
             m_ciHandle = ciHandle;
             m_clientHandle = clientHandle;
@@ -103,12 +103,13 @@ public class ClientInterfaceHandleManager
             m_creationTimeNanos = creationTimeNanos;
             m_procName = procName;
             m_initiatorHSId = initiatorHSId;
+            m_streamResults = streamResults;
         }
     }
 
     static class PartitionInFlightTracker {
         private final HandleGenerator m_generator;
-        private final Map<Long, Iv2InFlight> m_inFlights = new HashMap<Long, Iv2InFlight>();
+        private final LongObjectHashMap<Iv2InFlight> m_inFlights = new LongObjectHashMap<Iv2InFlight>();
 
         private PartitionInFlightTracker(int partitionId) {
             m_generator = new HandleGenerator(partitionId);
@@ -135,9 +136,10 @@ public class ClientInterfaceHandleManager
             @Override
             synchronized long getHandle(boolean isSinglePartition, int partitionId,
                     long clientHandle, int messageSize, long creationTimeNanos, String procName, long initiatorHSId,
-                    boolean isShortCircuitRead) {
+                    boolean isShortCircuitRead, boolean streamResults) {
                 return super.getHandle(isSinglePartition, partitionId,
-                        clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId, isShortCircuitRead);
+                        clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId, isShortCircuitRead,
+                        streamResults);
             }
             @Override
             synchronized Iv2InFlight findHandle(long ciHandle) {
@@ -186,6 +188,25 @@ public class ClientInterfaceHandleManager
             String procName,
             long initiatorHSId,
             boolean isShortCircuitRead)
+    {
+        return getHandle(isSinglePartition, partitionId, clientHandle, messageSize, creationTimeNanos,
+                procName, initiatorHSId, isShortCircuitRead, false);
+    }
+
+    /**
+     * Same as above, remembering whether the client asked for the results
+     * to be streamed back as row chunks.
+     */
+    long getHandle(
+            boolean isSinglePartition,
+            int partitionId,
+            long clientHandle,
+            int messageSize,
+            long creationTimeNanos,
+            String procName,
+            long initiatorHSId,
+            boolean isShortCircuitRead,
+            boolean streamResults)
     {
         assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
         if (isShortCircuitRead) {
@@ -207,7 +228,7 @@ public class ClientInterfaceHandleManager
 
         long ciHandle = tracker.m_generator.getNextHandle();
         Iv2InFlight inFlight = new Iv2InFlight(ciHandle, clientHandle, messageSize,
-                                               creationTimeNanos, procName, initiatorHSId);
+                                               creationTimeNanos, procName, initiatorHSId, streamResults);
 
         tracker.m_inFlights.put(ciHandle, inFlight);
 
@@ -287,29 +308,28 @@ public class ClientInterfaceHandleManager
     void freeOutstandingTxns() {
         assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
         for (PartitionInFlightTracker tracker : m_trackerMap.values()) {
-            for (Iv2InFlight inflight : tracker.m_inFlights.values()) {
+            tracker.m_inFlights.forEach((ciHandle, inflight) -> {
                 m_outstandingTxns--;
                 m_acg.reduceBackpressure(inflight.m_messageSize);
-            }
+            });
         }
     }
 
     private void collectAndRemovePartitionInFlightRequests(Integer partitionId, Long initiatorHSId, List<Iv2InFlight> retval) {
         PartitionInFlightTracker partitionStuff = m_trackerMap.get(partitionId);
         if (partitionStuff != null) {
-            Iterator<Entry<Long, Iv2InFlight>> iter = partitionStuff.m_inFlights.entrySet().iterator();
-            while (iter.hasNext()) {
-                Entry<Long, Iv2InFlight> entry = iter.next();
-                if (entry.getValue().m_initiatorHSId != initiatorHSId) {
+            partitionStuff.m_inFlights.removeIf((ciHandle, inFlight) -> {
+                if (inFlight.m_initiatorHSId != initiatorHSId) {
                     if (tmLog.isTraceEnabled()) {
-                        tmLog.trace("cleared response for handle " + entry.getKey());
+                        tmLog.trace("cleared response for handle " + ciHandle);
                     }
-                    iter.remove();
-                    retval.add(entry.getValue());
+                    retval.add(inFlight);
                     m_outstandingTxns--;
-                    m_acg.reduceBackpressure(entry.getValue().m_messageSize);
+                    m_acg.reduceBackpressure(inFlight.m_messageSize);
+                    return true;
                 }
-            }
+                return false;
+            });
         }
     }
 
@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONString;
 import org.json_voltpatches.JSONStringer;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.Pair;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ClientUtils;
@@ -45,6 +46,8 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     private byte encodedAppStatusString[];
     private VoltTable[] results = new VoltTable[0];
     private int[] m_hashes = null;
+    // results are sent as schema-only tables, the rows follow in chunk frames
+    private boolean m_streamedResults = false;
 
     private int clusterRoundTripTime = 0;
     private int clientRoundTripTime = 0;
@@ -63,6 +66,17 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     // transaction is a duplicate
     public static final String IGNORED_TRANSACTION = "Ignored replayed transaction";
 
+    /**
+     * Version byte of a frame carrying rows of a streamed response. A chunk frame is
+     * the version, the client handle, the result table index as a short, a flags byte
+     * and a serialized table holding the rows of the chunk.
+     */
+    public static final byte RESULT_CHUNK_VERSION = 1;
+    /** Chunk flag set on the last frame of a streamed response */
+    public static final byte LAST_RESULT_CHUNK = 1;
+    // version + handle + table index + flags
+    private static final int RESULT_CHUNK_HEADER_SIZE = 1 + 8 + 2 + 1;
+
     /** opaque data optionally provided by and returned to the client */
     private long clientHandle = -1;
 
@@ -172,6 +186,18 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         return m_hashes;
     }
 
+    /**
+     * Serialize the result tables without their rows. The receiver gets the
+     * rows in {@link #RESULT_CHUNK_VERSION} frames that follow this response.
+     */
+    public void setStreamedResults(boolean streamedResults) {
+        m_streamedResults = streamedResults;
+    }
+
+    public boolean hasStreamedResults() {
+        return m_streamedResults;
+    }
+
     public void initFromBuffer(ByteBuffer buf) throws IOException {
         buf.get();//Skip version byte
         clientHandle = buf.getLong();
@@ -189,6 +215,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             appStatusString = null;
         }
         clusterRoundTripTime = buf.getInt();
+        m_streamedResults = (presentFields & (1 << 3)) != 0;
         if ((presentFields & (1 << 6)) != 0) {
             throw new RuntimeException("Use of deprecated exception in Client Response serialization.");
         }
@@ -240,7 +267,8 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             msgsize += m_hashes.length * 4; // array of ints
         }
         for (VoltTable vt : results) {
-            msgsize += vt.getSerializedSize();
+            // a streamed table is its header plus a zero row count
+            msgsize += m_streamedResults ? vt.getRowStart() + 8 : vt.getSerializedSize();
         }
 
         return msgsize;
@@ -263,6 +291,9 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         if (m_hashes != null) {
             presentFields |= 1 << 4;
         }
+        if (m_streamedResults) {
+            presentFields |= 1 << 3;
+        }
         buf.put(presentFields);
         buf.put(status);
         if (statusString != null) {
@@ -285,11 +316,55 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         buf.putShort((short) results.length);
         for (VoltTable vt : results)
         {
-            vt.flattenToBuffer(buf);
+            if (m_streamedResults) {
+                flattenTableHeader(buf, vt, 0);
+                buf.putInt(0);
+            }
+            else {
+                vt.flattenToBuffer(buf);
+            }
         }
         return buf;
     }
 
+    /**
+     * Write the length prefix and the column header of {@code vt} for a table
+     * that will hold {@code rowsBytes} of row data.
+     */
+    private static void flattenTableHeader(ByteBuffer buf, VoltTable vt, int rowsBytes) {
+        final int rowStart = vt.getRowStart();
+        buf.putInt(rowStart + 4 + rowsBytes);
+        ByteBuffer header = PrivateVoltTableFactory.getTableDataReference(vt);
+        header.limit(rowStart);
+        buf.put(header);
+    }
+
+    /**
+     * @return the size of a result chunk frame carrying {@code rowsBytes} of
+     * rows from {@code vt}, not including the frame length prefix.
+     */
+    public static int getResultChunkSize(VoltTable vt, int rowsBytes) {
+        return RESULT_CHUNK_HEADER_SIZE + 4 + vt.getRowStart() + 4 + rowsBytes;
+    }
+
+    /**
+     * Write a result chunk frame holding {@code rowCount} rows of {@code vt} that
+     * start at byte offset {@code rowsOffset} of the table and span {@code rowsBytes}.
+     */
+    public static void flattenResultChunk(ByteBuffer buf, long clientHandle, int tableIndex, boolean last,
+            VoltTable vt, int rowsOffset, int rowCount, int rowsBytes) {
+        buf.put(RESULT_CHUNK_VERSION);
+        buf.putLong(clientHandle);
+        buf.putShort((short) tableIndex);
+        buf.put(last ? LAST_RESULT_CHUNK : 0);
+        flattenTableHeader(buf, vt, rowsBytes);
+        buf.putInt(rowCount);
+        ByteBuffer rows = PrivateVoltTableFactory.getTableDataReference(vt);
+        rows.position(rowsOffset);
+        rows.limit(rowsOffset + rowsBytes);
+        buf.put(rows);
+    }
+
     @Override
     public int getClusterRoundtrip() {
         return clusterRoundTripTime;
@@ -395,4 +470,57 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     public void dropResultTable() {
         results = new VoltTable[] {};
     }
+
+    /**
+     * @return true if any of the result tables is a view over a pooled EE result buffer.
+     */
+    public boolean hasPooledResults() {
+        for (VoltTable vt : results) {
+            if (vt.m_pooledBacking != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the pooled EE result buffers backing the result tables, if any.
+     * Must only be called once the response has been serialized or is going to be dropped,
+     * the result tables are not usable afterwards.
+     */
+    public void releasePooledResults() {
+        for (int i = 0; i < results.length; ++i) {
+            final BBContainer backing = results[i].m_pooledBacking;
+            if (backing == null) {
+                continue;
+            }
+            // Several tables of the same batch share one buffer
+            for (int j = i; j < results.length; ++j) {
+                if (results[j].m_pooledBacking == backing) {
+                    results[j].m_pooledBacking = null;
+                }
+            }
+            backing.discard();
+        }
+    }
+
+    /**
+     * Copy result tables backed by pooled EE result buffers to the heap and return the buffers
+     * to the pool. Used when the response is retained or routed somewhere the pooled buffers
+     * cannot follow.
+     */
+    public void copyPooledResultsToHeap() {
+        for (int i = 0; i < results.length; ++i) {
+            final BBContainer backing = results[i].m_pooledBacking;
+            if (backing == null) {
+                continue;
+            }
+            for (int j = i; j < results.length; ++j) {
+                if (results[j].m_pooledBacking == backing) {
+                    results[j].copyToHeapBuffer();
+                }
+            }
+            backing.discard();
+        }
+    }
 }
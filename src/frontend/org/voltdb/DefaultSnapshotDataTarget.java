@@ -32,6 +32,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -55,6 +56,7 @@ import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
 import com.google_voltpatches.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google_voltpatches.common.util.concurrent.MoreExecutors;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
 import com.google_voltpatches.common.util.concurrent.UnsynchronizedRateLimiter;
 
 
@@ -86,6 +88,14 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
     private volatile long m_bytesWritten = 0;
 
+    /*
+     * Throughput accounting for snapshot status, tuple bytes handed to the codec and the
+     * time spent in the codec and in writing to the file
+     */
+    private final AtomicLong m_bytesCompressed = new AtomicLong(0);
+    private final AtomicLong m_compressionNanos = new AtomicLong(0);
+    private volatile long m_writeNanos = 0;
+
     private static final Semaphore m_bytesAllowedBeforeSync = new Semaphore((1024 * 1024) * 256);
     private final AtomicInteger m_bytesWrittenSinceLastSync = new AtomicInteger(0);
 
@@ -109,6 +119,20 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     static final ListeningScheduledExecutorService m_syncService = MoreExecutors.listeningDecorator(
             Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Snapshot sync service")));
 
+    /*
+     * Chunks are compressed on a pool dedicated to snapshots rather than the shared computation
+     * service, and each chunk is queued on the write service as soon as its compression finishes
+     * so a slow chunk doesn't hold up the ones behind it. Chunks are self describing (length,
+     * partition id and CRCs) so their order within the file doesn't matter to restore.
+     */
+    public static final int SNAPSHOT_COMPRESSION_THREADS =
+            Math.max(1, Integer.getInteger("SNAPSHOT_COMPRESSION_THREADS", Math.max(2, CoreUtils.availableProcessors() / 2)));
+    private static final ListeningExecutorService m_compressionService = MoreExecutors.listeningDecorator(
+            Executors.newFixedThreadPool(SNAPSHOT_COMPRESSION_THREADS,
+                    CoreUtils.getThreadFactory("Snapshot compression service")));
+
+    public static final SnapshotFormat.Codec SNAPSHOT_CODEC;
+
     public static final int SNAPSHOT_SYNC_FREQUENCY = Integer.getInteger("SNAPSHOT_SYNC_FREQUENCY", 500);
     public static final int SNAPSHOT_FADVISE_BYTES = Integer.getInteger("SNAPSHOT_FADVISE_BYTES", 1024 * 1024 * 2);
     public static final int SNAPSHOT_RATELIMIT_MEGABYTES;
@@ -128,6 +152,14 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         } else {
             USE_SNAPSHOT_RATELIMIT = false;
         }
+
+        SnapshotFormat.Codec codec = SnapshotFormat.Codec.SNAPPY;
+        try {
+            codec = SnapshotFormat.Codec.getEnumIgnoreCase(System.getProperty("SNAPSHOT_COMPRESSION_CODEC", "SNAPPY"));
+        } catch (IllegalArgumentException e) {
+            SNAP_LOG.warn(e.getMessage() + ", snapshots will be compressed with " + codec);
+        }
+        SNAPSHOT_CODEC = codec;
     }
 
     public static final UnsynchronizedRateLimiter SNAPSHOT_RATELIMITER =
@@ -204,7 +236,8 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             stringer.keySymbolValuePair("databaseName", databaseName);
             stringer.keySymbolValuePair("tableName", tableName.toUpperCase());
             stringer.keySymbolValuePair("isReplicated", isReplicated);
-            stringer.keySymbolValuePair("isCompressed", true);
+            stringer.keySymbolValuePair("isCompressed", SNAPSHOT_CODEC != SnapshotFormat.Codec.NONE);
+            stringer.keySymbolValuePair("compressionCodec", SNAPSHOT_CODEC.name());
             stringer.keySymbolValuePair("checksumType", "CRC32C");
             stringer.keySymbolValuePair("timestamp", timestamp);
             /*
@@ -432,7 +465,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
         m_outstandingWriteTasks.incrementAndGet();
 
-        Future<BBContainer> compressionTask = null;
+        ListenableFuture<BBContainer> compressionTask = null;
         if (prependLength) {
             BBContainer cont =
                     DBBPool.allocateDirectAndPool(SnapshotSiteProcessor.m_snapshotBufferCompressedLen);
@@ -445,11 +478,23 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
              * that is 16 bytes, but 4 of those are done by CompressionService
              */
             cont.b().position(12);
-            compressionTask = CompressionService.compressAndCRC32cBufferAsync(tupleData, cont);
+            final ByteBuffer uncompressed = tupleData;
+            compressionTask = m_compressionService.submit(new Callable<BBContainer>() {
+                @Override
+                public BBContainer call() throws Exception {
+                    final long compressionStart = System.nanoTime();
+                    m_bytesCompressed.addAndGet(uncompressed.remaining());
+                    try {
+                        return CompressionService.compressAndCRC32cBuffer(uncompressed, cont, SNAPSHOT_CODEC);
+                    } finally {
+                        m_compressionNanos.addAndGet(System.nanoTime() - compressionStart);
+                    }
+                }
+            });
         }
         final Future<BBContainer> compressionTaskFinal = compressionTask;
 
-        ListenableFuture<?> writeTask = m_es.submit(new Callable<Object>() {
+        final Callable<Object> writeCallable = new Callable<Object>() {
             @Override
             public Object call() throws Exception {
                 int permitAcquired = 0;
@@ -468,6 +513,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                     }
 
                     final ByteBuffer tupleData = tupleDataCont.b();
+                    final long writeStart = System.nanoTime();
                     int totalWritten = 0;
                     if (prependLength) {
                         BBContainer payloadContainer = compressionTaskFinal.get();
@@ -512,6 +558,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                         }
                     }
                     m_bytesWritten += totalWritten;
+                    m_writeNanos += System.nanoTime() - writeStart;
                     m_bytesWrittenSinceLastSync.addAndGet(totalWritten);
                 } catch (IOException e) {
                     if (permitAcquired > 0) {
@@ -537,7 +584,21 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                 }
                 return null;
             }
-        });
+        };
+        if (compressionTask == null) {
+            return m_es.submit(writeCallable);
+        }
+        /*
+         * Queue the write once the chunk is compressed. A failed compression still runs the
+         * write task so the failure is reported and the outstanding task count released.
+         */
+        final SettableFuture<Object> writeTask = SettableFuture.create();
+        compressionTask.addListener(new Runnable() {
+            @Override
+            public void run() {
+                writeTask.setFuture(m_es.submit(writeCallable));
+            }
+        }, MoreExecutors.directExecutor());
         return writeTask;
     }
 
@@ -551,6 +612,21 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         return m_bytesWritten;
     }
 
+    @Override
+    public long getBytesCompressed() {
+        return m_bytesCompressed.get();
+    }
+
+    @Override
+    public long getCompressionNanos() {
+        return m_compressionNanos.get();
+    }
+
+    @Override
+    public long getWriteNanos() {
+        return m_writeNanos;
+    }
+
     @Override
     public void setOnCloseHandler(Runnable onClose) {
         m_onCloseHandler = onClose;
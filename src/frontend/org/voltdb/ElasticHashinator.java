@@ -42,6 +42,7 @@ import org.json_voltpatches.JSONStringer;
 import org.voltcore.utils.Bits;
 import org.voltcore.utils.Pair;
 import org.voltcore.utils.VoltUnsafe;
+import org.voltdb.client.HashinatorLookupTable;
 import org.voltdb.utils.CompressionService;
 
 import com.google_voltpatches.common.base.Preconditions;
@@ -83,6 +84,14 @@ public class ElasticHashinator extends TheHashinator {
     private final long m_tokens;
     private final int m_tokenCount;
 
+    // Built on first use, instances that only exist to compute a new ring never route anything
+    private final Supplier<HashinatorLookupTable> m_lookupTable = Suppliers.memoize(new Supplier<HashinatorLookupTable>() {
+        @Override
+        public HashinatorLookupTable get() {
+            return new HashinatorLookupTable(m_tokens, m_tokenCount);
+        }
+    });
+
     // Provide a hook for the GC
     @SuppressWarnings("unused")
     private final Object m_cleaner;
@@ -294,8 +303,7 @@ public class ElasticHashinator extends TheHashinator {
      * it wraps around to the last token in the ring closest to Long.MAX_VALUE
      */
     public int partitionForToken(int hash) {
-        long token = getTokenPtr(hash);
-        return Bits.unsafe.getInt(token + 4);
+        return m_lookupTable.get().partitionForToken(hash);
     }
 
     /**
@@ -598,26 +606,6 @@ public class ElasticHashinator extends TheHashinator {
         return Pair.of(tokens, numEntries);
     }
 
-    private long getTokenPtr(int hash) {
-        int min = 0;
-        int max = m_tokenCount - 1;
-
-        while (min <= max) {
-            int mid = (min + max) >>> 1;
-            final long midPtr = m_tokens + (8 * mid);
-            int midval = Bits.unsafe.getInt(midPtr);
-
-            if (midval < hash) {
-                min = mid + 1;
-            } else if (midval > hash) {
-                max = mid - 1;
-            } else {
-                return midPtr;
-            }
-        }
-        return m_tokens + (min - 1) * 8;
-    }
-
     /**
      * Update from optimized (cooked) wire format.
      *      token-1 token-2 ...
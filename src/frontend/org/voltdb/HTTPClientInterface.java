@@ -22,17 +22,21 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import org.eclipse.jetty.continuation.Continuation;
-import org.eclipse.jetty.continuation.ContinuationListener;
-import org.eclipse.jetty.continuation.ContinuationSupport;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.util.B64Code;
@@ -54,6 +58,7 @@ import org.voltdb.security.AuthenticationRequest;
 import org.voltdb.utils.Base64;
 import org.voltdb.utils.Encoder;
 import org.voltdb.utils.ClientResponseToJsonApiV2;
+import org.voltdb.utils.JsonOutputBuffer;
 
 import com.google_voltpatches.common.base.Supplier;
 import com.google_voltpatches.common.base.Suppliers;
@@ -78,6 +83,12 @@ public class HTTPClientInterface {
     public static final int MAX_SESSION_INACTIVITY_SECONDS = Integer.getInteger("HTTP_SESSION_TIMEOUT_SECONDS", 30);
     //Hidden property for disable session management and use always auth mode.
     public static final boolean HTTP_DONT_USE_SESSION = Boolean.getBoolean("HTTP_DONT_USE_SESSION");
+    //Hidden property for the smallest response gzipped for clients accepting it, negative to disable.
+    public static final int HTTP_GZIP_MIN_RESPONSE_SIZE = Integer.getInteger("HTTP_GZIP_MIN_RESPONSE_SIZE", 1024);
+    //Hidden property for the most JSON API requests in flight at once, 0 or less for no limit.
+    public static final int HTTP_MAX_INFLIGHT_REQUESTS = Integer.getInteger("HTTP_MAX_INFLIGHT_REQUESTS", 10000);
+    //Same as the jetty async default, used when no request timeout is configured.
+    static final int DEFAULT_ASYNC_TIMEOUT_MILLIS = 30 * 1000;
 
     int m_timeout = 0;
 
@@ -86,6 +97,8 @@ public class HTTPClientInterface {
 
     final String m_timeoutResponse;
 
+    final HTTPStats m_stats = new HTTPStats(HTTP_MAX_INFLIGHT_REQUESTS);
+
     private volatile boolean m_dontUseSession = false;
 
     private final Supplier<InternalConnectionHandler> m_invocationHandler =
@@ -109,68 +122,203 @@ public class HTTPClientInterface {
         m_timeout = seconds * 1000;
     }
 
-    class JSONProcCallback implements ProcedureCallback, ContinuationListener {
+    /**
+     * An admitted JSON API request. The servlet thread is released as soon as the procedure
+     * is invoked. The response is serialized on the procedure callback and written by a
+     * non-blocking {@link WriteListener}, so no Jetty thread waits on the procedure or on a
+     * slow client draining the response. The request gives up its in-flight slot when the
+     * async context completes.
+     */
+    class JSONProcCallback implements ProcedureCallback, AsyncListener, WriteListener {
 
+        // claimed by whichever of the procedure response, the timeout or a failure replies
         final AtomicBoolean m_complete = new AtomicBoolean(false);
-        final Continuation m_continuation;
+        final AtomicBoolean m_released = new AtomicBoolean(false);
+        final AsyncContext m_asyncContext;
         final String m_jsonp;
-        private int m_api_version;
-
-        public JSONProcCallback(Continuation continuation, String jsonp, int api_version) {
-            assert continuation != null : "given continuation is null";
-
-            m_continuation = continuation;
-            m_continuation.addContinuationListener(this);
+        private final int m_api_version;
+        private final boolean m_acceptsGzip;
+        private final long m_startNanos;
+        private volatile ScheduledFuture<?> m_timeoutTask;
+        private volatile JsonOutputBuffer m_buffer;
+        private volatile int m_responseBytes = 0;
+        // only touched from the write listener callbacks, which jetty never runs concurrently
+        private boolean m_written = false;
+
+        public JSONProcCallback(AsyncContext asyncContext, String jsonp, int api_version,
+                boolean acceptsGzip, long startNanos) {
+            assert asyncContext != null : "given async context is null";
+
+            m_asyncContext = asyncContext;
+            m_asyncContext.addListener(this);
             m_jsonp = jsonp;
             m_api_version = api_version;
+            m_acceptsGzip = acceptsGzip;
+            m_startNanos = startNanos;
+        }
+
+        boolean claim() {
+            return m_complete.compareAndSet(false, true);
+        }
+
+        void scheduleTimeout(int timeoutMillis) {
+            m_timeoutTask = VoltDB.instance().scheduleWork(new Runnable() {
+                @Override
+                public void run() {
+                    if (claim()) {
+                        m_stats.requestTimedOut();
+                        send(JsonOutputBuffer.acquire().appendUtf8(m_timeoutResponse));
+                    }
+                }
+            }, timeoutMillis, -1, TimeUnit.MILLISECONDS);
         }
 
         @Override
         public void clientCallback(ClientResponse clientResponse) throws Exception {
 
-            if (!m_complete.compareAndSet(false, true)) {
+            if (!claim()) {
                 if (clientResponse.getStatus() != ClientResponse.RESPONSE_UNKNOWN) {
                     m_rate_limited_log.log(
                             EstTime.currentTimeMillis(), Level.WARN, null,
-                            "Procedure response arrived for a request that was timed out by jetty"
+                            "Procedure response arrived for a request that had already timed out"
                     );
                 }
                 return;
             }
             ClientResponseImpl rimpl = (ClientResponseImpl) clientResponse;
-            String msg = null;
-            if (m_api_version == 1)
-                msg = rimpl.toJSONString();
-            else if (m_api_version == 2)
-                msg = ClientResponseToJsonApiV2.toJSONStringV2(rimpl);
-
-            // handle jsonp pattern
-            // http://en.wikipedia.org/wiki/JSON#The_Basic_Idea:_Retrieving_JSON_via_Script_Tags
-            msg = asJsonp(m_jsonp, msg);
+            JsonOutputBuffer buffer = JsonOutputBuffer.acquire();
+            try {
+                if (m_api_version == 1) {
+                    // handle jsonp pattern
+                    // http://en.wikipedia.org/wiki/JSON#The_Basic_Idea:_Retrieving_JSON_via_Script_Tags
+                    buffer.appendUtf8(asJsonp(m_jsonp, rimpl.toJSONString()));
+                }
+                else {
+                    // serialize straight to UTF-8 bytes
+                    if (m_jsonp != null) {
+                        buffer.appendAscii(m_jsonp).appendAscii("( ");
+                    }
+                    ClientResponseToJsonApiV2.writeJSONV2(rimpl, buffer);
+                    if (m_jsonp != null) {
+                        buffer.appendAscii(" )");
+                    }
+                }
+            } catch (Exception e) {
+                buffer.release();
+                ClientResponseImpl failure = new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE,
+                        new VoltTable[0], Throwables.getStackTraceAsString(e));
+                send(JsonOutputBuffer.acquire().appendUtf8(asJsonp(m_jsonp, failure.toJSONString())));
+                throw e;
+            }
+            send(buffer);
+        }
 
-            m_continuation.setAttribute("result", msg);
+        /**
+         * Hand the reply to the non-blocking writer, called once by the claimer of the reply
+         */
+        void send(JsonOutputBuffer buffer) {
+            m_buffer = buffer;
             try {
-                m_continuation.resume();
-            } catch (IllegalStateException e) {
+                m_asyncContext.getResponse().getOutputStream().setWriteListener(this);
+            } catch (IllegalStateException | IOException e) {
                 // Thrown when we shut down the server via the JSON/HTTP (web studio) API
                 // Essentially we're closing everything down from underneath the HTTP request.
-                 m_log.warn("JSON request cannot be completed. The server is shutting down. " + e.getMessage());
+                m_log.warn("JSON request cannot be completed. The server is shutting down. " + e.getMessage());
+                m_stats.requestFailed();
+                complete();
+            }
+        }
+
+        void complete() {
+            try {
+                m_asyncContext.complete();
+            } catch (IllegalStateException e) {
+                // the request is already gone, jetty may still hold the buffer so don't pool it
+                release(false);
+            }
+        }
+
+        private void release(boolean recycle) {
+            if (m_released.compareAndSet(false, true)) {
+                ScheduledFuture<?> timeoutTask = m_timeoutTask;
+                if (timeoutTask != null) {
+                    timeoutTask.cancel(false);
+                }
+                JsonOutputBuffer buffer = m_buffer;
+                if (buffer != null && recycle) {
+                    buffer.release();
+                }
+                m_stats.requestCompleted(m_startNanos, m_responseBytes);
+            }
+        }
+
+        private void prepareResponse(HttpServletResponse response) throws IOException {
+            response.setStatus(HttpServletResponse.SC_OK);
+            if (HTTP_GZIP_MIN_RESPONSE_SIZE >= 0 && m_buffer.size() >= HTTP_GZIP_MIN_RESPONSE_SIZE) {
+                response.addHeader(HttpHeader.VARY.asString(), HttpHeader.ACCEPT_ENCODING.asString());
+                if (m_acceptsGzip) {
+                    JsonOutputBuffer compressed = JsonOutputBuffer.acquire();
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed.asOutputStream(), 8192)) {
+                        m_buffer.writeTo(gzip);
+                    } catch (IOException e) {
+                        compressed.release();
+                        throw e;
+                    }
+                    m_buffer.release();
+                    m_buffer = compressed;
+                    response.setHeader(HttpHeader.CONTENT_ENCODING.asString(), "gzip");
+                }
+            }
+            m_responseBytes = m_buffer.size();
+            response.setContentLength(m_responseBytes);
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            ServletOutputStream out = m_asyncContext.getResponse().getOutputStream();
+            // the whole reply goes out in one write, jetty calls back again once it has drained
+            while (out.isReady()) {
+                if (m_written) {
+                    complete();
+                    return;
+                }
+                prepareResponse((HttpServletResponse) m_asyncContext.getResponse());
+                m_written = true;
+                m_buffer.writeTo(out);
             }
         }
 
         @Override
-        public void onComplete(Continuation continuation) {
-            if(!m_complete.get()) {
-                m_complete.compareAndSet(false, true);
+        public void onError(Throwable t) {
+            if (m_log.isDebugEnabled()) {
+                m_log.debug("JSON failed to send response: ", t);
             }
+            m_stats.requestFailed();
+            complete();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            claim();
+            release(true);
         }
 
         @Override
-        public void onTimeout(Continuation continuation) {
-            if (m_complete.compareAndSet(false, true)) {
-                m_continuation.setAttribute("result", m_timeoutResponse);
-                m_continuation.resume();
+        public void onTimeout(AsyncEvent event) {
+            // timeouts are scheduled by this callback, the async context itself never expires
+            complete();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            if (claim()) {
+                m_stats.requestFailed();
             }
+            complete();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
         }
     }
 
@@ -191,6 +339,34 @@ public class HTTPClientInterface {
         return sb.append(jsonp).append("( ").append(msg).append(" )").toString();
     }
 
+    /**
+     * Whether the request's Accept-Encoding allows a gzip encoded response
+     */
+    static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeader.ACCEPT_ENCODING.asString());
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            return Float.parseFloat(param.substring(2)) > 0;
+                        } catch (NumberFormatException e) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
     private final static void simpleJsonResponse(String jsonp, String message, HttpServletResponse rsp, int code) {
         ClientResponseImpl rimpl = new ClientResponseImpl(
                 ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0], message);
@@ -227,7 +403,7 @@ public class HTTPClientInterface {
 
     public void process(Request request, HttpServletResponse response) {
         AuthenticationResult authResult = null;
-        boolean suspended = false;
+        JSONProcCallback cb = null;
 
         String jsonp = request.getHeader(JSONP);
         if (!validateJSONP(jsonp, request, response)) {
@@ -242,36 +418,6 @@ public class HTTPClientInterface {
             return;
         }
 
-        final Continuation continuation = ContinuationSupport.getContinuation(request);
-        String result = (String)continuation.getAttribute("result");
-        if (result != null) {
-            try {
-                response.setStatus(HttpServletResponse.SC_OK);
-                response.getWriter().print(result);
-                request.setHandled(true);
-            } catch (IllegalStateException | IOException e){
-               // Thrown when we shut down the server via the JSON/HTTP (web studio) API
-               // Essentially we're closing everything down from underneath the HTTP request.
-                m_log.warn("JSON failed to send response: ", e);
-            }
-            return;
-        }
-        //Check if this is resumed request.
-        if (Boolean.TRUE.equals(continuation.getAttribute("SQLSUBMITTED"))) {
-            try {
-                continuation.suspend(response);
-            } catch (IllegalStateException e){
-                // Thrown when we shut down the server via the JSON/HTTP (web studio) API
-                // Essentially we're closing everything down from underneath the HTTP request.
-                 m_log.warn("JSON request completion exception in process: ", e);
-            }
-            return;
-        }
-
-        if (m_timeout > 0 && continuation.isInitial()) {
-            continuation.setTimeout(m_timeout);
-        }
-
         try {
             if (request.getMethod().equalsIgnoreCase("POST")) {
                 int queryParamSize = request.getContentLength();
@@ -325,16 +471,7 @@ public class HTTPClientInterface {
                 return;
             }
 
-            continuation.suspend(response);
-            suspended = true;
-            JSONProcCallback cb;
-            if (request.getServletPath().equals("/api/2.0"))
-                cb = new JSONProcCallback(continuation, jsonp, 2);
-            else
-                cb = new JSONProcCallback(continuation, jsonp, 1);
-
-            boolean success;
-            String hostname = request.getRemoteHost();
+            Object args[] = new Object[0];
             if (params != null) {
                 ParameterSet paramSet = null;
                 try {
@@ -344,42 +481,64 @@ public class HTTPClientInterface {
                 catch (Exception e) {
                     badRequest(jsonp, "failed to parse invocation parameters", response);
                     request.setHandled(true);
-                    continuation.complete();
                     return;
                 }
                 // if the paramset has content, but decodes to null, fail
                 if (paramSet == null) {
                     badRequest(jsonp, "failed to decode invocation parameters", response);
                     request.setHandled(true);
-                    continuation.complete();
                     return;
                 }
-                success = callProcedure(hostname, authResult, queryTimeout, cb, procName, paramSet.toArray());
+                args = paramSet.toArray();
             }
-            else {
-                success = callProcedure(hostname, authResult, queryTimeout, cb, procName);
+
+            if (!m_stats.tryAdmit()) {
+                simpleJsonResponse(jsonp, "Server is busy, too many HTTP requests in flight.",
+                        response, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                request.setHandled(true);
+                return;
             }
-            if (!success) {
+            final long startNanos = System.nanoTime();
+            try {
+                AsyncContext asyncContext = request.startAsync();
+                asyncContext.setTimeout(0);
+                cb = new JSONProcCallback(asyncContext, jsonp,
+                        request.getServletPath().equals("/api/2.0") ? 2 : 1,
+                        acceptsGzip(request), startNanos);
+            } catch (IllegalStateException e) {
+                m_stats.requestCompleted(startNanos, 0);
+                throw e;
+            }
+            cb.scheduleTimeout(m_timeout > 0 ? m_timeout : DEFAULT_ASYNC_TIMEOUT_MILLIS);
+
+            String hostname = request.getRemoteHost();
+            if (!callProcedure(hostname, authResult, queryTimeout, cb, procName, args) && cb.claim()) {
                 ok(jsonp, "Server is not accepting work at this time.", response);
                 request.setHandled(true);
-                continuation.complete();
+                cb.complete();
                 return;
             }
             if (jsonp != null) {
                 request.setAttribute("jsonp", jsonp);
             }
-            continuation.setAttribute("SQLSUBMITTED", Boolean.TRUE);
         } catch (Exception e) {
             String msg = Throwables.getStackTraceAsString(e);
             m_rate_limited_log.log(EstTime.currentTimeMillis(), Level.WARN, e, "JSON interface exception");
-            ok(jsonp, msg, response);
-            if (suspended) {
-                continuation.complete();
+            if (cb == null) {
+                ok(jsonp, msg, response);
+                request.setHandled(true);
+            } else if (cb.claim()) {
+                ok(jsonp, msg, response);
+                request.setHandled(true);
+                cb.complete();
             }
-            request.setHandled(true);
         }
     }
 
+    public HTTPStats getStats() {
+        return m_stats;
+    }
+
     public boolean callProcedure(String hostname, final AuthenticationResult ar, int timeout, ProcedureCallback cb, String procName, Object...args) {
         InternalConnectionHandler internal=m_invocationHandler.get();
         return internal.callProcedure(hostname, ar.m_authUser, ar.m_adminMode, timeout, cb, false, null, procName, args);
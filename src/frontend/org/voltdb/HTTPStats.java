@@ -0,0 +1,204 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.dtxn.LatencyHistogramStats;
+
+/**
+ * Source of @Statistics HTTP, counts and latencies of JSON API requests served by
+ * the {@link HTTPClientInterface} of this host. Latency is measured from the time a
+ * request is admitted until its response has been written out.
+ */
+public class HTTPStats extends StatsSource {
+
+    public enum StatName {
+        REQUESTS,
+        IN_FLIGHT,
+        MAX_IN_FLIGHT,
+        REJECTED,
+        TIMEOUTS,
+        FAILURES,
+        RESPONSE_BYTES,
+        LATENCY_AVG,
+        LATENCY_P50,
+        LATENCY_P99,
+        LATENCY_MAX
+    };
+
+    private final int m_maxInFlight;
+    private final AtomicLong m_inFlight = new AtomicLong();
+
+    private final AtomicLong m_requests = new AtomicLong();
+    private final AtomicLong m_rejected = new AtomicLong();
+    private final AtomicLong m_timeouts = new AtomicLong();
+    private final AtomicLong m_failures = new AtomicLong();
+    private final AtomicLong m_responseBytes = new AtomicLong();
+
+    // values of the counters at the last interval collection
+    private long m_lastRequests = 0;
+    private long m_lastRejected = 0;
+    private long m_lastTimeouts = 0;
+    private long m_lastFailures = 0;
+    private long m_lastResponseBytes = 0;
+
+    // latencies in microseconds
+    private final AbstractHistogram m_totalLatency = LatencyHistogramStats.constructHistogram(true);
+    private final AbstractHistogram m_intervalLatency = LatencyHistogramStats.constructHistogram(true);
+
+    private boolean m_intervalCollection = false;
+
+    /**
+     * @param maxInFlight    the most requests admitted at once, 0 or less for no limit
+     */
+    public HTTPStats(int maxInFlight) {
+        super(false);
+        m_maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Try to admit a request, a request which is admitted must later be passed to
+     * {@link #requestCompleted(long, int)}.
+     * @return false when the in-flight limit has been reached and the request is rejected
+     */
+    public boolean tryAdmit() {
+        if (m_inFlight.incrementAndGet() > m_maxInFlight && m_maxInFlight > 0) {
+            m_inFlight.decrementAndGet();
+            m_rejected.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Release the in-flight slot of an admitted request
+     * @param startNanos       {@link System#nanoTime()} when the request was admitted
+     * @param responseBytes    bytes written for the response, 0 if none was written
+     */
+    public void requestCompleted(long startNanos, int responseBytes) {
+        m_inFlight.decrementAndGet();
+        m_requests.incrementAndGet();
+        m_responseBytes.addAndGet(responseBytes);
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos),
+                m_totalLatency.getHighestTrackableValue());
+        m_totalLatency.recordValue(micros);
+        m_intervalLatency.recordValue(micros);
+    }
+
+    public void requestTimedOut() {
+        m_timeouts.incrementAndGet();
+    }
+
+    public void requestFailed() {
+        m_failures.incrementAndGet();
+    }
+
+    public long getInFlight() {
+        return m_inFlight.get();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo(StatName.REQUESTS.name(), VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo(StatName.IN_FLIGHT.name(), VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo(StatName.MAX_IN_FLIGHT.name(), VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo(StatName.REJECTED.name(), VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo(StatName.TIMEOUTS.name(), VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo(StatName.FAILURES.name(), VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo(StatName.RESPONSE_BYTES.name(), VoltType.BIGINT));
+        // latencies are in microseconds
+        columns.add(new VoltTable.ColumnInfo(StatName.LATENCY_AVG.name(), VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo(StatName.LATENCY_P50.name(), VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo(StatName.LATENCY_P99.name(), VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo(StatName.LATENCY_MAX.name(), VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        long requests = m_requests.get();
+        long rejected = m_rejected.get();
+        long timeouts = m_timeouts.get();
+        long failures = m_failures.get();
+        long responseBytes = m_responseBytes.get();
+        AbstractHistogram latency;
+        if (m_intervalCollection) {
+            latency = m_intervalLatency.copy();
+            m_intervalLatency.reset();
+            rowValues[columnNameToIndex.get(StatName.REQUESTS.name())] = requests - m_lastRequests;
+            rowValues[columnNameToIndex.get(StatName.REJECTED.name())] = rejected - m_lastRejected;
+            rowValues[columnNameToIndex.get(StatName.TIMEOUTS.name())] = timeouts - m_lastTimeouts;
+            rowValues[columnNameToIndex.get(StatName.FAILURES.name())] = failures - m_lastFailures;
+            rowValues[columnNameToIndex.get(StatName.RESPONSE_BYTES.name())] = responseBytes - m_lastResponseBytes;
+            m_lastRequests = requests;
+            m_lastRejected = rejected;
+            m_lastTimeouts = timeouts;
+            m_lastFailures = failures;
+            m_lastResponseBytes = responseBytes;
+        } else {
+            latency = m_totalLatency;
+            rowValues[columnNameToIndex.get(StatName.REQUESTS.name())] = requests;
+            rowValues[columnNameToIndex.get(StatName.REJECTED.name())] = rejected;
+            rowValues[columnNameToIndex.get(StatName.TIMEOUTS.name())] = timeouts;
+            rowValues[columnNameToIndex.get(StatName.FAILURES.name())] = failures;
+            rowValues[columnNameToIndex.get(StatName.RESPONSE_BYTES.name())] = responseBytes;
+        }
+        rowValues[columnNameToIndex.get(StatName.IN_FLIGHT.name())] = (int) m_inFlight.get();
+        rowValues[columnNameToIndex.get(StatName.MAX_IN_FLIGHT.name())] = Math.max(m_maxInFlight, 0);
+        boolean empty = latency.getTotalCount() == 0;
+        rowValues[columnNameToIndex.get(StatName.LATENCY_AVG.name())] = empty ? 0L : (long) latency.getMean();
+        rowValues[columnNameToIndex.get(StatName.LATENCY_P50.name())] = empty ? 0L : latency.getValueAtPercentile(50.0);
+        rowValues[columnNameToIndex.get(StatName.LATENCY_P99.name())] = empty ? 0L : latency.getValueAtPercentile(99.0);
+        rowValues[columnNameToIndex.get(StatName.LATENCY_MAX.name())] = empty ? 0L : latency.getMaxValue();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_intervalCollection = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
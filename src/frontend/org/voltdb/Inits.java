@@ -525,6 +525,8 @@ public class Inits {
                     m_rvdb.m_adminListener = new HTTPAdminListener(
                             m_rvdb.m_jsonEnabled, httpInterface, publicInterface, httpPort,
                             m_config.m_sslContextFactory, mustListen);
+                    m_rvdb.getStatsAgent().registerStatsSource(StatsSelector.HTTP, 0,
+                            m_rvdb.m_adminListener.getHttpStats());
                     success = true;
                     break;
                 } catch (Exception e1) {
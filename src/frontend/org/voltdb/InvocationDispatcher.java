@@ -890,7 +890,8 @@ public final class InvocationDispatcher {
                                      nowNanos,
                                      task.getProcName(),
                                      ClientInterface.NTPROC_JUNK_ID,
-                                     false);
+                                     false,
+                                     task.getStreamResults());
 
         // note, once we get the handle above, any response to the client MUST be done
         // by sending an InitiateResponseMessage to the CI mailbox. Writing bytes to the wire, like we
@@ -1401,7 +1402,8 @@ public final class InvocationDispatcher {
         }
 
         long handle = cihm.getHandle(isSinglePartition, isSinglePartition ? partitions[0] : -1, invocation.getClientHandle(),
-                messageSize, nowNanos, invocation.getProcName(), initiatorHSId, isShortCircuitRead);
+                messageSize, nowNanos, invocation.getProcName(), initiatorHSId, isShortCircuitRead,
+                invocation.getStreamResults());
 
         Iv2InitiateTaskMessage workRequest =
             new Iv2InitiateTaskMessage(m_siteId,
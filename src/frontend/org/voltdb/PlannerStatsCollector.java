@@ -95,6 +95,28 @@ public class PlannerStatsCollector extends StatsSource {
     long m_cacheMisses = 0;
     long m_lastCacheMisses = 0;
 
+    /**
+     * Cache 1 evictions
+     */
+    long m_cache1Evictions = 0;
+    long m_lastCache1Evictions = 0;
+
+    /**
+     * Cache 2 evictions
+     */
+    long m_cache2Evictions = 0;
+    long m_lastCache2Evictions = 0;
+
+    /**
+     * Cache 1 size in bytes
+     */
+    long m_cache1Bytes = 0;
+
+    /**
+     * Cache 2 size in bytes
+     */
+    long m_cache2Bytes = 0;
+
     /**
      * Time of last planning start
      */
@@ -177,6 +199,16 @@ public class PlannerStatsCollector extends StatsSource {
         m_partitionId = partitionId;
     }
 
+    /**
+     * Used to update the eviction counts and memory use of the ad hoc plan caches
+     */
+    public void updateCacheFootprint(long cache1Evictions, long cache2Evictions, long cache1Bytes, long cache2Bytes) {
+        m_cache1Evictions = cache1Evictions;
+        m_cache2Evictions = cache2Evictions;
+        m_cache1Bytes = cache1Bytes;
+        m_cache2Bytes = cache2Bytes;
+    }
+
     /**
      * Called before doing planning. Starts timer.
      */
@@ -255,6 +287,8 @@ public class PlannerStatsCollector extends StatsSource {
         long cache2Hits  = m_cache2Hits;
         long cacheMisses = m_cacheMisses;
         long failureCount = m_failures;
+        long cache1Evictions = m_cache1Evictions;
+        long cache2Evictions = m_cache2Evictions;
 
         if (m_interval) {
             totalTimedExecutionTime = m_totalPlanningTime - m_lastTimedPlanningTime;
@@ -283,6 +317,12 @@ public class PlannerStatsCollector extends StatsSource {
             failureCount = m_failures - m_lastFailures;
             m_lastFailures = m_failures;
 
+            cache1Evictions = m_cache1Evictions - m_lastCache1Evictions;
+            m_lastCache1Evictions = m_cache1Evictions;
+
+            cache2Evictions = m_cache2Evictions - m_lastCache2Evictions;
+            m_lastCache2Evictions = m_cache2Evictions;
+
             m_lastInvocations = m_invocations;
         }
 
@@ -302,6 +342,10 @@ public class PlannerStatsCollector extends StatsSource {
             rowValues[columnNameToIndex.get("PLAN_TIME_AVG")] = 0L;
         }
         rowValues[columnNameToIndex.get("FAILURES")] = failureCount;
+        rowValues[columnNameToIndex.get("CACHE1_EVICTIONS")] = cache1Evictions;
+        rowValues[columnNameToIndex.get("CACHE2_EVICTIONS")] = cache2Evictions;
+        rowValues[columnNameToIndex.get("CACHE1_BYTES")] = m_cache1Bytes;
+        rowValues[columnNameToIndex.get("CACHE2_BYTES")] = m_cache2Bytes;
     }
 
     /**
@@ -322,6 +366,10 @@ public class PlannerStatsCollector extends StatsSource {
         columns.add(new ColumnInfo("PLAN_TIME_MAX", VoltType.BIGINT));
         columns.add(new ColumnInfo("PLAN_TIME_AVG", VoltType.BIGINT));
         columns.add(new ColumnInfo("FAILURES",      VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE1_EVICTIONS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE2_EVICTIONS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE1_BYTES",  VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE2_BYTES",  VoltType.BIGINT));
     }
 
     @Override
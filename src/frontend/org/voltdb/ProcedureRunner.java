@@ -29,15 +29,21 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.concurrent.ExecutionException;
 
+import org.hsqldb_voltpatches.FunctionSQL;
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.VoltPort;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.StatementStats.SingleCallStatsToken;
 import org.voltdb.VoltProcedure.VoltAbortException;
 import org.voltdb.catalog.PlanFragment;
@@ -124,6 +130,10 @@ public class ProcedureRunner {
     // cached txnid-seeded RNG so all calls to getSeededRandomNumberGenerator() for
     // a given call don't re-seed and generate the same number over and over
     private Random m_cachedRNG = null;
+    // pooled EE result buffers backing result tables of this call, see fastPath()
+    private final ArrayList<BBContainer> m_pooledResultBuffers = new ArrayList<>();
+    // results of queued invocations executed ahead of time, see executeGroupedReads()
+    private final ArrayList<GroupedRead> m_groupedReads = new ArrayList<>();
 
     // hooks into other parts of voltdb
     //
@@ -142,6 +152,7 @@ public class ProcedureRunner {
     protected final boolean m_isReadOnly;
     protected final int m_partitionColumn;
     protected final VoltType m_partitionColumnType;
+    protected final boolean m_canGroupReads;
 
     // dependency ids for ad hoc
     protected final static int AGG_DEPID = 1;
@@ -162,6 +173,22 @@ public class ProcedureRunner {
         public final SQLStmt sql = new SQLStmt("TBD");
     }
 
+    // Key of the function id in a serialized FunctionExpression
+    private static final String FUNCTION_ID_KEY = "FUNCTION_ID";
+
+    // Results of one invocation that shared an EE call with the invocations queued next to it
+    private static class GroupedRead {
+        final long m_spHandle;
+        final VoltTable[] m_results;
+        final long[] m_executionTimes;
+
+        GroupedRead(long spHandle, VoltTable[] results, long[] executionTimes) {
+            m_spHandle = spHandle;
+            m_results = results;
+            m_executionTimes = executionTimes;
+        }
+    }
+
     ProcedureRunner(VoltProcedure procedure,
                     SiteProcedureConnection site,
                     Procedure catProc) {
@@ -195,6 +222,7 @@ public class ProcedureRunner {
         // the SQLStmts defined in the stored procedure.
         // The variable names are used in the granular statistics.
         m_stmtList = reflect();
+        m_canGroupReads = computeCanGroupReads();
 
         if (site != null) {
             initSiteAndStats(m_site);
@@ -505,6 +533,7 @@ public class ProcedureRunner {
             m_cachedSingleStmt.params = null;
             m_cachedSingleStmt.expectation = null;
             m_seenFinalBatch = false;
+            releaseUnclaimedResultBuffers(retval);
 
             m_site.completeProcedure();
         }
@@ -512,6 +541,224 @@ public class ProcedureRunner {
         return retval;
     }
 
+    /**
+     * Pooled result buffers backing any table in the response travel with the response,
+     * which returns them to the pool once it is serialized. The rest are returned here.
+     */
+    private void releaseUnclaimedResultBuffers(ClientResponseImpl response) {
+        if (m_pooledResultBuffers.isEmpty()) {
+            return;
+        }
+        for (BBContainer buffer : m_pooledResultBuffers) {
+            boolean claimed = false;
+            if (response != null) {
+                for (VoltTable table : response.getResults()) {
+                    if (table.m_pooledBacking == buffer) {
+                        claimed = true;
+                        break;
+                    }
+                }
+            }
+            if (!claimed) {
+                buffer.discard();
+            }
+        }
+        m_pooledResultBuffers.clear();
+    }
+
+    /**
+     * Only single partition read-only procedures without Java code can have their statements
+     * executed ahead of time: every invocation runs the same fixed statement list, and nothing
+     * but the parameters differs between invocations. Statements the planner did not mark as
+     * deterministic are left out, and so are statements reading the current time, which the
+     * planner treats as deterministic but which would see the time of the first invocation of
+     * the group.
+     */
+    private boolean computeCanGroupReads() {
+        if (!m_isSinglePartition || !m_isReadOnly || m_hasJava || m_isSysProc) {
+            return false;
+        }
+        if (m_sqlStmts.isEmpty() || m_sqlStmts.size() > MAX_BATCH_SIZE / 2) {
+            return false;
+        }
+        for (int i = 0; i < m_sqlStmts.size(); i++) {
+            Statement catStmt = m_catProc.getStatements().get(VoltDB.ANON_STMT_NAME + String.valueOf(i));
+            if (catStmt == null || !catStmt.getIscontentdeterministic() || !catStmt.getIsorderdeterministic()) {
+                return false;
+            }
+            for (PlanFragment frag : catStmt.getFragments()) {
+                if (planCallsFunction(frag, FunctionSQL.voltGetCurrentTimestampId())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if a function expression with the given id appears anywhere in the fragment's plan,
+     * or if the plan can't be read
+     */
+    private static boolean planCallsFunction(PlanFragment frag, int functionId) {
+        try {
+            return jsonCallsFunction(new JSONObject(
+                    CompressionService.decodeBase64AndDecompress(frag.getPlannodetree())), functionId);
+        } catch (JSONException e) {
+            return true;
+        }
+    }
+
+    private static boolean jsonCallsFunction(Object json, int functionId) throws JSONException {
+        if (json instanceof JSONObject) {
+            JSONObject obj = (JSONObject) json;
+            if (obj.has(FUNCTION_ID_KEY) && obj.getInt(FUNCTION_ID_KEY) == functionId) {
+                return true;
+            }
+            Iterator<String> keys = obj.keys();
+            while (keys.hasNext()) {
+                if (jsonCallsFunction(obj.get(keys.next()), functionId)) {
+                    return true;
+                }
+            }
+        } else if (json instanceof JSONArray) {
+            JSONArray array = (JSONArray) json;
+            for (int i = 0; i < array.length(); i++) {
+                if (jsonCallsFunction(array.get(i), functionId)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the maximum number of invocations of this procedure that can share an EE call,
+     * or 0 if the procedure does not qualify
+     */
+    public int getMaxGroupedReads() {
+        if (!m_canGroupReads || getNonVoltDBBackendIfExists() != null) {
+            return 0;
+        }
+        return MAX_BATCH_SIZE / m_sqlStmts.size();
+    }
+
+    /**
+     * Execute the statements of consecutive queued invocations of this procedure with a single
+     * EE call. Each invocation still runs through {@link #call(Object...)} afterwards, which picks
+     * up its results instead of going to the EE again. Invocations whose parameters do not
+     * convert are left to run, and fail, on their own, as is the whole group if the EE call fails.
+     *
+     * @param txnStates transaction states of the invocations, in the order they will run
+     */
+    public void executeGroupedReads(List<TransactionState> txnStates) {
+        assert(m_canGroupReads);
+        assert(m_groupedReads.isEmpty());
+        final int stmtCount = m_sqlStmts.size();
+        final List<TransactionState> grouped = new ArrayList<>(txnStates.size());
+        final List<ParameterSet> params = new ArrayList<>(txnStates.size() * stmtCount);
+        for (TransactionState txnState : txnStates) {
+            ParameterSet[] stmtParams = getGroupedReadParams(txnState);
+            if (stmtParams != null) {
+                grouped.add(txnState);
+                params.addAll(Arrays.asList(stmtParams));
+            }
+        }
+        if (grouped.size() < 2) {
+            return;
+        }
+
+        final int batchSize = params.size();
+        long[] fragmentIds = new long[batchSize];
+        String[] sqlTexts = new String[batchSize];
+        boolean[] isWriteFrag = new boolean[batchSize];
+        int[] sqlCRCs = new int[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            final SQLStmt stmt = m_sqlStmts.get(i % stmtCount).stmt;
+            fragmentIds[i] = stmt.aggregator.id;
+            sqlTexts[i] = stmt.getText();
+            sqlCRCs[i] = SQLStmtAdHocHelper.getHash(stmt);
+        }
+
+        final TransactionState first = grouped.get(0);
+        m_site.setupProcedure(m_procedureName);
+        m_site.setBatch(0);
+        // Always time the fragments, whether an invocation samples its statements is decided later
+        getExecutionEngine().setPerFragmentTimingEnabled(true);
+        try {
+            FastDeserializer fragResult = m_site.executePlanFragments(batchSize, fragmentIds, null,
+                    params.toArray(), null, sqlTexts, isWriteFrag, sqlCRCs, first.txnId, first.m_spHandle,
+                    first.uniqueId, true, VoltTrace.log(VoltTrace.Category.EE) != null);
+            // skip the size of the DR buffer used
+            fragResult.readInt();
+            final int totalSize = fragResult.readInt();
+            // The next EE call overwrites the result buffer, copy the whole group out at once
+            VoltTable[] results = TableHelper.convertBackedBufferToTables(fragResult.readBuffer(totalSize), batchSize);
+            long[] executionTimes = new long[batchSize];
+            getExecutionEngine().extractPerFragmentStats(batchSize, executionTimes);
+            for (int i = 0; i < grouped.size(); i++) {
+                final int from = i * stmtCount;
+                m_groupedReads.add(new GroupedRead(grouped.get(i).m_spHandle,
+                        Arrays.copyOfRange(results, from, from + stmtCount),
+                        Arrays.copyOfRange(executionTimes, from, from + stmtCount)));
+            }
+        } catch (Exception e) {
+            if (HOST_TRACE_ENABLED) {
+                log.trace("Grouped execution of " + grouped.size() + " invocations of " + m_procedureName +
+                        " failed, running them one by one", e);
+            }
+            getExecutionEngine().extractPerFragmentStats(batchSize, null);
+        } finally {
+            m_site.completeProcedure();
+        }
+    }
+
+    /**
+     * Drop the results of grouped invocations that did not pick them up, for instance because
+     * they turned out to be mis-partitioned.
+     */
+    public void clearGroupedReads() {
+        m_groupedReads.clear();
+    }
+
+    /**
+     * Same parameter conversion as {@link #coreCall(Object...)} does for procedures without Java code.
+     * @return the parameters of each statement or null if the invocation cannot be grouped
+     */
+    private ParameterSet[] getGroupedReadParams(TransactionState txnState) {
+        try {
+            Object[] paramList = txnState.getInvocation().getParams().toArray();
+            if (paramList.length != m_paramTypes.length) {
+                return null;
+            }
+            for (int i = 0; i < m_paramTypes.length; i++) {
+                paramList[i] = ParameterConverter.tryToMakeCompatible(m_paramTypes[i], paramList[i]);
+            }
+            ParameterSet[] stmtParams = new ParameterSet[m_sqlStmts.size()];
+            int curParamOffset = 0;
+            for (int i = 0; i < stmtParams.length; i++) {
+                SQLStmt stmt = m_sqlStmts.get(i).stmt;
+                int numStmtParams = stmt.statementParamTypes.length;
+                stmtParams[i] = getCleanParams(stmt, false,
+                        Arrays.copyOfRange(paramList, curParamOffset, curParamOffset + numStmtParams));
+                curParamOffset += numStmtParams;
+            }
+            return stmtParams;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private GroupedRead takeGroupedRead(int batchSize) {
+        for (int i = 0; i < m_groupedReads.size(); i++) {
+            GroupedRead read = m_groupedReads.get(i);
+            if (read.m_spHandle == m_txnState.m_spHandle) {
+                m_groupedReads.remove(i);
+                return read.m_results.length == batchSize ? read : null;
+            }
+        }
+        return null;
+    }
+
     /**
      * Check if the txn hashes to this partition. If not, it should be restarted.
      * @param txnState
@@ -1549,6 +1796,18 @@ public class ProcedureRunner {
     // Batch up pre-planned fragments, but handle ad hoc independently.
     private VoltTable[] fastPath(List<QueuedSQL> batch, final boolean finalTask) {
         final int batchSize = batch.size();
+        if (!m_groupedReads.isEmpty()) {
+            GroupedRead grouped = takeGroupedRead(batchSize);
+            if (grouped != null) {
+                for (int i = 0; i < batchSize; i++) {
+                    QueuedSQL qs = batch.get(i);
+                    m_perCallStats.recordStatementStats(qs.stmt.getStmtName(), false, false,
+                            m_perCallStats.samplingStmts() ? grouped.m_executionTimes[i] : 0,
+                            grouped.m_results[i], qs.params);
+                }
+                return grouped.m_results;
+            }
+        }
         Object[] params = new Object[batchSize];
         long[] fragmentIds = new long[batchSize];
         String[] sqlTexts = new String[batchSize];
@@ -1587,7 +1846,14 @@ public class ProcedureRunner {
                 throw new EEException(ExecutionEngine.ERRORCODE_WRONG_SERIALIZED_BYTES);
             }
             final ByteBuffer rawDataBuff;
-            if ((m_batchIndex == 0 && !m_site.usingFallbackBuffer()) || finalTask) {
+            final BBContainer pooledBacking = m_isSinglePartition ?
+                    getExecutionEngine().detachResultBuffer(totalSize) : null;
+            if (pooledBacking != null) {
+                // The EE moved on to a fresh buffer, the results stay where they are
+                // and the buffer is returned to the pool by whoever ends up owning them
+                m_pooledResultBuffers.add(pooledBacking);
+                rawDataBuff = fragResult.buffer();
+            } else if ((m_batchIndex == 0 && !m_site.usingFallbackBuffer()) || finalTask) {
                 // If this is the first or final batch, skip the copy of the
                 // underlying byte array
                 rawDataBuff = fragResult.buffer();
@@ -1595,6 +1861,11 @@ public class ProcedureRunner {
                 rawDataBuff = fragResult.readBuffer(totalSize);
             }
             results = TableHelper.convertBackedBufferToTables(rawDataBuff, batchSize);
+            if (pooledBacking != null) {
+                for (VoltTable table : results) {
+                    table.m_pooledBacking = pooledBacking;
+                }
+            }
         } catch (Throwable ex) {
             if (!m_isReadOnly) {
                 // roll back the current batch and re-throw the EE exception
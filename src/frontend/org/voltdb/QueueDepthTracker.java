@@ -18,8 +18,8 @@ package org.voltdb;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.voltcore.logging.VoltLogger;
@@ -30,7 +30,8 @@ import org.voltdb.iv2.SiteTasker;
  * A class to track and generate statistics regarding queue depth.
  * Generate information on instantaneous queue depth and number of tasks
  * pulled from queue, average wait time and max wait time (in microseconds)
- * within a 5-second window
+ * within a 5-second window. Also tracks how often the site went idle and
+ * had to be woken up by a new task and how long that wakeup took, since startup.
  */
 public class QueueDepthTracker extends SiteStatsSource {
 
@@ -39,13 +40,16 @@ public class QueueDepthTracker extends SiteStatsSource {
     private final AtomicInteger m_depth;
     private long m_lastWaitTime;
     private final ArrayBlockingQueue<QueueStatus> m_historicalData;
-    private LinkedTransferQueue<SiteTasker> m_tasks;
+    private Queue<SiteTasker> m_tasks;
     private long m_maxWaitTimeWindowSize = 5_000_000_000L; // window size set to 5 seconds
     private long m_maxWaitLastLogTime;
     private volatile long m_recentMaxWaitTime;
     private long m_recentTotalWaitTime;
     private long m_recentPollCount;
     private long m_recentWindowSize = m_maxWaitTimeWindowSize / 10; // recent window size set to 0.5 second
+    private long m_parkCount;
+    private long m_totalWakeLatency;
+    private long m_maxWakeLatency;
 
     public class QueueStatus {
         public long timestamp;
@@ -61,7 +65,7 @@ public class QueueDepthTracker extends SiteStatsSource {
         }
     }
 
-    public QueueDepthTracker(long siteId, LinkedTransferQueue<SiteTasker> tasks) {
+    public QueueDepthTracker(long siteId, Queue<SiteTasker> tasks) {
         super(siteId, false);
         m_historicalData = new ArrayBlockingQueue<>(10);
         m_depth = new AtomicInteger(tasks.size());
@@ -109,6 +113,17 @@ public class QueueDepthTracker extends SiteStatsSource {
         }
     }
 
+    /**
+     * Record that the site thread parked on an empty queue and was woken up by a task
+     *
+     * @param wakeLatency nanoseconds between the task being offered and the site thread taking it
+     */
+    public void parkUpdate(long wakeLatency) {
+        m_parkCount++;
+        m_totalWakeLatency += wakeLatency;
+        if (m_maxWakeLatency < wakeLatency) m_maxWakeLatency = wakeLatency;
+    }
+
     @Override
     protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
         super.populateColumnSchema(columns);
@@ -116,6 +131,9 @@ public class QueueDepthTracker extends SiteStatsSource {
         columns.add(new ColumnInfo("POLL_COUNT", VoltType.BIGINT));
         columns.add(new ColumnInfo("AVG_WAIT", VoltType.BIGINT));
         columns.add(new ColumnInfo("MAX_WAIT", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PARK_COUNT", VoltType.BIGINT));
+        columns.add(new ColumnInfo("AVG_WAKE_LATENCY", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MAX_WAKE_LATENCY", VoltType.BIGINT));
     }
 
     @Override
@@ -149,6 +167,10 @@ public class QueueDepthTracker extends SiteStatsSource {
         // wait times are in microseconds
         rowValues[columnNameToIndex.get("AVG_WAIT")] = (totalWaitTimeInWindow / Math.max(1, totalPollCountInWindow)) / 1000;
         rowValues[columnNameToIndex.get("MAX_WAIT")] = maxWaitTimeInWindow / 1000;
+        long parkCount = m_parkCount;
+        rowValues[columnNameToIndex.get("PARK_COUNT")] = parkCount;
+        rowValues[columnNameToIndex.get("AVG_WAKE_LATENCY")] = (m_totalWakeLatency / Math.max(1, parkCount)) / 1000;
+        rowValues[columnNameToIndex.get("MAX_WAKE_LATENCY")] = m_maxWakeLatency / 1000;
 
         super.updateStatsRow(rowKey, rowValues);
     }
@@ -0,0 +1,120 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltcore.network.WriteStream;
+import org.voltcore.utils.DeferredSerialization;
+
+/**
+ * Writes the rows of a streamed client response, one chunk of rows per frame.
+ * A chunk queues its successor on the connection only after it has been
+ * serialized, so at most one chunk of a response sits in the network output
+ * buffers at a time and other responses on the connection can interleave
+ * with the stream. The pooled result buffers are released once the last
+ * chunk is written or the connection goes away.
+ */
+class ResultChunkWork implements DeferredSerialization {
+
+    static final int CHUNK_BYTES = Integer.getInteger("CLIENT_RESULT_CHUNK_BYTES", 1024 * 1024);
+
+    private final ClientResponseImpl m_response;
+    private final WriteStream m_stream;
+    private final int m_tableIndex;
+    // byte offset of the first row of this chunk in the table buffer
+    private final int m_rowsOffset;
+    // rows of the table not yet sent, including the ones of this chunk
+    private final int m_rowsRemaining;
+
+    private int m_rowCount;
+    private int m_rowsBytes;
+    private boolean m_last;
+
+    ResultChunkWork(ClientResponseImpl response, WriteStream stream) {
+        this(response, stream, 0);
+    }
+
+    private ResultChunkWork(ClientResponseImpl response, WriteStream stream, int tableIndex) {
+        this(response, stream, tableIndex,
+                response.getResults()[tableIndex].getRowStart() + 4,
+                response.getResults()[tableIndex].getRowCount());
+    }
+
+    private ResultChunkWork(ClientResponseImpl response, WriteStream stream,
+            int tableIndex, int rowsOffset, int rowsRemaining) {
+        assert(response.hasStreamedResults());
+        m_response = response;
+        m_stream = stream;
+        m_tableIndex = tableIndex;
+        m_rowsOffset = rowsOffset;
+        m_rowsRemaining = rowsRemaining;
+    }
+
+    @Override
+    public int getSerializedSize() throws IOException {
+        final VoltTable[] results = m_response.getResults();
+        final VoltTable vt = results[m_tableIndex];
+        final ByteBuffer data = PrivateVoltTableFactory.getTableDataReference(vt);
+
+        // take whole rows until the chunk is full, always at least one
+        int position = m_rowsOffset;
+        m_rowCount = 0;
+        while (m_rowCount < m_rowsRemaining) {
+            final int rowSize = 4 + data.getInt(position);
+            if (m_rowCount > 0 && position - m_rowsOffset + rowSize > CHUNK_BYTES) {
+                break;
+            }
+            position += rowSize;
+            ++m_rowCount;
+        }
+        m_rowsBytes = position - m_rowsOffset;
+        m_last = m_rowCount == m_rowsRemaining && m_tableIndex == results.length - 1;
+
+        return ClientResponseImpl.getResultChunkSize(vt, m_rowsBytes) + 4;
+    }
+
+    @Override
+    public void serialize(ByteBuffer buf) throws IOException {
+        buf.putInt(buf.capacity() - 4);
+        ClientResponseImpl.flattenResultChunk(buf, m_response.getClientHandle(), m_tableIndex, m_last,
+                m_response.getResults()[m_tableIndex], m_rowsOffset, m_rowCount, m_rowsBytes);
+
+        if (m_last) {
+            m_response.releasePooledResults();
+        }
+        else if (m_rowCount < m_rowsRemaining) {
+            m_stream.enqueue(new ResultChunkWork(m_response, m_stream, m_tableIndex,
+                    m_rowsOffset + m_rowsBytes, m_rowsRemaining - m_rowCount));
+        }
+        else {
+            m_stream.enqueue(new ResultChunkWork(m_response, m_stream, m_tableIndex + 1));
+        }
+    }
+
+    @Override
+    public void cancel() {
+        m_response.releasePooledResults();
+    }
+
+    @Override
+    public String toString() {
+        return "ResultChunkWork table " + m_tableIndex + " rows remaining " + m_rowsRemaining;
+    }
+}
@@ -60,6 +60,27 @@ public interface SnapshotDataTarget {
 
     public long getBytesWritten();
 
+    /**
+     * Get the number of tuple bytes handed to the compression codec, 0 if the target doesn't compress
+     */
+    public default long getBytesCompressed() {
+        return 0;
+    }
+
+    /**
+     * Get the time in nanoseconds spent compressing tuple data
+     */
+    public default long getCompressionNanos() {
+        return 0;
+    }
+
+    /**
+     * Get the time in nanoseconds spent writing to the target
+     */
+    public default long getWriteNanos() {
+        return 0;
+    }
+
     public void setOnCloseHandler(Runnable onClose);
 
     /**
@@ -58,6 +58,32 @@ public enum SnapshotFormat {
         return m_streamType;
     }
 
+    /**
+     * Codecs the native format can compress table chunks with. The codec used is
+     * recorded in the file header so restore can pick the matching decompressor.
+     */
+    public enum Codec {
+        SNAPPY,
+        LZ4,
+        NONE;
+
+        /**
+         * Get the codec enum from the string. Letter case of the string
+         * doesn't matter.
+         *
+         * @throws IllegalArgumentException If the string does not match any codec
+         */
+        public static Codec getEnumIgnoreCase(String s) {
+            for (Codec value : values()) {
+                if (value.toString().equalsIgnoreCase(s)) {
+                    return value;
+                }
+            }
+
+            throw new IllegalArgumentException("Unknown snapshot compression codec " + s);
+        }
+    }
+
     /**
      * Get the snapshot format enum from the string. Letter case of the string
      * doesn't matter.
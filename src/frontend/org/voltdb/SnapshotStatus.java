@@ -116,6 +116,8 @@ public class SnapshotStatus extends StatsSource {
         columns.add(new ColumnInfo("THROUGHPUT", VoltType.FLOAT));
         columns.add(new ColumnInfo("RESULT", VoltType.STRING));
         columns.add(new ColumnInfo("TYPE", VoltType.STRING));
+        columns.add(new ColumnInfo("COMPRESSION_THROUGHPUT", VoltType.FLOAT));
+        columns.add(new ColumnInfo("WRITE_THROUGHPUT", VoltType.FLOAT));
     }
 
     @SuppressWarnings("unchecked")
@@ -145,6 +147,8 @@ public class SnapshotStatus extends StatsSource {
         rowValues[columnNameToIndex.get("THROUGHPUT")] = throughput;
         rowValues[columnNameToIndex.get("RESULT")] = t.error == null ? "SUCCESS" : "FAILURE";
         rowValues[columnNameToIndex.get("TYPE")] = getSnapshotType(s.path);
+        rowValues[columnNameToIndex.get("COMPRESSION_THROUGHPUT")] = t.compressionThroughput;
+        rowValues[columnNameToIndex.get("WRITE_THROUGHPUT")] = t.writeThroughput;
         super.updateStatsRow(rowKey, rowValues);
     }
 
@@ -63,6 +63,7 @@ public enum StatsSelector {
     REBALANCE,      // return elastic rebalance progress
     KSAFETY,        // return ksafety coverage information
     GC,             // return GC Stats
+    HTTP,           // return JSON API request counts and latencies
 
     COMMANDLOG(false),     // return number of outstanding bytes and txns on this node
     IMPORTER,       // synonym as IMPORT for backward compatibility
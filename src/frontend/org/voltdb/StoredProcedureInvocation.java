@@ -73,6 +73,7 @@ public class StoredProcedureInvocation implements JSONString {
     private int m_batchTimeout = BatchTimeoutOverrideType.NO_TIMEOUT;
     private boolean m_allPartition = false;
     private int m_partitionDestination = -1;
+    private boolean m_streamResults = false;
 
     public StoredProcedureInvocation getShallowCopy()
     {
@@ -94,6 +95,7 @@ public class StoredProcedureInvocation implements JSONString {
         copy.m_batchTimeout = m_batchTimeout;
         copy.m_allPartition = m_allPartition;
         copy.m_partitionDestination = m_partitionDestination;
+        copy.m_streamResults = m_streamResults;
 
         return copy;
     }
@@ -203,6 +205,18 @@ public class StoredProcedureInvocation implements JSONString {
         return m_partitionDestination;
     }
 
+    /**
+     * @return true if the client asked for the results to be sent as a
+     * header followed by row chunks, see {@link ProcedureInvocationExtensions#STREAM_RESULTS}.
+     */
+    public boolean getStreamResults() {
+        return m_streamResults;
+    }
+
+    public void setStreamResults(boolean streamResults) {
+        m_streamResults = streamResults;
+    }
+
     /** Read into an serialized parameter buffer to extract a single parameter */
     Object getParameterAtIndex(int partitionIndex) {
         try {
@@ -242,6 +256,8 @@ public class StoredProcedureInvocation implements JSONString {
             // 6 is one byte for ext type, one for size, and 4 for integer value
             partitionDestinationSize = 6;
         }
+        // 2 is one byte for ext type, one for size
+        int streamResultsSize = m_streamResults ? 2 : 0;
 
         // compute the size
         int size =
@@ -249,7 +265,8 @@ public class StoredProcedureInvocation implements JSONString {
                 4 + getProcNameBytes().length + // procname
                 8 + // client handle
                 1 + // extension count
-                        batchExtensionSize + allPartitionExtensionSize + partitionDestinationSize;
+                        batchExtensionSize + allPartitionExtensionSize + partitionDestinationSize +
+                        streamResultsSize;
         return size;
     }
 
@@ -359,6 +376,9 @@ public class StoredProcedureInvocation implements JSONString {
         } else if (m_allPartition) {
             ++extensionCount;
         }
+        if (m_streamResults) {
+            ++extensionCount;
+        }
 
         // write the count as one byte
         buf.put(extensionCount);
@@ -371,6 +391,9 @@ public class StoredProcedureInvocation implements JSONString {
         } else if (m_allPartition) {
             ProcedureInvocationExtensions.writeAllPartitionWithTypeByte(buf);
         }
+        if (m_streamResults) {
+            ProcedureInvocationExtensions.writeStreamResultsWithTypeByte(buf);
+        }
 
         serializeParams(buf);
 
@@ -445,6 +468,7 @@ public class StoredProcedureInvocation implements JSONString {
         m_batchTimeout = BatchTimeoutOverrideType.NO_TIMEOUT;
         m_allPartition = false;
         m_partitionDestination = -1;
+        m_streamResults = false;
 
         switch (type) {
             case ORIGINAL:
@@ -456,7 +480,36 @@ public class StoredProcedureInvocation implements JSONString {
             case VERSION2:
                 initVersion2FromBuffer(buf);
                 break;
+            case BATCH:
+                throw new IOException("Batched invocations must be read with initFromBatchEntry.");
+        }
+    }
+
+    /**
+     * Read the next invocation of a BATCH frame, which is the client handle
+     * followed by the length and contents of the parameter set. The procedure
+     * name is shared by the whole batch and read once by the caller.
+     */
+    public void initFromBatchEntry(byte[] procNameBytes, ByteBuffer buf) throws IOException
+    {
+        // the unpacked invocation is an ordinary one from here on
+        type = ProcedureInvocationType.VERSION2;
+        setProcName(procNameBytes);
+        m_batchTimeout = BatchTimeoutOverrideType.NO_TIMEOUT;
+        m_allPartition = false;
+        m_partitionDestination = -1;
+        m_streamResults = false;
+
+        clientHandle = buf.getLong();
+        final int paramsLength = buf.getInt();
+        if (paramsLength < 0 || paramsLength > buf.remaining()) {
+            throw new IOException("Batched invocation parameters of length " + paramsLength +
+                    " overrun the frame: possible corrupt network data.");
         }
+        final ByteBuffer paramsBuf = buf.slice();
+        paramsBuf.limit(paramsLength);
+        initParameters(paramsBuf);
+        buf.position(buf.position() + paramsLength);
     }
 
     private void initOriginalFromBuffer(ByteBuffer buf) throws IOException {
@@ -531,6 +584,9 @@ public class StoredProcedureInvocation implements JSONString {
                 m_partitionDestination = ProcedureInvocationExtensions.readPartitionDestination(buf);
                 m_allPartition = true;
                 break;
+            case ProcedureInvocationExtensions.STREAM_RESULTS:
+                m_streamResults = ProcedureInvocationExtensions.readStreamResults(buf);
+                break;
             default:
                 ProcedureInvocationExtensions.skipUnknownExtension(buf);
                 break;
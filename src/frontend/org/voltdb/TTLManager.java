@@ -56,6 +56,10 @@ public class TTLManager extends StatsSource{
     static final int INTERVAL = Integer.getInteger("TIME_TO_LIVE_INTERVAL", 1000);
     static final int CHUNK_SIZE = Integer.getInteger("TIME_TO_LIVE_CHUNK_SIZE", 1000);
     static final int TIMEOUT = Integer.getInteger("TIME_TO_LIVE_TIMEOUT", 2000);
+    //percentage of every interval a partition may spend deleting expired rows, the batch
+    //size is adjusted per round to stay under it
+    static final int CPU_BUDGET = Integer.getInteger("TIME_TO_LIVE_CPU_BUDGET", 5);
+    static final int MIN_BATCH_SIZE = 10;
     public static final int NT_PROC_TIMEOUT = Integer.getInteger("NT_PROC_TIMEOUT", 1000 * 120);
     static final int LOG_SUPPRESSION_INTERVAL_SECONDS = 60;
     public static class TTLStats {
@@ -67,14 +71,20 @@ public class TTLManager extends StatsSource{
         //TTL control
         long rowsDeleted = 0L;
         long rowsLastDeleted = 0L;
+        long rowsPerSecond = 0L;
+        int batchSize = 0;
         Timestamp ts;
         public TTLStats(String tableName) {
             this.tableName = tableName;
         }
-        public void update(long rowDeleted, long rowsLeft, long lastExecutionTimestamp) {
+        public void update(long rowDeleted, long rowsLeft, long lastExecutionTimestamp, int batchSize) {
+            if (ts != null && lastExecutionTimestamp > ts.getTime()) {
+                rowsPerSecond = rowDeleted * 1000 / (lastExecutionTimestamp - ts.getTime());
+            }
             this.rowsLastDeleted = rowDeleted;
             this.rowsLeft = rowsLeft;
             this.rowsDeleted += rowDeleted;
+            this.batchSize = batchSize;
             ts = new Timestamp(lastExecutionTimestamp);
         }
         @Override
@@ -90,11 +100,14 @@ public class TTLManager extends StatsSource{
         AtomicReference<TimeToLive> ttlRef;
         AtomicReference<Table> tableRef;
         AtomicBoolean canceled = new AtomicBoolean(false);
+        //batch size used for the next round, never larger than the configured BATCH_SIZE
+        volatile int adaptiveBatchSize;
         public TTLTask(String tableName, TimeToLive timeToLive, Table table, TTLStats ttlStats) {
             this.tableName = tableName;
             ttlRef = new AtomicReference<>(timeToLive);
             tableRef = new AtomicReference<>(table);
             stats = ttlStats;
+            adaptiveBatchSize = timeToLive.getBatchsize();
         }
 
         @Override
@@ -160,6 +173,28 @@ public class TTLManager extends StatsSource{
         int getBatchSize() {
             return ttlRef.get().getBatchsize();
         }
+
+        int getAdaptiveBatchSize() {
+            return Math.min(adaptiveBatchSize, getBatchSize());
+        }
+
+        /**
+         * Resize the batch from the time the slowest partition spent on the last round so that
+         * the next round stays within {@link TTLManager#CPU_BUDGET} percent of the interval.
+         * Growth is limited to doubling per round since a round with few expired rows says
+         * little about the cost of a full batch.
+         */
+        void adjustBatchSize(long partitionExecutionNanos) {
+            final int maxBatchSize = getBatchSize();
+            final int current = getAdaptiveBatchSize();
+            final long budgetNanos = TimeUnit.MILLISECONDS.toNanos(INTERVAL) * CPU_BUDGET / 100;
+            if (partitionExecutionNanos <= 0 || budgetNanos <= 0) {
+                return;
+            }
+            long target = Math.min((long) (current * ((double) budgetNanos / partitionExecutionNanos)), current * 2L);
+            long next = (current + target) / 2;
+            adaptiveBatchSize = (int) Math.max(Math.min(next, maxBatchSize), Math.min(MIN_BATCH_SIZE, maxBatchSize));
+        }
         String getColumnName() {
             return ttlRef.get().getTtlcolumn().getName();
         }
@@ -305,6 +340,8 @@ public class TTLManager extends StatsSource{
         columns.add(new ColumnInfo("ROWS_DELETED_LAST_ROUND", VoltType.BIGINT));
         columns.add(new ColumnInfo("ROWS_REMAINING", VoltType.BIGINT));
         columns.add(new ColumnInfo("LAST_DELETE_TIMESTAMP", VoltType.TIMESTAMP));
+        columns.add(new ColumnInfo("ROWS_PER_SECOND", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BATCH_SIZE", VoltType.INTEGER));
     }
 
     @Override
@@ -324,6 +361,8 @@ public class TTLManager extends StatsSource{
             rowValues[columnNameToIndex.get("ROWS_DELETED_LAST_ROUND")] = stats.rowsLastDeleted;
             rowValues[columnNameToIndex.get("ROWS_REMAINING")] = stats.rowsLeft;
             rowValues[columnNameToIndex.get("LAST_DELETE_TIMESTAMP")] = stats.ts;
+            rowValues[columnNameToIndex.get("ROWS_PER_SECOND")] = stats.rowsPerSecond;
+            rowValues[columnNameToIndex.get("BATCH_SIZE")] = stats.batchSize;
         }
     }
 
@@ -381,14 +420,16 @@ public class TTLManager extends StatsSource{
                         hostLog.rateLimitedLog(LOG_SUPPRESSION_INTERVAL_SECONDS, Level.WARN, null,
                                 "Errors occured on TTL table %s: %s %s", task.tableName, error, drLimitError);
                     } else {
-                        task.stats.update(t.getLong("ROWS_DELETED"), t.getLong("ROWS_LEFT"), t.getLong("LAST_DELETE_TIMESTAMP"));
+                        task.adjustBatchSize(t.getLong("PARTITION_EXECUTION_TIME"));
+                        task.stats.update(t.getLong("ROWS_DELETED"), t.getLong("ROWS_LEFT"),
+                                t.getLong("LAST_DELETE_TIMESTAMP"), task.getAdaptiveBatchSize());
                     }
                 }
                 latch.countDown();
             }
         };
         cl.getDispatcher().getInternelAdapterNT().callProcedure(cl.getInternalUser(), true, NT_PROC_TIMEOUT, cb,
-                "@LowImpactDeleteNT", new Object[] {task.tableName, task.getColumnName(), task.getValue(), "<=", task.getBatchSize(),
+                "@LowImpactDeleteNT", new Object[] {task.tableName, task.getColumnName(), task.getValue(), "<=", task.getAdaptiveBatchSize(),
                         TIMEOUT, task.getMaxFrequency(), INTERVAL});
         try {
             latch.await(NT_PROC_TIMEOUT, TimeUnit.SECONDS);
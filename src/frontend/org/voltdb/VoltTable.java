@@ -33,6 +33,7 @@ import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
 import org.json_voltpatches.JSONString;
 import org.json_voltpatches.JSONStringer;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.client.ClientUtils;
 import org.voltdb.common.Constants;
 import org.voltdb.types.GeographyPointValue;
@@ -139,6 +140,11 @@ public final class VoltTable extends VoltTableRow implements JSONString {
     int m_rowCount = -1;
     int m_colCount = -1;
 
+    // Set when m_buffer is a view over a pooled EE result buffer that was handed off
+    // by the ProcedureRunner instead of being copied. Whoever ends up owning the table
+    // (normally a ClientResponseImpl) returns the buffer to the pool.
+    BBContainer m_pooledBacking = null;
+
     // non-positive value that probably shouldn't be -1 to avoid off-by-one errors
     private static final int NO_MEMOIZED_ROW_OFFSET = Integer.MIN_VALUE;
 
@@ -2149,17 +2155,24 @@ public final class VoltTable extends VoltTableRow implements JSONString {
     }
 
     public final void convertToHeapBuffer() {
-        if (m_buffer.isDirect()) {
-            // Either this was allocated by the stored procedure as a direct buffer or this
-            // is cached from the EE. If the second, we need to make a copy so the EE can
-            // reuse the buffer for the next stored procedure.
-            ByteBuffer heapBuffer = ByteBuffer.allocate(m_buffer.limit());
-            m_buffer.position(0);
-            heapBuffer.put(m_buffer);
-            m_buffer = heapBuffer;
+        // Tables backed by a pooled result buffer already own their memory, the EE
+        // will not write to it again until it is returned to the pool.
+        if (m_buffer.isDirect() && m_pooledBacking == null) {
+            copyToHeapBuffer();
         }
     }
 
+    final void copyToHeapBuffer() {
+        // Either this was allocated by the stored procedure as a direct buffer or this
+        // is cached from the EE. If the second, we need to make a copy so the EE can
+        // reuse the buffer for the next stored procedure.
+        ByteBuffer heapBuffer = ByteBuffer.allocate(m_buffer.limit());
+        m_buffer.position(0);
+        heapBuffer.put(m_buffer);
+        m_buffer = heapBuffer;
+        m_pooledBacking = null;
+    }
+
     void initFromBuffer(ByteBuffer buf) {
         // Note: some of the snapshot and save/restore code makes assumptions
         // about the binary layout of tables.
@@ -0,0 +1,31 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.client;
+
+/**
+ * Interface for callbacks that are invoked when every invocation submitted through
+ * {@link Client#callProcedureBatch(BatchProcedureCallback, String, Object[][])} has received a response.
+ */
+public interface BatchProcedureCallback {
+    /**
+     * Implementation of callback to be provided by client applications.
+     *
+     * @param responses Responses to the invocations of the batch, in the order their parameter sets were passed
+     * @throws Exception on any Exception.
+     */
+     public void clientCallback(ClientResponse[] responses) throws Exception;
+}
@@ -583,4 +583,22 @@ public interface Client {
      */
     public boolean callAllPartitionProcedure(AllPartitionProcedureCallback callback, String procedureName, Object... params)
             throws IOException, NoConnectionsException, ProcCallException;
+
+    /**
+     * <p>Asynchronously invoke one procedure once for each of several parameter sets. Invocations bound for the
+     * same partition are packed into a single network message, which saves the per-message framing and
+     * server side parsing when many small invocations of the same procedure are issued together. Each invocation
+     * is still its own transaction and receives its own response. If there is backpressure this call will block
+     * until the whole batch is queued. If configureBlocking(false) is invoked then it will return immediately
+     * and none of the batch is queued when <code>false</code> is returned.</p>
+     *
+     * @param callback {@link BatchProcedureCallback} that will be invoked once every invocation has a response.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param paramSets one array of the procedure's parameter values per invocation.
+     * @return <code>true</code> if the batch was queued and <code>false</code> otherwise.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public boolean callProcedureBatch(BatchProcedureCallback callback, String procName, Object[]... paramSets)
+            throws IOException, NoConnectionsException;
 }
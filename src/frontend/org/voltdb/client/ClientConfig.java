@@ -68,6 +68,7 @@ public class ClientConfig {
     boolean m_sendReadsToReplicasBytDefaultIfCAEnabled = false;
     SslConfig m_sslConfig;
     boolean m_topologyChangeAware = false;
+    boolean m_stripedSubmission = false;
     boolean m_enableSSL = false;
     String m_sslPropsFile = null;
 
@@ -364,6 +365,20 @@ public class ClientConfig {
         m_topologyChangeAware = enabled;
     }
 
+    /**
+     * <p>Submits invocations without taking the client-wide lock. Each application
+     * thread is assigned one of the connections for the calls client affinity does not
+     * route, and routing uses a copy of the topology that is replaced when it changes.
+     * This lets a single client be driven by many threads at high rates.</p>
+     *
+     * <p>Defaults to false.</p>
+     *
+     * @param on Enable or disable striped submission.
+     */
+    public void setStripedSubmission(boolean on) {
+        m_stripedSubmission = on;
+    }
+
     /**
      * <p>By default, reads are sent to the leader replica for each partition. This
      * is usually optimal for the default read consistency value, SAFE. If you are
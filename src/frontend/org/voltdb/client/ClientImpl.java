@@ -142,6 +142,7 @@ public final class ClientImpl implements Client {
         }
         m_username = username;
         m_distributer.setTopologyChangeAware(config.m_topologyChangeAware);
+        m_distributer.setStripedSubmission(config.m_stripedSubmission);
         if (config.m_topologyChangeAware) {
             m_ex = Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Topoaware thread"));
         }
@@ -393,7 +394,8 @@ public final class ClientImpl implements Client {
 
         long handle = m_handle.getAndIncrement();
         ProcedureInvocation invocation
-                = new ProcedureInvocation(handle, batchTimeout, partitionDestination, procName, parameters);
+                = new ProcedureInvocation(handle, batchTimeout, partitionDestination,
+                        callback instanceof StreamingProcedureCallback, procName, parameters);
 
         if (m_isShutdown) {
             return false;
@@ -1069,6 +1071,71 @@ public final class ClientImpl implements Client {
         return true;
     }
 
+    @Override
+    public boolean callProcedureBatch(BatchProcedureCallback callback, String procName, Object[]... paramSets)
+            throws IOException, NoConnectionsException {
+        if (callback == null) {
+            throw new IllegalArgumentException("BatchProcedureCallback can not be null");
+        }
+        if (m_isShutdown) {
+            return false;
+        }
+
+        final ClientResponse[] responses = new ClientResponse[paramSets.length];
+        if (paramSets.length == 0) {
+            try {
+                callback.clientCallback(responses);
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            return true;
+        }
+
+        final AtomicInteger counter = new AtomicInteger(paramSets.length);
+        final ProcedureInvocation[] invocations = new ProcedureInvocation[paramSets.length];
+        final ProcedureCallback[] callbacks = new ProcedureCallback[paramSets.length];
+        for (int i = 0; i < paramSets.length; i++) {
+            invocations[i] = new ProcedureInvocation(m_handle.getAndIncrement(), procName, paramSets[i]);
+            callbacks[i] = new BatchEntryProcedureCallback(counter, i, responses, callback);
+        }
+
+        final long nowNanos = System.nanoTime();
+        //Blessed threads (the ones that invoke callbacks) are not subject to backpressure
+        final boolean isBlessed = m_blessedThreadIds.contains(Thread.currentThread().getId());
+        while (!m_distributer.queueBatch(invocations, callbacks, isBlessed, nowNanos,
+                Distributer.USE_DEFAULT_CLIENT_TIMEOUT)) {
+            if ( ! m_blockingQueue) {
+                return false;
+            }
+
+            final long delta = Math.max(1, System.nanoTime() - nowNanos);
+            try {
+                if (backpressureBarrier(nowNanos, m_distributer.getProcedureTimeoutNanos() - delta)) {
+                    for (ProcedureCallback cb : callbacks) {
+                        final ClientResponse response = new ClientResponseImpl(
+                                ClientResponse.CONNECTION_TIMEOUT,
+                                ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                                "",
+                                new VoltTable[0],
+                                String.format("No response received in the allotted time (set to %d ms).",
+                                        TimeUnit.NANOSECONDS.toMillis(m_distributer.getProcedureTimeoutNanos())));
+                        try {
+                            cb.clientCallback(response);
+                        }
+                        catch (Throwable thrown) {
+                            m_distributer.uncaughtException(cb, response, thrown);
+                        }
+                    }
+                    return true;
+                }
+            }
+            catch (InterruptedException e) {
+                throw new java.io.InterruptedIOException("Interrupted while invoking procedure batch asynchronously");
+            }
+        }
+        return true;
+    }
+
     /**
      * Essentially the same code as SyncCallback, but without the overhead (memory, gc)
      * of storing the parameters of every outstanding request while waiting for a response.
@@ -1167,6 +1234,34 @@ public final class ClientImpl implements Client {
         }
     }
 
+    /**
+     * Procedure call back for one invocation of an async callProcedureBatch
+     */
+    static class BatchEntryProcedureCallback implements ProcedureCallback {
+
+        final ClientResponse[] m_responses;
+        final int m_index;
+        final AtomicInteger m_counter;
+        final BatchProcedureCallback m_cb;
+
+        BatchEntryProcedureCallback(AtomicInteger counter, int index, ClientResponse[] responses,
+                BatchProcedureCallback cb) {
+            m_counter = counter;
+            m_index = index;
+            m_responses = responses;
+            m_cb = cb;
+        }
+
+        @Override
+        public void clientCallback(ClientResponse response) throws Exception {
+            m_responses[m_index] = response;
+            // the decrement publishes the response to whichever thread sees zero
+            if (m_counter.decrementAndGet() == 0) {
+                m_cb.clientCallback(m_responses);
+            }
+        }
+    }
+
     /**
      * Sync all partition procedure call back
      */
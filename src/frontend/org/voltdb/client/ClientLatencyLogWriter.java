@@ -0,0 +1,118 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.client;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.HdrHistogram_voltpatches.HistogramLogWriter;
+
+/**
+ * <p>Writes client latency histograms in the HdrHistogram interval log format, one
+ * log per procedure plus one for all procedures combined, so that client observed
+ * latency can be plotted over time or compared with the server's latency histograms
+ * using the standard HdrHistogram tools.</p>
+ *
+ * <p>Each call to {@link #logInterval(ClientStatsContext)} appends one interval to
+ * every log. The intended use is a periodic task calling
+ * <code>writer.logInterval(context.fetchAndResetBaseline())</code> on a context made
+ * with {@link Client#createStatsContext()}. Histogram values are in microseconds.</p>
+ */
+public class ClientLatencyLogWriter {
+
+    private final File m_directory;
+    private final String m_prefix;
+    private final boolean m_corrected;
+    private final long m_baseTimeMillis;
+    private final Map<String, PrintStream> m_streams = new HashMap<String, PrintStream>();
+    private final Map<String, HistogramLogWriter> m_writers = new HashMap<String, HistogramLogWriter>();
+
+    /**
+     * @param directory Directory the logs are created in.
+     * @param prefix File name prefix. The combined log is <code>prefix.hlog</code> and the
+     * log for procedure P is <code>prefix-P.hlog</code>.
+     * @param corrected True to log latency measured from the intended send time, see
+     * {@link ClientStats#kPercentileCorrectedLatencyAsDouble(double)}.
+     */
+    public ClientLatencyLogWriter(File directory, String prefix, boolean corrected) {
+        m_directory = directory;
+        m_prefix = prefix;
+        m_corrected = corrected;
+        m_baseTimeMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Append the interval covered by the context to the logs, creating the log of
+     * any procedure seen for the first time.
+     *
+     * @param context Context covering the interval to log.
+     * @throws FileNotFoundException if a new log can't be created.
+     */
+    public synchronized void logInterval(ClientStatsContext context) throws FileNotFoundException {
+        logInterval(writerFor(null), context.getStats());
+        for (Entry<String, ClientStats> e : context.getStatsByProc().entrySet()) {
+            logInterval(writerFor(e.getKey()), e.getValue());
+        }
+        for (PrintStream stream : m_streams.values()) {
+            stream.flush();
+        }
+    }
+
+    private void logInterval(HistogramLogWriter writer, ClientStats stats) {
+        // the interval max column is reported in milliseconds
+        writer.outputIntervalHistogram(
+                (stats.getStartTimestamp() - m_baseTimeMillis) / 1000.0,
+                (stats.getEndTimestamp() - m_baseTimeMillis) / 1000.0,
+                stats.getLatencyHistogram(m_corrected), 1000.0);
+    }
+
+    /**
+     * Close all the logs.
+     */
+    public synchronized void close() {
+        for (PrintStream stream : m_streams.values()) {
+            stream.close();
+        }
+        m_streams.clear();
+        m_writers.clear();
+    }
+
+    private HistogramLogWriter writerFor(String procName) throws FileNotFoundException {
+        HistogramLogWriter writer = m_writers.get(procName);
+        if (writer == null) {
+            String fileName = (procName == null ? m_prefix : m_prefix + "-" + procName) + ".hlog";
+            PrintStream stream = new PrintStream(new FileOutputStream(new File(m_directory, fileName)));
+            writer = new HistogramLogWriter(stream);
+            writer.setBaseTime(m_baseTimeMillis);
+            writer.outputLogFormatVersion();
+            writer.outputComment(String.format("[%s client latency in microseconds%s]",
+                    procName == null ? "All procedures" : procName,
+                    m_corrected ? ", measured from the intended send time" : ""));
+            writer.outputStartTime(m_baseTimeMillis);
+            writer.outputBaseTime(m_baseTimeMillis);
+            writer.outputLegend();
+            m_streams.put(procName, stream);
+            m_writers.put(procName, writer);
+        }
+        return writer;
+    }
+}
@@ -70,6 +70,8 @@ public class ClientStats {
     final public static int HUNDRED_MS_BUCKET_COUNT = 10;
 
     Histogram m_latencyHistogram;
+    // latency measured from the intended send time, see RateLimiter.intendedSendTimeNanos
+    Histogram m_correctedLatencyHistogram;
 
     long m_bytesSent;
     long m_bytesReceived;
@@ -97,6 +99,7 @@ public class ClientStats {
         m_roundTripTimeNanos = m_clusterRoundTripTime = 0;
         m_bytesSent = m_bytesReceived = 0;
         m_latencyHistogram = constructHistogram();
+        m_correctedLatencyHistogram = constructHistogram();
     }
 
     ClientStats(ClientStats other) {
@@ -114,6 +117,8 @@ public class ClientStats {
         m_clusterRoundTripTime = other.m_clusterRoundTripTime;
         m_latencyHistogram = other.m_latencyHistogram.copy();
         m_latencyHistogram.reestablishTotalCount();
+        m_correctedLatencyHistogram = other.m_correctedLatencyHistogram.copy();
+        m_correctedLatencyHistogram.reestablishTotalCount();
         m_bytesSent = other.m_bytesSent;
         m_bytesReceived = other.m_bytesReceived;
     }
@@ -143,6 +148,8 @@ public class ClientStats {
         retval.m_clusterRoundTripTime = newer.m_clusterRoundTripTime - older.m_clusterRoundTripTime;
 
         retval.m_latencyHistogram = Histogram.diff(newer.m_latencyHistogram, older.m_latencyHistogram);
+        retval.m_correctedLatencyHistogram =
+                Histogram.diff(newer.m_correctedLatencyHistogram, older.m_correctedLatencyHistogram);
 
         retval.m_bytesSent = newer.m_bytesSent - older.m_bytesSent;
         retval.m_bytesReceived = newer.m_bytesReceived - older.m_bytesReceived;
@@ -192,12 +199,19 @@ public class ClientStats {
 
         m_latencyHistogram.add(other.m_latencyHistogram);
         m_latencyHistogram.reestablishTotalCount();
+        m_correctedLatencyHistogram.add(other.m_correctedLatencyHistogram);
+        m_correctedLatencyHistogram.reestablishTotalCount();
 
         m_bytesSent += other.m_bytesSent;
         m_bytesReceived += other.m_bytesReceived;
     }
 
     void update(long roundTripTimeNanos, int clusterRoundTripTime, boolean abort, boolean error, boolean timeout) {
+        update(roundTripTimeNanos, roundTripTimeNanos, clusterRoundTripTime, abort, error, timeout);
+    }
+
+    void update(long roundTripTimeNanos, long correctedRoundTripTimeNanos, int clusterRoundTripTime,
+            boolean abort, boolean error, boolean timeout) {
         m_invocationsCompleted++;
         if (abort) m_invocationAborts++;
         if (error) m_invocationErrors++;
@@ -205,17 +219,22 @@ public class ClientStats {
         m_roundTripTimeNanos += roundTripTimeNanos;
         m_clusterRoundTripTime += clusterRoundTripTime;
 
+        recordLatency(m_latencyHistogram, roundTripTimeNanos);
+        recordLatency(m_correctedLatencyHistogram, Math.max(roundTripTimeNanos, correctedRoundTripTimeNanos));
+    }
+
+    private static void recordLatency(Histogram histogram, long latencyNanos) {
         //Round up to 50 microseconds. Average is still accurate and it doesn't change the percentile distribution
         //above 50 micros
-        final long roundTripMicros = Math.max(LOWEST_TRACKABLE, TimeUnit.NANOSECONDS.toMicros(roundTripTimeNanos));
+        final long roundTripMicros = Math.max(LOWEST_TRACKABLE, TimeUnit.NANOSECONDS.toMicros(latencyNanos));
         if (roundTripMicros > HIGHEST_TRACKABLE) {
-            m_latencyHistogram.recordValue(roundTripMicros % HIGHEST_TRACKABLE);
+            histogram.recordValue(roundTripMicros % HIGHEST_TRACKABLE);
             int count = (int)(roundTripMicros / HIGHEST_TRACKABLE);
             for (int ii = 0; ii < count; ii++) {
-                m_latencyHistogram.recordValue(HIGHEST_TRACKABLE);
+                histogram.recordValue(HIGHEST_TRACKABLE);
             }
         } else {
-            m_latencyHistogram.recordValue(roundTripMicros);
+            histogram.recordValue(roundTripMicros);
         }
     }
 
@@ -490,6 +509,42 @@ public class ClientStats {
         return m_latencyHistogram.getValueAtPercentile(percentile * 100.0D) / 1000.0;
     }
 
+    /**
+     * <p>Like {@link #kPercentileLatencyAsDouble(double)}, but with latency measured from
+     * the time each invocation was intended to be sent rather than the time it was
+     * actually submitted.</p>
+     *
+     * <p>When a rate is set with {@link ClientConfig#setMaxTransactionsPerSecond(int)},
+     * invocation n is intended to go out one rate interval after invocation n-1. An
+     * application that falls behind the schedule because it was waiting on backpressure
+     * or on earlier responses would otherwise hide that wait from the measurement
+     * (coordinated omission). Without a configured rate the two measurements are the same.</p>
+     *
+     * @param percentile A floating point number between 0.0 and 1.0.
+     * @return An estimate of k-percentile corrected latency in milliseconds.
+     */
+    public double kPercentileCorrectedLatencyAsDouble(double percentile) {
+        if (m_correctedLatencyHistogram.getTotalCount() == 0) return 0.0;
+        percentile = Math.max(0.0D, percentile);
+        return m_correctedLatencyHistogram.getValueAtPercentile(percentile * 100.0D) / 1000.0;
+    }
+
+    /**
+     * Get a copy of the latency histogram, with values in microseconds, stamped with
+     * the time period covered by this stats instance.
+     *
+     * @param corrected True for latency measured from the intended send time,
+     * see {@link #kPercentileCorrectedLatencyAsDouble(double)}.
+     * @return A histogram of latencies in microseconds.
+     */
+    public Histogram getLatencyHistogram(boolean corrected) {
+        Histogram histogram = (corrected ? m_correctedLatencyHistogram : m_latencyHistogram).copy();
+        histogram.reestablishTotalCount();
+        histogram.setStartTimeStamp(m_startTS);
+        histogram.setEndTimeStamp(m_endTS);
+        return histogram;
+    }
+
     /**
      * Generate a human-readable report of latencies in the form of a histogram. Latency is
      * in milliseconds
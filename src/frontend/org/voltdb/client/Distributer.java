@@ -27,6 +27,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -47,6 +48,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.LockSupport;
 
 import javax.net.ssl.SSLEngine;
@@ -65,6 +68,7 @@ import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.Pair;
 import org.voltcore.utils.ssl.SSLConfiguration;
 import org.voltdb.ClientResponseImpl;
+import org.voltdb.PrivateVoltTableFactory;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientStatusListenerExt.AutoConnectionStatus;
 import org.voltdb.client.ClientStatusListenerExt.DisconnectCause;
@@ -96,6 +100,8 @@ class Distributer {
     public static final Long ASYNC_TOPO_HANDLE = PING_HANDLE - 1;
     public static final Long ASYNC_PROC_HANDLE = PING_HANDLE - 2;
     static final long USE_DEFAULT_CLIENT_TIMEOUT = 0;
+    // slots in the per-connection callback ring, must be a power of two
+    static final int CALLBACK_RING_SIZE = Integer.getInteger("CLIENT_CALLBACK_RING_SIZE", 4096);
     static long PARTITION_KEYS_INFO_REFRESH_FREQUENCY = Long.getLong("PARTITION_KEYS_INFO_REFRESH_FREQUENCY", 1000);
 
     // handles used internally are negative and decrement for each call
@@ -154,6 +160,46 @@ class Distributer {
     private final long m_connectionResponseTimeoutNanos;
     private final Map<Integer, ClientAffinityStats> m_clientAffinityStats = new HashMap<>();
 
+    /*
+     * Routing state read by the striped submission path without holding the monitor.
+     * Rebuilt by publishRouting whenever the connections or the topology change.
+     */
+    private static final class RoutingSnapshot {
+        final NodeConnection[] connections;
+        final HashinatorLite hashinator;
+        final Map<Integer, NodeConnection> partitionMasters;
+        final Map<Integer, NodeConnection[]> partitionReplicas;
+
+        RoutingSnapshot(NodeConnection[] connections, HashinatorLite hashinator,
+                Map<Integer, NodeConnection> partitionMasters, Map<Integer, NodeConnection[]> partitionReplicas) {
+            this.connections = connections;
+            this.hashinator = hashinator;
+            this.partitionMasters = partitionMasters;
+            this.partitionReplicas = partitionReplicas;
+        }
+    }
+
+    // Affinity stats of the striped path, folded into the snapshot with the locked ones
+    private static final class StripedAffinityStats {
+        final LongAdder affinityWrites = new LongAdder();
+        final LongAdder rrWrites = new LongAdder();
+        final LongAdder affinityReads = new LongAdder();
+        final LongAdder rrReads = new LongAdder();
+    }
+
+    private boolean m_stripedSubmission = false;
+    private volatile RoutingSnapshot m_routing = new RoutingSnapshot(new NodeConnection[0], null,
+            ImmutableMap.<Integer, NodeConnection>of(), ImmutableMap.<Integer, NodeConnection[]>of());
+    private final ConcurrentMap<Integer, StripedAffinityStats> m_stripedAffinityStats = new ConcurrentHashMap<>();
+    private final AtomicInteger m_nextStripe = new AtomicInteger(0);
+    // the connection, modulo the connection count, each application thread submits to
+    private final ThreadLocal<Integer> m_connectionStripe = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return m_nextStripe.getAndIncrement() & Integer.MAX_VALUE;
+        }
+    };
+
     public final RateLimiter m_rateLimiter = new RateLimiter();
 
     private final AtomicReference<ImmutableSet<Integer>> m_unconnectedHosts = new AtomicReference<ImmutableSet<Integer>>();
@@ -355,9 +401,8 @@ class Distributer {
                     }
 
                     // for each outstanding procedure
-                    for (final Map.Entry<Long, CallbackBookeeping> e : c.m_callbacks.entrySet()) {
-                        final long handle = e.getKey();
-                        final CallbackBookeeping cb = e.getValue();
+                    for (final CallbackBookeeping cb : c.m_callbacks.snapshot()) {
+                        final long handle = cb.handle;
 
                         // if the timeout is expired, call the callback and remove the
                         // bookeeping data
@@ -398,15 +443,20 @@ class Distributer {
     }
 
     class CallbackBookeeping {
-        public CallbackBookeeping(long timestampNanos, ProcedureCallback callback, String name, long timeoutNanos, boolean ignoreBackpressure) {
+        public CallbackBookeeping(long handle, long timestampNanos, ProcedureCallback callback, String name, long timeoutNanos, boolean ignoreBackpressure) {
             assert(callback != null);
+            this.handle = handle;
             this.timestampNanos = timestampNanos;
+            this.intendedNanos = timestampNanos;
             this.callback = callback;
             this.name = name;
             this.procedureTimeoutNanos = timeoutNanos;
             this.ignoreBackpressure = ignoreBackpressure;
         }
+        final long handle;
         long timestampNanos;
+        // when the rate limiter schedule meant the call to go out, for corrected latency
+        long intendedNanos;
         //Timeout in ms 0 means use conenction specified procedure timeoutMS.
         final long procedureTimeoutNanos;
         ProcedureCallback callback;
@@ -414,10 +464,71 @@ class Distributer {
         boolean ignoreBackpressure;
     }
 
+    /**
+     * Outstanding callbacks of one connection, indexed by the low bits of the handle.
+     * Handles are handed out sequentially so in-flight calls rarely share a slot;
+     * the few that do go to an overflow map. Each callback is removed exactly once,
+     * by whichever of the response, the timeout or the connection loss gets to it first.
+     */
+    static final class CallbackRing {
+        private final AtomicReferenceArray<CallbackBookeeping> m_slots;
+        private final int m_mask;
+        private final ConcurrentMap<Long, CallbackBookeeping> m_overflow = new ConcurrentHashMap<>();
+
+        CallbackRing(int size) {
+            assert(Integer.bitCount(size) == 1);
+            m_slots = new AtomicReferenceArray<>(size);
+            m_mask = size - 1;
+        }
+
+        void put(CallbackBookeeping cb) {
+            if (!m_slots.compareAndSet((int)(cb.handle & m_mask), null, cb)) {
+                m_overflow.put(cb.handle, cb);
+            }
+        }
+
+        CallbackBookeeping get(long handle) {
+            final CallbackBookeeping cb = m_slots.get((int)(handle & m_mask));
+            if (cb != null && cb.handle == handle) {
+                return cb;
+            }
+            return m_overflow.isEmpty() ? null : m_overflow.get(handle);
+        }
+
+        CallbackBookeeping remove(long handle) {
+            final int slot = (int)(handle & m_mask);
+            final CallbackBookeeping cb = m_slots.get(slot);
+            if (cb != null && cb.handle == handle) {
+                return m_slots.compareAndSet(slot, cb, null) ? cb : null;
+            }
+            return m_overflow.isEmpty() ? null : m_overflow.remove(handle);
+        }
+
+        boolean containsKey(long handle) {
+            return get(handle) != null;
+        }
+
+        /**
+         * @return the callbacks outstanding at some point during the call, some may be gone by the time they are looked at
+         */
+        List<CallbackBookeeping> snapshot() {
+            List<CallbackBookeeping> callbacks = new ArrayList<>(m_overflow.values());
+            for (int i = 0; i < m_slots.length(); i++) {
+                final CallbackBookeeping cb = m_slots.get(i);
+                if (cb != null) {
+                    callbacks.add(cb);
+                }
+            }
+            return callbacks;
+        }
+    }
+
     class NodeConnection extends VoltProtocolHandler implements org.voltcore.network.QueueMonitor {
         private final AtomicInteger m_callbacksToInvoke = new AtomicInteger(0);
-        private final ConcurrentMap<Long, CallbackBookeeping> m_callbacks = new ConcurrentHashMap<>();
+        private final CallbackRing m_callbacks = new CallbackRing(CALLBACK_RING_SIZE);
         private final NonBlockingHashMap<String, ClientStats> m_stats = new NonBlockingHashMap<>();
+        // headers of streamed responses whose row chunks are still arriving, network thread only
+        private final Map<Long, ClientResponseImpl> m_streamedResponses = new HashMap<>();
         private Connection m_connection;
         private volatile boolean m_isConnected = true;
 
@@ -447,6 +558,8 @@ class Distributer {
             //Will be the same as timeoutNanos if it didn't block
             long afterRateLimitNanos = 0;
 
+            final long intendedNanos = m_rateLimiter.intendedSendTimeNanos(nowNanos, ignoreBackpressure);
+
             /*
              * Do rate limiting or check for max outstanding related backpressure in
              * the rate limiter which can block. If it blocks we can still get a timeout
@@ -472,7 +585,9 @@ class Distributer {
             assert(callbacksToInvoke >= 0);
 
             //Optimistically submit the task
-            m_callbacks.put(handle, new CallbackBookeeping(nowNanos, callback, name, timeoutNanos, ignoreBackpressure));
+            final CallbackBookeeping cb = new CallbackBookeeping(handle, nowNanos, callback, name, timeoutNanos, ignoreBackpressure);
+            cb.intendedNanos = intendedNanos;
+            m_callbacks.put(cb);
 
             //Schedule the timeout to fire relative to the amount of time
             //spent getting to this point. Might fire immediately
@@ -487,30 +602,96 @@ class Distributer {
 
             //Check for disconnect
             if (!m_isConnected) {
-                //Check if the disconnect or expiration already handled the callback
-                if (m_callbacks.remove(handle) == null) {
-                    return;
-                }
-                final ClientResponse r = new ClientResponseImpl(
-                        ClientResponse.CONNECTION_LOST, new VoltTable[0],
-                        "Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
-                ") was lost before a response was received");
+                invokeCallbackWithConnectionLost(handle, callback, nowNanos, ignoreBackpressure);
+            } else {
+                m_connection.writeStream().enqueue(c);
+            }
+        }
+
+        /*
+         * Same as createWork for a group of invocations of one procedure, except that
+         * the invocations admitted by the rate limiter go out in a single BATCH message.
+         */
+        public void createBatchWork(final long nowNanos, ProcedureInvocation[] invocations,
+                ProcedureCallback[] callbacks, boolean ignoreBackpressure, long timeoutNanos) throws IOException {
+            timeoutNanos = (timeoutNanos == Distributer.USE_DEFAULT_CLIENT_TIMEOUT) ? m_procedureCallTimeoutNanos : timeoutNanos;
+            final long timeoutTime = nowNanos + timeoutNanos;
+
+            final ProcedureInvocation[] admitted = new ProcedureInvocation[invocations.length];
+            final ProcedureCallback[] admittedCallbacks = new ProcedureCallback[invocations.length];
+            int admittedCount = 0;
+            for (int i = 0; i < invocations.length; i++) {
+                final ProcedureInvocation invocation = invocations[i];
+                final long handle = invocation.getHandle();
+                final String name = invocation.getProcName();
+                long afterRateLimitNanos = 0;
+                final long intendedNanos = m_rateLimiter.intendedSendTimeNanos(nowNanos, ignoreBackpressure);
                 try {
-                    callback.clientCallback(r);
-                } catch (Exception e) {
-                    uncaughtException(callback, r, e);
+                    afterRateLimitNanos = m_rateLimiter.sendTxnWithOptionalBlockAndReturnCurrentTime(
+                            nowNanos, timeoutNanos, ignoreBackpressure);
+                } catch (TimeoutException e) {
+                    final long deltaNanos = Math.max(1, System.nanoTime() - nowNanos);
+                    invokeCallbackWithTimeout(name, callbacks[i], deltaNanos, afterRateLimitNanos, timeoutNanos, handle, ignoreBackpressure);
+                    continue;
                 }
 
-                //Drain needs to know when all callbacks have been invoked
-                final int remainingToInvoke = m_callbacksToInvoke.decrementAndGet();
-                assert(remainingToInvoke >= 0);
-
-                //for bookkeeping, but it feels dishonest to call this here
-                m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
+                assert(m_callbacks.containsKey(handle) == false);
+                final int callbacksToInvoke = m_callbacksToInvoke.incrementAndGet();
+                assert(callbacksToInvoke >= 0);
+                final CallbackBookeeping cb = new CallbackBookeeping(handle, nowNanos, callbacks[i], name, timeoutNanos, ignoreBackpressure);
+                cb.intendedNanos = intendedNanos;
+                m_callbacks.put(cb);
+                if (timeoutNanos < TimeUnit.SECONDS.toNanos(1) && !isLongOp(name)) {
+                    submitDiscreteTimeoutTask(handle, Math.max(0, timeoutTime - afterRateLimitNanos));
+                }
+                admitted[admittedCount] = invocation;
+                admittedCallbacks[admittedCount] = callbacks[i];
+                admittedCount++;
+            }
+            if (admittedCount == 0) {
                 return;
+            }
+
+            if (!m_isConnected) {
+                for (int i = 0; i < admittedCount; i++) {
+                    invokeCallbackWithConnectionLost(admitted[i].getHandle(), admittedCallbacks[i], nowNanos, ignoreBackpressure);
+                }
             } else {
-                m_connection.writeStream().enqueue(c);
+                ByteBuffer buf = ByteBuffer.allocate(
+                        4 + ProcedureInvocation.getBatchSerializedSize(admitted, 0, admittedCount));
+                buf.putInt(buf.capacity() - 4);
+                ProcedureInvocation.flattenBatchToBuffer(admitted, 0, admittedCount, buf);
+                buf.flip();
+                m_connection.writeStream().enqueue(buf);
+            }
+        }
+
+        /*
+         * Fail a callback that was registered after the connection was already lost,
+         * unless the disconnect or expiration handling got to it first
+         */
+        private void invokeCallbackWithConnectionLost(long handle, ProcedureCallback callback, long nowNanos,
+                boolean ignoreBackpressure) {
+            //Check if the disconnect or expiration already handled the callback
+            if (m_callbacks.remove(handle) == null) {
+                return;
+            }
+            final ClientResponse r = new ClientResponseImpl(
+                    ClientResponse.CONNECTION_LOST, new VoltTable[0],
+                    "Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
+            ") was lost before a response was received");
+            try {
+                callback.clientCallback(r);
+            } catch (Exception e) {
+                uncaughtException(callback, r, e);
             }
+
+            //Drain needs to know when all callbacks have been invoked
+            final int remainingToInvoke = m_callbacksToInvoke.decrementAndGet();
+            assert(remainingToInvoke >= 0);
+
+            //for bookkeeping, but it feels dishonest to call this here
+            m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
         }
 
         /*
@@ -607,7 +788,7 @@ class Distributer {
             m_connection.queueTask(new Runnable() {
                 @Override
                 public void run() {
-                    updateStats(procName, roundTripNanos, clusterRoundTrip, false, false, true);
+                    updateStats(procName, roundTripNanos, roundTripNanos, clusterRoundTrip, false, false, true);
                 }
             });
         }
@@ -615,6 +796,8 @@ class Distributer {
         /**
          * Update the procedures statistics
          * @param procName Name of procedure being updated
+         * @param roundTripNanos round trip measured from the call
+         * @param correctedRoundTripNanos round trip measured from the intended send time
          * @param clusterRoundTrip round trip measured within the VoltDB cluster
          * @param abort true of the procedure was aborted
          * @param failure true if the procedure failed
@@ -622,6 +805,7 @@ class Distributer {
         private void updateStats(
                 String procName,
                 long roundTripNanos,
+                long correctedRoundTripNanos,
                 int clusterRoundTrip,
                 boolean abort,
                 boolean failure,
@@ -637,12 +821,17 @@ class Distributer {
                 stats.m_endTS = Long.MIN_VALUE;
                 m_stats.put(procName, stats);
             }
-            stats.update(roundTripNanos, clusterRoundTrip, abort, failure, timeout);
+            stats.update(roundTripNanos, correctedRoundTripNanos, clusterRoundTrip, abort, failure, timeout);
         }
 
         @Override
         public void handleMessage(ByteBuffer buf, Connection c) {
             long nowNanos = System.nanoTime();
+            if (buf.get(buf.position()) == ClientResponseImpl.RESULT_CHUNK_VERSION) {
+                m_lastResponseTimeNanos = nowNanos;
+                handleResultChunk(buf, nowNanos);
+                return;
+            }
             ClientResponseImpl response = new ClientResponseImpl();
             try {
                 response.initFromBuffer(buf);
@@ -684,9 +873,52 @@ class Distributer {
                 return;
             }
 
+            // the rows follow in chunks, the response completes with the last one
+            if (response.hasStreamedResults()) {
+                m_streamedResponses.put(handle, response);
+                return;
+            }
+
+            completeResponse(response, nowNanos, false);
+        }
+
+        /*
+         * Hand the rows of a streamed response to its callback, completing
+         * the response when the last chunk arrives.
+         */
+        private void handleResultChunk(ByteBuffer buf, long nowNanos) {
+            buf.get(); // version
+            final long handle = buf.getLong();
+            final int tableIndex = buf.getShort();
+            final boolean last = (buf.get() & ClientResponseImpl.LAST_RESULT_CHUNK) != 0;
+            final int tableSize = buf.getInt();
+            buf.limit(buf.position() + tableSize);
+            final VoltTable rows = PrivateVoltTableFactory.createVoltTableFromBuffer(buf.slice(), true);
+
+            final ClientResponseImpl response = last ? m_streamedResponses.remove(handle) : m_streamedResponses.get(handle);
+            if (response == null) {
+                return;
+            }
+            // the callback may have timed out while the rows were arriving
+            final CallbackBookeeping stuff = m_callbacks.get(handle);
+            if (stuff != null && stuff.callback instanceof StreamingProcedureCallback) {
+                try {
+                    ((StreamingProcedureCallback) stuff.callback).rowsReceived(tableIndex, rows);
+                } catch (Throwable t) {
+                    uncaughtException(stuff.callback, response, t);
+                }
+            }
+            if (last) {
+                completeResponse(response, nowNanos, true);
+            }
+        }
+
+        private void completeResponse(ClientResponseImpl response, long nowNanos, boolean rowsDelivered) {
+            final long handle = response.getClientHandle();
+
             //Race with expiration thread to be the first to remove the callback
             //from the map and process it
-            final CallbackBookeeping stuff = m_callbacks.remove(response.getClientHandle());
+            final CallbackBookeeping stuff = m_callbacks.remove(handle);
 
             // presumably (hopefully) this is a response for a timed-out message
             if (stuff == null) {
@@ -718,10 +950,17 @@ class Distributer {
 
                 int clusterRoundTrip = response.getClusterRoundtrip();
                 m_rateLimiter.transactionResponseReceived(nowNanos, clusterRoundTrip, stuff.ignoreBackpressure);
-                updateStats(stuff.name, deltaNanos, clusterRoundTrip, abort, error, false);
+                updateStats(stuff.name, deltaNanos, nowNanos - stuff.intendedNanos, clusterRoundTrip, abort, error, false);
                 response.setClientRoundtrip(deltaNanos);
                 assert(response.getHashes() == null) : "A determinism hash snuck into the client wire protocol";
                 try {
+                    // results sent whole still reach a streaming callback, one table at a time
+                    if (!rowsDelivered && cb instanceof StreamingProcedureCallback) {
+                        final VoltTable[] results = response.getResults();
+                        for (int i = 0; i < results.length; ++i) {
+                            ((StreamingProcedureCallback) cb).rowsReceived(i, results[i]);
+                        }
+                    }
                     cb.clientCallback(response);
                 } catch (Throwable t) {
                     uncaughtException(cb, response, t);
@@ -803,6 +1042,7 @@ class Distributer {
                 }
 
                 m_connections.remove(this);
+                publishRouting();
                 //Notify listeners that a connection has been lost
                 for (ClientStatusListenerExt s : m_listeners) {
                     s.connectionLost(
@@ -845,12 +1085,11 @@ class Distributer {
                         ClientResponse.CONNECTION_LOST, new VoltTable[0],
                         "Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
                 ") was lost before a response was received");
-            for (Map.Entry<Long, CallbackBookeeping> e : m_callbacks.entrySet()) {
+            for (CallbackBookeeping callBk : m_callbacks.snapshot()) {
                 //Check for race with other threads
-                if (m_callbacks.remove(e.getKey()) == null) {
+                if (m_callbacks.remove(callBk.handle) == null) {
                     continue;
                 }
-                final CallbackBookeeping callBk = e.getValue();
                 try {
                     callBk.callback.clientCallback(r);
                 }
@@ -1054,6 +1293,7 @@ class Distributer {
             m_buildString = (String)socketChannelAndInstanceIdAndBuildString[2];
 
             m_connections.add(cxn);
+            publishRouting();
         }
 
         if (m_useClientAffinity) {
@@ -1159,145 +1399,329 @@ class Distributer {
         assert(invocation != null);
         assert(cb != null);
 
-        NodeConnection cxn = null;
-        boolean backpressure = true;
+        final NodeConnection cxn = m_stripedSubmission ?
+                stripedConnection(invocation, ignoreBackpressure) :
+                lockedConnection(invocation, ignoreBackpressure);
+        final boolean backpressure = (cxn == null);
+        if (backpressure && !ignoreBackpressure) {
+            m_rateLimiter.backpressureBlockedCaller();
+        }
 
         /*
-         * Synchronization is necessary to ensure that m_connections is not modified
-         * as well as to ensure that backpressure is reported correctly
+         * Do the heavy weight serialization outside the synchronized block.
+         * createWork synchronizes on an individual connection which allows for more concurrency
          */
-        synchronized (this) {
-            final int totalConnections = m_connections.size();
+        if (cxn != null) {
+            ByteBuffer buf = null;
+            try {
+                buf = serializeSPI(invocation);
+            } catch (Exception e) {
+                Throwables.propagate(e);
+            }
+            cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), buf, cb, ignoreBackpressure, timeoutNanos);
+        }
+        if (m_topologyChangeAware) {
+            createConnectionsUponTopologyChange();
+        }
+        return !backpressure;
+    }
 
-            if (totalConnections == 0) {
-                throw new NoConnectionsException("No connections.");
+    /**
+     * Queue invocations of one procedure, packing the invocations that hash to the same
+     * partition into one message. Nothing is queued unless a connection without backpressure
+     * is available for every partition in the batch.
+     * @param invocations invocations that all name the same procedure
+     * @param callbacks callback for each invocation
+     * @param ignoreBackpressure If true the invocations will be queued even if there is backpressure
+     * @param nowNanos Current time in nanoseconds using System.nanoTime
+     * @param timeoutNanos nanoseconds from nowNanos where timeout should fire
+     * @return True if the batch was queued and false if nothing was queued due to backpressure
+     * @throws NoConnectionsException
+     */
+    boolean queueBatch(
+            ProcedureInvocation[] invocations,
+            ProcedureCallback[] callbacks,
+            final boolean ignoreBackpressure, final long nowNanos, final long timeoutNanos)
+            throws NoConnectionsException {
+        if (m_shutdown.get()) {
+            return false;
+        }
+        assert(invocations.length > 0 && invocations.length == callbacks.length);
+
+        // Group by target partition, keeping the submission order within each group
+        final Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        final HashinatorLite hashinator = m_routing.hashinator;
+        final Procedure procedureInfo = getProcedureInfo(invocations[0]);
+        for (int i = 0; i < invocations.length; i++) {
+            final Integer partition = (m_useClientAffinity && hashinator != null) ?
+                    getHashedPartition(procedureInfo, invocations[i], hashinator) : Constants.MP_INIT_PID;
+            List<Integer> group = groups.get(partition);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(partition, group);
             }
+            group.add(i);
+        }
 
-            /*
-             * Check if the master for the partition is known. No back pressure check to ensure correct
-             * routing, but backpressure will be managed anyways. This is where we guess partition based on client
-             * affinity and known topology (hashinator initialized).
-             */
-            if (m_useClientAffinity && (m_hashinator != null)) {
-                final ImmutableSortedMap<String, Procedure> procedures = m_procedureInfo.get();
-                Procedure procedureInfo = null;
-                if (procedures != null) {
-                    procedureInfo = procedures.get(invocation.getProcName());
+        final List<NodeConnection> connections = new ArrayList<>(groups.size());
+        for (List<Integer> group : groups.values()) {
+            final ProcedureInvocation first = invocations[group.get(0)];
+            final NodeConnection cxn = m_stripedSubmission ?
+                    stripedConnection(first, ignoreBackpressure) :
+                    lockedConnection(first, ignoreBackpressure);
+            if (cxn == null) {
+                if (!ignoreBackpressure) {
+                    m_rateLimiter.backpressureBlockedCaller();
                 }
-                Integer hashedPartition = invocation.getPartitionDestination();
-
-                if (procedureInfo != null) {
-                    hashedPartition = Constants.MP_INIT_PID;
-                    if (invocation.hasPartitionDestination()) {
-                        hashedPartition = invocation.getPartitionDestination();
-                    } else if (!procedureInfo.multiPart && procedureInfo.partitionParameter != Procedure.PARAMETER_NONE
-                            // User may have passed too few parameters to allow dispatching.
-                            // Avoid an indexing error here to fall through to the proper ProcCallException.
-                            && procedureInfo.partitionParameter < invocation.getPassedParamCount()) {
-                        hashedPartition = m_hashinator.getHashedPartitionForParameter(
-                                procedureInfo.partitionParameterType,
-                                invocation.getPartitionParamValue(procedureInfo.partitionParameter));
-                    }
-                    /*
-                     * If the procedure is read only and single part and the user wants it, load balance across replicas
-                     * This is probably slower for SAFE consistency.
-                     */
-                    if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
-                        NodeConnection partitionReplicas[] = m_partitionReplicas.get(hashedPartition);
-                        if (partitionReplicas != null && partitionReplicas.length > 0) {
-                            cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
-                            if (cxn.hadBackPressure()) {
-                                //See if there is one without backpressure, make sure it's still connected
-                                for (NodeConnection nc : partitionReplicas) {
-                                    if (!nc.hadBackPressure() && nc.m_isConnected) {
-                                        cxn = nc;
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-                    } else {
-                        /*
-                         * For writes or SAFE reads, this is the best way to go
-                         */
-                        cxn = m_partitionMasters.get(hashedPartition);
+                return false;
+            }
+            connections.add(cxn);
+        }
 
-                    }
-                } else if (invocation.hasPartitionDestination()) {
-                    cxn = m_partitionMasters.get(hashedPartition);
-                }
+        int groupIndex = 0;
+        for (List<Integer> group : groups.values()) {
+            final ProcedureInvocation[] groupInvocations = new ProcedureInvocation[group.size()];
+            final ProcedureCallback[] groupCallbacks = new ProcedureCallback[group.size()];
+            for (int i = 0; i < groupInvocations.length; i++) {
+                groupInvocations[i] = invocations[group.get(i)];
+                groupCallbacks[i] = callbacks[group.get(i)];
+            }
+            try {
+                connections.get(groupIndex++).createBatchWork(nowNanos, groupInvocations, groupCallbacks,
+                        ignoreBackpressure, timeoutNanos);
+            } catch (Exception e) {
+                Throwables.propagate(e);
+            }
+        }
+        if (m_topologyChangeAware) {
+            createConnectionsUponTopologyChange();
+        }
+        return true;
+    }
 
-                if (cxn != null) {
-                    if (!cxn.m_isConnected) {
-                        // Would be nice to log something here
-                        // Client affinity picked a connection that was actually disconnected. Reset to null
-                        // and let the round-robin choice pick a connection
-                        cxn = null;
-                    } else if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                        backpressure = false;
-                    }
+    /*
+     * Pick the connection for an invocation, or null if there is backpressure.
+     * Synchronization is necessary to ensure that m_connections is not modified
+     * as well as to ensure that backpressure is reported correctly
+     */
+    private synchronized NodeConnection lockedConnection(ProcedureInvocation invocation, boolean ignoreBackpressure)
+            throws NoConnectionsException {
+        final int totalConnections = m_connections.size();
+
+        if (totalConnections == 0) {
+            throw new NoConnectionsException("No connections.");
+        }
+
+        NodeConnection cxn = null;
+        boolean backpressure = true;
+
+        /*
+         * Check if the master for the partition is known. No back pressure check to ensure correct
+         * routing, but backpressure will be managed anyways. This is where we guess partition based on client
+         * affinity and known topology (hashinator initialized).
+         */
+        if (m_useClientAffinity && (m_hashinator != null)) {
+            final Procedure procedureInfo = getProcedureInfo(invocation);
+            final Integer hashedPartition = getHashedPartition(procedureInfo, invocation, m_hashinator);
+            cxn = getAffinityConnection(procedureInfo, invocation, hashedPartition, m_partitionMasters, m_partitionReplicas);
+
+            if (cxn != null) {
+                if (!cxn.m_isConnected) {
+                    // Would be nice to log something here
+                    // Client affinity picked a connection that was actually disconnected. Reset to null
+                    // and let the round-robin choice pick a connection
+                    cxn = null;
+                } else if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                    backpressure = false;
                 }
+            }
 
-                ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
-                if (stats == null) {
-                    stats = new ClientAffinityStats(hashedPartition, 0, 0, 0, 0);
-                    m_clientAffinityStats.put(hashedPartition, stats);
+            ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
+            if (stats == null) {
+                stats = new ClientAffinityStats(hashedPartition, 0, 0, 0, 0);
+                m_clientAffinityStats.put(hashedPartition, stats);
+            }
+            if (cxn != null) {
+                if (procedureInfo != null && procedureInfo.readOnly) {
+                    stats.addAffinityRead();
                 }
-                if (cxn != null) {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addAffinityRead();
-                    }
-                    else {
-                        stats.addAffinityWrite();
-                    }
+                else {
+                    stats.addAffinityWrite();
+                }
+            }
+            // account these here because we lose the partition ID and procedure info once we
+            // bust out of this scope.
+            else {
+                if (procedureInfo != null && procedureInfo.readOnly) {
+                    stats.addRrRead();
                 }
-                // account these here because we lose the partition ID and procedure info once we
-                // bust out of this scope.
                 else {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addRrRead();
-                    }
-                    else {
-                        stats.addRrWrite();
-                    }
+                    stats.addRrWrite();
                 }
             }
-            if (cxn == null) {
-                for (int i=0; i < totalConnections; ++i) {
-                    cxn = m_connections.get(Math.abs(++m_nextConnection % totalConnections));
-                    if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                        // serialize and queue the invocation
-                        backpressure = false;
-                        break;
-                    }
+        }
+        if (cxn == null) {
+            for (int i=0; i < totalConnections; ++i) {
+                cxn = m_connections.get(Math.abs(++m_nextConnection % totalConnections));
+                if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                    // serialize and queue the invocation
+                    backpressure = false;
+                    break;
                 }
             }
+        }
 
-            if (backpressure) {
+        if (backpressure) {
+            reportBackpressure();
+            return null;
+        }
+        return cxn;
+    }
+
+    /*
+     * Pick the connection for an invocation without taking the distributer monitor,
+     * or null if there is backpressure. Routing comes from the last published
+     * RoutingSnapshot and invocations that are not routed by client affinity go to
+     * the connection assigned to the calling thread, so application threads spread
+     * over the connections instead of contending on a shared round-robin counter.
+     */
+    private NodeConnection stripedConnection(ProcedureInvocation invocation, boolean ignoreBackpressure)
+            throws NoConnectionsException {
+        final RoutingSnapshot routing = m_routing;
+        final NodeConnection[] connections = routing.connections;
+        if (connections.length == 0) {
+            throw new NoConnectionsException("No connections.");
+        }
+
+        if (m_useClientAffinity && (routing.hashinator != null)) {
+            final Procedure procedureInfo = getProcedureInfo(invocation);
+            final Integer hashedPartition = getHashedPartition(procedureInfo, invocation, routing.hashinator);
+            NodeConnection cxn = getAffinityConnection(procedureInfo, invocation, hashedPartition,
+                    routing.partitionMasters, routing.partitionReplicas);
+            if (cxn != null && !cxn.m_isConnected) {
                 cxn = null;
-                for (ClientStatusListenerExt s : m_listeners) {
-                    s.backpressure(true);
+            }
+
+            StripedAffinityStats stats = m_stripedAffinityStats.get(hashedPartition);
+            if (stats == null) {
+                stats = new StripedAffinityStats();
+                StripedAffinityStats existing = m_stripedAffinityStats.putIfAbsent(hashedPartition, stats);
+                if (existing != null) {
+                    stats = existing;
+                }
+            }
+            final boolean readOnly = procedureInfo != null && procedureInfo.readOnly;
+            if (cxn != null) {
+                (readOnly ? stats.affinityReads : stats.affinityWrites).increment();
+                if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                    return cxn;
                 }
+                return stripedBackpressure(cxn);
             }
+            (readOnly ? stats.rrReads : stats.rrWrites).increment();
         }
 
-        /*
-         * Do the heavy weight serialization outside the synchronized block.
-         * createWork synchronizes on an individual connection which allows for more concurrency
-         */
-        if (cxn != null) {
-            ByteBuffer buf = null;
-            try {
-                buf = serializeSPI(invocation);
-            } catch (Exception e) {
-                Throwables.propagate(e);
+        final int stripe = m_connectionStripe.get();
+        for (int i = 0; i < connections.length; ++i) {
+            final NodeConnection cxn = connections[(stripe + i) % connections.length];
+            if (cxn.m_isConnected && (!cxn.hadBackPressure() || ignoreBackpressure)) {
+                return cxn;
             }
-            cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), buf, cb, ignoreBackpressure, timeoutNanos);
         }
-        if (m_topologyChangeAware) {
-            createConnectionsUponTopologyChange();
+        return stripedBackpressure(connections[stripe % connections.length]);
+    }
+
+    /*
+     * Backpressure has to be reported under the monitor so that it can not be
+     * reported after offBackPressure already signaled the end of it.
+     */
+    private synchronized NodeConnection stripedBackpressure(NodeConnection cxn) {
+        if (cxn.m_isConnected && !cxn.hadBackPressure()) {
+            return cxn;
         }
-        return !backpressure;
+        reportBackpressure();
+        return null;
+    }
+
+    private void reportBackpressure() {
+        for (ClientStatusListenerExt s : m_listeners) {
+            s.backpressure(true);
+        }
+    }
+
+    private Procedure getProcedureInfo(ProcedureInvocation invocation) {
+        final ImmutableSortedMap<String, Procedure> procedures = m_procedureInfo.get();
+        if (procedures == null) {
+            return null;
+        }
+        return procedures.get(invocation.getProcName());
+    }
+
+    private static Integer getHashedPartition(Procedure procedureInfo, ProcedureInvocation invocation,
+            HashinatorLite hashinator) {
+        if (procedureInfo == null) {
+            return invocation.getPartitionDestination();
+        }
+        if (invocation.hasPartitionDestination()) {
+            return invocation.getPartitionDestination();
+        }
+        if (!procedureInfo.multiPart && procedureInfo.partitionParameter != Procedure.PARAMETER_NONE
+                // User may have passed too few parameters to allow dispatching.
+                // Avoid an indexing error here to fall through to the proper ProcCallException.
+                && procedureInfo.partitionParameter < invocation.getPassedParamCount()) {
+            return hashinator.getHashedPartitionForParameter(
+                    procedureInfo.partitionParameterType,
+                    invocation.getPartitionParamValue(procedureInfo.partitionParameter));
+        }
+        return Constants.MP_INIT_PID;
+    }
+
+    private NodeConnection getAffinityConnection(Procedure procedureInfo, ProcedureInvocation invocation,
+            Integer hashedPartition, Map<Integer, NodeConnection> partitionMasters,
+            Map<Integer, NodeConnection[]> partitionReplicas) {
+        if (procedureInfo != null) {
+            /*
+             * If the procedure is read only and single part and the user wants it, load balance across replicas
+             * This is probably slower for SAFE consistency.
+             */
+            if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
+                NodeConnection cxn = null;
+                NodeConnection replicas[] = partitionReplicas.get(hashedPartition);
+                if (replicas != null && replicas.length > 0) {
+                    cxn = replicas[ThreadLocalRandom.current().nextInt(replicas.length)];
+                    if (cxn.hadBackPressure()) {
+                        //See if there is one without backpressure, make sure it's still connected
+                        for (NodeConnection nc : replicas) {
+                            if (!nc.hadBackPressure() && nc.m_isConnected) {
+                                cxn = nc;
+                                break;
+                            }
+                        }
+                    }
+                }
+                return cxn;
+            }
+            /*
+             * For writes or SAFE reads, this is the best way to go
+             */
+            return partitionMasters.get(hashedPartition);
+        }
+        if (invocation.hasPartitionDestination()) {
+            return partitionMasters.get(hashedPartition);
+        }
+        return null;
+    }
+
+    /*
+     * Publish the routing state for stripedConnection. Must be called holding the
+     * distributer monitor whenever the connections or the affinity topology change.
+     */
+    private void publishRouting() {
+        m_routing = new RoutingSnapshot(
+                m_connections.toArray(new NodeConnection[0]),
+                m_hashinator,
+                ImmutableMap.copyOf(m_partitionMasters),
+                ImmutableMap.copyOf(m_partitionReplicas));
     }
 
     /**
@@ -1408,6 +1832,18 @@ class Distributer {
                 retval.put(e.getKey(), (ClientAffinityStats)e.getValue().clone());
             }
         }
+        for (Entry<Integer, StripedAffinityStats> e : m_stripedAffinityStats.entrySet()) {
+            final StripedAffinityStats striped = e.getValue();
+            ClientAffinityStats stats = retval.get(e.getKey());
+            if (stats == null) {
+                stats = new ClientAffinityStats(e.getKey(), 0, 0, 0, 0);
+            }
+            retval.put(e.getKey(), new ClientAffinityStats(e.getKey(),
+                    stats.getAffinityWrites() + striped.affinityWrites.sum(),
+                    stats.getRrWrites() + striped.rrWrites.sum(),
+                    stats.getAffinityReads() + striped.affinityReads.sum(),
+                    stats.getRrReads() + striped.rrReads.sum()));
+        }
         return retval;
     }
 
@@ -1502,6 +1938,7 @@ class Distributer {
                 m_partitionMasters.put(partition, m_hostIdToConnection.get(leaderHostId));
             }
         }
+        publishRouting();
         if (m_topologyChangeAware) {
             m_unconnectedHosts.set(ImmutableSet.copyOf(unconnected));
         }
@@ -1639,6 +2076,10 @@ class Distributer {
         m_topologyChangeAware = topoAware;
     }
 
+    void setStripedSubmission(boolean striped) {
+        m_stripedSubmission = striped;
+    }
+
     void createConnectionsUponTopologyChange() {
 
         if(!m_topologyChangeAware || m_createConnectionUponTopoChangeInProgress.get()) {
@@ -56,6 +56,7 @@ public class HashinatorLite {
      */
     private long m_etokens = 0;
     private int m_etokenCount;
+    private final HashinatorLookupTable m_lookupTable;
 
     /**
      * Initialize TheHashinator with the specified implementation class and configuration.
@@ -65,6 +66,7 @@ public class HashinatorLite {
         Pair<Long, Integer> p = (cooked ? updateCooked(configBytes) : updateRaw(configBytes));
         m_etokens = p.getFirst();
         m_etokenCount = p.getSecond();
+        m_lookupTable = new HashinatorLookupTable(m_etokens, m_etokenCount);
     }
 
     public HashinatorLite(int numPartitions) {
@@ -176,8 +178,7 @@ public class HashinatorLite {
      * Long.MAX_VALUE
      */
     public int partitionForToken(int hash) {
-        long token = getTokenPtr(hash);
-        return Bits.unsafe.getInt(token + 4);
+        return m_lookupTable.partitionForToken(hash);
     }
 
     /**
@@ -196,28 +197,7 @@ public class HashinatorLite {
 
         ByteBuffer buf = ByteBuffer.wrap(bytes);
         final int hash = MurmurHash3.hash3_x64_128(buf, 0, bytes.length, 0);
-        long token = getTokenPtr(hash);
-        return Bits.unsafe.getInt(token + 4);
-    }
-
-    private long getTokenPtr(int hash) {
-        int min = 0;
-        int max = m_etokenCount - 1;
-
-        while (min <= max) {
-            int mid = (min + max) >>> 1;
-            final long midPtr = m_etokens + (8 * mid);
-            int midval = Bits.unsafe.getInt(midPtr);
-
-            if (midval < hash) {
-                min = mid + 1;
-            } else if (midval > hash) {
-                max = mid - 1;
-            } else {
-                return midPtr;
-            }
-        }
-        return m_etokens + (min - 1) * 8;
+        return m_lookupTable.partitionForToken(hash);
     }
 
     /**
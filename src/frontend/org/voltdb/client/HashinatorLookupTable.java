@@ -0,0 +1,126 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.client;
+
+import org.voltcore.utils.Bits;
+
+/**
+ * Direct-indexed partition lookup over an elastic hashinator token ring, so that
+ * routing a hash costs one array load instead of a binary search over the ring.
+ *
+ * The hash space is cut into 2^bits equal buckets by the high bits of the hash.
+ * A bucket that lies entirely within ring ranges owned by one partition stores that
+ * partition. A bucket split between partitions stores the complement of the index of
+ * the token it starts in, and the few tokens inside it are scanned from there. With
+ * four buckets per token on average, almost all buckets are unsplit.
+ *
+ * The table reads, but does not own, the hashinator's off-heap token array: even
+ * entries are tokens in ascending order and odd entries their partition ids.
+ */
+public final class HashinatorLookupTable {
+
+    static final int MAX_BITS = Integer.getInteger("HASHINATOR_LOOKUP_BITS", 16);
+
+    private final long m_tokens;
+    private final int m_tokenCount;
+    private final int m_shift;
+    private final int[] m_table;
+
+    public HashinatorLookupTable(long tokens, int tokenCount) {
+        m_tokens = tokens;
+        m_tokenCount = tokenCount;
+        if (tokenCount == 0) {
+            m_shift = 32;
+            m_table = null;
+            return;
+        }
+
+        final int bits = Math.max(1, Math.min(MAX_BITS, 34 - Integer.numberOfLeadingZeros(tokenCount)));
+        m_shift = 32 - bits;
+        m_table = new int[1 << bits];
+        final long bucketWidth = 1L << m_shift;
+        for (int bucket = 0; bucket < m_table.length; bucket++) {
+            final int lo = (int) (Integer.MIN_VALUE + bucket * bucketWidth);
+            final int hi = (int) (lo + bucketWidth - 1);
+            final int first = floorIndex(lo);
+            final int last = floorIndex(hi);
+            int partition = partitionAt(first);
+            for (int ii = first; ii != last; ii = (ii + 1) % tokenCount) {
+                if (partitionAt(ii + 1 == tokenCount ? 0 : ii + 1) != partition) {
+                    partition = -1;
+                    break;
+                }
+            }
+            if (partition >= 0) {
+                m_table[bucket] = partition;
+            }
+            else {
+                // start the scan at the first token when the bucket begins below the ring
+                m_table[bucket] = ~(first == tokenCount - 1 && tokenAt(first) > lo ? 0 : first);
+            }
+        }
+    }
+
+    /**
+     * Find the partition owning the given hash: the partition of the last token
+     * <= the hash, or of the last token on the ring if the hash is below the first token.
+     */
+    public int partitionForToken(int hash) {
+        if (m_table == null) {
+            return 0;
+        }
+        final int entry = m_table[(hash ^ Integer.MIN_VALUE) >>> m_shift];
+        if (entry >= 0) {
+            return entry;
+        }
+
+        int index = ~entry;
+        long ptr = m_tokens + 8L * index;
+        if (Bits.unsafe.getInt(ptr) > hash) {
+            return partitionAt(m_tokenCount - 1);
+        }
+        while (index + 1 < m_tokenCount && Bits.unsafe.getInt(ptr + 8) <= hash) {
+            index++;
+            ptr += 8;
+        }
+        return Bits.unsafe.getInt(ptr + 4);
+    }
+
+    private int floorIndex(int hash) {
+        int min = 0;
+        int max = m_tokenCount - 1;
+        while (min <= max) {
+            final int mid = (min + max) >>> 1;
+            final int midval = tokenAt(mid);
+            if (midval <= hash) {
+                min = mid + 1;
+            } else {
+                max = mid - 1;
+            }
+        }
+        // below the first token wraps around to the last
+        return min == 0 ? m_tokenCount - 1 : min - 1;
+    }
+
+    private int tokenAt(int index) {
+        return Bits.unsafe.getInt(m_tokens + 8L * index);
+    }
+
+    private int partitionAt(int index) {
+        return Bits.unsafe.getInt(m_tokens + 8L * index + 4);
+    }
+}
@@ -38,6 +38,7 @@ public class ProcedureInvocation {
     private final int m_batchTimeout;
     private final ParameterSet m_parameters;
     private final int m_partitionDestination;
+    private final boolean m_streamResults;
 
     // pre-cache this for serialization
     // this duplicates some other code, but it's nice to keep the client code
@@ -54,6 +55,15 @@ public class ProcedureInvocation {
 
     public ProcedureInvocation(long handle, int batchTimeout, int partitionDestination, String procName,
             Object... parameters) {
+        this(handle, batchTimeout, partitionDestination, false, procName, parameters);
+    }
+
+    /**
+     * @param streamResults ask the server to send the results as a schema-only header
+     * followed by row chunks instead of one response holding every row.
+     */
+    public ProcedureInvocation(long handle, int batchTimeout, int partitionDestination, boolean streamResults,
+            String procName, Object... parameters) {
         if ((batchTimeout < 0) && (batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT)) {
             throw new IllegalArgumentException("Timeout value can't be negative." );
         }
@@ -66,6 +76,7 @@ public class ProcedureInvocation {
 
         m_batchTimeout = batchTimeout;
         m_partitionDestination = partitionDestination;
+        m_streamResults = streamResults;
     }
 
     /** return the clientHandle value */
@@ -101,6 +112,10 @@ public class ProcedureInvocation {
         return m_partitionDestination;
     }
 
+    public boolean getStreamResults() {
+        return m_streamResults;
+    }
+
     public int getSerializedSize() {
         // convert proc name to bytes if needed
         if (m_procNameBytes == null) {
@@ -114,13 +129,15 @@ public class ProcedureInvocation {
         // 2 is one byte for ext type, one for size +
         // 6 is one byte for ext type, one for size, and 4 for integer value
         int partitionDestinationSize = hasPartitionDestination() ? 8 : 0;
+        // 2 is one byte for ext type, one for size
+        int streamResultsSize = m_streamResults ? 2 : 0;
 
         int size =
             1 + // type
             4 + m_procNameBytes.length + // procname
             8 + // client handle
             1 + // extension count
-            batchExtensionSize + partitionDestinationSize + // extensions
+            batchExtensionSize + partitionDestinationSize + streamResultsSize + // extensions
             m_parameters.getSerializedSize(); // parameters
         assert(size > 0); // sanity
         return size;
@@ -138,7 +155,7 @@ public class ProcedureInvocation {
 
         buf.putLong(m_clientHandle);
 
-        // there are two possible extensions, count which apply
+        // there are four possible extensions, count which apply
         byte extensionCount = 0;
         if (m_batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT) {
             ++extensionCount;
@@ -146,6 +163,9 @@ public class ProcedureInvocation {
         if (hasPartitionDestination()) {
             extensionCount += 2;
         }
+        if (m_streamResults) {
+            ++extensionCount;
+        }
         // write the count as one byte
         buf.put(extensionCount);
         // write any extensions that apply
@@ -156,9 +176,59 @@ public class ProcedureInvocation {
             ProcedureInvocationExtensions.writeAllPartitionWithTypeByte(buf);
             ProcedureInvocationExtensions.writePartitionDestinationWithTypeByte(buf, m_partitionDestination);
         }
+        if (m_streamResults) {
+            ProcedureInvocationExtensions.writeStreamResultsWithTypeByte(buf);
+        }
 
         m_parameters.flattenToBuffer(buf);
 
         return buf;
     }
+
+    /**
+     * Size of a {@link ProcedureInvocationType#BATCH} frame carrying the given
+     * invocations, which must all name the same procedure. Extensions are not
+     * carried per entry.
+     */
+    public static int getBatchSerializedSize(ProcedureInvocation[] invocations, int offset, int count) {
+        final ProcedureInvocation first = invocations[offset];
+        if (first.m_procNameBytes == null) {
+            first.m_procNameBytes = first.m_procName.getBytes(UTF8Encoding);
+        }
+        int size =
+            1 + // type
+            4 + first.m_procNameBytes.length + // procname
+            4; // entry count
+        for (int i = offset; i < offset + count; i++) {
+            size += 8 + // client handle
+                    4 + // parameters length
+                    invocations[i].m_parameters.getSerializedSize();
+        }
+        return size;
+    }
+
+    /**
+     * Write the invocations as one {@link ProcedureInvocationType#BATCH} frame:
+     * the procedure name once, then a handle and length-prefixed parameter set
+     * for each entry.
+     */
+    public static ByteBuffer flattenBatchToBuffer(ProcedureInvocation[] invocations, int offset, int count,
+            ByteBuffer buf) throws IOException {
+        final ProcedureInvocation first = invocations[offset];
+        if (first.m_procNameBytes == null) {
+            first.m_procNameBytes = first.m_procName.getBytes(UTF8Encoding);
+        }
+
+        buf.put(ProcedureInvocationType.BATCH.getValue());
+        SerializationHelper.writeVarbinary(first.m_procNameBytes, buf);
+        buf.putInt(count);
+        for (int i = offset; i < offset + count; i++) {
+            final ProcedureInvocation invocation = invocations[i];
+            assert(invocation.m_procName.equals(first.m_procName));
+            buf.putLong(invocation.m_clientHandle);
+            buf.putInt(invocation.m_parameters.getSerializedSize());
+            invocation.m_parameters.flattenToBuffer(buf);
+        }
+        return buf;
+    }
 }
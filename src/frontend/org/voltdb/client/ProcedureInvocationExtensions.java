@@ -48,6 +48,7 @@ public abstract class ProcedureInvocationExtensions {
     public static final byte BATCH_TIMEOUT = 1;  // batch timeout
     public static final byte ALL_PARTITION = 2; // whether proc is part of run-everywhere
     public static final byte PARTITION_DESTINATION = 3; // Which partition this procedure is targeting
+    public static final byte STREAM_RESULTS = 4; // client accepts results as a header plus row chunks
 
     private static final int INTEGER_SIZE = Integer.BYTES;
 
@@ -97,6 +98,20 @@ public abstract class ProcedureInvocationExtensions {
         return partitionDestination;
     }
 
+    public static void writeStreamResultsWithTypeByte(ByteBuffer buf) {
+        buf.put(STREAM_RESULTS);
+        writeLength(buf, 0);
+    }
+
+    public static boolean readStreamResults(ByteBuffer buf) {
+        int len = readLength(buf);
+        if (len != 0) {
+            throw new IllegalStateException(
+                    "Stream-Results extension serialization length expected to be 0");
+        }
+        return true;
+    }
+
     public static void skipUnknownExtension(ByteBuffer buf) {
         int len = readLength(buf);
         buf.position(buf.position() + len); // skip ahead
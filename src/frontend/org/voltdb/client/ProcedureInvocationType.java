@@ -29,7 +29,8 @@ package org.voltdb.client;
 public enum ProcedureInvocationType {
     ORIGINAL((byte) 0),              // original version pre 6.7
     VERSION1((byte) 1),              // version with individual timeout support (pre 6.7)
-    VERSION2((byte) 2);               // slightly extensible v6.7 and up
+    VERSION2((byte) 2),               // slightly extensible v6.7 and up
+    BATCH((byte) 3);                  // many invocations of one procedure, unpacked by ClientInterface
     // REPLICATED ((byte) (1 << 7)); // -128 - no longer used - will throw RuntimeException
 
     private final byte m_value;
@@ -50,6 +51,8 @@ public enum ProcedureInvocationType {
             return VERSION1;
         case 2:
             return VERSION2;
+        case 3:
+            return BATCH;
         default:
             throw new RuntimeException("Unknown ProcedureInvocationType " + b);
         }
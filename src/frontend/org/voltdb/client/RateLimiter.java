@@ -59,6 +59,15 @@ class RateLimiter {
 
     protected ArrayDeque<Double> m_prevInternalLatencyAvgs = new ArrayDeque<Double>();
 
+    // While a fixed rate is set, transaction n is intended to go out one interval after
+    // transaction n-1. Zero when there is no fixed rate to schedule against.
+    protected volatile long m_intendedIntervalNanos = 0;
+    protected long m_nextIntendedNanos = Long.MIN_VALUE;
+    // Whether the last paced transaction had to wait for the limiter or for backpressure
+    // before it was admitted, and whether backpressure has held up the one being admitted.
+    protected boolean m_callerBlocked = false;
+    protected boolean m_backpressureSinceAdmission = false;
+
     protected void autoTuneTargetFromHistory() {
         double recentLatency = 0, mediumTermLatency = 0;
         if (m_prevInternalLatencyAvgs.size() > 0) {
@@ -130,6 +139,7 @@ class RateLimiter {
         m_autoTune = true;
         m_doesAnyTuning = true;
         m_targetTxnsPerSecond = Integer.MAX_VALUE;
+        m_intendedIntervalNanos = 0;
         m_maxOutstandingTxns = 20;
         m_latencyTarget = latencyTarget;
     }
@@ -145,7 +155,14 @@ class RateLimiter {
          */
         if (txnsPerSec < Integer.MAX_VALUE / 2) {
             m_doesAnyTuning = true;
+            m_intendedIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, txnsPerSec);
+        }
+        else {
+            m_intendedIntervalNanos = 0;
         }
+        m_nextIntendedNanos = Long.MIN_VALUE;
+        m_callerBlocked = false;
+        m_backpressureSinceAdmission = false;
         m_targetTxnsPerSecond = txnsPerSec;
         m_maxOutstandingTxns = maxOutstanding;
         m_outstandingTxnsSemaphore.drainPermits();
@@ -164,6 +181,49 @@ class RateLimiter {
         return limits;
     }
 
+    /**
+     * Return the time a transaction was meant to be sent according to the configured
+     * rate, so that latency can be measured from there instead of from when a caller
+     * that was held up by earlier responses finally got around to sending it. Must be
+     * called before the transaction is counted as outstanding.
+     *
+     * Without a fixed rate, and for transactions that bypass backpressure, this is
+     * just the call time. The schedule is only allowed to fall behind the calls while
+     * the previous transaction was actually held up by the limiter or by backpressure.
+     * Otherwise the caller is running below the cap on its own, and a schedule that
+     * fell behind is restarted at the call.
+     *
+     * @param callTimeNanos The time the application made the call.
+     * @param ignoreBackpressure True for transactions that are not paced by the limiter.
+     * @return The intended send time in System.nanoTime units.
+     */
+    long intendedSendTimeNanos(long callTimeNanos, boolean ignoreBackpressure) {
+        if (m_intendedIntervalNanos == 0 || ignoreBackpressure) {
+            return callTimeNanos;
+        }
+        synchronized (this) {
+            if (m_nextIntendedNanos == Long.MIN_VALUE || !m_callerBlocked) {
+                m_nextIntendedNanos = Math.max(m_nextIntendedNanos, callTimeNanos);
+            }
+            final long intended = m_nextIntendedNanos;
+            m_nextIntendedNanos += m_intendedIntervalNanos;
+            return intended;
+        }
+    }
+
+    /**
+     * Record that a paced transaction could not be queued because of backpressure,
+     * so the caller is being held back until it is admitted.
+     */
+    void backpressureBlockedCaller() {
+        if (m_intendedIntervalNanos == 0) {
+            return;
+        }
+        synchronized (this) {
+            m_backpressureSinceAdmission = true;
+        }
+    }
+
     /**
      *
      * @param timestampNanos The time as measured when the call is made.
@@ -197,6 +257,7 @@ class RateLimiter {
     long sendTxnWithOptionalBlockAndReturnCurrentTime(long timestampNanos, long timeoutNanos, boolean ignoreBackpressure) throws TimeoutException {
         if (m_doesAnyTuning) {
             long timestamp = TimeUnit.NANOSECONDS.toMillis(timestampNanos);
+            boolean slept = false;
             while (true) {
                 synchronized(this) {
                     // switch to a new block if 100ms has passed
@@ -227,6 +288,10 @@ class RateLimiter {
                         // bookkeeping
                         ++m_currentBlockSendCount;
                         ++m_outstandingTxns;
+                        if (!ignoreBackpressure) {
+                            m_callerBlocked = slept || m_backpressureSinceAdmission;
+                            m_backpressureSinceAdmission = false;
+                        }
 
                         // exit the while loop
                         break;
@@ -235,6 +300,7 @@ class RateLimiter {
 
                 // if the rate is above target, pause for the smallest time possible
                 try { Thread.sleep(1); } catch (InterruptedException e) {}
+                slept = true;
                 timestampNanos = System.nanoTime();
                 timestamp = TimeUnit.NANOSECONDS.toMillis(timestampNanos);
             }
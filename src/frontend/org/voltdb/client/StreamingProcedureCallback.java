@@ -0,0 +1,43 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.client;
+
+import org.voltdb.VoltTable;
+
+/**
+ * Callback for procedure invocations whose results are too large to receive in a
+ * single response. When a procedure is invoked with a streaming callback, the
+ * server sends the rows of each result table in chunks and {@link #rowsReceived}
+ * is invoked for every chunk, in order. {@link #clientCallback} is invoked last
+ * with the status of the invocation and result tables that carry the column
+ * schema but no rows.
+ *
+ * A response that the server sends whole, such as an error or a response from
+ * a server that does not stream results, is passed to {@link #rowsReceived} one
+ * table at a time before {@link #clientCallback} receives it with its rows.
+ */
+public interface StreamingProcedureCallback extends ProcedureCallback {
+
+    /**
+     * Invoked for each chunk of rows of a result table.
+     *
+     * @param tableIndex Index of the result table the rows belong to
+     * @param rows Table with the schema of the result table holding the rows of this chunk
+     * @throws Exception on any Exception.
+     */
+    public void rowsReceived(int tableIndex, VoltTable rows) throws Exception;
+}
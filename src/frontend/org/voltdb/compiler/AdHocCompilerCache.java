@@ -19,18 +19,22 @@ package org.voltdb.compiler;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 
 import org.voltdb.common.Constants;
 import org.voltdb.planner.BoundPlan;
+import org.voltdb.planner.CorePlan;
 import org.voltdb.utils.Encoder;
 
 import com.google_voltpatches.common.cache.Cache;
 import com.google_voltpatches.common.cache.CacheBuilder;
+import com.google_voltpatches.common.cache.Weigher;
 
 /**
  * Keep a cache two level cache of plans generated by the Ad Hoc
@@ -82,23 +86,14 @@ public class AdHocCompilerCache implements Serializable {
     // max cache size for parameterized plans
     final long MAX_LITERAL_MEM  = Long.getLong("ADHOC_COMPILER_CACHE_MAX_LITERAL_MEM_BYTES", 32*1024*1024);
     final int MAX_CORE_ENTRIES;
+    final long MAX_CORE_MEM  = Long.getLong("ADHOC_COMPILER_CACHE_MAX_CORE_MEM_BYTES", 32*1024*1024);
 
     /** cache of literals to full plans */
-    final Map<String, AdHocPlannedStatement> m_literalCache;
+    final TinyLfuCache<String, AdHocPlannedStatement> m_literalCache;
     /** cache of parameterized plan descriptions to one or more core parameterized plans,
      *  each plan optionally has its own requirements for which parameters need to be bound
      *  to what values to enable its specialized (expression-indexed) plan. */
-    final Map<String, List<BoundPlan> > m_coreCache;
-
-    // placeholder stats used during development that may/may not survive
-    long m_literalHits = 0;
-    long m_literalQueries = 0;
-    long m_literalInsertions = 0;
-    long m_literalEvictions = 0;
-    long m_planHits = 0;
-    long m_planQueries = 0;
-    long m_planInsertions = 0;
-    long m_planEvictions = 0;
+    final TinyLfuCache<String, List<BoundPlan> > m_coreCache;
 
     /** {@see this#startPeriodicStatsPrinting() } */
     Timer m_statsTimer = null;
@@ -114,90 +109,32 @@ public class AdHocCompilerCache implements Serializable {
      * Constructor with specific cache sizes is only called directly for testing.
      *
      * @param maxLiteralEntries cache size for literals
-     * @param maxLiteralMem cache memory for literals
+     * @param maxCoreEntries cache size for parameterized plans
      */
     AdHocCompilerCache(int maxLiteralEntries, int maxCoreEntries) {
         MAX_LITERAL_ENTRIES = maxLiteralEntries;
         MAX_CORE_ENTRIES = maxCoreEntries;
 
-        // an LRU cache map
-        m_literalCache = new AdHocStatementCache(MAX_LITERAL_ENTRIES, MAX_LITERAL_MEM);
-
-        // an LRU cache map
-        m_coreCache = new LinkedHashMap<String, List<BoundPlan> >(MAX_CORE_ENTRIES * 2, .75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            // This method is called just after a new entry has been added
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, List<BoundPlan> > eldest) {
-                if (size() > MAX_CORE_ENTRIES) {
-                    ++m_planEvictions;
-                    return true;
-                }
-                return false;
-            }
-
-        };
-    }
-
-    // define a LinkedHashMap based LRU cache bounds by both entry number and entry value on-heap size
-    // without changing Map.Entry, only works for value of type AdHocPlannedStatement
-    // only extend put, remove,clear and removeEldestEntry methods to account weight
-    public class AdHocStatementCache extends LinkedHashMap<String, AdHocPlannedStatement>{
-       private static final long serialVersionUID = 2988383448026641836L;
-        private final int maxEntries;
-        private final long maxMemory; // in bytes
-        private long currentMemory;   // in bytes
-
-        public AdHocStatementCache() {
-            // default max entry of 1000
-            // default max value size of 32MB
-            this(1000, 32 * 1024 * 1024);
-        }
-
-        public AdHocStatementCache(final int maxEntries) {
-            this(maxEntries, 32 * 1024 * 1024);
-        }
-
-        public AdHocStatementCache(final int maxEntries, final long maxMemory) {
-            // set accessOrder to true for LRU
-            super(maxEntries * 2, .75f, true);
-            this.maxEntries = maxEntries;
-            this.maxMemory = maxMemory;
-            this.currentMemory = 0;
-        }
-
-        // This method is called just after a new entry has been added
-        @Override
-        public boolean removeEldestEntry(final Map.Entry<String, AdHocPlannedStatement> eldest) {
-            if ((size() > maxEntries) || (this.currentMemory > this.maxMemory))  {
-                ++m_literalEvictions;
-                this.currentMemory -= eldest.getValue().getSerializedSize();
-                return true;
-            }
-            return false;
-        }
-
-        @Override
-        public AdHocPlannedStatement put(String key, AdHocPlannedStatement value) {
-            this.currentMemory += value.getSerializedSize();
-            return super.put(key,value);
-        }
-
-        @Override
-        public AdHocPlannedStatement remove(Object key) {
-            AdHocPlannedStatement value = super.remove(key);
-            if (value != null) {
-                this.currentMemory -= value.getSerializedSize();
-            }
-            return value;
-        }
-
-        @Override
-        public void clear() {
-            super.clear();
-            this.currentMemory = 0;
-        }
+        // Both caches are bounded by entry count and by serialized plan size. The W-TinyLFU
+        // policy keeps a burst of never-repeated queries from flushing the popular plans.
+        m_literalCache = new TinyLfuCache<>(MAX_LITERAL_ENTRIES, MAX_LITERAL_MEM,
+                new Weigher<String, AdHocPlannedStatement>() {
+                    @Override
+                    public int weigh(String sql, AdHocPlannedStatement plan) {
+                        return plan.getSerializedSize();
+                    }
+                });
+        m_coreCache = new TinyLfuCache<>(MAX_CORE_ENTRIES, MAX_CORE_MEM,
+                new Weigher<String, List<BoundPlan> >() {
+                    @Override
+                    public int weigh(String parsedToken, List<BoundPlan> boundVariants) {
+                        int size = 0;
+                        for (BoundPlan boundPlan : boundVariants) {
+                            size += boundPlan.m_core.getSerializedSize();
+                        }
+                        return size;
+                    }
+                });
     }
 
     /**
@@ -205,25 +142,17 @@ public class AdHocCompilerCache implements Serializable {
      * Probably shouldn't live past real stats integration.
      */
     synchronized void printStats() {
-        String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_literalHits, m_literalQueries, (m_literalHits * 100.0) / m_literalQueries,
-                m_literalInsertions, m_literalEvictions);
-        String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_planHits, m_planQueries, (m_planHits * 100.0) /m_planQueries,
-                m_planInsertions, m_planEvictions);
+        long literalQueries = m_literalCache.hitCount() + m_literalCache.missCount();
+        long planQueries = m_coreCache.hitCount() + m_coreCache.missCount();
+        String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Inserts %d Evictions %d Bytes %d\n",
+                m_literalCache.hitCount(), literalQueries, (m_literalCache.hitCount() * 100.0) / literalQueries,
+                m_literalCache.insertionCount(), m_literalCache.evictionCount(), m_literalCache.weightedSize());
+        String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Inserts %d Evictions %d Bytes %d\n",
+                m_coreCache.hitCount(), planQueries, (m_coreCache.hitCount() * 100.0) / planQueries,
+                m_coreCache.insertionCount(), m_coreCache.evictionCount(), m_coreCache.weightedSize());
 
         System.out.print(line1 + line2);
         System.out.flush();
-
-        // reset these
-        m_literalHits = 0;
-        m_literalQueries = 0;
-        m_literalInsertions = 0;
-        m_literalEvictions = 0;
-        m_planHits = 0;
-        m_planQueries = 0;
-        m_planInsertions = 0;
-        m_planEvictions = 0;
     }
 
     /**
@@ -231,12 +160,7 @@ public class AdHocCompilerCache implements Serializable {
      * @return full, ready-to-go plan
      */
     public synchronized AdHocPlannedStatement getWithSQL(String sql) {
-        ++m_literalQueries;
-        AdHocPlannedStatement retval = m_literalCache.get(sql);
-        if (retval != null) {
-            ++m_literalHits;
-        }
-        return retval;
+        return m_literalCache.get(sql);
     }
 
     /**
@@ -245,12 +169,7 @@ public class AdHocCompilerCache implements Serializable {
      * @return A CorePlan that needs parameter values to run.
      */
     public synchronized List<BoundPlan> getWithParsedToken(String parsedToken) {
-        ++m_planQueries;
-        List<BoundPlan> retval = m_coreCache.get(parsedToken);
-        if (retval != null) {
-            ++m_planHits;
-        }
-        return retval;
+        return m_coreCache.get(parsedToken);
     }
 
     /**
@@ -296,17 +215,13 @@ public class AdHocCompilerCache implements Serializable {
             BoundPlan matched = null;
             BoundPlan unmatched = new BoundPlan(planIn.core, planIn.parameterBindings(extractedLiterals));
             // deal with the parameterized plan cache first
-            List<BoundPlan> boundVariants = m_coreCache.get(parsedToken);
+            List<BoundPlan> boundVariants = m_coreCache.peek(parsedToken);
             if (boundVariants == null) {
-                boundVariants = new ArrayList<BoundPlan>();
-                m_coreCache.put(parsedToken, boundVariants);
                 // Note that there is an edge case in which more than one plan is getting counted as one
                 // "plan insertion". This only happens when two different plans arose from the same parameterized
                 // query (token) because one invocation used the correct constants to trigger an expression index and
-                // another invocation did not.  These are not counted separately (which would have to happen below
-                // after each call to boundVariants.add) because they are not evicted separately.
-                // It seems saner to use consistent units when counting insertions vs. evictions.
-                ++m_planInsertions;
+                // another invocation did not.  These share a single cache entry and are not evicted separately.
+                boundVariants = new ArrayList<BoundPlan>();
             } else {
                 for (BoundPlan boundPlan : boundVariants) {
                     if (boundPlan.equals(unmatched)) {
@@ -324,19 +239,18 @@ public class AdHocCompilerCache implements Serializable {
                 }
             }
             if (matched == null) {
-                // Don't count insertions (of possibly repeated tokens) here
-                //  -- see the comment above where only UNIQUE token insertions are being counted, instead.
                 boundVariants.add(unmatched);
+                // (re-)store the variants so that the cache accounts for their added size
+                m_coreCache.put(parsedToken, boundVariants);
             }
         }
 
         // then deal with the L1 cache
         if (! hasUserQuestionMarkParameters) {
-            AdHocPlannedStatement cachedPlan = m_literalCache.get(sql);
+            AdHocPlannedStatement cachedPlan = m_literalCache.peek(sql);
             if (cachedPlan == null) {
                 //* enable to debug */ System.out.println("DEBUG: Caching literal '" + sql + "'");
                 m_literalCache.put(sql, plan);
-                ++m_literalInsertions;
             }
             else {
                 assert(cachedPlan.equals(plan));
@@ -375,4 +289,109 @@ public class AdHocCompilerCache implements Serializable {
     public int getCoreCacheSize() {
         return m_coreCache.size();
     }
+
+    /**
+     * Return the number of items evicted from the literal cache.
+     * @return  literal cache evictions as a count
+     */
+    public synchronized long getLiteralCacheEvictions() {
+        return m_literalCache.evictionCount();
+    }
+
+    /**
+     * Return the number of items evicted from the core (parameterized) cache.
+     * @return  core cache evictions as a count
+     */
+    public synchronized long getCoreCacheEvictions() {
+        return m_coreCache.evictionCount();
+    }
+
+    /**
+     * Return the serialized size of the plans in the literal cache.
+     * @return  literal cache size in bytes
+     */
+    public synchronized long getLiteralCacheBytes() {
+        return m_literalCache.weightedSize();
+    }
+
+    /**
+     * Return the serialized size of the plans in the core (parameterized) cache.
+     * @return  core cache size in bytes
+     */
+    public synchronized long getCoreCacheBytes() {
+        return m_coreCache.weightedSize();
+    }
+
+    /**
+     * Copy the plans cached for a previous catalog into this cache, so that a catalog
+     * update does not throw away plans it did not invalidate. The copies are stamped with
+     * this cache's catalog hash so that they pass the catalog check at execution time.
+     *
+     * @param previous         the cache of the catalog being replaced
+     * @param catalogHash      hash of the catalog this cache serves
+     * @param unchangedTables  names of the tables defined identically in both catalogs;
+     *                         only plans touching nothing but these tables are kept.
+     *                         Null keeps every plan, for updates without schema changes.
+     * @return the number of plans carried over
+     */
+    public int inheritFrom(AdHocCompilerCache previous, byte[] catalogHash, Set<String> unchangedTables) {
+        if (previous == null || previous == this) {
+            return 0;
+        }
+        final Map<String, AdHocPlannedStatement> literals;
+        final Map<String, List<BoundPlan> > cores = new LinkedHashMap<>();
+        synchronized (previous) {
+            literals = previous.m_literalCache.snapshot();
+            for (Map.Entry<String, List<BoundPlan> > e : previous.m_coreCache.snapshot().entrySet()) {
+                cores.put(e.getKey(), new ArrayList<>(e.getValue()));
+            }
+        }
+
+        int inherited = 0;
+        synchronized (this) {
+            // literal plans share their cores with the parameterized plans, keep sharing the copies
+            final Map<CorePlan, CorePlan> stamped = new IdentityHashMap<>();
+            for (Map.Entry<String, List<BoundPlan> > e : cores.entrySet()) {
+                if (m_coreCache.peek(e.getKey()) != null) {
+                    continue;
+                }
+                List<BoundPlan> boundVariants = new ArrayList<>();
+                for (BoundPlan boundPlan : e.getValue()) {
+                    CorePlan core = stampCore(boundPlan.m_core, catalogHash, unchangedTables, stamped);
+                    if (core != null) {
+                        boundVariants.add(new BoundPlan(core, boundPlan.m_constants));
+                    }
+                }
+                if ( ! boundVariants.isEmpty()) {
+                    m_coreCache.put(e.getKey(), boundVariants);
+                    ++inherited;
+                }
+            }
+            for (Map.Entry<String, AdHocPlannedStatement> e : literals.entrySet()) {
+                if (m_literalCache.peek(e.getKey()) != null) {
+                    continue;
+                }
+                CorePlan core = stampCore(e.getValue().core, catalogHash, unchangedTables, stamped);
+                if (core != null) {
+                    m_literalCache.put(e.getKey(), e.getValue().withCore(core));
+                    ++inherited;
+                }
+            }
+        }
+        return inherited;
+    }
+
+    private static CorePlan stampCore(CorePlan core, byte[] catalogHash, Set<String> unchangedTables,
+            Map<CorePlan, CorePlan> stamped) {
+        if (stamped.containsKey(core)) {
+            return stamped.get(core);
+        }
+        CorePlan copy = null;
+        Set<String> tables = core.getReferencedTables();
+        if (unchangedTables == null || (tables != null && unchangedTables.containsAll(tables))) {
+            copy = core.withCatalogHash(catalogHash);
+        }
+        stamped.put(core, copy);
+        return copy;
+    }
 }
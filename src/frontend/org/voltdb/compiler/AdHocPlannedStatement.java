@@ -69,6 +69,16 @@ public class AdHocPlannedStatement {
         this(original.sql, coreIn, original.extractedParamValues, null);
     }
 
+    /**
+     * Copy of this statement with a different core plan, keeping all parameter bindings.
+     * Used to re-stamp cached plans for a new catalog.
+     */
+    AdHocPlannedStatement withCore(CorePlan coreIn) {
+        AdHocPlannedStatement copy = new AdHocPlannedStatement(sql, coreIn, extractedParamValues, boundParamIndexes);
+        copy.boundParamStrings = boundParamStrings;
+        return copy;
+    }
+
     private void validate() {
         assert(core != null);
         assert(core.aggregatorFragment != null);
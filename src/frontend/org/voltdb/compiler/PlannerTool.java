@@ -20,6 +20,10 @@ package org.voltdb.compiler;
 import static org.voltdb.planner.QueryPlanner.fragmentizePlan;
 import static org.voltdb.plannerv2.utils.VoltRelUtil.calciteToVoltDBPlan;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.apache.calcite.plan.RelOptUtil;
@@ -43,7 +47,14 @@ import org.voltdb.PlannerStatsCollector.CacheUse;
 import org.voltdb.StatsAgent;
 import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
+import org.voltdb.catalog.CatalogType;
+import org.voltdb.catalog.Column;
+import org.voltdb.catalog.ColumnRef;
 import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Function;
+import org.voltdb.catalog.FunctionParameter;
+import org.voltdb.catalog.Index;
+import org.voltdb.catalog.Table;
 import org.voltdb.exceptions.PlanningErrorException;
 import org.voltdb.planner.CompiledPlan;
 import org.voltdb.planner.CorePlan;
@@ -143,7 +154,13 @@ public class PlannerTool {
     public PlannerTool updateWhenNoSchemaChange(Database database, byte[] catalogHash) {
         m_database = database;
         m_catalogHash = catalogHash;
+        AdHocCompilerCache previousCache = m_cache;
         m_cache = AdHocCompilerCache.getCacheForCatalogHash(catalogHash);
+        // Nothing a plan depends on has changed, so every cached plan is still good.
+        int inherited = m_cache.inheritFrom(previousCache, catalogHash, null);
+        if (compileLog.isDebugEnabled()) {
+            compileLog.debug("Kept " + inherited + " cached ad hoc plans across the catalog update");
+        }
         if (AdHocNTBase.USING_CALCITE) {
             // Do not use Calcite to process DDLs, until we have full support of all DDLs, as well as
             // catalog commands such as "DR TABLE foo".
@@ -152,6 +169,82 @@ public class PlannerTool {
         return this;
     }
 
+    /**
+     * Seed the plan cache of this (new) planner with the cached plans of the planner for
+     * the previous catalog that only use tables the schema change left alone.
+     *
+     * @param previous  the planner being replaced, may be null
+     */
+    public void inheritCachedPlans(PlannerTool previous) {
+        if (previous == null || previous.m_cache == m_cache
+                || previous.m_cache.getLiteralCacheSize() + previous.m_cache.getCoreCacheSize() == 0) {
+            return;
+        }
+        // A changed function could be used by any plan.
+        if ( ! functionFingerprint(previous.m_database).equals(functionFingerprint(m_database))) {
+            return;
+        }
+        Map<String, String> previousTables = tableFingerprints(previous.m_database);
+        Set<String> unchangedTables = new HashSet<>();
+        for (Map.Entry<String, String> e : tableFingerprints(m_database).entrySet()) {
+            if (e.getValue().equals(previousTables.get(e.getKey()))) {
+                unchangedTables.add(e.getKey());
+            }
+        }
+        int inherited = m_cache.inheritFrom(previous.m_cache, m_catalogHash, unchangedTables);
+        if (compileLog.isDebugEnabled()) {
+            compileLog.debug("Kept " + inherited + " cached ad hoc plans across the schema change");
+        }
+    }
+
+    /**
+     * Describe each table by the catalog fields of the table, its columns and its indexes,
+     * which covers everything a plan can rely on.
+     */
+    private static Map<String, String> tableFingerprints(Database database) {
+        Map<String, String> fingerprints = new HashMap<>();
+        for (Table table : database.getTables()) {
+            StringBuilder sb = new StringBuilder();
+            appendFields(sb, table, null);
+            for (Column column : table.getColumns()) {
+                appendFields(sb, column, null);
+            }
+            for (Index index : table.getIndexes()) {
+                appendFields(sb, index, null);
+                for (ColumnRef columnRef : index.getColumns()) {
+                    appendFields(sb, columnRef, null);
+                }
+            }
+            fingerprints.put(table.getTypeName(), sb.toString());
+        }
+        return fingerprints;
+    }
+
+    private static String functionFingerprint(Database database) {
+        StringBuilder sb = new StringBuilder();
+        for (Function function : database.getFunctions()) {
+            // the statements depending on a function are no concern of ad hoc plans
+            appendFields(sb, function, "stmtDependers");
+            for (FunctionParameter parameter : function.getParameters()) {
+                appendFields(sb, parameter, null);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendFields(StringBuilder sb, CatalogType item, String skippedField) {
+        sb.append(item.getTypeName());
+        for (String field : item.getFields()) {
+            if (field.equals(skippedField)) {
+                continue;
+            }
+            Object value = item.getField(field);
+            sb.append('|').append(field).append('=');
+            sb.append(value instanceof CatalogType ? ((CatalogType) value).getTypeName() : value);
+        }
+        sb.append(';');
+    }
+
     public HSQLInterface getHSQLInterface() {
         return m_hsql;
     }
@@ -403,6 +496,8 @@ public class PlannerTool {
             }
         } finally {
             if (m_plannerStats != null) {
+                m_plannerStats.updateCacheFootprint(m_cache.getLiteralCacheEvictions(), m_cache.getCoreCacheEvictions(),
+                        m_cache.getLiteralCacheBytes(), m_cache.getCoreCacheBytes());
                 m_plannerStats.endStatsCollection(m_cache.getLiteralCacheSize(), m_cache.getCoreCacheSize(), cacheUse, -1);
             }
         }
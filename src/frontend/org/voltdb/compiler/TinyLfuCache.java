@@ -0,0 +1,381 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google_voltpatches.common.cache.Weigher;
+
+/**
+ * A bounded cache using the W-TinyLFU replacement policy, which holds up much
+ * better than LRU against scans of one-off keys such as ad hoc queries with
+ * ever-changing literals.
+ *
+ * New entries land in a small LRU admission window. Entries falling out of the
+ * window compete for a place in the main space, a segmented LRU split into a
+ * probation and a protected segment, and are only admitted if a count-min
+ * sketch says they have been used more often than the entry they would evict.
+ * The sketch ages its counters by halving them periodically so that past
+ * popularity fades.
+ *
+ * The cache is bounded both by entry count and by the total weight reported by
+ * the weigher, typically an estimate of the size in bytes.
+ *
+ * Not thread safe; callers must synchronize.
+ */
+final class TinyLfuCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int[] EVICTION_ORDER = { PROBATION, PROTECTED, WINDOW };
+
+    /** Percentage of the capacity given to the admission window. */
+    private static final int WINDOW_PERCENT = 1;
+    /** Percentage of the main space given to the protected segment. */
+    private static final int PROTECTED_PERCENT = 80;
+
+    private static final class Node<K, V> {
+        final K key;
+        V value;
+        int weight;
+        int segment;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /** An LRU list with a sentinel, eldest entry first. */
+    private static final class Segment<K, V> {
+        final Node<K, V> sentinel = new Node<>(null, null, 0);
+        int count = 0;
+        long weight = 0;
+
+        Segment() {
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+        }
+
+        Node<K, V> eldest() {
+            return sentinel.next == sentinel ? null : sentinel.next;
+        }
+
+        void addNewest(Node<K, V> node) {
+            node.prev = sentinel.prev;
+            node.next = sentinel;
+            sentinel.prev.next = node;
+            sentinel.prev = node;
+            ++count;
+            weight += node.weight;
+        }
+
+        void unlink(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            --count;
+            weight -= node.weight;
+        }
+
+        boolean exceeds(int maxCount, long maxWeight) {
+            return count > maxCount || weight > maxWeight;
+        }
+    }
+
+    private final int m_maxEntries;
+    private final long m_maxWeight;
+    private final int m_maxWindowEntries;
+    private final long m_maxWindowWeight;
+    private final int m_maxProtectedEntries;
+    private final long m_maxProtectedWeight;
+    private final Weigher<K, V> m_weigher;
+
+    private final Map<K, Node<K, V>> m_nodes = new HashMap<>();
+    @SuppressWarnings("unchecked")
+    private final Segment<K, V>[] m_segments = new Segment[] { new Segment<K, V>(), new Segment<K, V>(), new Segment<K, V>() };
+    private final FrequencySketch m_sketch;
+
+    private long m_hits = 0;
+    private long m_misses = 0;
+    private long m_insertions = 0;
+    private long m_evictions = 0;
+
+    /**
+     * @param maxEntries  the maximum number of entries
+     * @param maxWeight   the maximum total weight of all entries
+     * @param weigher     computes the weight of an entry when it is stored
+     */
+    TinyLfuCache(int maxEntries, long maxWeight, Weigher<K, V> weigher) {
+        assert(maxEntries > 0 && maxWeight > 0);
+        m_maxEntries = maxEntries;
+        m_maxWeight = maxWeight;
+        m_maxWindowEntries = Math.max(1, maxEntries * WINDOW_PERCENT / 100);
+        m_maxWindowWeight = Math.max(1, maxWeight * WINDOW_PERCENT / 100);
+        m_maxProtectedEntries = (maxEntries - m_maxWindowEntries) * PROTECTED_PERCENT / 100;
+        m_maxProtectedWeight = (maxWeight - m_maxWindowWeight) * PROTECTED_PERCENT / 100;
+        m_weigher = weigher;
+        m_sketch = new FrequencySketch(maxEntries);
+    }
+
+    /**
+     * Look up a value, recording the access for both the statistics and the
+     * admission policy.
+     */
+    V get(K key) {
+        m_sketch.increment(key.hashCode());
+        Node<K, V> node = m_nodes.get(key);
+        if (node == null) {
+            ++m_misses;
+            return null;
+        }
+        ++m_hits;
+        onAccess(node);
+        return node.value;
+    }
+
+    /**
+     * Look up a value without any side effect on statistics or entry order.
+     */
+    V peek(K key) {
+        Node<K, V> node = m_nodes.get(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Store a value, replacing and re-weighing any previous value for the key.
+     * The new entry may be evicted right away if it is heavier than the whole cache.
+     */
+    void put(K key, V value) {
+        int weight = m_weigher.weigh(key, value);
+        Node<K, V> node = m_nodes.get(key);
+        if (node != null) {
+            Segment<K, V> segment = m_segments[node.segment];
+            segment.weight += weight - node.weight;
+            node.weight = weight;
+            node.value = value;
+            onAccess(node);
+        }
+        else {
+            m_sketch.increment(key.hashCode());
+            node = new Node<>(key, value, weight);
+            node.segment = WINDOW;
+            m_segments[WINDOW].addNewest(node);
+            m_nodes.put(key, node);
+            ++m_insertions;
+        }
+        evict();
+    }
+
+    private void onAccess(Node<K, V> node) {
+        Segment<K, V> segment = m_segments[node.segment];
+        segment.unlink(node);
+        if (node.segment == PROBATION) {
+            // A second use earns the entry a place in the protected segment,
+            // demoting the protected entries that have gone unused the longest.
+            node.segment = PROTECTED;
+            Segment<K, V> protectedSegment = m_segments[PROTECTED];
+            protectedSegment.addNewest(node);
+            while (protectedSegment.count > 1
+                    && protectedSegment.exceeds(m_maxProtectedEntries, m_maxProtectedWeight)) {
+                Node<K, V> demoted = protectedSegment.eldest();
+                protectedSegment.unlink(demoted);
+                demoted.segment = PROBATION;
+                m_segments[PROBATION].addNewest(demoted);
+            }
+        }
+        else {
+            segment.addNewest(node);
+        }
+    }
+
+    private boolean overCapacity() {
+        return m_nodes.size() > m_maxEntries || weightedSize() > m_maxWeight;
+    }
+
+    private void evict() {
+        Segment<K, V> window = m_segments[WINDOW];
+        while (window.count > 0 && window.exceeds(m_maxWindowEntries, m_maxWindowWeight)) {
+            Node<K, V> candidate = window.eldest();
+            window.unlink(candidate);
+            candidate.segment = PROBATION;
+            m_segments[PROBATION].addNewest(candidate);
+            admit(candidate);
+        }
+        // Growing an existing entry in place can still leave the cache over capacity.
+        while (overCapacity()) {
+            for (int segment : EVICTION_ORDER) {
+                if (m_segments[segment].count > 0) {
+                    remove(m_segments[segment].eldest());
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Make room for an entry just moved out of the window, either by evicting
+     * the least recently used main space entries it is more popular than, or
+     * by giving up on the candidate itself.
+     */
+    private void admit(Node<K, V> candidate) {
+        while (overCapacity()) {
+            if (candidate.weight > m_maxWeight) {
+                remove(candidate);
+                return;
+            }
+            Node<K, V> victim = m_segments[PROBATION].eldest();
+            if (victim == candidate) {
+                // The candidate, newest in probation, is the only entry there.
+                victim = m_segments[PROTECTED].eldest();
+            }
+            if (victim == null
+                    || m_sketch.frequency(candidate.key.hashCode()) <= m_sketch.frequency(victim.key.hashCode())) {
+                remove(candidate);
+                return;
+            }
+            remove(victim);
+        }
+    }
+
+    private void remove(Node<K, V> node) {
+        m_segments[node.segment].unlink(node);
+        m_nodes.remove(node.key);
+        ++m_evictions;
+    }
+
+    /**
+     * @return all entries, roughly coldest first: the main space segments and then
+     * the window, each in least to most recently used order.
+     */
+    Map<K, V> snapshot() {
+        Map<K, V> entries = new LinkedHashMap<>();
+        for (int segment : EVICTION_ORDER) {
+            Node<K, V> sentinel = m_segments[segment].sentinel;
+            for (Node<K, V> node = sentinel.next; node != sentinel; node = node.next) {
+                entries.put(node.key, node.value);
+            }
+        }
+        return entries;
+    }
+
+    int size() {
+        return m_nodes.size();
+    }
+
+    long weightedSize() {
+        return m_segments[WINDOW].weight + m_segments[PROBATION].weight + m_segments[PROTECTED].weight;
+    }
+
+    long hitCount() {
+        return m_hits;
+    }
+
+    long missCount() {
+        return m_misses;
+    }
+
+    long insertionCount() {
+        return m_insertions;
+    }
+
+    long evictionCount() {
+        return m_evictions;
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters, sixteen to a long, estimating how
+     * often each key was seen recently. Every counter is halved once the
+     * number of recorded accesses reaches ten times the cache capacity.
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+
+        private final long[] m_table;
+        private final int m_tableMask;
+        private final int m_sampleSize;
+        private int m_additions = 0;
+
+        FrequencySketch(int maxEntries) {
+            int length = Integer.highestOneBit(Math.max(16, maxEntries) - 1) << 1;
+            m_table = new long[length];
+            m_tableMask = length - 1;
+            m_sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * maxEntries);
+        }
+
+        int frequency(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; ++i) {
+                int shift = (start + i) << 2;
+                frequency = Math.min(frequency, (int) ((m_table[indexOf(hash, i)] >>> shift) & 0xfL));
+            }
+            return frequency;
+        }
+
+        void increment(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; ++i) {
+                int index = indexOf(hash, i);
+                long mask = 0xfL << ((start + i) << 2);
+                if ((m_table[index] & mask) != mask) {
+                    m_table[index] += 1L << ((start + i) << 2);
+                    added = true;
+                }
+            }
+            if (added && ++m_additions >= m_sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            int oddCounters = 0;
+            for (int i = 0; i < m_table.length; ++i) {
+                oddCounters += Long.bitCount(m_table[i] & ONE_MASK);
+                m_table[i] = (m_table[i] >>> 1) & RESET_MASK;
+            }
+            // Halving rounds odd counters down, so account for the lost increments.
+            m_additions = (m_additions >>> 1) - (oddCounters >>> 2);
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return ((int) h) & m_tableMask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
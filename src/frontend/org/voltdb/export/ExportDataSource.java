@@ -1033,6 +1033,24 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         }
     }
 
+    /**
+     * Hand back a container that was polled but never delivered, so that the next poll
+     * returns its rows again. Used by a pipelined {@code GuestProcessor} shutting down
+     * with blocks decoded ahead of the one being delivered.
+     *
+     * @param container a polled container that will not be discarded by its consumer
+     */
+    public synchronized void rewindPolledContainer(AckingContainer container) {
+        if (!m_closed) {
+            m_firstUnpolledSeqNo = Math.max(m_lastReleasedSeqNo + 1,
+                    Math.min(m_firstUnpolledSeqNo, container.getStartSeqNo()));
+            if (exportLog.isDebugEnabled()) {
+                exportLog.debug("Rewound undelivered " + container + ", next seqNo to poll is " + m_firstUnpolledSeqNo);
+            }
+        }
+        container.internalDiscard();
+    }
+
     /**
      * Callback from {@code ExportCoordinator} to resume polling after trackers
      * were collected from the other nodes; will try to satisfy a pending poll.
@@ -1194,7 +1212,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                     StreamBlock block = iter.next();
 
                     // If the block is already acked list it to be discarded
-                    if (block.lastSequenceNumber() < m_firstUnpolledSeqNo) {
+                    if (block.lastSequenceNumber() <= m_lastReleasedSeqNo) {
                         blocksToDelete.add(block);
                         iter.remove();
                         if (exportLog.isDebugEnabled()) {
@@ -1204,6 +1222,11 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                         continue;
                     }
 
+                    // Polled but not acked yet, e.g. decoded ahead by a pipelined processor
+                    if (block.lastSequenceNumber() < m_firstUnpolledSeqNo) {
+                        continue;
+                    }
+
                     // Are we the Export Master for the unpolled sequence number?
                     if (!m_coordinator.isExportMaster(m_firstUnpolledSeqNo)) {
                         if (exportLog.isDebugEnabled()) {
@@ -79,6 +79,9 @@ public class StreamBlockQueue {
 
     public static final String EXPORT_DISABLE_COMPRESSION_OPTION = "EXPORT_DISABLE_COMPRESSION";
     private static final boolean DISABLE_COMPRESSION = Boolean.getBoolean(EXPORT_DISABLE_COMPRESSION_OPTION);
+    // Read export overflow segments through a memory mapping, see PersistentBinaryDeque.Builder.memoryMapped()
+    public static final String EXPORT_MMAP_SEGMENTS_OPTION = "EXPORT_MMAP_SEGMENTS";
+    private static final boolean MMAP_SEGMENTS = Boolean.getBoolean(EXPORT_MMAP_SEGMENTS_OPTION);
 
     /**
      * Deque containing reference to stream blocks that are in memory. Some of these
@@ -432,6 +435,7 @@ public class StreamBlockQueue {
         m_persistentDeque = PersistentBinaryDeque.builder(m_nonce, new VoltFile(m_path), exportLog)
                 .initialExtraHeader(schema, serializer)
                 .compression(!DISABLE_COMPRESSION)
+                .memoryMapped(MMAP_SEGMENTS)
                 .deleteExisting(deleteExisting)
                 .build();
 
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -28,10 +29,13 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.Pair;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltType;
@@ -50,12 +54,20 @@ import org.voltdb.exportclient.ExportRowSchema;
 
 import com.google_voltpatches.common.base.Preconditions;
 import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+import com.google_voltpatches.common.util.concurrent.MoreExecutors;
 
 public class GuestProcessor implements ExportDataProcessor {
 
     private static final VoltLogger EXPORTLOG = new VoltLogger("EXPORT");
     public static final String EXPORT_TO_TYPE = "__EXPORT_TO_TYPE__";
 
+    // When set, non legacy decoders get blocks decoded ahead of delivery on a pool of this
+    // many threads, with up to EXPORT_MAX_INFLIGHT_BLOCKS blocks polled ahead per source.
+    static final int EXPORT_DECODE_THREADS = Integer.getInteger("EXPORT_DECODE_THREADS", 0);
+    static final int EXPORT_MAX_INFLIGHT_BLOCKS = Math.max(1, Integer.getInteger("EXPORT_MAX_INFLIGHT_BLOCKS", 4));
+    private static ListeningExecutorService m_decodeService;
+
     private ExportGeneration m_generation;
     private volatile boolean m_shutdown = false;
 
@@ -222,6 +234,10 @@ public class GuestProcessor implements ExportDataProcessor {
             detectDecoder(m_client, edb);
             Pair<ExportDecoderBase, AdvertisedDataSource> pair = Pair.of(edb, ads);
             m_decoders.add(pair);
+            if (EXPORT_DECODE_THREADS > 0 && !edb.isLegacy()) {
+                new PipelinedBlockProcessor(m_source, edb, getDecodeService()).poll();
+                return;
+            }
             final ListenableFuture<AckingContainer> fut = m_source.poll();
             addBlockListener(m_source, fut, edb);
         }
@@ -506,6 +522,258 @@ public class GuestProcessor implements ExportDataProcessor {
         }, edb.getExecutor());
     }
 
+    private static synchronized ListeningExecutorService getDecodeService() {
+        if (m_decodeService == null) {
+            m_decodeService = CoreUtils.getListeningExecutorService("Export block decoder", EXPORT_DECODE_THREADS);
+        }
+        return m_decodeService;
+    }
+
+    /**
+     * Pipelined processing of one data source. Up to EXPORT_MAX_INFLIGHT_BLOCKS blocks are
+     * polled ahead and decoded into rows on the shared decode service while the decoder's
+     * executor delivers them, in poll order, through {@link ExportDecoderBase#onBlockBatch(List)}.
+     * Blocks are acked in order once delivered. On shutdown the block being delivered is
+     * pended as in the serial path and the ones decoded ahead are rewound on the source.
+     */
+    class PipelinedBlockProcessor {
+        private final ExportDataSource m_source;
+        private final ExportDecoderBase m_edb;
+        private final ListeningExecutorService m_decodeExecutor;
+
+        // Polled blocks in poll order, the head is the next to deliver
+        private final ArrayDeque<DecodedBlock> m_inFlight = new ArrayDeque<>();
+        private boolean m_polling = false;
+        private boolean m_delivering = false;
+        private boolean m_endOfStream = false;
+
+        private class DecodedBlock {
+            final AckingContainer m_cont;
+            final ListenableFuture<List<ExportRow>> m_rows;
+
+            DecodedBlock(AckingContainer cont) {
+                m_cont = cont;
+                m_rows = m_decodeExecutor.submit(new Callable<List<ExportRow>>() {
+                    @Override
+                    public List<ExportRow> call() throws Exception {
+                        return decode(cont);
+                    }
+                });
+            }
+        }
+
+        PipelinedBlockProcessor(ExportDataSource source, ExportDecoderBase edb, ListeningExecutorService decodeExecutor) {
+            m_source = source;
+            m_edb = edb;
+            m_decodeExecutor = decodeExecutor;
+        }
+
+        void poll() {
+            synchronized (this) {
+                if (m_shutdown || m_polling || m_endOfStream || m_inFlight.size() >= EXPORT_MAX_INFLIGHT_BLOCKS) {
+                    return;
+                }
+                m_polling = true;
+            }
+            final ListenableFuture<AckingContainer> fut = m_source.poll();
+            fut.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    onPolled(fut);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        private void onPolled(ListenableFuture<AckingContainer> fut) {
+            AckingContainer cont;
+            try {
+                cont = fut.get();
+            } catch (Exception e) {
+                synchronized (this) {
+                    m_polling = false;
+                }
+                if (e.getCause() instanceof ReentrantPollException) {
+                    EXPORTLOG.info("Stopping processing export blocks: " + e.getMessage());
+                } else {
+                    EXPORTLOG.error("Error polling export block, continuing processing: ", e);
+                    poll();
+                }
+                return;
+            }
+            synchronized (this) {
+                m_polling = false;
+                if (cont == null) {
+                    if (EXPORTLOG.isDebugEnabled()) {
+                        EXPORTLOG.debug("Received an end of stream event, exiting pipelined processor");
+                    }
+                    m_endOfStream = true;
+                    return;
+                }
+                if (m_shutdown) {
+                    m_source.rewindPolledContainer(cont);
+                    return;
+                }
+                final DecodedBlock block = new DecodedBlock(cont);
+                m_inFlight.add(block);
+                block.m_rows.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        scheduleDelivery();
+                    }
+                }, MoreExecutors.directExecutor());
+            }
+            poll();
+        }
+
+        private List<ExportRow> decode(AckingContainer cont) throws IOException {
+            final ByteBuffer buf = cont.b().duplicate();
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            final List<ExportRow> rows = new ArrayList<>();
+            while (buf.hasRemaining()) {
+                int length = buf.getInt();
+                byte[] rowdata = new byte[length];
+                buf.get(rowdata, 0, length);
+                rows.add(ExportRow.decodeRow(cont.getSchema(), m_source.getPartitionId(), m_startTS, rowdata));
+            }
+            return rows;
+        }
+
+        private void scheduleDelivery() {
+            try {
+                m_edb.getExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliverReadyBlocks();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The decoder is shutting down with the processor: a block still being
+                // delivered may get pended, so leave the rewind to the delivering thread
+                synchronized (this) {
+                    if (!m_delivering) {
+                        rewindUndelivered();
+                    }
+                }
+            }
+        }
+
+        private void deliverReadyBlocks() {
+            while (true) {
+                final DecodedBlock block;
+                synchronized (this) {
+                    if (m_shutdown) {
+                        if (!m_delivering) {
+                            rewindUndelivered();
+                        }
+                        return;
+                    }
+                    block = m_inFlight.peek();
+                    if (m_delivering || block == null || !block.m_rows.isDone()) {
+                        return;
+                    }
+                    m_delivering = true;
+                }
+                boolean delivered = false;
+                try {
+                    delivered = deliver(block);
+                } finally {
+                    synchronized (this) {
+                        m_delivering = false;
+                        // Nothing rewinds the blocks while one is being delivered
+                        final DecodedBlock head = m_inFlight.poll();
+                        assert head == block;
+                        if (!delivered) {
+                            rewindUndelivered();
+                            return;
+                        }
+                    }
+                }
+                poll();
+            }
+        }
+
+        /**
+         * Deliver a decoded block, retrying on {@link RestartBlockException}.
+         *
+         * @return false if the processor shut down before the block was delivered,
+         *         in which case the block has been pended on the source
+         */
+        private boolean deliver(DecodedBlock block) {
+            final AckingContainer cont = block.m_cont;
+            final List<ExportRow> rows;
+            try {
+                rows = block.m_rows.get();
+            } catch (InterruptedException | ExecutionException e) {
+                EXPORTLOG.warn("Failed decoding block for partition " + m_source.getPartitionId() + ". " + e.getMessage());
+                cont.discard();
+                return true;
+            }
+
+            //Track the amount of backoff to use next time, will be updated on repeated failure
+            int backoffQuantity = 10 + (int)(10 * ThreadLocalRandom.current().nextDouble());
+            try {
+                while (!m_shutdown) {
+                    try {
+                        if (!rows.isEmpty()) {
+                            cont.updateStartTime(System.currentTimeMillis());
+                            ExportRow schema = m_edb.getExportRowSchema();
+                            if (schema == null || schema.generation != cont.getSchema().generation) {
+                                m_edb.setExportRowSchema(cont.getSchema());
+                            }
+                            m_edb.onBlockBatch(rows);
+                        }
+                        long committedSpHandle = 0L;
+                        for (ExportRow row : rows) {
+                            committedSpHandle = extractCommittedSpHandle(row, cont.getCommittedSeqNo());
+                            if (committedSpHandle != 0) {
+                                cont.setCommittedSpHandle(committedSpHandle);
+                                break;
+                            }
+                        }
+                        cont.discard();
+                        return true;
+                    } catch (RestartBlockException e) {
+                        if (m_shutdown) {
+                            break;
+                        }
+                        if (e.requestBackoff) {
+                            Thread.sleep(backoffQuantity);
+                            //Cap backoff to 8 seconds, then double modulo some randomness
+                            if (backoffQuantity < 8000) {
+                                backoffQuantity += (backoffQuantity * .5);
+                                backoffQuantity +=
+                                        (backoffQuantity * .5 * ThreadLocalRandom.current().nextDouble());
+                            }
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                EXPORTLOG.error("Error processing export block, continuing processing: ", e);
+                cont.discard();
+                return true;
+            }
+            if (EXPORTLOG.isDebugEnabled()) {
+                EXPORTLOG.debug("Shutdown detected, queue block to pending");
+            }
+            m_source.setPendingContainer(cont);
+            return false;
+        }
+
+        // Hand the blocks decoded ahead back to the source once their decoding is done
+        private synchronized void rewindUndelivered() {
+            DecodedBlock block;
+            while ((block = m_inFlight.poll()) != null) {
+                final AckingContainer cont = block.m_cont;
+                block.m_rows.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        m_source.rewindPolledContainer(cont);
+                    }
+                }, MoreExecutors.directExecutor());
+            }
+        }
+    }
+
     /**
      * If the row is the last committed row, return the SpHandle, otherwise return 0
      *
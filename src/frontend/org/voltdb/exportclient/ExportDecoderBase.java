@@ -25,6 +25,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
@@ -266,6 +267,26 @@ public abstract class ExportDecoderBase {
 
     }
 
+    /**
+     * Process all the rows of a block at once. Used instead of the per row callbacks when
+     * export runs pipelined (EXPORT_DECODE_THREADS is set), where blocks are decoded on a
+     * worker pool ahead of delivery. The default replays the rows through
+     * {@link #onBlockStart(ExportRow)}, {@link #processRow(ExportRow)} and
+     * {@link #onBlockCompletion(ExportRow)}, decoders able to write a batch in one call
+     * should override it.
+     *
+     * @param rows Decoded rows of the block in order, never empty
+     * @throws org.voltdb.exportclient.ExportDecoderBase.RestartBlockException to have the
+     *         whole batch delivered again
+     */
+    public void onBlockBatch(List<ExportRow> rows) throws RestartBlockException {
+        onBlockStart(rows.get(0));
+        for (ExportRow row : rows) {
+            processRow(row);
+        }
+        onBlockCompletion(rows.get(rows.size() - 1));
+    }
+
     public ListeningExecutorService getExecutor() {
         return DEFAULT_EXECUTOR;
     }
@@ -0,0 +1,457 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.exportclient;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltType;
+import org.voltdb.export.AdvertisedDataSource;
+import org.voltdb.export.ExportManager;
+import org.voltdb.exportclient.decode.BatchDecoder.BulkException;
+import org.voltdb.exportclient.decode.ColumnarRowGroupDecoder;
+import org.voltdb.utils.VoltFile;
+
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Writes exported tables to columnar files, one file per table, partition and
+ * generation. Rows are buffered into row groups by a {@link ColumnarRowGroupDecoder}
+ * and a file is laid out as
+ * <pre>
+ * file   := MAGIC version:byte (length:int rowGroup)* footer footerLength:int MAGIC
+ * </pre>
+ * where the footer is a JSON document describing the columns and the offset and row
+ * count of each row group. Files are written with an active- prefix which is dropped
+ * once they are rolled, either every period or once they grow past the maximum size.
+ */
+public class ExportToColumnarFileClient extends ExportClientBase {
+
+    private static final VoltLogger m_logger = new VoltLogger("ExportClient");
+    private static final TimeUnit TIME_PERIOD_UNIT =
+            TimeUnit.valueOf(System.getProperty("__EXPORT_FILE_ROTATE_PERIOD_UNIT__", TimeUnit.MINUTES.name()));
+
+    static final byte MAGIC[] = "VCOL".getBytes(StandardCharsets.US_ASCII);
+    static final byte VERSION = 1;
+    static final String EXTENSION = ".vcol";
+    private static final String ACTIVE_PREFIX = "active-";
+
+    protected String m_nonce;
+    protected File m_outDir;
+    protected int m_period;
+    protected int m_rowGroupSize;
+    protected long m_maxFileSize;
+    protected boolean m_compress;
+    protected boolean m_skipinternal;
+    protected ThreadLocal<SimpleDateFormat> m_dateformat;
+    protected String m_dateFormatOriginalString;
+
+    protected final Set<ColumnarFileDecoder> m_decoders = ConcurrentHashMap.newKeySet();
+
+    // timer used to roll files
+    protected ScheduledExecutorService m_scheduledFileRotatorService;
+
+    class ColumnarFileDecoder extends ExportDecoderBase {
+        private final ListeningExecutorService m_es;
+        private final ColumnarRowGroupDecoder m_rowGroupDecoder;
+        private ExportRow m_schema;
+        private File m_activeFile;
+        private DataOutputStream m_out;
+        private long m_fileSize;
+        private final List<long[]> m_rowGroupOffsets = new ArrayList<>();
+        private int m_fileSequence = 0;
+
+        ColumnarFileDecoder(AdvertisedDataSource source) {
+            super(source);
+            m_rowGroupDecoder = ColumnarRowGroupDecoder.builder()
+                    .compress(m_compress)
+                    .skipInternalFields(m_skipinternal)
+                    .build();
+            // all writes and rolls of this decoder's file are serialized on this executor
+            m_es = CoreUtils.getListeningSingleThreadExecutor(
+                    "Columnar File Export decoder for partition " + source.partitionId, CoreUtils.MEDIUM_STACK_SIZE);
+            m_decoders.add(this);
+        }
+
+        @Override
+        public ListeningExecutorService getExecutor() {
+            return m_es;
+        }
+
+        @Override
+        public void onBlockStart(ExportRow row) throws RestartBlockException {
+            if (m_schema != null && m_schema.generation != row.generation) {
+                // new generation, finish the file of the previous one
+                closeFile();
+            }
+            m_schema = row;
+            // completed blocks always leave the row group empty, anything buffered is from a restarted block
+            m_rowGroupDecoder.discard(row.generation);
+        }
+
+        @Override
+        public boolean processRow(ExportRow row) throws RestartBlockException {
+            m_rowGroupDecoder.add(row.generation, row.tableName, row.types, row.names, row.values);
+            if (m_rowGroupDecoder.getRowCount(row.generation) >= m_rowGroupSize) {
+                writeRowGroup();
+            }
+            return true;
+        }
+
+        /**
+         * Rows of a block must reach the file before the block is acked, so the block
+         * always ends the current row group.
+         */
+        @Override
+        public void onBlockCompletion(ExportRow row) throws RestartBlockException {
+            writeRowGroup();
+            try {
+                if (m_out != null) {
+                    m_out.flush();
+                }
+            } catch (IOException e) {
+                rateLimitedLogError(m_logger, "Failed to flush, export file may be unavailable/unwritable, or not enough space.");
+                abandonFile();
+                throw new RestartBlockException("Failed to complete the block.", e, true);
+            }
+            if (m_fileSize >= m_maxFileSize) {
+                closeFile();
+            }
+        }
+
+        private void writeRowGroup() throws RestartBlockException {
+            final long generation = m_schema.generation;
+            byte rowGroup[];
+            try {
+                rowGroup = m_rowGroupDecoder.harvest(generation);
+            } catch (BulkException e) {
+                m_rowGroupDecoder.discard(generation);
+                throw new RestartBlockException("Failed to encode a row group.", e, false);
+            }
+            if (rowGroup == null) {
+                return;
+            }
+            try {
+                if (m_out == null) {
+                    openFile();
+                }
+                m_out.writeInt(rowGroup.length);
+                m_out.write(rowGroup);
+                m_rowGroupOffsets.add(new long[] { m_fileSize, ByteBuffer.wrap(rowGroup).getInt() });
+                m_fileSize += 4 + rowGroup.length;
+            } catch (IOException e) {
+                rateLimitedLogError(m_logger, "Failed to write row group, export file may be unavailable/unwritable, or not enough space.");
+                abandonFile();
+                throw new RestartBlockException("Failed to write a row group.", e, true);
+            }
+        }
+
+        private String getPath(String prefix) {
+            return m_outDir.getPath() + File.separator + prefix + m_nonce + "-" + m_schema.generation + "-"
+                    + m_schema.tableName + "-" + m_schema.partitionId + "-"
+                    + m_dateformat.get().format(new Date()) + "-" + m_fileSequence + EXTENSION;
+        }
+
+        private void openFile() throws IOException {
+            File file = new VoltFile(getPath(ACTIVE_PREFIX));
+            m_out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false), 4096 * 16));
+            m_activeFile = file;
+            m_out.write(MAGIC);
+            m_out.writeByte(VERSION);
+            m_fileSize = MAGIC.length + 1;
+            m_rowGroupOffsets.clear();
+        }
+
+        /**
+         * Write the footer and make the active file visible under its final name
+         */
+        void closeFile() {
+            if (m_out == null) {
+                return;
+            }
+            try {
+                byte footer[] = getFooter().getBytes(StandardCharsets.UTF_8);
+                m_out.write(footer);
+                m_out.writeInt(footer.length);
+                m_out.write(MAGIC);
+                m_out.close();
+                String name = m_activeFile.getName().substring(ACTIVE_PREFIX.length());
+                File rolled = new VoltFile(m_activeFile.getParentFile(), name);
+                if (!m_activeFile.renameTo(rolled)) {
+                    m_logger.error("Failed to rename export file from " + m_activeFile.getPath() + " to " + rolled.getPath());
+                }
+            } catch (IOException | JSONException e) {
+                // leave the file under its active name, it has no usable footer
+                m_logger.error("Failed to close export file " + m_activeFile.getPath(), e);
+                try {
+                    m_out.close();
+                } catch (IOException ignoreIt) {}
+            }
+            m_out = null;
+            m_activeFile = null;
+            ++m_fileSequence;
+        }
+
+        /**
+         * After a failed write, try to close the file with a footer listing the row groups
+         * written so far, blocks before the failed one were already acked. The restarted
+         * block goes to a new file.
+         */
+        private void abandonFile() {
+            closeFile();
+            m_rowGroupDecoder.discard(m_schema.generation);
+        }
+
+        private String getFooter() throws JSONException {
+            JSONStringer json = new JSONStringer();
+            json.object();
+            json.keySymbolValuePair("table name", m_schema.tableName);
+            json.keySymbolValuePair("generation id", m_schema.generation);
+            json.keySymbolValuePair("partition id", m_schema.partitionId);
+            json.key("columns").array();
+            for (int i = ExportRow.getFirstField(m_skipinternal); i < m_schema.names.size(); i++) {
+                json.object();
+                json.keySymbolValuePair("name", m_schema.names.get(i));
+                json.keySymbolValuePair("type", m_schema.types.get(i).name());
+                json.endObject();
+            }
+            json.endArray();
+            json.key("row groups").array();
+            for (long[] rowGroup : m_rowGroupOffsets) {
+                json.object();
+                json.keySymbolValuePair("offset", rowGroup[0]);
+                json.keySymbolValuePair("rows", rowGroup[1]);
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+            return json.toString();
+        }
+
+        void roll() {
+            try {
+                m_es.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        closeFile();
+                    }
+                });
+            } catch (RejectedExecutionException ignoreIt) {
+                // decoder already shut down and closed its file
+            }
+        }
+
+        @Override
+        public void sourceNoLongerAdvertised(AdvertisedDataSource source) {
+            m_decoders.remove(this);
+            m_es.execute(new Runnable() {
+                @Override
+                public void run() {
+                    closeFile();
+                }
+            });
+            m_es.shutdown();
+            try {
+                m_es.awaitTermination(365, TimeUnit.DAYS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Override
+    public ColumnarFileDecoder constructExportDecoder(AdvertisedDataSource source) {
+        return new ColumnarFileDecoder(source);
+    }
+
+    @Override
+    public void shutdown() {
+        m_scheduledFileRotatorService.shutdown();
+        try {
+            m_scheduledFileRotatorService.awaitTermination(365, TimeUnit.DAYS);
+        }
+        catch (InterruptedException iex) {
+            throw new RuntimeException(iex);
+        }
+        for (ColumnarFileDecoder decoder : m_decoders) {
+            decoder.roll();
+        }
+    }
+
+    /**
+     * Read the footer of a columnar export file
+     */
+    public static JSONObject readFooter(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer tail = ByteBuffer.allocate(4 + MAGIC.length);
+            channel.read(tail, channel.size() - tail.capacity());
+            tail.flip();
+            final int footerLength = tail.getInt();
+            byte magic[] = new byte[MAGIC.length];
+            tail.get(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new IOException("Not a columnar export file " + file.getPath());
+            }
+            ByteBuffer footer = ByteBuffer.allocate(footerLength);
+            channel.read(footer, channel.size() - tail.capacity() - footerLength);
+            return new JSONObject(new String(footer.array(), StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            throw new IOException("Malformed footer in columnar export file " + file.getPath(), e);
+        }
+    }
+
+    /**
+     * Read back all the rows of a columnar export file
+     */
+    public static List<Object[]> readRows(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            JSONObject footer = readFooter(file);
+            JSONArray columns = footer.getJSONArray("columns");
+            List<VoltType> types = new ArrayList<>();
+            for (int i = 0; i < columns.length(); i++) {
+                types.add(VoltType.valueOf(columns.getJSONObject(i).getString("type")));
+            }
+            List<Object[]> rows = new ArrayList<>();
+            JSONArray rowGroups = footer.getJSONArray("row groups");
+            FileChannel channel = raf.getChannel();
+            for (int i = 0; i < rowGroups.length(); i++) {
+                long offset = rowGroups.getJSONObject(i).getLong("offset");
+                ByteBuffer length = ByteBuffer.allocate(4);
+                channel.read(length, offset);
+                ByteBuffer rowGroup = ByteBuffer.allocate(length.getInt(0));
+                channel.read(rowGroup, offset + 4);
+                rowGroup.flip();
+                rows.addAll(ColumnarRowGroupDecoder.decodeRowGroup(rowGroup, types));
+            }
+            return rows;
+        } catch (JSONException e) {
+            throw new IOException("Malformed footer in columnar export file " + file.getPath(), e);
+        }
+    }
+
+    public String getVoltDBRootPath() {
+        return ExportToFileClient.TEST_VOLTDB_ROOT != null ?
+                ExportToFileClient.TEST_VOLTDB_ROOT : VoltDB.instance().getVoltDBRootPath();
+    }
+
+    @Override
+    public void configure(Properties conf) throws Exception {
+        String nonce = conf.getProperty("nonce");
+        if (nonce == null) {
+            throw new IllegalArgumentException("ExportToColumnarFile: must provide a filename nonce");
+        }
+        String dir = conf.getProperty("outdir");
+        if (dir == null || dir.length() == 0) {
+            dir = getVoltDBRootPath() + File.separator + "file_export";
+        }
+        File outdir = new VoltFile(dir);
+        if (!outdir.isAbsolute()) {
+            outdir = new File(getVoltDBRootPath(), outdir.getPath());
+        }
+        if (!outdir.exists()) {
+            if (!outdir.mkdir()) {
+                throw new IllegalArgumentException("Error: " + outdir.getPath() + " cannot be created");
+            }
+        }
+        if (!outdir.canWrite() || !outdir.canExecute()) {
+            throw new IllegalArgumentException("Error: " + outdir.getPath() + " does not have write and execute permission set");
+        }
+
+        int period = Integer.parseInt(conf.getProperty("period", "60"));
+        if (period < 1) {
+            throw new IllegalArgumentException("Error: Specified value for --period must be >= 1.");
+        }
+        int rowGroupSize = Integer.parseInt(conf.getProperty("rowgroupsize", "65536"));
+        if (rowGroupSize < 1) {
+            throw new IllegalArgumentException("Error: Specified value for rowgroupsize must be >= 1.");
+        }
+        int maxFileSizeMB = Integer.parseInt(conf.getProperty("maxfilesize", "128"));
+        if (maxFileSizeMB < 1) {
+            throw new IllegalArgumentException("Error: Specified value for maxfilesize must be >= 1.");
+        }
+        String compression = conf.getProperty("compression", "snappy").trim();
+        if (!compression.equalsIgnoreCase("snappy") && !compression.equalsIgnoreCase("none")) {
+            throw new IllegalArgumentException("Error: compression must be one of SNAPPY or NONE");
+        }
+        String dateformatString = conf.getProperty("dateformat", "yyyyMMddHHmmss").trim();
+        boolean skipinternal = Boolean.parseBoolean(conf.getProperty("skipinternals", "false"));
+
+        //Dont do actual config in check mode.
+        boolean configcheck = Boolean.parseBoolean(conf.getProperty(ExportManager.CONFIG_CHECK_ONLY, "false"));
+        if (configcheck) {
+            return;
+        }
+        setRunEverywhere(Boolean.parseBoolean(conf.getProperty("replicated", "false")));
+
+        m_nonce = nonce;
+        m_outDir = outdir;
+        m_period = period;
+        m_rowGroupSize = rowGroupSize;
+        m_maxFileSize = maxFileSizeMB * 1024L * 1024L;
+        m_compress = compression.equalsIgnoreCase("snappy");
+        m_skipinternal = skipinternal;
+        m_dateFormatOriginalString = dateformatString;
+        // SimpleDateFormat isn't threadsafe
+        m_dateformat = new ThreadLocal<SimpleDateFormat>() {
+            @Override
+            protected SimpleDateFormat initialValue() {
+                return new SimpleDateFormat(m_dateFormatOriginalString);
+            }
+        };
+
+        // schedule rotations every m_period minutes
+        Runnable rotator = new Runnable() {
+            @Override
+            public void run() {
+                for (ColumnarFileDecoder decoder : m_decoders) {
+                    decoder.roll();
+                }
+            }
+        };
+        m_scheduledFileRotatorService =
+                CoreUtils.getScheduledThreadPoolExecutor(
+                        "Columnar export file rotate timer for nonce " + nonce, 1, CoreUtils.SMALL_STACK_SIZE);
+        m_scheduledFileRotatorService.scheduleWithFixedDelay(rotator, m_period, m_period, TIME_PERIOD_UNIT);
+    }
+}
@@ -0,0 +1,613 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.exportclient.decode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.voltdb.VoltType;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+import org.voltdb.types.GeographyPointValue;
+import org.voltdb.types.GeographyValue;
+import org.voltdb.types.TimestampType;
+import org.voltdb.types.VoltDecimalHelper;
+import org.voltdb.utils.CompressionService;
+
+import com.google_voltpatches.common.base.Preconditions;
+
+/**
+ * A {@link BatchDecoder} that buffers exported rows column by column and harvests
+ * them as a self contained, columnar encoded row group. The layout borrows from Parquet:
+ * <pre>
+ * row group    := rowCount:int columnCount:int columnChunk*
+ * column chunk := codec:byte uncompressedLength:int length:int page
+ * page         := nullCount:int [definitionLevels] encoding:byte values
+ * </pre>
+ * Definition levels, only present when the chunk has nulls, and dictionary indexes are
+ * written with an RLE/bit-packing hybrid. A column is dictionary encoded when the
+ * dictionary plus the packed indexes are smaller than the plain values, and pages are
+ * Snappy compressed unless compression does not pay off.
+ */
+public class ColumnarRowGroupDecoder implements BatchDecoder<byte[], RuntimeException> {
+
+    public static final byte ENCODING_PLAIN = 0;
+    public static final byte ENCODING_DICTIONARY = 1;
+
+    public static final byte CODEC_NONE = 0;
+    public static final byte CODEC_SNAPPY = 1;
+
+    protected final int m_firstFieldOffset;
+    protected final boolean m_compress;
+    protected final int m_maxDictionarySize;
+    protected final Map<Long, RowGroup> m_rowGroups = new HashMap<>();
+
+    protected ColumnarRowGroupDecoder(int firstFieldOffset, boolean compress, int maxDictionarySize) {
+        m_firstFieldOffset = firstFieldOffset;
+        m_compress = compress;
+        m_maxDictionarySize = maxDictionarySize;
+    }
+
+    @Override
+    public void add(long generation, String tableName, List<VoltType> types, List<String> names, Object[] fields)
+            throws RuntimeException {
+        Preconditions.checkArgument(
+                fields != null && fields.length > m_firstFieldOffset,
+                "null or inapropriately sized export row array"
+        );
+        RowGroup rowGroup = m_rowGroups.get(generation);
+        if (rowGroup == null) {
+            rowGroup = new RowGroup(types.subList(m_firstFieldOffset, types.size()), m_maxDictionarySize);
+            m_rowGroups.put(generation, rowGroup);
+        }
+        rowGroup.add(fields, m_firstFieldOffset);
+    }
+
+    /**
+     * @return the number of rows buffered for the given generation
+     */
+    public int getRowCount(long generation) {
+        RowGroup rowGroup = m_rowGroups.get(generation);
+        return rowGroup == null ? 0 : rowGroup.m_rowCount;
+    }
+
+    /**
+     * @return the plain encoded size of the rows buffered for the given generation,
+     * an upper bound of what the harvested row group takes
+     */
+    public long getBufferedBytes(long generation) {
+        RowGroup rowGroup = m_rowGroups.get(generation);
+        if (rowGroup == null) {
+            return 0;
+        }
+        long size = 0;
+        for (ColumnBuffer column : rowGroup.m_columns) {
+            size += column.m_plainBytes;
+        }
+        return size;
+    }
+
+    /**
+     * Encode the buffered rows of the given generation into a row group and reset the buffers
+     *
+     * @return the encoded row group, or null if no rows were buffered
+     */
+    @Override
+    public byte[] harvest(long generation) {
+        RowGroup rowGroup = m_rowGroups.get(generation);
+        if (rowGroup == null || rowGroup.m_rowCount == 0) {
+            return null;
+        }
+        FastSerializer fs = new FastSerializer((int) Math.min(Integer.MAX_VALUE - 8, getBufferedBytes(generation) + 64));
+        try {
+            fs.writeInt(rowGroup.m_rowCount);
+            fs.writeInt(rowGroup.m_columns.length);
+            for (ColumnBuffer column : rowGroup.m_columns) {
+                byte page[] = column.encode(rowGroup.m_rowCount);
+                byte codec = CODEC_NONE;
+                byte compressed[] = page;
+                if (m_compress) {
+                    byte snappy[] = CompressionService.compressBytes(page);
+                    if (snappy.length < page.length) {
+                        codec = CODEC_SNAPPY;
+                        compressed = snappy;
+                    }
+                }
+                fs.writeByte(codec);
+                fs.writeInt(page.length);
+                fs.writeInt(compressed.length);
+                fs.write(compressed);
+            }
+            return fs.getBytes();
+        } catch (IOException e) {
+            throw new BulkException("unable to encode a columnar row group", e);
+        } finally {
+            fs.discard();
+            m_rowGroups.put(generation, new RowGroup(rowGroup.m_types, m_maxDictionarySize));
+        }
+    }
+
+    @Override
+    public void discard(long generation) {
+        m_rowGroups.remove(generation);
+    }
+
+    /**
+     * Decode a row group produced by {@link #harvest(long)} back into rows
+     *
+     * @param rowGroup buffer positioned at the start of the row group
+     * @param types the types of the encoded columns, in order
+     * @return the decoded rows
+     */
+    public static List<Object[]> decodeRowGroup(ByteBuffer rowGroup, List<VoltType> types) throws IOException {
+        FastDeserializer fds = new FastDeserializer(rowGroup);
+        final int rowCount = fds.readInt();
+        final int columnCount = fds.readInt();
+        if (columnCount != types.size()) {
+            throw new IOException("Row group has " + columnCount + " columns, expected " + types.size());
+        }
+        List<Object[]> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; ++i) {
+            rows.add(new Object[columnCount]);
+        }
+        for (int col = 0; col < columnCount; ++col) {
+            final byte codec = fds.readByte();
+            final int uncompressedLength = fds.readInt();
+            byte page[] = new byte[fds.readInt()];
+            fds.readFully(page);
+            if (codec == CODEC_SNAPPY) {
+                page = CompressionService.decompressBytes(page);
+            } else if (codec != CODEC_NONE) {
+                throw new IOException("Unknown page codec " + codec);
+            }
+            if (page.length != uncompressedLength) {
+                throw new IOException("Page length " + page.length + " does not match expected " + uncompressedLength);
+            }
+            decodePage(new FastDeserializer(page), types.get(col), rowCount, rows, col);
+        }
+        return rows;
+    }
+
+    private static void decodePage(FastDeserializer fds, VoltType type, int rowCount, List<Object[]> rows, int col)
+            throws IOException {
+        final int nullCount = fds.readInt();
+        int present[] = null;
+        if (nullCount > 0) {
+            present = new int[rowCount];
+            RleBitPackedHybrid.decode(fds, rowCount, 1, present);
+        }
+        final int valueCount = rowCount - nullCount;
+        Object values[] = new Object[valueCount];
+        final byte encoding = fds.readByte();
+        if (encoding == ENCODING_DICTIONARY) {
+            Object dictionary[] = new Object[fds.readInt()];
+            for (int i = 0; i < dictionary.length; ++i) {
+                dictionary[i] = readPlain(fds, type);
+            }
+            final int bitWidth = fds.readByte();
+            int indexes[] = new int[valueCount];
+            RleBitPackedHybrid.decode(fds, valueCount, bitWidth, indexes);
+            for (int i = 0; i < valueCount; ++i) {
+                values[i] = dictionary[indexes[i]];
+            }
+        } else if (encoding == ENCODING_PLAIN) {
+            for (int i = 0; i < valueCount; ++i) {
+                values[i] = readPlain(fds, type);
+            }
+        } else {
+            throw new IOException("Unknown page encoding " + encoding);
+        }
+        for (int row = 0, i = 0; row < rowCount; ++row) {
+            if (present == null || present[row] != 0) {
+                rows.get(row)[col] = values[i++];
+            }
+        }
+    }
+
+    /**
+     * Convert a field value into the form it is buffered and dictionary keyed as: a Long
+     * for integral and timestamp types, a Double for floats, and the plain encoded bytes
+     * for everything else.
+     */
+    static Object toPlainValue(VoltType type, Object value) {
+        switch (type) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+            return ((Number) value).longValue();
+        case TIMESTAMP:
+            return ((TimestampType) value).getTime();
+        case FLOAT:
+            return ((Number) value).doubleValue();
+        case STRING:
+            return ByteBuffer.wrap(((String) value).getBytes(StandardCharsets.UTF_8));
+        case VARBINARY:
+            return ByteBuffer.wrap((byte[]) value);
+        case DECIMAL:
+            return ByteBuffer.wrap(VoltDecimalHelper.serializeBigDecimal((BigDecimal) value));
+        case GEOGRAPHY_POINT: {
+            GeographyPointValue point = (GeographyPointValue) value;
+            ByteBuffer bb = ByteBuffer.allocate(16);
+            bb.putDouble(point.getLongitude()).putDouble(point.getLatitude());
+            bb.flip();
+            return bb;
+        }
+        case GEOGRAPHY: {
+            GeographyValue geog = (GeographyValue) value;
+            ByteBuffer bb = ByteBuffer.allocate(geog.getLengthInBytes());
+            geog.flattenToBuffer(bb);
+            bb.flip();
+            return bb;
+        }
+        default:
+            throw new IllegalArgumentException("Unsupported column type " + type);
+        }
+    }
+
+    static int plainSize(VoltType type, Object plain) {
+        switch (type) {
+        case TINYINT:
+            return 1;
+        case SMALLINT:
+            return 2;
+        case INTEGER:
+            return 4;
+        case BIGINT:
+        case TIMESTAMP:
+        case FLOAT:
+            return 8;
+        case DECIMAL:
+        case GEOGRAPHY_POINT:
+            return 16;
+        default:
+            return 4 + ((ByteBuffer) plain).remaining();
+        }
+    }
+
+    static void writePlain(FastSerializer fs, VoltType type, Object plain) throws IOException {
+        switch (type) {
+        case TINYINT:
+            fs.writeByte(((Long) plain).intValue());
+            break;
+        case SMALLINT:
+            fs.writeShort(((Long) plain).intValue());
+            break;
+        case INTEGER:
+            fs.writeInt(((Long) plain).intValue());
+            break;
+        case BIGINT:
+        case TIMESTAMP:
+            fs.writeLong((Long) plain);
+            break;
+        case FLOAT:
+            fs.writeDouble((Double) plain);
+            break;
+        case DECIMAL:
+        case GEOGRAPHY_POINT:
+            fs.write(((ByteBuffer) plain).duplicate());
+            break;
+        default:
+            fs.writeInt(((ByteBuffer) plain).remaining());
+            fs.write(((ByteBuffer) plain).duplicate());
+            break;
+        }
+    }
+
+    static Object readPlain(FastDeserializer fds, VoltType type) throws IOException {
+        switch (type) {
+        case TINYINT:
+            return fds.readByte();
+        case SMALLINT:
+            return fds.readShort();
+        case INTEGER:
+            return fds.readInt();
+        case BIGINT:
+            return fds.readLong();
+        case TIMESTAMP:
+            return new TimestampType(fds.readLong());
+        case FLOAT:
+            return fds.readDouble();
+        case STRING:
+            return new String(fds.readVarbinary(), StandardCharsets.UTF_8);
+        case VARBINARY:
+            return fds.readVarbinary();
+        case DECIMAL:
+            return VoltDecimalHelper.deserializeBigDecimal(fds.buffer());
+        case GEOGRAPHY_POINT:
+            return new GeographyPointValue(fds.readDouble(), fds.readDouble());
+        case GEOGRAPHY:
+            return GeographyValue.unflattenFromBuffer(ByteBuffer.wrap(fds.readVarbinary()));
+        default:
+            throw new IOException("Unsupported column type " + type);
+        }
+    }
+
+    static class RowGroup {
+        final List<VoltType> m_types;
+        final ColumnBuffer m_columns[];
+        int m_rowCount = 0;
+
+        RowGroup(List<VoltType> types, int maxDictionarySize) {
+            m_types = types;
+            m_columns = new ColumnBuffer[types.size()];
+            for (int i = 0; i < m_columns.length; ++i) {
+                m_columns[i] = new ColumnBuffer(types.get(i), maxDictionarySize);
+            }
+        }
+
+        void add(Object fields[], int firstFieldOffset) {
+            for (int i = 0; i < m_columns.length; ++i) {
+                m_columns[i].add(m_rowCount, fields[firstFieldOffset + i]);
+            }
+            ++m_rowCount;
+        }
+    }
+
+    static class ColumnBuffer {
+        final VoltType m_type;
+        final int m_maxDictionarySize;
+        // non null values in plain form
+        final ArrayList<Object> m_values = new ArrayList<>();
+        final BitSet m_nulls = new BitSet();
+        // dropped once it grows past the dictionary size limit
+        Map<Object, Integer> m_dictionary = new LinkedHashMap<>();
+        long m_plainBytes = 0;
+        long m_dictionaryBytes = 0;
+
+        ColumnBuffer(VoltType type, int maxDictionarySize) {
+            m_type = type;
+            m_maxDictionarySize = maxDictionarySize;
+        }
+
+        void add(int row, Object value) {
+            if (value == null) {
+                m_nulls.set(row);
+                return;
+            }
+            Object plain = toPlainValue(m_type, value);
+            m_values.add(plain);
+            int size = plainSize(m_type, plain);
+            m_plainBytes += size;
+            if (m_dictionary != null && !m_dictionary.containsKey(plain)) {
+                if (m_dictionary.size() == m_maxDictionarySize) {
+                    m_dictionary = null;
+                } else {
+                    m_dictionary.put(plain, m_dictionary.size());
+                    m_dictionaryBytes += size;
+                }
+            }
+        }
+
+        byte[] encode(int rowCount) throws IOException {
+            FastSerializer fs = new FastSerializer((int) Math.min(Integer.MAX_VALUE - 8, m_plainBytes + 64));
+            try {
+                return encode(fs, rowCount);
+            } finally {
+                fs.discard();
+            }
+        }
+
+        private byte[] encode(FastSerializer fs, int rowCount) throws IOException {
+            final int nullCount = rowCount - m_values.size();
+            fs.writeInt(nullCount);
+            if (nullCount > 0) {
+                int present[] = new int[rowCount];
+                for (int i = 0; i < rowCount; ++i) {
+                    present[i] = m_nulls.get(i) ? 0 : 1;
+                }
+                RleBitPackedHybrid.encode(fs, present, rowCount, 1);
+            }
+
+            final int bitWidth = m_dictionary == null ? 0 : RleBitPackedHybrid.bitWidth(m_dictionary.size() - 1);
+            if (m_dictionary != null && m_dictionaryBytes + ((long) m_values.size() * bitWidth + 7) / 8 < m_plainBytes) {
+                fs.writeByte(ENCODING_DICTIONARY);
+                fs.writeInt(m_dictionary.size());
+                for (Object entry : m_dictionary.keySet()) {
+                    writePlain(fs, m_type, entry);
+                }
+                fs.writeByte(bitWidth);
+                int indexes[] = new int[m_values.size()];
+                for (int i = 0; i < indexes.length; ++i) {
+                    indexes[i] = m_dictionary.get(m_values.get(i));
+                }
+                RleBitPackedHybrid.encode(fs, indexes, indexes.length, bitWidth);
+            } else {
+                fs.writeByte(ENCODING_PLAIN);
+                for (Object value : m_values) {
+                    writePlain(fs, m_type, value);
+                }
+            }
+            return fs.getBytes();
+        }
+    }
+
+    /**
+     * Run length encoding mixed with bit-packing, after Parquet's hybrid encoding.
+     * Each run starts with an unsigned varint header whose low bit tells a repeated
+     * run (0) from a literal run (1) and the remaining bits hold the run length. A
+     * repeated run stores its value once in the fewest whole bytes, a literal run packs
+     * its values LSB first at the given bit width.
+     */
+    static class RleBitPackedHybrid {
+        // repeated runs shorter than this are cheaper left in a literal run
+        static final int MIN_REPEATED_RUN = 8;
+
+        static int bitWidth(int maxValue) {
+            return 32 - Integer.numberOfLeadingZeros(maxValue);
+        }
+
+        static void encode(FastSerializer fs, int values[], int count, int bitWidth) throws IOException {
+            int i = 0;
+            while (i < count) {
+                int run = repeatedRun(values, i, count, Integer.MAX_VALUE);
+                if (run >= MIN_REPEATED_RUN) {
+                    writeVarint(fs, run << 1);
+                    writeRepeated(fs, values[i], bitWidth);
+                    i += run;
+                    continue;
+                }
+                final int start = i;
+                while (i < count) {
+                    run = repeatedRun(values, i, count, MIN_REPEATED_RUN);
+                    if (run >= MIN_REPEATED_RUN) {
+                        break;
+                    }
+                    i += run;
+                }
+                writeVarint(fs, ((i - start) << 1) | 1);
+                writePacked(fs, values, start, i - start, bitWidth);
+            }
+        }
+
+        static void decode(FastDeserializer fds, int count, int bitWidth, int out[]) throws IOException {
+            int i = 0;
+            while (i < count) {
+                final int header = readVarint(fds);
+                final int run = header >>> 1;
+                if (run > count - i) {
+                    throw new IOException("Run of " + run + " values overflows the " + count + " expected");
+                }
+                if ((header & 1) == 0) {
+                    final int value = readRepeated(fds, bitWidth);
+                    for (int j = 0; j < run; ++j) {
+                        out[i++] = value;
+                    }
+                } else {
+                    readPacked(fds, out, i, run, bitWidth);
+                    i += run;
+                }
+            }
+        }
+
+        private static int repeatedRun(int values[], int start, int count, int limit) {
+            int run = 1;
+            while (start + run < count && run < limit && values[start + run] == values[start]) {
+                ++run;
+            }
+            return run;
+        }
+
+        private static void writeRepeated(FastSerializer fs, int value, int bitWidth) throws IOException {
+            for (int shift = 0; shift < bitWidth; shift += 8) {
+                fs.writeByte(value >>> shift);
+            }
+        }
+
+        private static int readRepeated(FastDeserializer fds, int bitWidth) throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < bitWidth; shift += 8) {
+                value |= (fds.readByte() & 0xFF) << shift;
+            }
+            return value;
+        }
+
+        private static void writePacked(FastSerializer fs, int values[], int start, int length, int bitWidth)
+                throws IOException {
+            final long mask = (1L << bitWidth) - 1;
+            long buffered = 0;
+            int bits = 0;
+            for (int i = start; i < start + length; ++i) {
+                buffered |= (values[i] & mask) << bits;
+                bits += bitWidth;
+                while (bits >= 8) {
+                    fs.writeByte((int) buffered);
+                    buffered >>>= 8;
+                    bits -= 8;
+                }
+            }
+            if (bits > 0) {
+                fs.writeByte((int) buffered);
+            }
+        }
+
+        private static void readPacked(FastDeserializer fds, int out[], int start, int length, int bitWidth)
+                throws IOException {
+            final long mask = (1L << bitWidth) - 1;
+            long buffered = 0;
+            int bits = 0;
+            for (int i = start; i < start + length; ++i) {
+                while (bits < bitWidth) {
+                    buffered |= (long) (fds.readByte() & 0xFF) << bits;
+                    bits += 8;
+                }
+                out[i] = (int) (buffered & mask);
+                buffered >>>= bitWidth;
+                bits -= bitWidth;
+            }
+        }
+
+        private static void writeVarint(FastSerializer fs, int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                fs.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            fs.writeByte(value);
+        }
+
+        private static int readVarint(FastDeserializer fds) throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                final byte b = fds.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder extends RowDecoder.Builder {
+        protected boolean m_compress = true;
+        protected int m_maxDictionarySize = 1 << 16;
+
+        public Builder compress(boolean compress) {
+            m_compress = compress;
+            return this;
+        }
+
+        public Builder maxDictionarySize(int maxDictionarySize) {
+            Preconditions.checkArgument(maxDictionarySize > 0, "dictionary size must be positive");
+            m_maxDictionarySize = maxDictionarySize;
+            return this;
+        }
+
+        @Override
+        public Builder skipInternalFields(boolean skipThem) {
+            super.skipInternalFields(skipThem);
+            return this;
+        }
+
+        public ColumnarRowGroupDecoder build() {
+            return new ColumnarRowGroupDecoder(m_firstFieldOffset, m_compress, m_maxDictionarySize);
+        }
+    }
+}
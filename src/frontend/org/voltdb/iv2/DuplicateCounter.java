@@ -18,14 +18,13 @@
 package org.voltdb.iv2;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.TransactionInfoBaseMessage;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.LongObjectSortedMap;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.messaging.CompleteTransactionResponseMessage;
@@ -35,7 +34,6 @@ import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 
-import com.google_voltpatches.common.collect.Maps;
 import com.google_voltpatches.common.collect.Sets;
 
 /**
@@ -64,7 +62,7 @@ public class DuplicateCounter
     final long m_txnId;
     final long m_leaderHSID;
     final TransactionInfoBaseMessage m_openMessage;
-    Map<Long, ResponseResult> m_responses = Maps.newTreeMap();
+    final LongObjectSortedMap<ResponseResult> m_responses = new LongObjectSortedMap<ResponseResult>();
 
     // Flag indicating that the the hashes from replicas match with the hash from partition master
     private boolean m_allMatched = true;
@@ -261,23 +259,23 @@ public class DuplicateCounter
         m_responseHashes = leaderResponse.hashes;
         m_lastResponse = leaderResponse.message;
         int pos = -1;
-        for (Iterator<Map.Entry<Long, ResponseResult>> it = m_responses.entrySet().iterator(); it.hasNext();) {
-            Map.Entry<Long, ResponseResult> entry = it.next();
+        for (int i = 0; i < m_responses.size(); i++) {
+            long hsId = m_responses.keyAt(i);
 
             // The replica is not present any more
-            if (!m_replicas.contains(entry.getKey())) {
-                it.remove();
+            if (!m_replicas.contains(hsId)) {
+                m_responses.removeAt(i--);
                 continue;
             }
 
-            ResponseResult res = entry.getValue();
-            if (leaderResponse.success != entry.getValue().success) {
+            ResponseResult res = m_responses.valueAt(i);
+            if (leaderResponse.success != res.success) {
                 if (m_allMatched) {
                     tmLog.error(String.format(FAIL_MSG, getStoredProcedureName()));
                     logRelevantMismatchInformation("HASH MISMATCH", res.hashes, res.message, -1);
                     m_allMatched = false;
                 }
-                m_misMatchedReplicas.add(entry.getKey());
+                m_misMatchedReplicas.add(hsId);
             } else if (res.hashes != null) {
                 pos = DeterminismHash.compareHashes(leaderResponse.hashes, res.hashes);
                 if (pos >=0) {
@@ -286,7 +284,7 @@ public class DuplicateCounter
                         logRelevantMismatchInformation("HASH MISMATCH", res.hashes, res.message, pos);
                     }
                     m_allMatched = false;
-                    m_misMatchedReplicas.add(entry.getKey());
+                    m_misMatchedReplicas.add(hsId);
                 }
             }
         }
@@ -20,6 +20,7 @@ package org.voltdb.iv2;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
@@ -126,6 +127,10 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     private static final double m_taskLogReplayRatio =
             Double.valueOf(System.getProperty("TASKLOG_REPLAY_RATIO", "0.6"));
 
+    // Maximum number of queued read-only invocations of the same procedure sharing one EE call.
+    // Only procedures without Java code qualify, 1 disables grouping.
+    private static final int SP_READ_GROUP_SIZE = Integer.getInteger("SP_READ_GROUP_SIZE", 1);
+
     // Set to false trigger shutdown.
     volatile boolean m_shouldContinue = true;
 
@@ -154,6 +159,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
 
     // Manages pending tasks.
     final SiteTaskerQueue m_pendingSiteTasks;
+    private final List<SpProcedureTask> m_readGroup = new ArrayList<>();
+    private final List<TransactionState> m_readGroupTxns = new ArrayList<>();
 
     private final TickProducer m_tickProducer;
 
@@ -852,6 +859,10 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 if (m_rejoinState == kStateRunning) {
                     // Normal operation blocks the site thread on the sitetasker queue.
                     SiteTasker task = m_pendingSiteTasks.take();
+                    if (SP_READ_GROUP_SIZE > 1 && task instanceof SpProcedureTask) {
+                        runReadGroup((SpProcedureTask)task, SP_READ_GROUP_SIZE);
+                        continue;
+                    }
                     if (task instanceof TransactionTask) {
                         m_currentTxnId = ((TransactionTask)task).getTxnId();
                         m_lastTxnTime = EstTime.currentTimeMillis();
@@ -924,6 +935,49 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         }
     }
 
+    /**
+     * Run an SP task along with the read-only invocations of the same procedure queued right
+     * behind it. Their statements are executed together with one EE call up front, then each
+     * task runs as usual and picks up its results from the procedure runner.
+     *
+     * @param maxGroupSize  the most invocations to put in one EE call
+     */
+    void runReadGroup(SpProcedureTask first, int maxGroupSize) {
+        ProcedureRunner runner = null;
+        if (first.isGroupableRead() && m_pendingSiteTasks.peek() instanceof SpProcedureTask) {
+            runner = getProcedureRunner(first.m_procName);
+        }
+        maxGroupSize = runner == null ? 1 : Math.min(maxGroupSize, runner.getMaxGroupedReads());
+        m_readGroup.add(first);
+        while (m_readGroup.size() < maxGroupSize) {
+            SiteTasker next = m_pendingSiteTasks.peek();
+            if (!(next instanceof SpProcedureTask) || !first.canGroupReadWith((SpProcedureTask)next)) {
+                break;
+            }
+            // Only this thread takes from the queue, so the task peeked at is the one polled
+            m_readGroup.add((SpProcedureTask)m_pendingSiteTasks.poll());
+        }
+        try {
+            if (m_readGroup.size() > 1) {
+                for (SpProcedureTask task : m_readGroup) {
+                    m_readGroupTxns.add(task.getTransactionState());
+                }
+                runner.executeGroupedReads(m_readGroupTxns);
+            }
+            for (SpProcedureTask task : m_readGroup) {
+                m_currentTxnId = task.getTxnId();
+                m_lastTxnTime = EstTime.currentTimeMillis();
+                task.run(getSiteProcedureConnection());
+            }
+        } finally {
+            if (runner != null) {
+                runner.clearGroupedReads();
+            }
+            m_readGroup.clear();
+            m_readGroupTxns.clear();
+        }
+    }
+
     ParticipantTransactionState global_replay_mpTxn = null;
     boolean replayFromTaskLog(MinimumRatioMaintainer mrm) throws IOException
     {
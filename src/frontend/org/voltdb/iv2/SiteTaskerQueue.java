@@ -17,22 +17,47 @@
 
 package org.voltdb.iv2;
 
+import java.util.Queue;
 import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+import org.jctools_voltpatches.queues.atomic.MpscLinkedAtomicQueue;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.QueueDepthTracker;
 import org.voltdb.StarvationTracker;
 
-/** SiteTaskerScheduler orders SiteTaskers for execution. */
+/**
+ * SiteTaskerScheduler orders SiteTaskers for execution.
+ * <p>
+ * Tasks are offered by any number of threads but only taken by the site thread which owns the queue. By default the
+ * queue is a {@link LinkedTransferQueue} and an idle site blocks in it. With {@link #LOCK_FREE} set the queue is a
+ * lock-free multi-producer single-consumer queue instead and an idle site busy spins for {@link #SPIN_NANOS}, then
+ * yields for {@link #YIELD_NANOS} before it parks, so a site on a dedicated core picks up new work without waiting
+ * for a futex wakeup.
+ */
 public class SiteTaskerQueue
 {
-    private final LinkedTransferQueue<SiteTasker> m_tasks = new LinkedTransferQueue<SiteTasker>();
+    static final boolean LOCK_FREE = Boolean.getBoolean("SITE_QUEUE_LOCK_FREE");
+    static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(Long.getLong("SITE_QUEUE_SPIN_MICROS", 20));
+    static final long YIELD_NANOS = TimeUnit.MICROSECONDS.toNanos(Long.getLong("SITE_QUEUE_YIELD_MICROS", 100));
+
+    private final Queue<SiteTasker> m_tasks;
+    private final boolean m_lockFree;
+    // The site thread while it is parked or about to park on an empty lock-free queue
+    private volatile Thread m_parkedConsumer;
     private StarvationTracker m_starvationTracker;
     private QueueDepthTracker m_queueDepthTracker;
     private int m_partitionId;
 
     public SiteTaskerQueue(int partitionId) {
+        this(partitionId, LOCK_FREE);
+    }
+
+    SiteTaskerQueue(int partitionId, boolean lockFree) {
         m_partitionId = partitionId;
+        m_lockFree = lockFree;
+        m_tasks = lockFree ? new MpscLinkedAtomicQueue<SiteTasker>() : new LinkedTransferQueue<SiteTasker>();
     }
 
     public int getPartitionId() {
@@ -47,7 +72,16 @@ public class SiteTaskerQueue
         // the queue depth before it is incremented
         // i.e. avoid queueDepth < 0
         m_queueDepthTracker.offerUpdate();
-        return m_tasks.offer(task);
+        boolean offered = m_tasks.offer(task);
+        if (m_lockFree) {
+            // The offer above is a full fence, so either the site sees the task when it re-checks the queue after
+            // publishing itself as parked or this sees the site and wakes it up
+            Thread parked = m_parkedConsumer;
+            if (parked != null) {
+                LockSupport.unpark(parked);
+            }
+        }
+        return offered;
     }
 
     // Block on the site tasker queue.
@@ -62,7 +96,7 @@ public class SiteTaskerQueue
             return task;
         }
         try {
-            task = CoreUtils.queueSpinTake(m_tasks);
+            task = m_lockFree ? idleTake() : blockingTake();
             // task is never null
             m_queueDepthTracker.pollUpdate(task.getQueueOfferTime());
             return task;
@@ -71,6 +105,52 @@ public class SiteTaskerQueue
         }
     }
 
+    // Spin like CoreUtils.queueSpinTake, but only count the take as a park when the site blocks in the queue
+    private SiteTasker blockingTake() throws InterruptedException {
+        SiteTasker task;
+        final long spinStart = System.nanoTime();
+        while ((task = m_tasks.poll()) == null) {
+            if (System.nanoTime() - spinStart >= CoreUtils.QUEUE_SPIN_MICROSECONDS) {
+                task = ((LinkedTransferQueue<SiteTasker>) m_tasks).take();
+                m_queueDepthTracker.parkUpdate(System.nanoTime() - task.getQueueOfferTime());
+                break;
+            }
+        }
+        return task;
+    }
+
+    private SiteTasker idleTake() throws InterruptedException {
+        SiteTasker task;
+        final long idleStart = System.nanoTime();
+        while ((task = m_tasks.poll()) == null) {
+            long idle = System.nanoTime() - idleStart;
+            if (idle >= SPIN_NANOS + YIELD_NANOS) {
+                return parkingTake();
+            }
+            if (idle >= SPIN_NANOS) {
+                Thread.yield();
+            }
+        }
+        return task;
+    }
+
+    private SiteTasker parkingTake() throws InterruptedException {
+        SiteTasker task;
+        m_parkedConsumer = Thread.currentThread();
+        try {
+            while ((task = m_tasks.poll()) == null) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            m_parkedConsumer = null;
+        }
+        m_queueDepthTracker.parkUpdate(System.nanoTime() - task.getQueueOfferTime());
+        return task;
+    }
+
     // Non-blocking poll on the site tasker queue.
     public SiteTasker poll()
     {
@@ -81,7 +161,8 @@ public class SiteTaskerQueue
         return task;
     }
 
-    // Non-blocking peek on the site tasker queue.
+    // Non-blocking peek on the site tasker queue. Only a best effort answer when
+    // called from a thread other than the site thread on a lock-free queue.
     public SiteTasker peek()
     {
         return m_tasks.peek();
@@ -180,6 +180,10 @@ public class SpProcedureTask extends ProcedureTask
         if (!response.shouldCommit()) {
             m_txnState.setNeedsRollback(true);
         }
+        // The response is dropped, return any pooled result buffers it holds
+        if (response.getClientResponseData() != null) {
+            response.getClientResponseData().releasePooledResults();
+        }
         if (!m_txnState.isReadOnly()) {
             assert(siteConnection.getLatestUndoToken() != Site.kInvalidUndoToken) :
                 "[SP][RW] transaction found invalid latest undo token state in Iv2ExecutionSite.";
@@ -239,6 +243,22 @@ public class SpProcedureTask extends ProcedureTask
         doCommonSPICompleteActions();
     }
 
+    /**
+     * @return true if this is a read-only invocation that may share an EE call with other
+     * invocations of the same procedure, see {@link Site#runReadGroup}
+     */
+    boolean isGroupableRead()
+    {
+        return m_txnState.isReadOnly() &&
+               m_txnState.getInvocation() != null &&
+               !BatchTimeoutOverrideType.isUserSetTimeout(m_txnState.getInvocation().getBatchTimeout());
+    }
+
+    boolean canGroupReadWith(SpProcedureTask other)
+    {
+        return m_procName.equals(other.m_procName) && other.isGroupableRead();
+    }
+
     @Override
     public String toString()
     {
@@ -21,9 +21,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +38,7 @@ import org.voltcore.messaging.HostMessenger;
 import org.voltcore.messaging.TransactionInfoBaseMessage;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.LongObjectHashMap;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.CommandLog;
 import org.voltdb.CommandLog.DurabilityListener;
@@ -150,13 +149,13 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     private List<Long> m_replicaHSIds = new ArrayList<>();
     long m_sendToHSIds[] = new long[0];
     private final TransactionTaskQueue m_pendingTasks;
-    private final Map<Long, TransactionState> m_outstandingTxns =
-        new HashMap<Long, TransactionState>();
+    private final LongObjectHashMap<TransactionState> m_outstandingTxns =
+        new LongObjectHashMap<TransactionState>();
     private final TreeMap<DuplicateCounterKey, DuplicateCounter> m_duplicateCounters =
         new TreeMap<DuplicateCounterKey, DuplicateCounter>();
     // MP fragment tasks or completion tasks pending durability
-    private final Map<Long, Queue<TransactionTask>> m_mpsPendingDurability =
-        new HashMap<Long, Queue<TransactionTask>>();
+    private final LongObjectHashMap<Queue<TransactionTask>> m_mpsPendingDurability =
+        new LongObjectHashMap<Queue<TransactionTask>>();
     private CommandLog m_cl;
     private final SnapshotCompletionMonitor m_snapMonitor;
     private BufferedReadLog m_bufferedReadLog = null;
@@ -786,6 +785,14 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     // Pass a response through the duplicate counters.
     private void handleInitiateResponseMessage(InitiateResponseMessage message)
     {
+        final ClientResponseImpl clientResponse = message.getClientResponseData();
+        final boolean hasPooledResults = clientResponse != null && clientResponse.hasPooledResults();
+        if (hasPooledResults &&
+                CoreUtils.getHostIdFromHSId(message.getInitiatorHSId()) != CoreUtils.getHostIdFromHSId(m_mailbox.getHSId())) {
+            // Pooled result buffers can only be handed to a local ClientInterface
+            clientResponse.copyPooledResultsToHeap();
+        }
+
         //For mis-routed transactions, no update for truncation handle or duplicated counter
         if (message.isMisrouted()){
             m_mailbox.send(message.getInitiatorHSId(), message);
@@ -800,6 +807,10 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         final long spHandle = message.getSpHandle();
         final DuplicateCounterKey dcKey = new DuplicateCounterKey(message.getTxnId(), spHandle);
         DuplicateCounter counter = m_duplicateCounters.get(dcKey);
+        if (counter != null && hasPooledResults) {
+            // The counter may hold on to this response or drop it in favor of a replica's
+            clientResponse.copyPooledResultsToHeap();
+        }
         final VoltTrace.TraceEventBatch traceLog = VoltTrace.log(VoltTrace.Category.SPI);
 
         // All reads will have no duplicate counter.
@@ -1429,7 +1440,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             }
         }
         builder.append("\n  most recent SP handle: ").append(TxnEgo.txnIdToString(getCurrentTxnId()));
-        builder.append("\n  outstanding txns: ").append(TxnEgo.txnIdCollectionToString(m_outstandingTxns.keySet()));
+        builder.append("\n  outstanding txns: ").append(TxnEgo.txnIdCollectionToString(Longs.asList(m_outstandingTxns.keys())));
         builder.append("\n  ");
         m_pendingTasks.toString(builder);
         if (m_duplicateCounters.size() > 0) {
@@ -1803,18 +1814,16 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (m_isLeader && m_sendToHSIds.length > 0) {
             m_mailbox.send(m_sendToHSIds, new MPBacklogFlushMessage());
         }
-        Iterator<Entry<Long, TransactionState>> iter = m_outstandingTxns.entrySet().iterator();
-        while (iter.hasNext()) {
-            Entry<Long, TransactionState> entry = iter.next();
-            TransactionState txnState = entry.getValue();
-            if (TxnEgo.getPartitionId(entry.getKey()) == MpInitiator.MP_INIT_PID ) {
+        m_outstandingTxns.removeIf((txnId, txnState) -> {
+            if (TxnEgo.getPartitionId(txnId) == MpInitiator.MP_INIT_PID ) {
                 if (txnState.isReadOnly()) {
                     txnState.setDone();
-                    m_duplicateCounters.entrySet().removeIf((e) -> e.getKey().m_txnId == entry.getKey());
-                    iter.remove();
+                    m_duplicateCounters.entrySet().removeIf((e) -> e.getKey().m_txnId == txnId);
+                    return true;
                 }
             }
-        }
+            return false;
+        });
 
         // flush all RO transactions out of backlog
         m_pendingTasks.removeMPReadTransactions();
@@ -19,22 +19,19 @@ package org.voltdb.iv2;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.LongObjectSortedMap;
 import org.voltcore.utils.Pair;
 import org.voltdb.dtxn.TransactionState;
 
-import com.google_voltpatches.common.collect.Collections2;
 import com.google_voltpatches.common.collect.ImmutableSet;
-import com.google_voltpatches.common.collect.Maps;
 
 public class TransactionTaskQueue
 {
@@ -65,8 +62,10 @@ public class TransactionTaskQueue
         private int m_lowestSiteId = Integer.MIN_VALUE;
         private int m_siteCount = 0;
 
-        // Reverse order to release countdown latch in EE to avoid context switch
-        private Map<Integer, ScoreboardContainer> m_scoreboardContainers = Maps.newTreeMap(Collections.reverseOrder());
+        // Keyed by site id and walked from the highest site id down to release countdown latch in EE to avoid
+        // context switch
+        private final LongObjectSortedMap<ScoreboardContainer> m_scoreboardContainers =
+                new LongObjectSortedMap<ScoreboardContainer>();
         private ImmutableSet<Scoreboard> m_scoreBoards = ImmutableSet.of();
         void resetScoreboards(int firstSiteId, int siteCount) {
             m_scoreboardContainers.clear();
@@ -79,18 +78,22 @@ public class TransactionTaskQueue
             assert(m_lowestSiteId != Integer.MIN_VALUE);
             assert(siteId >= m_lowestSiteId && siteId-m_lowestSiteId < m_siteCount);
             m_scoreboardContainers.put(siteId, new ScoreboardContainer(queue, scoreboard));
-            ImmutableSet.Builder<Scoreboard> builder = ImmutableSet.builder();
-            builder.addAll(Collections2.transform(m_scoreboardContainers.values(), sc -> sc.siteScoreboard));
-            m_scoreBoards = builder.build();
+            rebuildScoreboards();
         }
 
         void removeScoreboard(int siteId) {
             ScoreboardContainer con = m_scoreboardContainers.remove(siteId);
             assert(con != null);
+            rebuildScoreboards();
+            m_siteCount--;
+        }
+
+        private void rebuildScoreboards() {
             ImmutableSet.Builder<Scoreboard> builder = ImmutableSet.builder();
-            builder.addAll(Collections2.transform(m_scoreboardContainers.values(), sc -> sc.siteScoreboard));
+            for (int i = m_scoreboardContainers.size() - 1; i >= 0; i--) {
+                builder.add(m_scoreboardContainers.valueAt(i).siteScoreboard);
+            }
             m_scoreBoards = builder.build();
-            m_siteCount--;
         }
 
         // All sites receives FragmentTask messages, time to fire the task.
@@ -99,7 +102,8 @@ public class TransactionTaskQueue
                 hostLog.debug("release stashed fragment messages:" + TxnEgo.txnIdToString(txnId));
             }
             long lastTxnId = 0;
-            for (ScoreboardContainer con : m_scoreboardContainers.values()) {
+            for (int i = m_scoreboardContainers.size() - 1; i >= 0; i--) {
+                ScoreboardContainer con = m_scoreboardContainers.valueAt(i);
                 TransactionTask task = con.siteScoreboard.getFragmentTask();
                 assert(lastTxnId == 0 || lastTxnId == task.getTxnId());
                 lastTxnId = task.getTxnId();
@@ -122,7 +126,8 @@ public class TransactionTaskQueue
                 }
 
                 CompletionCounter nextTaskCounter = new CompletionCounter();
-                for (ScoreboardContainer con : m_scoreboardContainers.values()) {
+                for (int i = m_scoreboardContainers.size() - 1; i >= 0; i--) {
+                    ScoreboardContainer con = m_scoreboardContainers.valueAt(i);
                     // only release completions at head of queue
                     Pair<CompleteTransactionTask, Boolean> task = con.siteScoreboard
                             .pollFirstCompletionTask(nextTaskCounter);
@@ -156,7 +161,8 @@ public class TransactionTaskQueue
 
         // should only be used for debugging purpose
         private void dumpStashedMpWrites(StringBuilder builder) {
-            for (ScoreboardContainer con : m_scoreboardContainers.values()) {
+            for (int i = m_scoreboardContainers.size() - 1; i >= 0; i--) {
+                ScoreboardContainer con = m_scoreboardContainers.valueAt(i);
                 builder.append("\nQueue " + con.taskQueue.getPartitionId() + ":" + con.siteScoreboard);
             }
         }
@@ -755,6 +755,18 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             long undoQuantumToken,
             boolean traceOn) throws EEException;
 
+    /**
+     * Hand the buffer holding the results of the last executed batch over to the caller
+     * and give the EE a fresh buffer for the next batch, so the results can be used
+     * without copying them out of the shared buffer.
+     * @param resultSize  size in bytes of the results of the last batch
+     * @return the buffer now owned by the caller, or null if the results stay in the shared
+     *         buffer and must be copied before the next batch runs
+     */
+    public DBBPool.BBContainer detachResultBuffer(int resultSize) {
+        return null;
+    }
+
     public abstract void setPerFragmentTimingEnabled(boolean enabled);
 
     // Extract the per-fragment stats from the buffer.
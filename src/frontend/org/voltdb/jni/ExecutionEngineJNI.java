@@ -83,6 +83,15 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      */
     public static final int EE_COMPACTION_THRESHOLD;
 
+    /*
+     * When enabled, the results of a single partition batch that are at least
+     * EE_POOLED_RESULT_THRESHOLD bytes are not copied out of the result buffer. Instead the
+     * buffer itself is handed to the procedure response and the EE is given a fresh one from
+     * the DBBPool. The buffer goes back to the pool once the response has been serialized.
+     */
+    public static final boolean EE_POOLED_RESULT_BUFFERS = Boolean.getBoolean("EE_POOLED_RESULT_BUFFERS");
+    public static final int EE_POOLED_RESULT_THRESHOLD = Integer.getInteger("EE_POOLED_RESULT_THRESHOLD", 64 * 1024);
+
     private static final boolean HOST_TRACE_ENABLED;
 
     // Size of the parameter set buffer and the per-fragment stats buffer.
@@ -130,10 +139,11 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      * that rely on being able to serialize large results sets will get the same amount of storage
      * when using the IPC backend.
      **/
-    private final BBContainer m_firstDeserializerBufferOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 10);
+    private static final int RESULT_BUFFER_SIZE = 1024 * 1024 * 10;
+    private BBContainer m_firstDeserializerBufferOrigin = allocateResultBuffer();
     private FastDeserializer m_firstDeserializer =
             new FastDeserializer(m_firstDeserializerBufferOrigin.b());
-    private final BBContainer m_nextDeserializerBufferOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 10);
+    private BBContainer m_nextDeserializerBufferOrigin = allocateResultBuffer();
     private FastDeserializer m_nextDeserializer =
             new FastDeserializer(m_nextDeserializerBufferOrigin.b());
 
@@ -210,12 +220,18 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                 m_psetBuffer,                 m_psetBuffer.capacity(),
                 m_perFragmentStatsBuffer,     m_perFragmentStatsBuffer.capacity(),
                 m_udfBuffer,                  m_udfBuffer.capacity(),
-                m_firstDeserializer.buffer(), m_firstDeserializer.buffer().capacity(),
-                m_nextDeserializer.buffer(),  m_nextDeserializer.buffer().capacity(),
+                m_firstDeserializer.buffer(), RESULT_BUFFER_SIZE,
+                m_nextDeserializer.buffer(),  RESULT_BUFFER_SIZE,
                 m_exceptionBuffer,            m_exceptionBuffer.capacity());
         checkErrorCode(errorCode);
     }
 
+    private static BBContainer allocateResultBuffer() {
+        // Pooled buffers are rounded up to a power of 2, the EE is only told about RESULT_BUFFER_SIZE
+        return EE_POOLED_RESULT_BUFFERS ?
+                DBBPool.allocateDirectAndPool(RESULT_BUFFER_SIZE) : DBBPool.allocateDirect(RESULT_BUFFER_SIZE);
+    }
+
     final void setupPsetBuffer(int size) {
         if (m_psetBuffer != null) {
             m_psetBufferC.discard();
@@ -770,6 +786,26 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         m_fallbackBuffer = buffer;
     }
 
+    @Override
+    public BBContainer detachResultBuffer(int resultSize) {
+        if (!EE_POOLED_RESULT_BUFFERS || resultSize < EE_POOLED_RESULT_THRESHOLD || m_usingFallbackBuffer) {
+            return null;
+        }
+        final BBContainer detached;
+        if (m_currentBatchIndex == 0) {
+            detached = m_firstDeserializerBufferOrigin;
+            m_firstDeserializerBufferOrigin = allocateResultBuffer();
+            m_firstDeserializer = new FastDeserializer(m_firstDeserializerBufferOrigin.b());
+        }
+        else {
+            detached = m_nextDeserializerBufferOrigin;
+            m_nextDeserializerBufferOrigin = allocateResultBuffer();
+            m_nextDeserializer = new FastDeserializer(m_nextDeserializerBufferOrigin.b());
+        }
+        updateEEBufferPointers();
+        return detached;
+    }
+
     public void resizeUDFBuffer(int size) {
         // Read the size which we want to change to.
         setupUDFBuffer(size);
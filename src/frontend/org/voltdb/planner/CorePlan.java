@@ -22,10 +22,17 @@ import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.voltdb.VoltType;
 import org.voltdb.common.Constants;
 import org.voltdb.compiler.AdHocPlannedStatement;
+import org.voltdb.planner.parseinfo.StmtTargetTableScan;
+import org.voltdb.plannodes.AbstractPlanNode;
 
 /**
  * CorePlan is an immutable representation of a SQL execution plan.
@@ -68,6 +75,13 @@ public class CorePlan {
     private int partitioningParamIndex = -1;
     private Object partitioningParamValue = null;
 
+    /**
+     * Names of the tables the plan reads or writes, or null if unknown.
+     * Used to decide whether a cached plan survives a schema change.
+     * (Note, not serialized either.)
+     */
+    private Set<String> referencedTables = null;
+
     /**
      * Constructor from QueryPlanner output.
      *
@@ -101,6 +115,7 @@ public class CorePlan {
         this.catalogHash = catalogHash;
         parameterTypes = plan.parameterTypes();
         readOnly = plan.isReadOnly();
+        referencedTables = collectReferencedTables(plan);
     }
 
     /***
@@ -132,6 +147,36 @@ public class CorePlan {
         this.catalogHash = catalogHash;
     }
 
+    private static Set<String> collectReferencedTables(CompiledPlan plan) {
+        Map<String, StmtTargetTableScan> tablesRead = new TreeMap<>();
+        Set<String> tables = new TreeSet<>();
+        for (AbstractPlanNode graph : new AbstractPlanNode[] { plan.rootPlanGraph, plan.subPlanGraph }) {
+            if (graph == null) {
+                continue;
+            }
+            graph.getTablesAndIndexes(tablesRead, null);
+            String updated = graph.getUpdatedTable();
+            if (updated != null) {
+                tables.add(updated);
+            }
+        }
+        tables.addAll(tablesRead.keySet());
+        return Collections.unmodifiableSet(tables);
+    }
+
+    /**
+     * Copy of this plan that claims to be good for another catalog, for carrying
+     * cached plans across a catalog update that did not affect them.
+     */
+    public CorePlan withCatalogHash(byte[] catalogHash) {
+        CorePlan copy = new CorePlan(aggregatorFragment, collectorFragment, aggregatorHash, collectorHash,
+                isReplicatedTableDML, readOnly, parameterTypes, catalogHash);
+        copy.partitioningParamIndex = partitioningParamIndex;
+        copy.partitioningParamValue = partitioningParamValue;
+        copy.referencedTables = referencedTables;
+        return copy;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -292,6 +337,13 @@ public class CorePlan {
         return partitioningParamValue;
     }
 
+    public void setReferencedTables(Set<String> referencedTables) {
+        this.referencedTables = referencedTables;
+    }
+    public Set<String> getReferencedTables() {
+        return referencedTables;
+    }
+
     public VoltType getPartitioningParamType() {
         if (partitioningParamIndex < 0 || partitioningParamIndex >= parameterTypes.length) {
             return VoltType.NULL;
@@ -21,6 +21,7 @@ import java.util.*;
 
 import org.voltdb.exceptions.PlanningErrorException;
 import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.AbstractSubqueryExpression;
 import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.planner.parseinfo.BranchNode;
@@ -32,6 +33,7 @@ import org.voltdb.plannodes.IndexSortablePlanNode;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractReceivePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.IndexUseForOrderBy;
 import org.voltdb.plannodes.MaterializedScanPlanNode;
@@ -58,6 +60,13 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     /** The list of all possible join orders, assembled by queueAllJoinOrders */
     private ArrayDeque<JoinNode> m_joinOrders = new ArrayDeque<>();
 
+    /** Whether each plan with nested loop joins gets a hash join variant to compete with it */
+    private final boolean m_considerHashJoins;
+    /** Set while generating the hash join variant of a plan */
+    private boolean m_useHashJoins = false;
+    /** Whether the variant being generated got any hash join at all */
+    private boolean m_builtHashJoin = false;
+
     private static final Runtime RUN_TIME = Runtime.getRuntime();
     // Number of times generateSubPlanForJoinNode() gets called recursively that we collect an estimate of heap size,
     // and early exit if too large heap size had been used.
@@ -81,9 +90,13 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
      * @param selectStmt The parsed and dissected statement object describing the sql to execute.
      * @param partitioning in/out param first element is partition key value, forcing a single-partition statement if non-null,
      * second may be an inferred partition key if no explicit single-partitioning was specified
+     * @param considerHashJoins whether to also plan equi-joins as hash joins, whose spilling
+     * to large temp tables needs the statement to run as a large query
      */
-    SelectSubPlanAssembler(ParsedSelectStmt selectStmt, StatementPartitioning partitioning) {
+    SelectSubPlanAssembler(ParsedSelectStmt selectStmt, StatementPartitioning partitioning,
+            boolean considerHashJoins) {
         super(selectStmt, partitioning);
+        m_considerHashJoins = considerHashJoins;
         if (selectStmt.hasJoinOrder()) {
             // If a join order was provided or large number of tables join
             m_joinOrders.addAll(selectStmt.getJoinOrder());
@@ -541,6 +554,16 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                     continue;
                 }
                 m_plans.add(plan);
+                if (m_considerHashJoins) {
+                    // Let the cost model pick between nested loop and hash joins.
+                    m_useHashJoins = true;
+                    m_builtHashJoin = false;
+                    plan = getSelectSubPlanForJoinNode(rootNode);
+                    m_useHashJoins = false;
+                    if (plan != null && m_builtHashJoin) {
+                        m_plans.add(plan);
+                    }
+                }
             }
             return;
         }
@@ -729,7 +752,7 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
 
         AbstractJoinPlanNode ajNode = null;
         if (canHaveNLJ) {
-            NestLoopPlanNode nljNode = new NestLoopPlanNode();
+            AbstractJoinPlanNode nljNode = new NestLoopPlanNode();
             // get all the clauses that join the applicable two tables
             // Copy innerAccessPath.joinExprs to leave it unchanged,
             // avoiding accumulation of redundant expressions when
@@ -770,6 +793,20 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
             }
             nljNode.setJoinPredicate(ExpressionUtil.combinePredicates(ExpressionType.CONJUNCTION_AND, joinClauses));
 
+            if (m_useHashJoins && ! needInnerSendReceive && joinNode.getJoinType() != JoinType.FULL) {
+                List<AbstractExpression> outerKeys = new ArrayList<>();
+                List<AbstractExpression> innerKeys = new ArrayList<>();
+                collectHashJoinKeys(joinClauses, joinNode.getLeftNode().generateTableJoinOrder(),
+                        innerJoinNode.generateTableJoinOrder(), outerKeys, innerKeys);
+                if ( ! outerKeys.isEmpty()) {
+                    HashJoinPlanNode hashJoinNode = new HashJoinPlanNode();
+                    hashJoinNode.setJoinPredicate(nljNode.getJoinPredicate());
+                    hashJoinNode.setHashKeys(outerKeys, innerKeys);
+                    nljNode = hashJoinNode;
+                    m_builtHashJoin = true;
+                }
+            }
+
             // combine the tails plan graph with the new head node
             nljNode.addAndLinkChild(outerPlan);
 
@@ -813,6 +850,73 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return ajNode;
     }
 
+    /**
+     * Find the equality join expressions that a hash join can use as keys: those
+     * comparing an expression of only outer tables with an expression of only inner
+     * tables, both of the same type so that equal values always hash alike.
+     *
+     * @param joinClauses The join expressions.
+     * @param outerTables Aliases of the tables on the outer side.
+     * @param innerTables Aliases of the tables on the inner side.
+     * @param outerKeys Receives the outer side of each usable expression.
+     * @param innerKeys Receives the inner side of each usable expression.
+     */
+    private static void collectHashJoinKeys(List<AbstractExpression> joinClauses,
+            Collection<String> outerTables, Collection<String> innerTables,
+            List<AbstractExpression> outerKeys, List<AbstractExpression> innerKeys) {
+        for (AbstractExpression clause : joinClauses) {
+            if (clause.getExpressionType() != ExpressionType.COMPARE_EQUAL) {
+                continue;
+            }
+            AbstractExpression left = clause.getLeft();
+            AbstractExpression right = clause.getRight();
+            if ( ! isHashableKey(left) || ! isHashableKey(right) ||
+                    left.getValueType() != right.getValueType()) {
+                continue;
+            }
+            if (referencesOnly(left, outerTables) && referencesOnly(right, innerTables)) {
+                outerKeys.add(left);
+                innerKeys.add(right);
+            } else if (referencesOnly(left, innerTables) && referencesOnly(right, outerTables)) {
+                outerKeys.add(right);
+                innerKeys.add(left);
+            }
+        }
+    }
+
+    private static boolean isHashableKey(AbstractExpression expr) {
+        if (expr.hasAnySubexpressionOfClass(AbstractSubqueryExpression.class)) {
+            return false;
+        }
+        // Equal floating point and geospatial values are not guaranteed to hash alike
+        switch (expr.getValueType()) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case TIMESTAMP:
+        case DECIMAL:
+        case STRING:
+        case VARBINARY:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static boolean referencesOnly(AbstractExpression expr, Collection<String> tableAliases) {
+        List<TupleValueExpression> tves = ExpressionUtil.getTupleValueExpressions(expr);
+        if (tves.isEmpty()) {
+            return false;
+        }
+        for (TupleValueExpression tve : tves) {
+            if ( ! tableAliases.contains(tve.getTableAlias())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * A method to filter out single-TVE expressions.
      *
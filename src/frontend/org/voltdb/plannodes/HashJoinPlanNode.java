@@ -0,0 +1,148 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * Equi-join that builds a hash table on the output of its inner child and probes
+ * it with each tuple of its outer child. The hash keys are the two sides of the
+ * equality conjuncts of the join predicate, which is still evaluated as a whole
+ * on every pair of tuples with matching hashes.
+ */
+public class HashJoinPlanNode extends AbstractJoinPlanNode {
+
+    public enum Members {
+        OUTER_HASH_KEYS,
+        INNER_HASH_KEYS;
+    }
+
+    // A nested loop join reads its inner input once per outer tuple, a hash join
+    // just once. The NLJ estimate only charges a single pass, so a hash join
+    // over the same inputs gets a discount on the inner side to be preferred.
+    private static final double INNER_HASH_BUILD_DISCOUNT = 0.9;
+
+    private final List<AbstractExpression> m_outerHashKeys = new ArrayList<>();
+    private final List<AbstractExpression> m_innerHashKeys = new ArrayList<>();
+
+    public HashJoinPlanNode() {
+        super();
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.HASHJOIN;
+    }
+
+    /**
+     * @param outerKeys expressions on the outer child's tuples
+     * @param innerKeys expressions on the inner child's tuples, pairwise equal in type to outerKeys
+     */
+    public void setHashKeys(List<AbstractExpression> outerKeys, List<AbstractExpression> innerKeys) {
+        assert(outerKeys.size() == innerKeys.size() && ! outerKeys.isEmpty());
+        m_outerHashKeys.clear();
+        m_innerHashKeys.clear();
+        for (AbstractExpression key : outerKeys) {
+            m_outerHashKeys.add(key.clone());
+        }
+        for (AbstractExpression key : innerKeys) {
+            m_innerHashKeys.add(key.clone());
+        }
+    }
+
+    public List<AbstractExpression> getOuterHashKeys() {
+        return m_outerHashKeys;
+    }
+
+    public List<AbstractExpression> getInnerHashKeys() {
+        return m_innerHashKeys;
+    }
+
+    @Override
+    public void resolveColumnIndexes() {
+        super.resolveColumnIndexes();
+        final NodeSchema outerSchema = m_children.get(0).getOutputSchema();
+        final NodeSchema innerSchema = m_children.get(1).getOutputSchema();
+        resolvePredicate(m_outerHashKeys, outerSchema, innerSchema);
+        resolvePredicate(m_innerHashKeys, outerSchema, innerSchema);
+    }
+
+    @Override
+    public boolean isOutputOrdered(List<AbstractExpression> sortExpressions, List<SortDirectionType> sortDirections) {
+        // Spilled partitions are joined one after the other, which scrambles the outer order.
+        return false;
+    }
+
+    @Override
+    public void resolveSortDirection() {
+        m_sortDirection = SortDirectionType.INVALID;
+    }
+
+    @Override
+    public void computeCostEstimates(long childOutputTupleCountEstimate,
+                                     DatabaseEstimates estimates,
+                                     ScalarValueHints[] paramHints) {
+        m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
+        // Discount outer child estimates based on the number of its filters
+        assert(m_children.size() == 2);
+        m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(m_children.get(0)) +
+                (long) (m_children.get(1).m_estimatedProcessedTupleCount * INNER_HASH_BUILD_DISCOUNT);
+    }
+
+    @Override
+    public void findAllExpressionsOfClass(Class< ? extends AbstractExpression> aeClass, Set<AbstractExpression> collected) {
+        super.findAllExpressionsOfClass(aeClass, collected);
+        for (AbstractExpression key : m_outerHashKeys) {
+            collected.addAll(key.findAllSubexpressionsOfClass(aeClass));
+        }
+        for (AbstractExpression key : m_innerHashKeys) {
+            collected.addAll(key.findAllSubexpressionsOfClass(aeClass));
+        }
+    }
+
+    @Override
+    protected String explainPlanForNode(String indent) {
+        return "HASH " + this.m_joinType.toString() + " JOIN" + explainFilters(indent);
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        super.toJSONString(stringer);
+        stringer.key(Members.OUTER_HASH_KEYS.name()).array(m_outerHashKeys);
+        stringer.key(Members.INNER_HASH_KEYS.name()).array(m_innerHashKeys);
+    }
+
+    @Override
+    public void loadFromJSONObject(JSONObject jobj, Database db) throws JSONException {
+        super.loadFromJSONObject(jobj, db);
+        AbstractExpression.loadFromJSONArrayChild(m_outerHashKeys, jobj, Members.OUTER_HASH_KEYS.name(), null);
+        AbstractExpression.loadFromJSONArrayChild(m_innerHashKeys, jobj, Members.INNER_HASH_KEYS.name(), null);
+    }
+}
@@ -115,14 +115,21 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
 
     static class NibbleStatus {
         final AtomicLong rowsDeleted;
+        // Execution time of the slowest partition, accumulated over every attempt of this round
+        final AtomicLong partitionExecutionTime;
         long rowsLeft;
         long rowsJustDeleted;
         String errorMessages;
 
         NibbleStatus(long rowsLeft, long rowsJustDeleted, String errorMessages) {
+            this(rowsLeft, rowsJustDeleted, 0, errorMessages);
+        }
+
+        NibbleStatus(long rowsLeft, long rowsJustDeleted, long partitionExecutionTime, String errorMessages) {
             this.rowsLeft = rowsLeft;
             this.rowsJustDeleted = rowsJustDeleted;
             rowsDeleted = new AtomicLong(rowsJustDeleted);
+            this.partitionExecutionTime = new AtomicLong(partitionExecutionTime);
             this.errorMessages = errorMessages;
         }
     }
@@ -136,6 +143,7 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
             boolean isReplicated) {
         long rowsJustDeleted = 0;
         long rowsLeft = 0;
+        long executionTime = 0;
         int ONE = 1;
         VoltTable parameter = new VoltTable(new ColumnInfo[] {
                 new ColumnInfo("col1", VoltType.typeFromObject(value)),
@@ -157,6 +165,7 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
                     result.advanceRow();
                     rowsJustDeleted = result.getLong("DELETED_ROWS");
                     rowsLeft = result.getLong("LEFT_ROWS");
+                    executionTime = result.getLong("EXECUTION_TIME");
                     break;
                 case ClientResponse.RESPONSE_UNKNOWN:
                     // Could because node failure, nothing to do here I guess
@@ -190,6 +199,8 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
                     result.advanceRow();
                     rowsJustDeleted += result.getLong("DELETED_ROWS");
                     rowsLeft += result.getLong("LEFT_ROWS");
+                    // partitions delete in parallel, so the slowest one bounds the impact on its site
+                    executionTime = Math.max(executionTime, result.getLong("EXECUTION_TIME"));
                     break;
                 case ClientResponse.RESPONSE_UNKNOWN:
                     // Could because node failure, nothing to do here I guess
@@ -199,7 +210,7 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
                 }
             }
         }
-        return new NibbleStatus(rowsLeft, rowsJustDeleted, "");
+        return new NibbleStatus(rowsLeft, rowsJustDeleted, executionTime, "");
     }
 
     public VoltTable run(
@@ -217,7 +228,8 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
                                 new ColumnInfo("DELETED_LAST_ROUND", VoltType.BIGINT),
                                 new ColumnInfo("LAST_DELETE_TIMESTAMP", VoltType.BIGINT),
                                 new ColumnInfo("STATUS", VoltType.BIGINT),
-                                new ColumnInfo("MESSAGE", VoltType.STRING));
+                                new ColumnInfo("MESSAGE", VoltType.STRING),
+                                new ColumnInfo("PARTITION_EXECUTION_TIME", VoltType.BIGINT));
 
         // collect all the validated info and metadata needed
         // these throw helpful errors if they run into problems
@@ -239,7 +251,7 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
         // If any partition receive failure, report the delete status plus the error message back.
         if (!status.errorMessages.isEmpty()) {
             returnTable.addRow(status.rowsJustDeleted, rowsLeft, status.rowsJustDeleted, System.currentTimeMillis(),
-                    ClientResponse.GRACEFUL_FAILURE, status.errorMessages);
+                    ClientResponse.GRACEFUL_FAILURE, status.errorMessages, status.partitionExecutionTime.get());
             return returnTable;
         }
         // handle the case where we're jammed from the start (no rows deleted)
@@ -253,7 +265,7 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
         int attemptsLeft = (int)Math.min((long)Math.ceil((double)rowsLeft/(double)chunksize), (maxFrequency-1));
         if (attemptsLeft == 0) {
             returnTable.addRow(status.rowsJustDeleted, rowsLeft, status.rowsJustDeleted, System.currentTimeMillis(),
-                    ClientResponse.SUCCESS, "");
+                    ClientResponse.SUCCESS, "", status.partitionExecutionTime.get());
             return returnTable;
         }
 
@@ -283,6 +295,7 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
                     success.set(false);
                 } else {
                     status.rowsDeleted.addAndGet(thisStatus.rowsJustDeleted);
+                    status.partitionExecutionTime.addAndGet(thisStatus.partitionExecutionTime.get());
                     if (attempt == (attemptsLeft-1)) {
                         status.rowsLeft = thisStatus.rowsLeft;
                         status.rowsJustDeleted = thisStatus.rowsJustDeleted;
@@ -316,7 +329,8 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
                 status.rowsJustDeleted,
                 System.currentTimeMillis(),
                 success.get() ? ClientResponse.SUCCESS : ClientResponse.GRACEFUL_FAILURE,
-                success.get() ? "" : Arrays.toString(errors));
+                success.get() ? "" : Arrays.toString(errors),
+                status.partitionExecutionTime.get());
         return returnTable;
     }
 }
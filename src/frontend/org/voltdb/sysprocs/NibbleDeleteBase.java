@@ -50,7 +50,8 @@ public class NibbleDeleteBase extends VoltSystemProcedure {
 
     private static ColumnInfo[] schema = new ColumnInfo[] {
             new ColumnInfo("DELETED_ROWS", VoltType.BIGINT),  /* number of rows be deleted in this invocation */
-            new ColumnInfo("LEFT_ROWS", VoltType.BIGINT) /* number of rows to be deleted after this invocation */
+            new ColumnInfo("LEFT_ROWS", VoltType.BIGINT), /* number of rows to be deleted after this invocation */
+            new ColumnInfo("EXECUTION_TIME", VoltType.BIGINT) /* nanoseconds this partition spent running the statements */
     };
 
     public long[] getPlanFragmentIds() {
@@ -201,6 +202,7 @@ public class NibbleDeleteBase extends VoltSystemProcedure {
                             tableName));
         }
 
+        final long startNanos = System.nanoTime();
         Object cutoffValue = null;
         VoltTable result = null;
         result = executePrecompiledSQL(countStmt, params, replicated);
@@ -221,9 +223,10 @@ public class NibbleDeleteBase extends VoltSystemProcedure {
                                        replicated);
         long deletedRows = result.asScalarLong();
 
-        // Return rows be deleted in this run and rows left for next run
+        // Return rows be deleted in this run and rows left for next run, along with the time
+        // spent so that callers can size the next chunk against their latency budget.
         VoltTable retTable = new VoltTable(schema);
-        retTable.addRow(deletedRows, rowCount - deletedRows);
+        retTable.addRow(deletedRows, rowCount - deletedRows, System.nanoTime() - startNanos);
         return retTable;
     }
 }
@@ -131,19 +131,30 @@ public class SnapshotRegistry {
             public final String filename;
             public final long size;
             public final Throwable error;
+            // Megabytes per second of busy time, 0 if the target doesn't report them
+            public final double compressionThroughput;
+            public final double writeThroughput;
 
             private Table(String name, String filename) {
                 this.name = name;
                 this.filename = filename;
                 size = 0;
                 error = null;
+                compressionThroughput = 0;
+                writeThroughput = 0;
             }
 
             public Table(Table t, long size, Throwable error) {
+                this(t, size, error, 0, 0);
+            }
+
+            public Table(Table t, long size, Throwable error, double compressionThroughput, double writeThroughput) {
                 this.name = t.name;
                 this.filename = t.filename;
                 this.size = size;
                 this.error = error;
+                this.compressionThroughput = compressionThroughput;
+                this.writeThroughput = writeThroughput;
             }
         }
     }
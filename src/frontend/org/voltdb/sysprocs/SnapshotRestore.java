@@ -116,6 +116,7 @@ import org.voltdb.utils.VoltTableUtil;
 
 import com.google_voltpatches.common.collect.Lists;
 import com.google_voltpatches.common.primitives.Longs;
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
 
 public class SnapshotRestore extends VoltSystemProcedure {
     private static final VoltLogger TRACE_LOG = new VoltLogger(SnapshotRestore.class.getName());
@@ -139,6 +140,19 @@ public class SnapshotRestore extends VoltSystemProcedure {
     private static volatile DuplicateRowHandler m_duplicateRowHandler = null;
 
     private final static String HASHINATOR_ALL_BAD = "All hashinator snapshots are bad (%s).";
+
+    /*
+     * Number of chunks of a partitioned table a distributing site keeps in its load pipeline. Chunks are
+     * converted and split by partition on the preparer threads and their load fragments are sent to the
+     * sites before the results of earlier chunks come back, so every site has a queue of loads to work
+     * through. This bounds the memory held per distributing site to about twice this many chunks.
+     * A depth of 1 distributes one chunk at a time.
+     */
+    private static final int RESTORE_PIPELINE_DEPTH = Math.max(1, Integer.getInteger("RESTORE_PIPELINE_DEPTH", 4));
+    private static final int RESTORE_PREPARER_THREADS = Math.max(1, Integer.getInteger("RESTORE_PREPARER_THREADS",
+            Math.min(4, CoreUtils.availableProcessors() / 4)));
+    // Created on first use and kept for the following tables, only the distributing site of a host submits to it
+    private static ListeningExecutorService m_chunkPreparers = null;
     // These keep track of count per table that are reported restored by the snapshotrestore process.
     static final Map<String, AtomicLong> m_reportStats = new HashMap<String, AtomicLong>();
     static final Map<String, Integer> m_selectedReportPartition = new HashMap<String, Integer>();
@@ -183,9 +197,10 @@ public class SnapshotRestore extends VoltSystemProcedure {
             final File f = getSaveFileForPartitionedTable(filePath, fileNonce,
                     tableName,
                     originalHostId);
+            // The files are read concurrently, so share the read ahead between them
             TableSaveFile savefile = getTableSaveFile(
                     f,
-                    st.getLocalSites().length * 2,
+                    Math.max(2, st.getLocalSites().length * 2 / originalHostIds.length),
                     relevantPartitionSet.toArray(new Integer[relevantPartitionSet.size()]));
 
             m_saveFiles.offer(savefile);
@@ -201,30 +216,19 @@ public class SnapshotRestore extends VoltSystemProcedure {
         }
     }
 
-    private static synchronized boolean hasMoreChunks() throws IOException {
-        boolean hasMoreChunks = false;
-        while (!hasMoreChunks && m_saveFiles.peek() != null) {
-            TableSaveFile f = m_saveFiles.peek();
-            hasMoreChunks = f.hasMoreChunks();
-            if (!hasMoreChunks) {
-                try {
-                    f.close();
-                } catch (IOException e) {
-                }
-                m_saveFiles.poll();
-            }
-        }
-        return hasMoreChunks;
-    }
-
+    /*
+     * Take chunks from the save files round robin, so the chunk reader of every file
+     * is reading and decompressing ahead at the same time
+     */
     private static synchronized BBContainer getNextChunk() throws IOException {
         BBContainer c = null;
         while (c == null && m_saveFiles.peek() != null) {
-            TableSaveFile f = m_saveFiles.peek();
+            TableSaveFile f = m_saveFiles.poll();
             c = f.getNextChunk();
             if (c == null) {
                 f.close();
-                m_saveFiles.poll();
+            } else {
+                m_saveFiles.offer(f);
             }
         }
         return c;
@@ -2367,110 +2371,49 @@ public class SnapshotRestore extends VoltSystemProcedure {
             return result;
         }
 
-        Boolean needsConversion = null;
-        org.voltcore.utils.DBBPool.BBContainer c = null;
-        TreeMap<Integer, VoltTable> partitioned_table_cache = new TreeMap<>();
         SnapshotRestoreResultSet resultSet = new SnapshotRestoreResultSet();
         VoltTable firstResult = null;
+        ListeningExecutorService preparers = getChunkPreparers();
+        ArrayDeque<Future<SynthesizedPlanFragment[]>> preparing = new ArrayDeque<>();
+        ArrayDeque<Pair<SynthesizedPlanFragment[], Set<Integer>>> loading = new ArrayDeque<>();
 
         try {
-            final Table new_catalog_table = getCatalogTable(tableName);
+            final ChunkLoadPlanner planner = new ChunkLoadPlanner(tableName, getCatalogTable(tableName),
+                    partitionCount, sites_to_partitions, partition_to_siteCount, relevantPartitionIds,
+                    asReplicated, isRecover);
 
-            while (hasMoreChunks()) {
-                VoltTable table = null;
-
-                c = null;
-                c = getNextChunk();
-                if (c == null) {
-                    continue;//Should be equivalent to break
-                }
-
-                // use if will load as partitioned table
-                Map<Integer, byte[]> partitioned_tables = null;
-                // use if will load as replicated table
-                byte compressedTable[] = null;
-                SynthesizedPlanFragment[] pfs = null;
-                try {
-                    if (needsConversion == null) {
-                        VoltTable old_table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b().duplicate(), true);
-                        needsConversion = SavedTableConverter.needsConversion(old_table, new_catalog_table,
-                                m_cluster.getDrrole(), isRecover);
-                    }
-
-                    final VoltTable old_table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), true);
-                    if (needsConversion) {
-                        table = SavedTableConverter.convertTable(old_table, new_catalog_table, m_cluster.getDrrole(),
-                                isRecover);
-                    } else {
-                        table = old_table;
+            boolean moreChunks = true;
+            while (true) {
+                // Keep the preparers busy with the chunks the save file readers have ready
+                while (moreChunks && preparing.size() < RESTORE_PIPELINE_DEPTH) {
+                    final BBContainer c = getNextChunk();
+                    if (c == null) {
+                        moreChunks = false;
+                        break;
                     }
-
-                    if (asReplicated) {
-                        compressedTable = TableCompressor.getCompressedTableBytes(table);
-                        pfs = new SynthesizedPlanFragment[sites_to_partitions.size() + 1];
-                    } else {
-                        partitioned_tables = createPartitionedTables(tableName, table, partitionCount, partitioned_table_cache);
-                        if (partitioned_tables.isEmpty()) {
-                            continue;
-                        }
-                        int depIdCnt = 0;
-                        for (int pid : partitioned_tables.keySet()) {
-                            depIdCnt += partition_to_siteCount.get(pid).getValue();
+                    preparing.offer(preparers.submit(new Callable<SynthesizedPlanFragment[]>() {
+                        @Override
+                        public SynthesizedPlanFragment[] call() throws Exception {
+                            return planner.plan(c);
                         }
-                        pfs = new SynthesizedPlanFragment[depIdCnt + 1];
-                    }
-                } finally {
-                    c.discard();
+                    }));
                 }
 
-                int pfs_index = 0;
-                for (long site_id : sites_to_partitions.keySet())
-                {
-                    int dependencyId = TableSaveFileState.getNextDependencyId();
-                    ParameterSet parameters;
-                    if (asReplicated) {
-                        parameters = ParameterSet.fromArrayNoCopy(
-                                tableName,
-                                dependencyId,
-                                compressedTable,
-                                K_CHECK_UNIQUE_VIOLATIONS_REPLICATED,
-                                relevantPartitionIds,
-                                Boolean.toString(isRecover));
-                    } else {
-                        int partition_id = sites_to_partitions.get(site_id);
-                        byte[] tableBytes = partitioned_tables.get(partition_id);
-                        if (tableBytes == null) {
-                            continue;
-                        }
-                        parameters = ParameterSet.fromArrayNoCopy(
-                                tableName,
-                                dependencyId,
-                                tableBytes,
-                                K_CHECK_UNIQUE_VIOLATIONS_PARTITIONED,
-                                new int[] {partition_id},
-                                Boolean.toString(isRecover));
+                VoltTable vt;
+                if (!preparing.isEmpty() && loading.size() < RESTORE_PIPELINE_DEPTH) {
+                    // Send out the loads of the next chunk without waiting for the earlier ones to finish
+                    SynthesizedPlanFragment[] pfs = preparing.poll().get();
+                    if (pfs != null) {
+                        loading.offer(Pair.of(pfs, sendSysProcPlanFragments(pfs, m_mbox)));
                     }
-                    pfs[pfs_index] = new SynthesizedPlanFragment(m_actualToGenerated.get(site_id),
-                            SysProcFragmentId.PF_restoreLoadTable, dependencyId, false, parameters);
-
-                    ++pfs_index;
-                }
-                int resultDependencyId = TableSaveFileState.getNextDependencyId();
-                ParameterSet parameters;
-                if(asReplicated) {
-                    parameters = ParameterSet.fromArrayNoCopy(
-                            resultDependencyId,
-                            "Received confirmation of successful partitioned-to-replicated table load");
+                    continue;
+                } else if (!loading.isEmpty()) {
+                    Pair<SynthesizedPlanFragment[], Set<Integer>> load = loading.poll();
+                    vt = awaitSysProcPlanFragments(load.getFirst(), load.getSecond(), m_mbox)[0];
                 } else {
-                    parameters = ParameterSet.fromArrayNoCopy(
-                            resultDependencyId,
-                            "Received confirmation of successful partitioned-to-partitioned table load");
-                }
-                assert(pfs.length == pfs_index+1);
-                pfs[pfs_index] = new SynthesizedPlanFragment(SysProcFragmentId.PF_restoreReceiveResultTables,
-                        resultDependencyId, false, parameters);
-                VoltTable[] results = executeSysProcPlanFragments(pfs, m_mbox);
-                VoltTable vt = results[0];
+                    break;
+                }
+
                 if (firstResult == null) {
                     firstResult = vt;
                 }
@@ -2486,6 +2429,21 @@ public class SnapshotRestore extends VoltSystemProcedure {
                     "Unable to load table: " + tableName + " error:\n" + CoreUtils.throwableToString(e));
             return result;
         } finally {
+            // Let chunks still being prepared finish so their buffers are returned
+            for (Future<SynthesizedPlanFragment[]> f : preparing) {
+                try {
+                    f.get();
+                } catch (Exception ignore) {
+                }
+            }
+            // Wait for the loads already sent out, so that no response for this table is left to
+            // show up in the mailbox while the next one is restored
+            for (Pair<SynthesizedPlanFragment[], Set<Integer>> load : loading) {
+                try {
+                    awaitSysProcPlanFragments(load.getFirst(), load.getSecond(), m_mbox);
+                } catch (Exception ignore) {
+                }
+            }
             synchronized (SnapshotRestore.class) {
                 TableSaveFile tsf = null;
                 while ((tsf = m_saveFiles.poll()) != null) {
@@ -2514,6 +2472,146 @@ public class SnapshotRestore extends VoltSystemProcedure {
         return result;
     }
 
+    private static synchronized ListeningExecutorService getChunkPreparers() {
+        if (m_chunkPreparers == null) {
+            m_chunkPreparers = CoreUtils.getListeningExecutorService("Restore Chunk Preparer", RESTORE_PREPARER_THREADS);
+        }
+        return m_chunkPreparers;
+    }
+
+    /**
+     * Turns chunks of one partitioned table's save files into the plan fragments that load them. The
+     * expensive parts, converting the saved schema and splitting and compressing the rows for each
+     * partition, run on the restore preparer threads, so plan may be called concurrently.
+     */
+    private class ChunkLoadPlanner {
+        private final String m_tableName;
+        private final Table m_catalogTable;
+        private final int m_partitionCount;
+        private final Map<Long, Integer> m_sitesToPartitions;
+        private final Map<Integer, MutableInt> m_partitionToSiteCount;
+        private final int[] m_relevantPartitionIds;
+        private final boolean m_asReplicated;
+        private final boolean m_isRecover;
+        private volatile Boolean m_needsConversion = null;
+        // The per partition tables are reused from chunk to chunk by each preparer thread
+        private final ThreadLocal<TreeMap<Integer, VoltTable>> m_partitionedTableCache =
+                new ThreadLocal<TreeMap<Integer, VoltTable>>() {
+                    @Override
+                    protected TreeMap<Integer, VoltTable> initialValue() {
+                        return new TreeMap<>();
+                    }
+                };
+
+        ChunkLoadPlanner(String tableName, Table catalogTable, int partitionCount,
+                Map<Long, Integer> sitesToPartitions, Map<Integer, MutableInt> partitionToSiteCount,
+                int[] relevantPartitionIds, boolean asReplicated, boolean isRecover) {
+            m_tableName = tableName;
+            m_catalogTable = catalogTable;
+            m_partitionCount = partitionCount;
+            m_sitesToPartitions = sitesToPartitions;
+            m_partitionToSiteCount = partitionToSiteCount;
+            m_relevantPartitionIds = relevantPartitionIds;
+            m_asReplicated = asReplicated;
+            m_isRecover = isRecover;
+        }
+
+        /**
+         * Build the load fragments for a chunk and discard it.
+         *
+         * @return the fragments or {@code null} if no partition has rows to load from this chunk
+         */
+        SynthesizedPlanFragment[] plan(BBContainer c) throws Exception {
+            VoltTable table = null;
+            // use if will load as partitioned table
+            Map<Integer, byte[]> partitioned_tables = null;
+            // use if will load as replicated table
+            byte compressedTable[] = null;
+            SynthesizedPlanFragment[] pfs = null;
+            try {
+                if (m_needsConversion == null) {
+                    VoltTable old_table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b().duplicate(), true);
+                    m_needsConversion = SavedTableConverter.needsConversion(old_table, m_catalogTable,
+                            m_cluster.getDrrole(), m_isRecover);
+                }
+
+                final VoltTable old_table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), true);
+                if (m_needsConversion) {
+                    table = SavedTableConverter.convertTable(old_table, m_catalogTable, m_cluster.getDrrole(),
+                            m_isRecover);
+                } else {
+                    table = old_table;
+                }
+
+                if (m_asReplicated) {
+                    compressedTable = TableCompressor.getCompressedTableBytes(table);
+                    pfs = new SynthesizedPlanFragment[m_sitesToPartitions.size() + 1];
+                } else {
+                    partitioned_tables = createPartitionedTables(m_tableName, table, m_partitionCount,
+                            m_partitionedTableCache.get());
+                    if (partitioned_tables.isEmpty()) {
+                        return null;
+                    }
+                    int depIdCnt = 0;
+                    for (int pid : partitioned_tables.keySet()) {
+                        depIdCnt += m_partitionToSiteCount.get(pid).getValue();
+                    }
+                    pfs = new SynthesizedPlanFragment[depIdCnt + 1];
+                }
+            } finally {
+                c.discard();
+            }
+
+            int pfs_index = 0;
+            for (long site_id : m_sitesToPartitions.keySet())
+            {
+                int dependencyId = TableSaveFileState.getNextDependencyId();
+                ParameterSet parameters;
+                if (m_asReplicated) {
+                    parameters = ParameterSet.fromArrayNoCopy(
+                            m_tableName,
+                            dependencyId,
+                            compressedTable,
+                            K_CHECK_UNIQUE_VIOLATIONS_REPLICATED,
+                            m_relevantPartitionIds,
+                            Boolean.toString(m_isRecover));
+                } else {
+                    int partition_id = m_sitesToPartitions.get(site_id);
+                    byte[] tableBytes = partitioned_tables.get(partition_id);
+                    if (tableBytes == null) {
+                        continue;
+                    }
+                    parameters = ParameterSet.fromArrayNoCopy(
+                            m_tableName,
+                            dependencyId,
+                            tableBytes,
+                            K_CHECK_UNIQUE_VIOLATIONS_PARTITIONED,
+                            new int[] {partition_id},
+                            Boolean.toString(m_isRecover));
+                }
+                pfs[pfs_index] = new SynthesizedPlanFragment(m_actualToGenerated.get(site_id),
+                        SysProcFragmentId.PF_restoreLoadTable, dependencyId, false, parameters);
+
+                ++pfs_index;
+            }
+            int resultDependencyId = TableSaveFileState.getNextDependencyId();
+            ParameterSet parameters;
+            if(m_asReplicated) {
+                parameters = ParameterSet.fromArrayNoCopy(
+                        resultDependencyId,
+                        "Received confirmation of successful partitioned-to-replicated table load");
+            } else {
+                parameters = ParameterSet.fromArrayNoCopy(
+                        resultDependencyId,
+                        "Received confirmation of successful partitioned-to-partitioned table load");
+            }
+            assert(pfs.length == pfs_index+1);
+            pfs[pfs_index] = new SynthesizedPlanFragment(SysProcFragmentId.PF_restoreReceiveResultTables,
+                    resultDependencyId, false, parameters);
+            return pfs;
+        }
+    }
+
     private HashMap<Integer, byte[]> createPartitionedTables(String tableName, VoltTable loadedTable,
                 int number_of_partitions, TreeMap<Integer, VoltTable> partitioned_table_cache) throws Exception
     {
@@ -2615,8 +2713,16 @@ public class SnapshotRestore extends VoltSystemProcedure {
      * dropped plan fragments
      */
     public VoltTable[] executeSysProcPlanFragments(SynthesizedPlanFragment pfs[], Mailbox m) {
+        return awaitSysProcPlanFragments(pfs, sendSysProcPlanFragments(pfs, m), m);
+    }
+
+    /*
+     * Send fragments 0 - (N - 1) and return the dependency ids to wait for with awaitSysProcPlanFragments.
+     * Several sets of fragments may be outstanding at once, responses for a set other than the one
+     * being waited for are stashed until it is waited for.
+     */
+    private Set<Integer> sendSysProcPlanFragments(SynthesizedPlanFragment pfs[], Mailbox m) {
         Set<Integer> dependencyIds = new HashSet<Integer>();
-        VoltTable results[] = new VoltTable[1];
 
         /*
          * Iterate the plan fragments and distribute them. Each
@@ -2656,6 +2762,12 @@ public class SnapshotRestore extends VoltSystemProcedure {
                             m_runner.getTxnState().getTimetamp());
             m.send(pf.siteId, ftm);
         }
+        return dependencyIds;
+    }
+
+    private VoltTable[] awaitSysProcPlanFragments(SynthesizedPlanFragment pfs[], Set<Integer> dependencyIds,
+            Mailbox m) {
+        VoltTable results[] = new VoltTable[1];
 
         /*
          * Track the received dependencies. Stored as a list because executePlanFragment for
@@ -2664,11 +2776,22 @@ public class SnapshotRestore extends VoltSystemProcedure {
          */
         Map<Integer, List<VoltTable>> receivedDependencyIds = new HashMap<Integer, List<VoltTable>>();
 
+        /*
+         * Responses may have arrived while waiting for fragments sent earlier
+         */
+        if (!m_unexpectedDependencies.isEmpty()) {
+            for (Integer dependencyId : dependencyIds) {
+                if (m_unexpectedDependencies.containsKey(dependencyId)) {
+                    receivedDependencyIds.put(dependencyId, m_unexpectedDependencies.remove(dependencyId));
+                }
+            }
+        }
+
         /*
          * This loop will wait for all the responses to the fragment that was sent out,
          * but will also respond to incoming fragment tasks by executing them.
          */
-        while (true) {
+        while (receivedDependencyIds.size() != dependencyIds.size()) {
             //Lightly spinning makes debugging easier by allowing inspection
             //of stuff on the stack
             VoltMessage vm = m.recvBlocking(1000);
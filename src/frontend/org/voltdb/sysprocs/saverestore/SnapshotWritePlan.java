@@ -105,7 +105,9 @@ public abstract class SnapshotWritePlan
                             return m_snapshotRecord.new Table(
                                 registryTable,
                                 m_sdt.getBytesWritten(),
-                                m_sdt.getLastWriteException());
+                                m_sdt.getLastWriteException(),
+                                megabytesPerSecond(m_sdt.getBytesCompressed(), m_sdt.getCompressionNanos()),
+                                megabytesPerSecond(m_sdt.getBytesWritten(), m_sdt.getWriteNanos()));
                             }
                     });
             int tablesLeft = m_numTables.decrementAndGet();
@@ -122,6 +124,13 @@ public abstract class SnapshotWritePlan
         }
     }
 
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        if (nanos <= 0) {
+            return 0;
+        }
+        return (bytes / (1024.0 * 1024.0)) / (nanos / 1000000000.0);
+    }
+
     protected final Map<Long, Deque<SnapshotTableTask>> m_taskListsForHSIds =
         new HashMap<Long, Deque<SnapshotTableTask>>();
 
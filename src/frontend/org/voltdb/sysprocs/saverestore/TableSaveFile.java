@@ -44,6 +44,7 @@ import org.voltcore.utils.Bits;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.NativeLibraryLoader;
+import org.voltdb.SnapshotFormat;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.PosixAdvise;
@@ -245,6 +246,7 @@ public class TableSaveFile
                 m_tableName = fd.readString();
                 m_isReplicated = fd.readBoolean();
                 m_isCompressed = false;
+                m_codec = SnapshotFormat.Codec.NONE;
                 m_checksumType = ChecksumType.CRC32;
                 if (!m_isReplicated) {
                     m_partitionIds = (int[])fd.readArray(int.class);
@@ -290,6 +292,10 @@ public class TableSaveFile
                 m_tableName = obj.getString("tableName");
                 m_isReplicated = obj.getBoolean("isReplicated");
                 m_isCompressed = obj.optBoolean("isCompressed", false);
+                //Codec field added with LZ4 support, older compressed snapshots are all snappy
+                m_codec = m_isCompressed ?
+                        SnapshotFormat.Codec.getEnumIgnoreCase(obj.optString("compressionCodec", "SNAPPY")) :
+                        SnapshotFormat.Codec.NONE;
                 m_checksumType = ChecksumType.valueOf(obj.optString("checksumType", "CRC32"));
                 if (!m_isReplicated) {
                     JSONArray partitionIds = obj.getJSONArray("partitionIds");
@@ -324,6 +330,8 @@ public class TableSaveFile
             throw new IOException(e);
         } catch (JSONException e) {
             throw new IOException(e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e);
         }
     }
 
@@ -370,6 +378,10 @@ public class TableSaveFile
         return m_isCompressed;
     }
 
+    public SnapshotFormat.Codec getCodec() {
+        return m_codec;
+    }
+
     public int getTotalPartitions() {
         return m_totalPartitions;
     }
@@ -485,6 +497,7 @@ public class TableSaveFile
     private final String m_tableName;
     private final boolean m_isReplicated;
     private final boolean m_isCompressed;
+    private final SnapshotFormat.Codec m_codec;
     private final int m_partitionIds[];
     private final int m_totalPartitions;
     private final long m_txnId;
@@ -660,7 +673,7 @@ public class TableSaveFile
                         sinceLastFAdvise += read;
                     }
                     fileInputBuffer.flip();
-                    nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
+                    nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer, m_codec);
 
                     /*
                      * Validate the rest of the chunk. This can fail if the data is corrupted
@@ -706,7 +719,7 @@ public class TableSaveFile
                         m_tableHeader.position(0);
                         buf.put(m_tableHeader);
                         //Doesn't move buffer position, does change the limit
-                        CompressionService.decompressBuffer(fileInputBuffer, buf);
+                        CompressionService.decompressBuffer(fileInputBuffer, buf, m_codec);
                         completedRead = true;
                     } finally {
                         if (!completedRead) {
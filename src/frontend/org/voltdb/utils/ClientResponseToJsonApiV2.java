@@ -18,9 +18,14 @@
 package org.voltdb.utils;
 
 import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
 import org.json_voltpatches.JSONStringer;
 import org.voltdb.VoltTable;
+import org.voltdb.VoltTableRow;
+import org.voltdb.VoltType;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.types.GeographyPointValue;
+import org.voltdb.types.GeographyValue;
 
 public class ClientResponseToJsonApiV2 {
     /* Takes a ClientResonse and builds a api/v2.0 string
@@ -54,4 +59,114 @@ public class ClientResponseToJsonApiV2 {
             js.endObject();
         return js.toString();
     }
+
+    /**
+     * Stream the same api/v2.0 representation as {@link #toJSONStringV2(ClientResponse)}
+     * into a buffer, without building intermediate Strings for the response or its tables.
+     */
+    public static void writeJSONV2(ClientResponse clientResponse, JsonOutputBuffer out) throws JSONException {
+        out.append('{');
+        out.append('"').appendAscii(JSON_STATUS_KEY).appendAscii("\":").appendLong(clientResponse.getStatus());
+        out.appendAscii(",\"").appendAscii(JSON_APPSTATUS_KEY).appendAscii("\":").appendLong(clientResponse.getAppStatus());
+        out.appendAscii(",\"").appendAscii(JSON_STATUSSTRING_KEY).appendAscii("\":").appendQuoted(clientResponse.getStatusString());
+        out.appendAscii(",\"").appendAscii(JSON_APPSTATUSSTRING_KEY).appendAscii("\":").appendQuoted(clientResponse.getAppStatusString());
+        out.appendAscii(",\"").appendAscii(JSON_RESULTS_KEY).appendAscii("\":{");
+        VoltTable[] results = clientResponse.getResults();
+        for (int i = 0; i < results.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').appendLong(i).appendAscii("\":");
+            writeTableV2(results[i], out);
+        }
+        out.appendAscii("}}");
+    }
+
+    private static void writeTableV2(VoltTable table, JsonOutputBuffer out) throws JSONException {
+        final int columnCount = table.getColumnCount();
+        VoltTableRow row = table.cloneRow();
+        row.resetRowPosition();
+        out.append('[');
+        boolean firstRow = true;
+        while (row.advanceRow()) {
+            if (!firstRow) {
+                out.append(',');
+            }
+            firstRow = false;
+            out.append('{');
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.appendQuoted(table.getColumnName(i)).append(':');
+                writeValue(row, i, table.getColumnType(i), out);
+            }
+            out.append('}');
+        }
+        out.append(']');
+    }
+
+    // Same representation as VoltTableRow.putJSONRep()
+    private static void writeValue(VoltTableRow row, int columnIndex, VoltType columnType, JsonOutputBuffer out)
+            throws JSONException {
+        switch (columnType) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT: {
+            long value = row.getLong(columnIndex);
+            if (row.wasNull()) {
+                out.appendAscii("null");
+            } else {
+                out.appendLong(value);
+            }
+            break;
+        }
+        case TIMESTAMP: {
+            long value = row.getTimestampAsLong(columnIndex);
+            if (row.wasNull()) {
+                out.appendAscii("null");
+            } else {
+                out.appendLong(value);
+            }
+            break;
+        }
+        case FLOAT: {
+            double dvalue = row.getDouble(columnIndex);
+            if (row.wasNull()) {
+                out.appendAscii("null");
+            } else if (Double.isNaN(dvalue) || Double.isInfinite(dvalue)) {
+                out.appendQuoted(Double.toString(dvalue));
+            } else {
+                out.appendAscii(JSONObject.numberToString(dvalue));
+            }
+            break;
+        }
+        case STRING:
+            out.appendQuoted(row.getString(columnIndex));
+            break;
+        case VARBINARY:
+            out.appendQuotedHex(row.getVarbinary(columnIndex));
+            break;
+        case DECIMAL: {
+            Object dec = row.getDecimalAsBigDecimal(columnIndex);
+            out.appendQuoted(row.wasNull() ? null : dec.toString());
+            break;
+        }
+        case GEOGRAPHY_POINT: {
+            GeographyPointValue pt = row.getGeographyPointValue(columnIndex);
+            out.appendQuoted(row.wasNull() ? null : pt.toString());
+            break;
+        }
+        case GEOGRAPHY: {
+            GeographyValue gv = row.getGeographyValue(columnIndex);
+            out.appendQuoted(row.wasNull() ? null : gv.toString());
+            break;
+        }
+        default:
+            // VoltType includes a few values that aren't valid column value types,
+            // JSONStringer would fail on the missing value
+            throw new JSONException("Unsupported column type " + columnType);
+        }
+    }
 }
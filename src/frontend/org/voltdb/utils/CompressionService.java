@@ -30,6 +30,7 @@ import java.util.zip.InflaterOutputStream;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.SnapshotFormat;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltDBInterface;
 import org.voltdb.common.Constants;
@@ -39,6 +40,9 @@ import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
 import com.google_voltpatches.common.util.concurrent.MoreExecutors;
 
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+
 public final class CompressionService {
 
     static {
@@ -66,6 +70,26 @@ public final class CompressionService {
         }
     };
 
+    /*
+     * LZ4 only has a byte array API, so direct buffers are staged through these
+     */
+    private static ThreadLocal<byte[][]> m_lz4Arrays = new ThreadLocal<byte[][]>() {
+        @Override
+        protected byte[][] initialValue() {
+            return new byte[][] { new byte[0], new byte[0] };
+        }
+    };
+
+    private static final LZ4Factory m_lz4 = LZ4Factory.fastestInstance();
+
+    private static byte[] getLZ4Array(int index, int length) {
+        byte arrays[][] = m_lz4Arrays.get();
+        if (arrays[index].length < length) {
+            arrays[index] = new byte[Math.max(arrays[index].length * 2, length)];
+        }
+        return arrays[index];
+    }
+
     public static void releaseThreadLocal() {
         m_buffers.get().input.discard();
         m_buffers.get().output.discard();
@@ -135,21 +159,63 @@ public final class CompressionService {
 
             @Override
             public BBContainer call() throws Exception {
-                final ByteBuffer outBuffer = outBufferC.b();
-                //Reserve 4-bytes for the CRC
-                final int crcPosition = outBuffer.position();
-                outBuffer.position(outBuffer.position() + 4);
-                final int crcCalcStart = outBuffer.position();
-                compressBuffer(inBuffer, outBuffer);
-                final int crc32c =
-                        DBBPool.getCRC32C( outBufferC.address(), crcCalcStart, outBuffer.limit() - crcCalcStart);
-                outBuffer.putInt(crcPosition, crc32c);
-                return outBufferC;
+                return compressAndCRC32cBuffer(inBuffer, outBufferC, SnapshotFormat.Codec.SNAPPY);
             }
 
         });
     }
 
+    /**
+     * Compress {@code inBuffer} with {@code codec} into {@code outBufferC}, preceding the payload
+     * with a CRC32C of it. The position of the input is not advanced.
+     */
+    public static BBContainer compressAndCRC32cBuffer(final ByteBuffer inBuffer, final BBContainer outBufferC,
+            final SnapshotFormat.Codec codec) throws IOException {
+        final ByteBuffer outBuffer = outBufferC.b();
+        //Reserve 4-bytes for the CRC
+        final int crcPosition = outBuffer.position();
+        outBuffer.position(outBuffer.position() + 4);
+        final int crcCalcStart = outBuffer.position();
+        compressBuffer(inBuffer, outBuffer, codec);
+        final int crc32c =
+                DBBPool.getCRC32C( outBufferC.address(), crcCalcStart, outBuffer.limit() - crcCalcStart);
+        outBuffer.putInt(crcPosition, crc32c);
+        return outBufferC;
+    }
+
+    /**
+     * Compress the remaining bytes of {@code buffer} into {@code output} at its position.
+     * Like {@link Snappy#compress(ByteBuffer, ByteBuffer)} the output position is left
+     * unchanged and the limit is set to the end of the compressed data. LZ4 payloads
+     * are prefixed with the uncompressed length since the block format doesn't carry it.
+     *
+     * @return Length of the compressed data
+     */
+    public static int compressBuffer(ByteBuffer buffer, ByteBuffer output, SnapshotFormat.Codec codec)
+            throws IOException {
+        final int start = output.position();
+        final int length = buffer.remaining();
+        switch (codec) {
+        case SNAPPY:
+            return compressBuffer(buffer, output);
+        case LZ4:
+            final LZ4Compressor compressor = m_lz4.fastCompressor();
+            final byte input[] = getLZ4Array(0, length);
+            final byte compressed[] = getLZ4Array(1, compressor.maxCompressedLength(length));
+            buffer.duplicate().get(input, 0, length);
+            final int compressedLength = compressor.compress(input, 0, length, compressed, 0, compressed.length);
+            output.putInt(length);
+            output.put(compressed, 0, compressedLength);
+            break;
+        case NONE:
+            output.put(buffer.duplicate());
+            break;
+        }
+        output.limit(output.position());
+        output.position(start);
+        return output.remaining();
+    }
+
     public static int compressBuffer(ByteBuffer buffer, ByteBuffer output) throws IOException {
         assert(buffer.isDirect());
         assert(output.isDirect());
@@ -226,6 +292,45 @@ public final class CompressionService {
         return Snappy.uncompressedLength(compressed);
     }
 
+    public static int uncompressedLength(ByteBuffer compressed, SnapshotFormat.Codec codec) throws IOException {
+        switch (codec) {
+        case LZ4:
+            return compressed.getInt(compressed.position());
+        case NONE:
+            return compressed.remaining();
+        default:
+            return uncompressedLength(compressed);
+        }
+    }
+
+    /**
+     * Counterpart of {@link #compressBuffer(ByteBuffer, ByteBuffer, SnapshotFormat.Codec)}. The
+     * uncompressed position is left unchanged and its limit set to the end of the data.
+     */
+    public static int decompressBuffer(final ByteBuffer compressed, final ByteBuffer uncompressed,
+            SnapshotFormat.Codec codec) throws IOException {
+        final int start = uncompressed.position();
+        switch (codec) {
+        case SNAPPY:
+            return decompressBuffer(compressed, uncompressed);
+        case LZ4:
+            final ByteBuffer input = compressed.duplicate();
+            final int length = input.getInt();
+            final byte compressedBytes[] = getLZ4Array(0, input.remaining());
+            final byte output[] = getLZ4Array(1, length);
+            input.get(compressedBytes, 0, input.remaining());
+            m_lz4.fastDecompressor().decompress(compressedBytes, 0, output, 0, length);
+            uncompressed.put(output, 0, length);
+            break;
+        case NONE:
+            uncompressed.put(compressed.duplicate());
+            break;
+        }
+        uncompressed.limit(uncompressed.position());
+        uncompressed.position(start);
+        return uncompressed.remaining();
+    }
+
     public static int decompressBuffer(final ByteBuffer compressed, final ByteBuffer uncompressed) throws IOException {
         assert(compressed.isDirect());
         assert(uncompressed.isDirect());
@@ -48,6 +48,7 @@ import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.HTTPClientInterface;
+import org.voltdb.HTTPStats;
 import org.voltdb.VoltDB;
 
 import com.google_voltpatches.common.base.Charsets;
@@ -360,6 +361,10 @@ public class HTTPAdminListener {
         }
     }
 
+    public HTTPStats getHttpStats() {
+        return httpClientInterface.getStats();
+    }
+
     public void dontStoreAuthenticationResultInHttpSession() {
         if (httpClientInterface != null) {
             httpClientInterface.dontStoreAuthenticationResultInHttpSession();
@@ -0,0 +1,267 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A growable buffer that JSON text is written to as UTF-8 without going through
+ * intermediate Strings. Buffers are pooled, a response is serialized into an acquired
+ * buffer which is released once it has been written out. String escaping follows
+ * {@link org.json_voltpatches.JSONObject#quotable(String)} so the output is the same
+ * as what the JSON library produces.
+ */
+public class JsonOutputBuffer {
+
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    // Buffers that grew past this for a large response are left to the GC on release
+    private static final int MAX_POOLED_CAPACITY = Integer.getInteger("HTTP_JSON_MAX_POOLED_BUFFER_SIZE", 1024 * 1024);
+    private static final int MAX_POOLED_BUFFERS = Integer.getInteger("HTTP_JSON_POOLED_BUFFERS", 64);
+
+    private static final ConcurrentLinkedQueue<JsonOutputBuffer> m_pool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger m_pooledCount = new AtomicInteger();
+
+    private static final byte HEX_DIGITS[] = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte LOWER_HEX_DIGITS[] = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private byte m_buf[];
+    private int m_size = 0;
+
+    JsonOutputBuffer(int capacity) {
+        m_buf = new byte[capacity];
+    }
+
+    public static JsonOutputBuffer acquire() {
+        JsonOutputBuffer buffer = m_pool.poll();
+        if (buffer == null) {
+            return new JsonOutputBuffer(INITIAL_CAPACITY);
+        }
+        m_pooledCount.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Return the buffer to the pool, it must not be used afterwards
+     */
+    public void release() {
+        m_size = 0;
+        if (m_buf.length <= MAX_POOLED_CAPACITY && m_pooledCount.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            m_pool.offer(this);
+        } else if (m_buf.length <= MAX_POOLED_CAPACITY) {
+            m_pooledCount.decrementAndGet();
+        }
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(m_buf, 0, m_size);
+    }
+
+    /**
+     * View of the buffer as a stream, bytes written to it are appended
+     */
+    public OutputStream asOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+                ensureCapacity(1);
+                m_buf[m_size++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte b[], int off, int len) {
+                append(b, off, len);
+            }
+        };
+    }
+
+    private void ensureCapacity(int additional) {
+        if (m_size + additional > m_buf.length) {
+            m_buf = Arrays.copyOf(m_buf, Math.max(m_buf.length * 2, m_size + additional));
+        }
+    }
+
+    /**
+     * Append a character known to be ASCII, such as JSON punctuation
+     */
+    public JsonOutputBuffer append(char c) {
+        ensureCapacity(1);
+        m_buf[m_size++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Append text known to be ASCII and to need no escaping, such as symbolic keys
+     */
+    public JsonOutputBuffer appendAscii(String s) {
+        final int len = s.length();
+        ensureCapacity(len);
+        for (int i = 0; i < len; ++i) {
+            m_buf[m_size++] = (byte) s.charAt(i);
+        }
+        return this;
+    }
+
+    public JsonOutputBuffer append(byte b[], int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, m_buf, m_size, len);
+        m_size += len;
+        return this;
+    }
+
+    /**
+     * Append text that is already valid JSON, encoded as UTF-8 without escaping
+     */
+    public JsonOutputBuffer appendUtf8(String s) {
+        byte bytes[] = s.getBytes(StandardCharsets.UTF_8);
+        return append(bytes, 0, bytes.length);
+    }
+
+    public JsonOutputBuffer appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            return appendAscii("-9223372036854775808");
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            m_buf[m_size++] = '-';
+            value = -value;
+        }
+        // write the digits backwards then reverse them in place
+        final int start = m_size;
+        do {
+            m_buf[m_size++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = m_size - 1; i < j; ++i, --j) {
+            byte b = m_buf[i];
+            m_buf[i] = m_buf[j];
+            m_buf[j] = b;
+        }
+        return this;
+    }
+
+    /**
+     * Append bytes as a quoted, upper case hex string
+     */
+    public JsonOutputBuffer appendQuotedHex(byte data[]) {
+        if (data == null) {
+            return appendAscii("null");
+        }
+        ensureCapacity(data.length * 2 + 2);
+        m_buf[m_size++] = '"';
+        for (byte b : data) {
+            m_buf[m_size++] = HEX_DIGITS[(b >> 4) & 0xF];
+            m_buf[m_size++] = HEX_DIGITS[b & 0xF];
+        }
+        m_buf[m_size++] = '"';
+        return this;
+    }
+
+    /**
+     * Append a JSON string literal, or null
+     */
+    public JsonOutputBuffer appendQuoted(String s) {
+        if (s == null) {
+            return appendAscii("null");
+        }
+        final int len = s.length();
+        // worst case is 6 bytes per char for a unicode escape
+        ensureCapacity(len * 6 + 2);
+        m_buf[m_size++] = '"';
+        char prior = 0;
+        for (int i = 0; i < len; ++i) {
+            final char c = s.charAt(i);
+            switch (c) {
+            case '\\':
+            case '"':
+                m_buf[m_size++] = '\\';
+                m_buf[m_size++] = (byte) c;
+                break;
+            case '/':
+                if (prior == '<') {
+                    m_buf[m_size++] = '\\';
+                }
+                m_buf[m_size++] = '/';
+                break;
+            case '\b':
+                escape('b');
+                break;
+            case '\t':
+                escape('t');
+                break;
+            case '\n':
+                escape('n');
+                break;
+            case '\f':
+                escape('f');
+                break;
+            case '\r':
+                escape('r');
+                break;
+            default:
+                if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+                    m_buf[m_size++] = '\\';
+                    m_buf[m_size++] = 'u';
+                    m_buf[m_size++] = LOWER_HEX_DIGITS[(c >> 12) & 0xF];
+                    m_buf[m_size++] = LOWER_HEX_DIGITS[(c >> 8) & 0xF];
+                    m_buf[m_size++] = LOWER_HEX_DIGITS[(c >> 4) & 0xF];
+                    m_buf[m_size++] = LOWER_HEX_DIGITS[c & 0xF];
+                } else if (c < 0x80) {
+                    m_buf[m_size++] = (byte) c;
+                } else if (c < 0x800) {
+                    m_buf[m_size++] = (byte) (0xC0 | (c >> 6));
+                    m_buf[m_size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    final int cp = Character.toCodePoint(c, s.charAt(++i));
+                    m_buf[m_size++] = (byte) (0xF0 | (cp >> 18));
+                    m_buf[m_size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    m_buf[m_size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    m_buf[m_size++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // unpaired surrogate, replaced like the UTF-8 encoder does
+                    m_buf[m_size++] = '?';
+                } else {
+                    m_buf[m_size++] = (byte) (0xE0 | (c >> 12));
+                    m_buf[m_size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    m_buf[m_size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            prior = c;
+        }
+        m_buf[m_size++] = '"';
+        return this;
+    }
+
+    private void escape(char c) {
+        m_buf[m_size++] = '\\';
+        m_buf[m_size++] = (byte) c;
+    }
+
+    @Override
+    public String toString() {
+        return new String(m_buf, 0, m_size, StandardCharsets.UTF_8);
+    }
+}
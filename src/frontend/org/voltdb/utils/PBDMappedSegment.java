@@ -0,0 +1,147 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.VoltUnsafe;
+
+/**
+ * A {@link PBDRegularSegment} which serves all reads of a segment opened read only from a memory mapping of the
+ * segment file. Readers scanning a backlog of closed segments then copy each entry header and entry straight out of
+ * the page cache instead of issuing a read call for each of them.
+ * <p>
+ * Segments opened for writing, like the segment currently being appended to, use regular file I/O. Once a segment
+ * stops being written it is immutable, so the mapping taken when it is opened or reopened read only stays valid
+ * until it is reopened for truncation or closed.
+ */
+class PBDMappedSegment<M> extends PBDRegularSegment<M> {
+
+    PBDMappedSegment(long index, long id, File file, VoltLogger usageSpecificLog,
+            BinaryDequeSerializer<M> extraHeaderSerializer) {
+        super(index, id, file, usageSpecificLog, extraHeaderSerializer);
+    }
+
+    @Override
+    FileChannelWrapper openFile(File file, boolean forWrite) throws IOException {
+        return new MappedFileChannelWrapper(file, forWrite);
+    }
+
+    /**
+     * {@link FileChannelWrapper} which maps the whole file while it is open read only. Relative and positional reads
+     * along with the channel position are served from the mapping, everything else goes to the file channel.
+     */
+    static class MappedFileChannelWrapper extends FileChannelWrapper {
+        private MappedByteBuffer m_map;
+        private long m_position;
+
+        MappedFileChannelWrapper(File file, boolean forWrite) throws IOException {
+            super(file, forWrite);
+            if (!forWrite) {
+                mapFile();
+            }
+        }
+
+        @Override
+        boolean reopen(boolean forWrite) throws IOException {
+            if (forWrite) {
+                unmapFile();
+            }
+            boolean reopened = super.reopen(forWrite);
+            if (!forWrite) {
+                mapFile();
+            }
+            return reopened;
+        }
+
+        private void mapFile() throws IOException {
+            if (m_map == null) {
+                m_map = map(FileChannel.MapMode.READ_ONLY, 0, super.size());
+                m_position = super.position();
+            }
+        }
+
+        private void unmapFile() {
+            if (m_map != null) {
+                MappedByteBuffer map = m_map;
+                m_map = null;
+                VoltUnsafe.DIRECT_BYTE_BUFFER_CLEANER.clean(map);
+            }
+        }
+
+        boolean isMapped() {
+            return m_map != null;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (m_map == null) {
+                return super.read(dst);
+            }
+            int read = read(dst, m_position);
+            if (read > 0) {
+                m_position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            if (m_map == null) {
+                return super.read(dst, position);
+            }
+            if (position >= m_map.capacity()) {
+                return -1;
+            }
+            int length = (int) Math.min(dst.remaining(), m_map.capacity() - position);
+            // Segments are accessed by one thread at a time so the mapping itself can be positioned for the copy
+            m_map.limit((int) position + length).position((int) position);
+            dst.put(m_map);
+            m_map.clear();
+            return length;
+        }
+
+        @Override
+        public long position() throws IOException {
+            return m_map == null ? super.position() : m_position;
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            if (m_map == null) {
+                return super.position(newPosition);
+            }
+            m_position = newPosition;
+            return this;
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            try {
+                unmapFile();
+            } finally {
+                super.implCloseChannel();
+            }
+        }
+    }
+}
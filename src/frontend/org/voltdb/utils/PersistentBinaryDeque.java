@@ -1373,6 +1373,20 @@ public class PersistentBinaryDeque<M> implements BinaryDeque<M> {
             return this;
         }
 
+        /**
+         * Set whether segments which are no longer being written should be read through a memory mapping of the
+         * segment file instead of through regular file reads.
+         * <p>
+         * Default: {@code false}
+         *
+         * @param enabled {@code true} if read only segments should be memory mapped
+         * @return An updated {@link Builder} instance
+         */
+        public Builder<M> memoryMapped(boolean enabled) {
+            m_pbdSegmentFactory = enabled ? PBDMappedSegment::new : PBDRegularSegment::new;
+            return this;
+        }
+
         /**
          * Set the initial extra header metadata to be stored with entries as well as a {@link BinaryDequeSerializer} to
          * write and read that type of metadata.
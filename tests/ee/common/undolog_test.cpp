@@ -25,6 +25,7 @@
 #include "common/UndoLog.h"
 #include "common/UndoQuantum.h"
 #include "common/Pool.hpp"
+#include <map>
 #include <vector>
 #include <stdint.h>
 
@@ -61,6 +62,32 @@ private:
     MockUndoActionHistory *m_history;
 };
 
+/*
+ * Records the order compact tuple entries are undone or released in, sharing the
+ * counters with MockUndoAction so the relative order with regular actions shows.
+ */
+class MockUndoTupleRunTarget : public voltdb::UndoTupleRunTarget {
+public:
+    void undoInsertedTuples(char* const* tuples, size_t count) {
+        while (count > 0) {
+            m_undoneIndex[tuples[--count]] = staticUndoneIndex++;
+        }
+    }
+
+    void undoDeletedTuples(char* const* tuples, size_t count) {
+        undoInsertedTuples(tuples, count);
+    }
+
+    void releaseDeletedTuples(char* const* tuples, size_t count) {
+        for (size_t i = 0; i < count; ++i) {
+            m_releasedIndex[tuples[i]] = staticReleaseIndex++;
+        }
+    }
+
+    std::map<char*, int> m_undoneIndex;
+    std::map<char*, int> m_releasedIndex;
+};
+
 class UndoLogTest : public Test {
 public:
 
@@ -292,6 +319,66 @@ TEST_F(UndoLogTest, TestTwoQuantumTwoActionUndoOneReleaseOne) {
     confirmReleaseActionHistoryOrder(m_undoActionHistoryByQuantum[0], startingIndex);
 }
 
+/*
+ * Register 20 inserts, a regular action, 5 deletes and an insert for another table in one
+ * quantum. The first run spills over several chunks.
+ */
+static void registerTupleRuns(voltdb::UndoQuantum *quantum, char *tuples, MockUndoTupleRunTarget &table,
+                              MockUndoTupleRunTarget &otherTable, MockUndoActionHistory *history) {
+    for (int ii = 0; ii < 20; ii++) {
+        quantum->registerUndoTuple(&table, voltdb::UndoTupleRunAction::INSERT, &tuples[ii]);
+    }
+    quantum->registerUndoAction(new (*quantum) MockUndoAction(history));
+    for (int ii = 20; ii < 25; ii++) {
+        quantum->registerUndoTuple(&table, voltdb::UndoTupleRunAction::DELETE, &tuples[ii]);
+    }
+    quantum->registerUndoTuple(&otherTable, voltdb::UndoTupleRunAction::INSERT, &tuples[25]);
+}
+
+TEST_F(UndoLogTest, TestTupleRunUndoOrdering) {
+    char tuples[26];
+    MockUndoTupleRunTarget table;
+    MockUndoTupleRunTarget otherTable;
+    MockUndoActionHistory history;
+    const int64_t undoToken = INT64_MIN + 1;
+    voltdb::UndoQuantum *quantum = m_undoLog->generateUndoQuantum(undoToken);
+    registerTupleRuns(quantum, tuples, table, otherTable, &history);
+    ASSERT_EQ(&tuples[25], quantum->getLastUndoTupleForTest());
+    m_undoLog->undo(undoToken);
+
+    ASSERT_EQ(0, otherTable.m_undoneIndex[&tuples[25]]);
+    for (int ii = 24; ii >= 20; ii--) {
+        ASSERT_EQ(25 - ii, table.m_undoneIndex[&tuples[ii]]);
+    }
+    ASSERT_TRUE(history.m_undone);
+    ASSERT_EQ(6, history.m_undoneIndex);
+    for (int ii = 19; ii >= 0; ii--) {
+        ASSERT_EQ(26 - ii, table.m_undoneIndex[&tuples[ii]]);
+    }
+    ASSERT_EQ(25, table.m_undoneIndex.size());
+    ASSERT_EQ(0, table.m_releasedIndex.size());
+}
+
+TEST_F(UndoLogTest, TestTupleRunReleaseOrdering) {
+    char tuples[26];
+    MockUndoTupleRunTarget table;
+    MockUndoTupleRunTarget otherTable;
+    MockUndoActionHistory history;
+    const int64_t undoToken = INT64_MIN + 1;
+    registerTupleRuns(m_undoLog->generateUndoQuantum(undoToken), tuples, table, otherTable, &history);
+    m_undoLog->release(undoToken);
+
+    // inserts hold nothing to release, only the regular action and the deletes are visited
+    ASSERT_TRUE(history.m_released);
+    ASSERT_EQ(0, history.m_releasedIndex);
+    for (int ii = 20; ii < 25; ii++) {
+        ASSERT_EQ(ii - 19, table.m_releasedIndex[&tuples[ii]]);
+    }
+    ASSERT_EQ(5, table.m_releasedIndex.size());
+    ASSERT_EQ(0, otherTable.m_releasedIndex.size());
+    ASSERT_EQ(0, table.m_undoneIndex.size());
+}
+
 int main() {
     return TestSuite::globalInstance()->runAll();
 }
@@ -0,0 +1,202 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include <cmath>
+#include <cstdlib>
+#include <vector>
+
+#include "boost/scoped_ptr.hpp"
+
+#include "common/NValue.hpp"
+#include "common/PlannerDomValue.h"
+#include "common/ValueFactory.hpp"
+#include "common/tabletuple.h"
+#include "executors/BatchPredicate.hpp"
+#include "expressions/constantvalueexpression.h"
+#include "expressions/expressionutil.h"
+#include "expressions/tuplevalueexpression.h"
+
+#include "test_utils/ScopedTupleSchema.hpp"
+#include "test_utils/Tools.hpp"
+
+using namespace voltdb;
+
+static const int NUM_TUPLES = 3000;
+
+enum Column { TINY_COL, INT_COL, BIG_COL, DOUBLE_COL };
+
+class BatchPredicateTest : public Test {
+public:
+    BatchPredicateTest()
+        : m_schema(Tools::buildSchema(ValueType::tTINYINT, ValueType::tINTEGER,
+                ValueType::tBIGINT, ValueType::tDOUBLE))
+    {
+        srand(1);
+        const int tupleLength = m_schema->tupleLength() + TUPLE_HEADER_SIZE;
+        m_storage.resize(NUM_TUPLES * tupleLength);
+        for (int i = 0; i < NUM_TUPLES; ++i) {
+            char* address = &m_storage[i * tupleLength];
+            TableTuple tuple(address, m_schema.get());
+            tuple.setNValue(TINY_COL, randomOrNull(ValueFactory::getTinyIntValue(
+                    static_cast<int8_t>(rand() % 200 - 100)), ValueType::tTINYINT));
+            tuple.setNValue(INT_COL, randomOrNull(ValueFactory::getIntegerValue(
+                    rand() % 1000), ValueType::tINTEGER));
+            tuple.setNValue(BIG_COL, randomOrNull(ValueFactory::getBigIntValue(
+                    static_cast<int64_t>(rand() % 1000) * 10000000000LL), ValueType::tBIGINT));
+            double d = rand() % 50 == 0 ? std::nan("") : (rand() % 1000) / 1000.0;
+            tuple.setNValue(DOUBLE_COL, randomOrNull(ValueFactory::getDoubleValue(d), ValueType::tDOUBLE));
+            m_tuples.push_back(address);
+        }
+    }
+
+    static NValue randomOrNull(NValue value, ValueType type) {
+        return rand() % 10 == 0 ? NValue::getNullValue(type) : value;
+    }
+
+    static AbstractExpression* column(int columnIndex) {
+        return new TupleValueExpression(0, columnIndex);
+    }
+
+    static AbstractExpression* constant(NValue value) {
+        return new ConstantValueExpression(value);
+    }
+
+    static AbstractExpression* compare(ExpressionType type, AbstractExpression* left, AbstractExpression* right) {
+        return ExpressionUtil::comparisonFactory(s_emptyRoot(), type, left, right);
+    }
+
+    static AbstractExpression* conjunction(ExpressionType type, AbstractExpression* left, AbstractExpression* right) {
+        return ExpressionUtil::conjunctionFactory(type, left, right);
+    }
+
+    /**
+     * Evaluate the predicate in batches and check that exactly the tuples for
+     * which evaluating it tuple at a time gives true were selected.
+     */
+    void verify(AbstractExpression* expr) {
+        boost::scoped_ptr<AbstractExpression> predicate(expr);
+        boost::scoped_ptr<BatchPredicate> batchPredicate(BatchPredicate::compile(predicate.get()));
+        ASSERT_TRUE(batchPredicate != NULL);
+        ASSERT_TRUE(batchPredicate->bind(m_schema.get()));
+
+        uint16_t selected[BatchPredicate::BATCH_SIZE];
+        int expectedTotal = 0;
+        int actualTotal = 0;
+        for (int start = 0; start < NUM_TUPLES; start += BatchPredicate::BATCH_SIZE) {
+            int count = std::min(BatchPredicate::BATCH_SIZE, NUM_TUPLES - start);
+            int selectedCount = batchPredicate->eval(&m_tuples[start], count, selected);
+            int next = 0;
+            for (int i = 0; i < count; ++i) {
+                TableTuple tuple(m_tuples[start + i], m_schema.get());
+                bool expected = predicate->eval(&tuple, NULL).isTrue();
+                bool actual = next < selectedCount && selected[next] == i;
+                EXPECT_EQ(expected, actual);
+                if (actual) {
+                    ++next;
+                }
+                expectedTotal += expected;
+            }
+            EXPECT_EQ(selectedCount, next);
+            actualTotal += selectedCount;
+        }
+        EXPECT_EQ(expectedTotal, actualTotal);
+    }
+
+protected:
+    static PlannerDomRoot s_emptyRoot;
+    ScopedTupleSchema m_schema;
+    std::vector<char> m_storage;
+    std::vector<char*> m_tuples;
+};
+
+PlannerDomRoot BatchPredicateTest::s_emptyRoot("{}");
+
+TEST_F(BatchPredicateTest, Comparisons) {
+    const ExpressionType ops[] = {
+        EXPRESSION_TYPE_COMPARE_EQUAL,
+        EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+        EXPRESSION_TYPE_COMPARE_LESSTHAN,
+        EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+        EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO,
+        EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO
+    };
+    for (ExpressionType op : ops) {
+        verify(compare(op, column(TINY_COL), constant(ValueFactory::getTinyIntValue(10))));
+        verify(compare(op, column(INT_COL), constant(ValueFactory::getBigIntValue(500))));
+        verify(compare(op, column(BIG_COL), constant(ValueFactory::getIntegerValue(0))));
+        verify(compare(op, column(DOUBLE_COL), constant(ValueFactory::getDoubleValue(0.5))));
+        verify(compare(op, column(DOUBLE_COL), constant(ValueFactory::getIntegerValue(0))));
+        verify(compare(op, column(DOUBLE_COL), constant(ValueFactory::getDoubleValue(std::nan("")))));
+        // constant on the left
+        verify(compare(op, constant(ValueFactory::getIntegerValue(250)), column(INT_COL)));
+        // null never compares true
+        verify(compare(op, column(INT_COL), constant(NValue::getNullValue(ValueType::tINTEGER))));
+    }
+}
+
+TEST_F(BatchPredicateTest, Conjunctions) {
+    verify(conjunction(EXPRESSION_TYPE_CONJUNCTION_AND,
+            compare(EXPRESSION_TYPE_COMPARE_GREATERTHAN, column(INT_COL), constant(ValueFactory::getIntegerValue(100))),
+            compare(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(DOUBLE_COL), constant(ValueFactory::getDoubleValue(0.7)))));
+    verify(conjunction(EXPRESSION_TYPE_CONJUNCTION_OR,
+            compare(EXPRESSION_TYPE_COMPARE_EQUAL, column(TINY_COL), constant(ValueFactory::getTinyIntValue(0))),
+            compare(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO, column(BIG_COL),
+                    constant(ValueFactory::getBigIntValue(9000000000000LL)))));
+    verify(conjunction(EXPRESSION_TYPE_CONJUNCTION_AND,
+            conjunction(EXPRESSION_TYPE_CONJUNCTION_OR,
+                    compare(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(TINY_COL), constant(ValueFactory::getTinyIntValue(-50))),
+                    compare(EXPRESSION_TYPE_COMPARE_GREATERTHAN, column(INT_COL), constant(ValueFactory::getIntegerValue(900)))),
+            conjunction(EXPRESSION_TYPE_CONJUNCTION_OR,
+                    compare(EXPRESSION_TYPE_COMPARE_NOTEQUAL, column(DOUBLE_COL), constant(ValueFactory::getDoubleValue(0.1))),
+                    compare(EXPRESSION_TYPE_COMPARE_EQUAL, column(BIG_COL), constant(NValue::getNullValue(ValueType::tBIGINT))))));
+}
+
+TEST_F(BatchPredicateTest, Unsupported) {
+    // column against column
+    boost::scoped_ptr<AbstractExpression> columns(
+            compare(EXPRESSION_TYPE_COMPARE_EQUAL, column(INT_COL), column(BIG_COL)));
+    EXPECT_TRUE(BatchPredicate::compile(columns.get()) == NULL);
+
+    // only part of a conjunction can be compiled
+    boost::scoped_ptr<AbstractExpression> partial(conjunction(EXPRESSION_TYPE_CONJUNCTION_AND,
+            compare(EXPRESSION_TYPE_COMPARE_EQUAL, column(INT_COL), constant(ValueFactory::getIntegerValue(1))),
+            compare(EXPRESSION_TYPE_COMPARE_NOTDISTINCT, column(BIG_COL), constant(ValueFactory::getBigIntValue(1)))));
+    EXPECT_TRUE(BatchPredicate::compile(partial.get()) == NULL);
+
+    // integer column against a double compiles but is left to NValue when bound
+    boost::scoped_ptr<AbstractExpression> mixed(
+            compare(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(INT_COL), constant(ValueFactory::getDoubleValue(1.5))));
+    boost::scoped_ptr<BatchPredicate> batchPredicate(BatchPredicate::compile(mixed.get()));
+    ASSERT_TRUE(batchPredicate != NULL);
+    EXPECT_FALSE(batchPredicate->bind(m_schema.get()));
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -255,6 +255,59 @@ TEST_F(CompactingTreeMultiIndexTest, SimpleDeleteTuple) {
     delete tuple4;
 }
 
+TEST_F(CompactingTreeMultiIndexTest, BTreeDeleteTuple) {
+    vector<int> columnIndices;
+    vector<ValueType> columnTypes;
+    vector<int32_t> columnLengths;
+    vector<bool> columnAllowNull;
+
+    columnIndices.push_back(0);
+    columnTypes.push_back(ValueType::tBIGINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(ValueType::tBIGINT));
+    columnAllowNull.push_back(false);
+
+    TupleSchema *schema = TupleSchema::createTupleSchemaForTest(columnTypes,
+                                                         columnLengths,
+                                                         columnAllowNull);
+
+    // the name hint picks the B+tree map
+    TableIndexScheme scheme("test_btree_index", BALANCED_TREE_INDEX,
+                            columnIndices, TableIndex::simplyIndexColumns(),
+                            false, true, false, schema);
+    TableIndex *index = TableIndexFactory::getInstance(scheme);
+    EXPECT_EQ(std::string("BTreeMultiMapIndex"), index->getTypeName());
+
+    // enough duplicates to spread over several leaves
+    vector<TableTuple*> tuples;
+    for (int i = 0; i < 3000; i++) {
+        TableTuple *tuple = newTuple(schema, 0, i % 3);
+        index->addEntry(tuple, NULL);
+        tuples.push_back(tuple);
+    }
+    EXPECT_EQ(3000, index->getSize());
+
+    for (int i = 0; i < 3000; i += 2) {
+        EXPECT_TRUE(index->deleteEntry(tuples[i]));
+    }
+    for (int i = 0; i < 3000; i++) {
+        EXPECT_EQ(i % 2 == 1, index->exists(tuples[i]));
+    }
+
+    TableTuple *tuple = newTuple(schema, 0, 1);
+    IndexCursor cursor(index->getTupleSchema());
+    EXPECT_EQ(501, index->getCounterGET(tuple, false, cursor));
+    EXPECT_EQ(1000, index->getCounterLET(tuple, true, cursor));
+
+    delete index;
+    TupleSchema::freeTupleSchema(schema);
+    delete[] tuple->address();
+    delete tuple;
+    for (int i = 0; i < tuples.size(); i++) {
+        delete[] tuples[i]->address();
+        delete tuples[i];
+    }
+}
+
 static int VERBOSE = 0;
 
 // create three types of index and test their performace of delete
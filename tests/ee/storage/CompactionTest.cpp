@@ -36,7 +36,6 @@
 #include "indexes/tableindexfactory.h"
 #include "storage/DRTupleStream.h"
 #include "storage/persistenttable.h"
-#include "storage/PersistentTableUndoInsertAction.h"
 #include "storage/tableiterator.h"
 #include "storage/tablefactory.h"
 #include "storage/tableutil.h"
@@ -197,9 +196,9 @@ public:
                 // For 5% of the tuples put them in the migrating state using primaryKey as TxnId
                 int64_t txnId = m_primaryKeyIndex - 1;
                 // Need to find the memory in the tuple block to update the hidden column (simulate migrate)
-                const UndoReleaseAction* undo = ExecutorContext::currentUndoQuantum()->getLastUndoActionForTest();
-                const PersistentTableUndoInsertAction* insertUndo = (const PersistentTableUndoInsertAction*) undo;
-                TableTuple targetTuple = TableTuple(const_cast<char*>(insertUndo->getTupleForTest()), tuple.getSchema());
+                char* insertedTuple = ExecutorContext::currentUndoQuantum()->getLastUndoTupleForTest();
+                ASSERT_TRUE(insertedTuple != NULL);
+                TableTuple targetTuple = TableTuple(insertedTuple, tuple.getSchema());
                 targetTuple.setHiddenNValue(0, ValueFactory::getBigIntValue(txnId));
                 dynamic_cast<voltdb::PersistentTable *>(table)->migratingAdd(txnId, targetTuple);
             }
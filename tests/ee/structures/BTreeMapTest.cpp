@@ -0,0 +1,224 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <map>
+#include <cstdlib>
+#include "harness.h"
+#include "structures/BTreeMap.h"
+
+using namespace voltdb;
+using namespace std;
+
+class IntComparator {
+public:
+    inline int operator()(const int &lhs, const int &rhs) const {
+        if (lhs > rhs) return 1;
+        else if (lhs < rhs) return -1;
+        else return 0;
+    }
+
+    int compareWithoutPointer(const int &lhs, const int &rhs) const {
+        return operator()(lhs, rhs);
+    }
+};
+
+typedef BTreeMap<NormalKeyValuePair<int, int>, IntComparator, true> IntBTree;
+
+class BTreeMapTest : public Test {
+public:
+    BTreeMapTest() {
+        srand(0);
+    }
+
+    ~BTreeMapTest() {
+    }
+};
+
+TEST_F(BTreeMapTest, Trivial) {
+    IntBTree m(true, IntComparator());
+    ASSERT_TRUE(m.begin().isEnd());
+    ASSERT_TRUE(m.rbegin().isEnd());
+    ASSERT_TRUE(m.find(1).isEnd());
+    ASSERT_TRUE(m.lowerBound(1).isEnd());
+
+    ASSERT_TRUE(m.insert(std::pair<int, int>(1, 10)));
+    ASSERT_FALSE(m.insert(std::pair<int, int>(1, 11)));
+    ASSERT_EQ(10, *m.insert(1, 12));
+    ASSERT_EQ(1, m.size());
+    ASSERT_EQ(10, m.find(1).value());
+    ASSERT_EQ(1, m.rankLower(1));
+    ASSERT_EQ(-1, m.rankLower(2));
+
+    ASSERT_TRUE(m.erase(1));
+    ASSERT_FALSE(m.erase(1));
+    ASSERT_EQ(0, m.size());
+    ASSERT_TRUE(m.verify());
+}
+
+TEST_F(BTreeMapTest, Bounds) {
+    IntBTree m(true, IntComparator());
+    // even keys, enough of them for a few levels of inner nodes
+    const int count = 100000;
+    for (int i = 0; i < count; i++) {
+        ASSERT_TRUE(m.insert(std::pair<int, int>(i * 2, i)));
+    }
+    ASSERT_TRUE(m.verify());
+    ASSERT_EQ(count, m.size());
+
+    for (int i = -1; i < count * 2; i++) {
+        IntBTree::iterator lower = m.lowerBound(i);
+        IntBTree::iterator upper = m.upperBound(i);
+        int expectedLower = (i < 0) ? 0 : (i + 1) / 2 * 2;
+        int expectedUpper = (i < 0) ? 0 : i / 2 * 2 + 2;
+        if (expectedLower >= count * 2) {
+            ASSERT_TRUE(lower.isEnd());
+        }
+        else {
+            ASSERT_EQ(expectedLower, lower.key());
+        }
+        if (expectedUpper >= count * 2) {
+            ASSERT_TRUE(upper.isEnd());
+        }
+        else {
+            ASSERT_EQ(expectedUpper, upper.key());
+        }
+    }
+
+    // walk both ways
+    int expected = 0;
+    for (IntBTree::iterator iter = m.begin(); !iter.isEnd(); iter.moveNext()) {
+        ASSERT_EQ(expected, iter.key());
+        expected += 2;
+    }
+    ASSERT_EQ(count * 2, expected);
+    for (IntBTree::iterator iter = m.rbegin(); !iter.isEnd(); iter.movePrev()) {
+        expected -= 2;
+        ASSERT_EQ(expected, iter.key());
+    }
+    ASSERT_EQ(0, expected);
+
+    for (int i = 1; i <= count; i++) {
+        IntBTree::iterator iter = m.findRank(i);
+        ASSERT_EQ((i - 1) * 2, iter.key());
+        ASSERT_EQ(i, m.rankLower(iter.key()));
+    }
+    ASSERT_TRUE(m.findRank(count + 1).isEnd());
+}
+
+TEST_F(BTreeMapTest, RandomUnique) {
+    IntBTree volt(true, IntComparator());
+    std::map<int, int> stl;
+
+    for (int round = 0; round < 200000; round++) {
+        int key = rand() % 20000;
+        // drift between mostly inserting and mostly deleting so the tree
+        // both grows and shrinks through merges
+        bool grow = (round / 50000) % 2 == 0;
+        if ((rand() % 4 != 0) == grow) {
+            bool inserted = stl.insert(std::pair<int, int>(key, round)).second;
+            ASSERT_EQ(inserted, volt.insert(std::pair<int, int>(key, round)));
+        }
+        else {
+            bool erased = stl.erase(key) > 0;
+            ASSERT_EQ(erased, volt.erase(key));
+        }
+        if (round % 10000 == 0) {
+            ASSERT_TRUE(volt.verify());
+        }
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_EQ(stl.size(), volt.size());
+
+    std::map<int, int>::const_iterator stli = stl.begin();
+    int rank = 1;
+    for (IntBTree::iterator volti = volt.begin(); !volti.isEnd(); volti.moveNext(), stli++, rank++) {
+        ASSERT_EQ(stli->first, volti.key());
+        ASSERT_EQ(stli->second, volti.value());
+        ASSERT_EQ(rank, volt.rankLower(volti.key()));
+        ASSERT_EQ(rank, volt.rankUpper(volti.key()));
+    }
+    ASSERT_TRUE(stli == stl.end());
+
+    // empty it through iterators
+    while (volt.size() > 0) {
+        IntBTree::iterator iter = volt.begin();
+        ASSERT_TRUE(volt.erase(iter));
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_TRUE(volt.begin().isEnd());
+}
+
+TEST_F(BTreeMapTest, RandomMulti) {
+    IntBTree volt(false, IntComparator());
+    std::multimap<int, int> stl;
+
+    for (int round = 0; round < 100000; round++) {
+        // few distinct keys, so duplicates span several leaves
+        int key = rand() % 500;
+        if (rand() % 3 != 0) {
+            stl.insert(std::pair<int, int>(key, round));
+            ASSERT_TRUE(volt.insert(std::pair<int, int>(key, round)));
+        }
+        else {
+            // both drop the oldest duplicate
+            std::multimap<int, int>::iterator stli = stl.lower_bound(key);
+            bool erased = stli != stl.end() && stli->first == key;
+            if (erased) {
+                stl.erase(stli);
+            }
+            ASSERT_EQ(erased, volt.erase(key));
+        }
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_EQ(stl.size(), volt.size());
+
+    int64_t below = 0;
+    for (int key = -1; key <= 500; key++) {
+        IntBTree::iterator volti = volt.lowerBound(key);
+        IntBTree::iterator voltEnd = volt.upperBound(key);
+        std::pair<std::multimap<int, int>::iterator, std::multimap<int, int>::iterator> range = stl.equal_range(key);
+        // duplicates come back in insertion order
+        int64_t dups = 0;
+        for (std::multimap<int, int>::iterator stli = range.first; stli != range.second; stli++, dups++) {
+            ASSERT_FALSE(volti.equals(voltEnd));
+            ASSERT_EQ(stli->first, volti.key());
+            ASSERT_EQ(stli->second, volti.value());
+            volti.moveNext();
+        }
+        ASSERT_TRUE(volti.equals(voltEnd));
+
+        if (dups == 0) {
+            ASSERT_EQ(-1, volt.rankLower(key));
+        }
+        else {
+            ASSERT_EQ(below + 1, volt.rankLower(key));
+            ASSERT_EQ(below + dups, volt.rankUpper(key));
+            ASSERT_EQ(key, volt.findRank(below + dups).key());
+        }
+        below += dups;
+    }
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
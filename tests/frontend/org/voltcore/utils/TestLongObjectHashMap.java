@@ -0,0 +1,147 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestLongObjectHashMap {
+
+    private static void assertSameContents(Map<Long, String> expected, LongObjectHashMap<String> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (Map.Entry<Long, String> e : expected.entrySet()) {
+            assertEquals(e.getValue(), actual.get(e.getKey()));
+        }
+        Map<Long, String> visited = new HashMap<>();
+        actual.forEach((k, v) -> assertNull("visited twice " + k, visited.put(k, v)));
+        assertEquals(expected, visited);
+
+        long[] keys = actual.keys();
+        Arrays.sort(keys);
+        long[] expectedKeys = expected.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        assertTrue(Arrays.equals(expectedKeys, keys));
+    }
+
+    @Test
+    public void testBasicOperations() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0));
+        assertNull(map.put(0, "zero"));
+        assertNull(map.put(Long.MIN_VALUE, "min"));
+        assertNull(map.put(Long.MAX_VALUE, "max"));
+        assertEquals("zero", map.put(0, "ZERO"));
+        assertEquals(3, map.size());
+        assertEquals("ZERO", map.get(0));
+        assertTrue(map.containsKey(Long.MIN_VALUE));
+        assertFalse(map.containsKey(1));
+
+        assertEquals("min", map.remove(Long.MIN_VALUE));
+        assertNull(map.remove(Long.MIN_VALUE));
+        assertEquals(2, map.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testSequentialTxnIdsChurn() {
+        // Transaction ids from one partition share the low bits and grow in the high bits
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        long partitionBits = 5;
+        for (long counter = 0; counter < 100_000; counter++) {
+            long txnId = (counter << 14) | partitionBits;
+            map.put(txnId, Long.toString(counter));
+            expected.put(txnId, Long.toString(counter));
+            if (counter >= 50) {
+                long done = ((counter - 50) << 14) | partitionBits;
+                assertEquals(expected.remove(done), map.remove(done));
+            }
+        }
+        assertSameContents(expected, map);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        long seed = System.nanoTime();
+        Random rand = new Random(seed);
+        LongObjectHashMap<String> map = new LongObjectHashMap<>(4);
+        Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Small key range to get plenty of collisions, hits and removals
+            long key = rand.nextInt(2_000) * 0x10000L;
+            int op = rand.nextInt(10);
+            if (op < 5) {
+                String value = Integer.toString(i);
+                assertEquals("seed " + seed, expected.put(key, value), map.put(key, value));
+            } else if (op < 8) {
+                assertEquals("seed " + seed, expected.remove(key), map.remove(key));
+            } else {
+                assertEquals("seed " + seed, expected.get(key), map.get(key));
+            }
+        }
+        assertSameContents(expected, map);
+    }
+
+    @Test
+    public void testRemoveIf() {
+        long seed = System.nanoTime();
+        Random rand = new Random(seed);
+        for (int round = 0; round < 100; round++) {
+            LongObjectHashMap<String> map = new LongObjectHashMap<>();
+            Map<Long, String> expected = new HashMap<>();
+            int count = rand.nextInt(500);
+            for (int i = 0; i < count; i++) {
+                long key = rand.nextLong();
+                map.put(key, Long.toString(key));
+                expected.put(key, Long.toString(key));
+            }
+            int modulo = rand.nextInt(3) + 1;
+            Map<Long, String> removed = new HashMap<>();
+            int removedCount = map.removeIf((k, v) -> {
+                assertEquals(Long.toString(k), v);
+                if ((k & 0xff) % modulo == 0) {
+                    assertNull("seed " + seed, removed.put(k, v));
+                    return true;
+                }
+                return false;
+            });
+            expected.entrySet().removeIf(e -> (e.getKey() & 0xff) % modulo == 0);
+            assertEquals(removed.size(), removedCount);
+            assertEquals(count, removedCount + map.size());
+            assertSameContents(expected, map);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class TestLongObjectSortedMap {
+
+    private static void assertSameContents(TreeMap<Long, String> expected, LongObjectSortedMap<String> actual) {
+        assertEquals(expected.size(), actual.size());
+        int i = 0;
+        for (Map.Entry<Long, String> e : expected.entrySet()) {
+            assertEquals(e.getKey().longValue(), actual.keyAt(i));
+            assertEquals(e.getValue(), actual.valueAt(i));
+            assertEquals(i, actual.indexOf(e.getKey()));
+            i++;
+        }
+    }
+
+    @Test
+    public void testBasicOperations() {
+        LongObjectSortedMap<String> map = new LongObjectSortedMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(5, "five"));
+        assertNull(map.put(-1, "minus one"));
+        assertNull(map.put(10, "ten"));
+        assertEquals("five", map.put(5, "FIVE"));
+        assertEquals(3, map.size());
+        assertEquals(-1, map.keyAt(0));
+        assertEquals("FIVE", map.valueAt(1));
+        assertEquals(10, map.keyAt(2));
+        assertTrue(map.containsKey(10));
+        assertFalse(map.containsKey(6));
+        assertEquals(-3, map.indexOf(6));
+
+        assertEquals("minus one", map.removeAt(0));
+        assertEquals(5, map.keyAt(0));
+        assertEquals("ten", map.remove(10));
+        assertNull(map.remove(10));
+        assertEquals(1, map.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(5));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        LongObjectSortedMap<String> map = new LongObjectSortedMap<>(4);
+        map.put(1, "one");
+        map.valueAt(1);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        long seed = System.nanoTime();
+        Random rand = new Random(seed);
+        LongObjectSortedMap<String> map = new LongObjectSortedMap<>();
+        TreeMap<Long, String> expected = new TreeMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            long key = rand.nextInt(500) - 250;
+            int op = rand.nextInt(10);
+            if (op < 5) {
+                String value = Integer.toString(i);
+                assertEquals("seed " + seed, expected.put(key, value), map.put(key, value));
+            } else if (op < 8) {
+                assertEquals("seed " + seed, expected.remove(key), map.remove(key));
+            } else {
+                assertEquals("seed " + seed, expected.get(key), map.get(key));
+            }
+        }
+        assertSameContents(expected, map);
+    }
+}
@@ -0,0 +1,279 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package org.voltdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hsqldb_voltpatches.FunctionSQL;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.catalog.PlanFragment;
+import org.voltdb.catalog.ProcParameter;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.catalog.StmtParameter;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.TransactionState;
+import org.voltdb.exceptions.EEException;
+import org.voltdb.jni.ExecutionEngine;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.utils.CompressionService;
+import org.voltdb.utils.Encoder;
+
+/**
+ * Grouped execution of queued read-only invocations of a procedure without Java code,
+ * see {@link ProcedureRunner#executeGroupedReads(List)}.
+ */
+public class TestGroupedReads {
+    private static final String PLAN = "{\"PLAN_NODES\":[{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEQSCAN\"}]}";
+    private static final String NOW_PLAN = "{\"PLAN_NODES\":[{\"ID\":1,\"PLAN_NODE_TYPE\":\"PROJECTION\"," +
+            "\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":100,\"VALUE_TYPE\":11," +
+            "\"NAME\":\"current_timestamp\",\"FUNCTION_ID\":" + FunctionSQL.voltGetCurrentTimestampId() + "}}]}]}";
+
+    private MockVoltDB m_voltdb;
+    private SiteProcedureConnection m_site;
+    private int m_procCount = 0;
+
+    // Transaction state of a queued invocation of a procedure without Java code
+    private static class QueuedRead extends TransactionState {
+        final StoredProcedureInvocation m_invocation;
+
+        QueuedRead(long spHandle, StoredProcedureInvocation invocation) {
+            super(null, message(spHandle, invocation));
+            m_invocation = invocation;
+        }
+
+        private static Iv2InitiateTaskMessage message(long spHandle, StoredProcedureInvocation invocation) {
+            Iv2InitiateTaskMessage msg = new Iv2InitiateTaskMessage(0, 0, 0, spHandle, spHandle, true, true,
+                    invocation, 0, 0, false);
+            msg.setSpHandle(spHandle);
+            return msg;
+        }
+
+        @Override
+        public boolean isSinglePartition() {
+            return true;
+        }
+
+        @Override
+        public StoredProcedureInvocation getInvocation() {
+            return m_invocation;
+        }
+    }
+
+    // Stands in for the EE: each fragment returns a one row table holding its first parameter
+    private static final Answer<FastDeserializer> ECHO_FIRST_PARAM = new Answer<FastDeserializer>() {
+        @Override
+        public FastDeserializer answer(InvocationOnMock invocation) {
+            int count = invocation.getArgument(0);
+            Object[] params = invocation.getArgument(3);
+            ByteBuffer buf = ByteBuffer.allocate(1024 * 1024);
+            buf.putInt(0);
+            buf.putInt(0);
+            for (int i = 0; i < count; i++) {
+                VoltTable table = new VoltTable(new VoltTable.ColumnInfo("V", VoltType.BIGINT));
+                table.addRow(((ParameterSet) params[i]).toArray()[0]);
+                buf.putInt(1);
+                buf.putInt(0);
+                table.flattenToBuffer(buf);
+            }
+            buf.putInt(4, buf.position() - 8);
+            buf.flip();
+            return new FastDeserializer(buf);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        m_voltdb = new MockVoltDB();
+        long siteId = CoreUtils.getHSIdFromHostAndSite(0, 42);
+        m_voltdb.addSite(siteId, 0);
+        m_voltdb.setStatsAgent(new StatsAgent());
+        VoltDB.replaceVoltDBInstanceForTest(m_voltdb);
+
+        m_site = mock(SiteProcedureConnection.class);
+        SystemProcedureExecutionContext context = mock(SystemProcedureExecutionContext.class);
+        doReturn(context).when(m_site).getSystemProcedureExecutionContext();
+        doReturn(0).when(m_site).getCorrespondingPartitionId();
+        doReturn(siteId).when(m_site).getCorrespondingSiteId();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        m_voltdb.shutdown(null);
+    }
+
+    private ProcedureRunner runner(String plan, boolean deterministic) {
+        Procedure proc = m_voltdb.addProcedureForTest("GroupedRead" + m_procCount++);
+        proc.setHasjava(false);
+        proc.setReadonly(true);
+        proc.setSinglepartition(true);
+        proc.setPartitionparameter(-1);
+        ProcParameter procParam = proc.getParameters().add("0");
+        procParam.setIndex(0);
+        procParam.setType(VoltType.BIGINT.getValue());
+
+        Statement stmt = proc.getStatements().add(VoltDB.ANON_STMT_NAME + "0");
+        stmt.setSqltext("SELECT V FROM T WHERE V = ?;");
+        stmt.setReadonly(true);
+        stmt.setSinglepartition(true);
+        stmt.setIscontentdeterministic(deterministic);
+        stmt.setIsorderdeterministic(deterministic);
+        StmtParameter stmtParam = stmt.getParameters().add("0");
+        stmtParam.setIndex(0);
+        stmtParam.setJavatype(VoltType.BIGINT.getValue());
+        PlanFragment frag = stmt.getFragments().add("0");
+        byte[] planHash = new byte[20];
+        planHash[0] = (byte) m_procCount;
+        frag.setPlanhash(Encoder.hexEncode(planHash));
+        frag.setPlannodetree(CompressionService.compressAndBase64Encode(plan));
+        frag.setHasdependencies(false);
+
+        ProcedureRunner runner = new ProcedureRunner(new ProcedureRunner.StmtProcedure(), m_site, proc);
+        runner.m_ee = mock(ExecutionEngine.class);
+        return runner;
+    }
+
+    private static List<TransactionState> queue(Object... firstParams) {
+        List<TransactionState> txns = new ArrayList<>();
+        for (Object param : firstParams) {
+            StoredProcedureInvocation invocation = new StoredProcedureInvocation();
+            invocation.setProcName("GroupedRead");
+            invocation.setParams(param);
+            txns.add(new QueuedRead(100 + txns.size(), invocation));
+        }
+        return txns;
+    }
+
+    // Run the invocation as the site would after the grouped call and return its single result value
+    private static long run(ProcedureRunner runner, TransactionState txn) {
+        runner.setupTransaction(txn);
+        ClientResponse response = runner.call(txn.getInvocation().getParams().toArray());
+        assertEquals(response.getStatusString(), ClientResponse.SUCCESS, response.getStatus());
+        VoltTable result = response.getResults()[0];
+        result.advanceRow();
+        return result.getLong(0);
+    }
+
+    private void verifyEECalls(int fragmentCount, int times) {
+        verify(m_site, times(times)).executePlanFragments(eq(fragmentCount), any(long[].class), any(),
+                any(Object[].class), any(), any(String[].class), any(boolean[].class), any(int[].class),
+                anyLong(), anyLong(), anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    public void testOnlyDeterministicStatementsGroup() {
+        assertEquals(ProcedureRunner.MAX_BATCH_SIZE, runner(PLAN, true).getMaxGroupedReads());
+        assertEquals(0, runner(PLAN, false).getMaxGroupedReads());
+        // deterministic as far as the planner is concerned, but reads the time of the transaction
+        assertEquals(0, runner(NOW_PLAN, true).getMaxGroupedReads());
+    }
+
+    @Test
+    public void testGroupedResults() {
+        ProcedureRunner runner = runner(PLAN, true);
+        doAnswer(ECHO_FIRST_PARAM).when(m_site).executePlanFragments(anyInt(), any(long[].class), any(),
+                any(Object[].class), any(), any(String[].class), any(boolean[].class), any(int[].class),
+                anyLong(), anyLong(), anyLong(), anyBoolean(), anyBoolean());
+
+        List<TransactionState> txns = queue(1L, 2L, 3L);
+        runner.executeGroupedReads(txns);
+        verifyEECalls(3, 1);
+
+        // each invocation picks up its own result without going back to the EE
+        assertEquals(1L, run(runner, txns.get(0)));
+        assertEquals(2L, run(runner, txns.get(1)));
+        assertEquals(3L, run(runner, txns.get(2)));
+        verifyEECalls(1, 0);
+        runner.clearGroupedReads();
+    }
+
+    @Test
+    public void testUnconvertibleParametersRunAlone() {
+        ProcedureRunner runner = runner(PLAN, true);
+        doAnswer(ECHO_FIRST_PARAM).when(m_site).executePlanFragments(anyInt(), any(long[].class), any(),
+                any(Object[].class), any(), any(String[].class), any(boolean[].class), any(int[].class),
+                anyLong(), anyLong(), anyLong(), anyBoolean(), anyBoolean());
+
+        List<TransactionState> txns = queue(1L, "not a number", 3L);
+        runner.executeGroupedReads(txns);
+        // only the invocations whose parameters convert share the call
+        verifyEECalls(2, 1);
+        assertEquals(1L, run(runner, txns.get(0)));
+        assertEquals(3L, run(runner, txns.get(2)));
+        verifyEECalls(1, 0);
+
+        // the other one fails on its own as it would have without grouping
+        runner.setupTransaction(txns.get(1));
+        ClientResponse response = runner.call(txns.get(1).getInvocation().getParams().toArray());
+        assertEquals(ClientResponse.GRACEFUL_FAILURE, response.getStatus());
+        runner.clearGroupedReads();
+    }
+
+    @Test
+    public void testFailedGroupRunsOneByOne() {
+        ProcedureRunner runner = runner(PLAN, true);
+        doAnswer(ECHO_FIRST_PARAM).when(m_site).executePlanFragments(eq(1), any(long[].class), any(),
+                any(Object[].class), any(), any(String[].class), any(boolean[].class), any(int[].class),
+                anyLong(), anyLong(), anyLong(), anyBoolean(), anyBoolean());
+        doAnswer(new Answer<FastDeserializer>() {
+            @Override
+            public FastDeserializer answer(InvocationOnMock invocation) {
+                throw new EEException(ExecutionEngine.ERRORCODE_ERROR);
+            }
+        }).when(m_site).executePlanFragments(eq(2), any(long[].class), any(),
+                any(Object[].class), any(), any(String[].class), any(boolean[].class), any(int[].class),
+                anyLong(), anyLong(), anyLong(), anyBoolean(), anyBoolean());
+
+        List<TransactionState> txns = queue(1L, 2L);
+        runner.executeGroupedReads(txns);
+        verifyEECalls(2, 1);
+
+        // nothing was kept from the failed call, every invocation goes to the EE itself
+        assertEquals(1L, run(runner, txns.get(0)));
+        assertEquals(2L, run(runner, txns.get(1)));
+        verifyEECalls(1, 2);
+        runner.clearGroupedReads();
+    }
+}
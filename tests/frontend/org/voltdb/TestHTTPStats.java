@@ -0,0 +1,96 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.voltdb.HTTPStats.StatName;
+
+public class TestHTTPStats {
+
+    private static Object value(HTTPStats stats, Object[] row, StatName stat) {
+        return row[stats.columnNameToIndex.get(stat.name())];
+    }
+
+    @Test
+    public void testInFlightLimit() {
+        HTTPStats stats = new HTTPStats(2);
+        assertTrue(stats.tryAdmit());
+        assertTrue(stats.tryAdmit());
+        assertFalse(stats.tryAdmit());
+        assertEquals(2, stats.getInFlight());
+
+        stats.requestCompleted(System.nanoTime(), 10);
+        assertTrue(stats.tryAdmit());
+        assertFalse(stats.tryAdmit());
+
+        Object[] row = stats.getStatsRows(false, 0L)[0];
+        assertEquals(2, value(stats, row, StatName.IN_FLIGHT));
+        assertEquals(2, value(stats, row, StatName.MAX_IN_FLIGHT));
+        assertEquals(2L, value(stats, row, StatName.REJECTED));
+        assertEquals(1L, value(stats, row, StatName.REQUESTS));
+        assertEquals(10L, value(stats, row, StatName.RESPONSE_BYTES));
+
+        HTTPStats unlimited = new HTTPStats(0);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(unlimited.tryAdmit());
+        }
+    }
+
+    @Test
+    public void testIntervalLatency() {
+        HTTPStats stats = new HTTPStats(0);
+        long now = System.nanoTime();
+        stats.tryAdmit();
+        stats.requestCompleted(now - TimeUnit.MILLISECONDS.toNanos(5), 100);
+        stats.tryAdmit();
+        stats.requestTimedOut();
+        stats.requestCompleted(now - TimeUnit.MILLISECONDS.toNanos(20), 50);
+
+        Object[] row = stats.getStatsRows(true, 0L)[0];
+        assertEquals(2L, value(stats, row, StatName.REQUESTS));
+        assertEquals(1L, value(stats, row, StatName.TIMEOUTS));
+        assertEquals(150L, value(stats, row, StatName.RESPONSE_BYTES));
+        long max = (Long) value(stats, row, StatName.LATENCY_MAX);
+        assertTrue(max >= TimeUnit.MILLISECONDS.toMicros(20));
+        assertTrue((Long) value(stats, row, StatName.LATENCY_P50) < max);
+
+        // nothing new since the last interval
+        row = stats.getStatsRows(true, 0L)[0];
+        assertEquals(0L, value(stats, row, StatName.REQUESTS));
+        assertEquals(0L, value(stats, row, StatName.TIMEOUTS));
+        assertEquals(0L, value(stats, row, StatName.LATENCY_MAX));
+
+        // totals are unaffected by interval collection
+        row = stats.getStatsRows(false, 0L)[0];
+        assertEquals(2L, value(stats, row, StatName.REQUESTS));
+        assertEquals(0, value(stats, row, StatName.IN_FLIGHT));
+        assertTrue((Long) value(stats, row, StatName.LATENCY_MAX) >= max);
+    }
+}
@@ -1211,6 +1211,16 @@ public class TestJSONInterface extends TestCase {
             r = responseFromJSON(response);
             assertEquals(ClientResponse.UNEXPECTED_FAILURE, r.status);
 
+            // bad auth is rejected before the parameters are decoded
+            params = new HashMap<>();
+            params.put("Procedure", "Insert");
+            params.put("Parameters", "[\"not json");
+            params.put("User", u.name);
+            params.put("Password", "abcdefghiabcdefghiabcdefghiabcdefghi");
+            response = callProcOverJSONRaw(params, 401);
+            r = responseFromJSON(response);
+            assertEquals(ClientResponse.UNEXPECTED_FAILURE, r.status);
+
             // the update catalog test below is for enterprise only
             if (VoltDB.instance().getConfig().m_isEnterprise == false) {
                 return;
@@ -0,0 +1,142 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.Test;
+import org.voltcore.network.MockWriteStream;
+import org.voltcore.utils.DeferredSerialization;
+import org.voltdb.client.ClientResponse;
+
+public class TestResultChunkWork {
+
+    /** Queues writes like the network does instead of serializing them on enqueue */
+    private static class QueueingWriteStream extends MockWriteStream {
+        final Deque<DeferredSerialization> m_queued = new ArrayDeque<>();
+
+        @Override
+        public void enqueue(DeferredSerialization ds) {
+            m_queued.offer(ds);
+        }
+
+        List<ByteBuffer> drain() throws Exception {
+            List<ByteBuffer> frames = new ArrayList<>();
+            DeferredSerialization ds;
+            while ((ds = m_queued.poll()) != null) {
+                ByteBuffer buf = ByteBuffer.allocate(ds.getSerializedSize());
+                ds.serialize(buf);
+                assertFalse(buf.hasRemaining());
+                buf.flip();
+                assertEquals(buf.remaining() - 4, buf.getInt());
+                frames.add(buf.slice());
+            }
+            return frames;
+        }
+    }
+
+    private static VoltTable makeTable(int rows, int width) {
+        VoltTable vt = new VoltTable(new VoltTable.ColumnInfo("ID", VoltType.INTEGER),
+                                     new VoltTable.ColumnInfo("PAYLOAD", VoltType.STRING));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < width; ++i) {
+            sb.append((char) ('a' + i % 26));
+        }
+        for (int i = 0; i < rows; ++i) {
+            vt.addRow(i, sb.toString());
+        }
+        return vt;
+    }
+
+    private static ClientResponseImpl streamedResponse(VoltTable... tables) {
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS, tables, null, 42);
+        response.setStreamedResults(true);
+        return response;
+    }
+
+    @Test
+    public void testHeaderCarriesSchemaOnly() throws Exception {
+        VoltTable vt = makeTable(10, 20);
+        ClientResponseImpl response = streamedResponse(vt);
+        ByteBuffer buf = ByteBuffer.allocate(response.getSerializedSize());
+        response.flattenToBuffer(buf);
+        assertFalse(buf.hasRemaining());
+        buf.flip();
+
+        ClientResponseImpl header = new ClientResponseImpl();
+        header.initFromBuffer(buf);
+        assertTrue(header.hasStreamedResults());
+        assertEquals(42, header.getClientHandle());
+        assertEquals(1, header.getResults().length);
+        assertEquals(0, header.getResults()[0].getRowCount());
+        assertEquals(vt.getColumnCount(), header.getResults()[0].getColumnCount());
+        assertEquals("PAYLOAD", header.getResults()[0].getColumnName(1));
+    }
+
+    @Test
+    public void testChunksReassemble() throws Exception {
+        // roughly three chunks of rows, an empty table, and a single row
+        int rowCount = (ResultChunkWork.CHUNK_BYTES * 3) / 1000;
+        VoltTable big = makeTable(rowCount, 990);
+        VoltTable empty = makeTable(0, 0);
+        VoltTable single = makeTable(1, 5);
+        ClientResponseImpl response = streamedResponse(big, empty, single);
+
+        QueueingWriteStream stream = new QueueingWriteStream();
+        stream.enqueue(new ResultChunkWork(response, stream));
+        List<ByteBuffer> frames = stream.drain();
+        assertTrue(frames.size() > 4);
+
+        VoltTable[] reassembled = new VoltTable[] { big.clone(0), empty.clone(0), single.clone(0) };
+        for (int i = 0; i < frames.size(); ++i) {
+            ByteBuffer frame = frames.get(i);
+            assertEquals(ClientResponseImpl.RESULT_CHUNK_VERSION, frame.get());
+            assertEquals(42, frame.getLong());
+            int tableIndex = frame.getShort();
+            boolean last = (frame.get() & ClientResponseImpl.LAST_RESULT_CHUNK) != 0;
+            assertEquals(i == frames.size() - 1, last);
+            int tableSize = frame.getInt();
+            assertEquals(tableSize, frame.remaining());
+            assertTrue(frame.remaining() < ResultChunkWork.CHUNK_BYTES + 100);
+            VoltTable rows = PrivateVoltTableFactory.createVoltTableFromBuffer(frame.slice(), true);
+            reassembled[tableIndex].addTable(rows);
+        }
+
+        assertEquals(big, reassembled[0]);
+        assertEquals(empty, reassembled[1]);
+        assertEquals(single, reassembled[2]);
+    }
+}
@@ -292,4 +292,57 @@ public class TestStoredProcedureInvocation extends TestCase {
             }
         }
     }
+
+    public void testBatchRoundTrip() throws IOException {
+        Object[][] paramSets = { { 1, "a" }, { }, { null, null }, { 6000000000L, "你好" } };
+        ProcedureInvocation[] invocations = new ProcedureInvocation[paramSets.length];
+        for (int i = 0; i < paramSets.length; i++) {
+            invocations[i] = new ProcedureInvocation(100 + i, "Foo", paramSets[i]);
+        }
+
+        // serialize the middle two only
+        ByteBuffer buf = ByteBuffer.allocate(ProcedureInvocation.getBatchSerializedSize(invocations, 1, 2));
+        ProcedureInvocation.flattenBatchToBuffer(invocations, 1, 2, buf);
+        assertFalse(buf.hasRemaining());
+        buf.flip();
+
+        assertEquals(ProcedureInvocationType.BATCH.getValue(), buf.get());
+        byte[] procNameBytes = SerializationHelper.getVarbinary(buf);
+        assertEquals(2, buf.getInt());
+        for (int i = 1; i <= 2; i++) {
+            StoredProcedureInvocation spi = new StoredProcedureInvocation();
+            spi.initFromBatchEntry(procNameBytes, buf);
+            assertEquals("Foo", spi.getProcName());
+            assertEquals(100 + i, spi.getClientHandle());
+            assertEquals(BatchTimeoutOverrideType.NO_TIMEOUT, spi.getBatchTimeout());
+            assertEquals(-1, spi.getPartitionDestination());
+            assertEquals(paramSets[i].length, spi.getParams().size());
+            for (int j = 0; j < paramSets[i].length; j++) {
+                assertEquals(paramSets[i][j], spi.getParams().getParam(j));
+            }
+        }
+        assertFalse(buf.hasRemaining());
+
+        // a batch frame is not a single invocation
+        buf.rewind();
+        try {
+            new StoredProcedureInvocation().initFromBuffer(buf);
+            fail();
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().contains("initFromBatchEntry"));
+        }
+
+        // an entry claiming more parameter bytes than remain
+        ByteBuffer truncated = ByteBuffer.allocate(12);
+        truncated.putLong(7);
+        truncated.putInt(100);
+        truncated.flip();
+        try {
+            new StoredProcedureInvocation().initFromBatchEntry(procNameBytes, truncated);
+            fail();
+        }
+        catch (IOException e) {
+        }
+    }
 }
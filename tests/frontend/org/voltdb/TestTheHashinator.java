@@ -42,6 +42,7 @@ import org.junit.Test;
 import org.voltcore.utils.InstanceId;
 import org.voltcore.utils.Pair;
 import org.voltdb.TheHashinator.HashinatorConfig;
+import org.voltdb.client.HashinatorLite;
 import org.voltdb.jni.ExecutionEngine;
 import org.voltdb.jni.ExecutionEngineJNI;
 import org.voltdb.sysprocs.saverestore.HashinatorSnapshotData;
@@ -682,6 +683,50 @@ public class TestTheHashinator {
         assertEquals( 2, hashinator.partitionForToken(Integer.MAX_VALUE - 1));
     }
 
+    @Test
+    public void testElasticLookupTable() throws Exception {
+        Random r = new Random(7);
+        ElasticHashinator regular = new ElasticHashinator(ElasticHashinator.getConfigureBytes(6,
+                ElasticHashinator.DEFAULT_TOTAL_TOKENS), false);
+        ElasticHashinator expanded = new ElasticHashinator(ElasticHashinator.addPartitions(regular, 3), false);
+
+        // a ring with tokens clustered well inside lookup buckets
+        TreeMap<Integer, Integer> clustered = new TreeMap<Integer, Integer>();
+        clustered.put(Integer.MIN_VALUE, 0);
+        for (int ii = 0; ii < 200; ii++) {
+            clustered.put(r.nextInt(1 << 20) - (1 << 19), r.nextInt(5));
+        }
+        clustered.put(Integer.MAX_VALUE, 4);
+        ByteBuffer buf = ByteBuffer.allocate(4 + 8 * clustered.size());
+        buf.putInt(clustered.size());
+        for (Map.Entry<Integer, Integer> e : clustered.entrySet()) {
+            buf.putInt(e.getKey());
+            buf.putInt(e.getValue());
+        }
+        ElasticHashinator skewed = new ElasticHashinator(buf.array(), false);
+
+        for (ElasticHashinator hashinator : new ElasticHashinator[] { regular, expanded, skewed }) {
+            ImmutableSortedMap<Integer, Integer> tokens = hashinator.getTokens();
+            HashinatorLite lite = new HashinatorLite(hashinator.getConfigBytes(), false);
+            Set<Integer> hashes = new HashSet<Integer>();
+            for (Map.Entry<Integer, Integer> e : tokens.entrySet()) {
+                hashes.add(e.getKey());
+                hashes.add(e.getKey() - 1);
+                hashes.add(e.getKey() + 1);
+            }
+            for (int ii = 0; ii < 100000; ii++) {
+                hashes.add(r.nextInt());
+                hashes.add(r.nextInt(1 << 21) - (1 << 20));
+            }
+            hashes.add(Integer.MAX_VALUE);
+            for (int hash : hashes) {
+                int expected = tokens.floorEntry(hash).getValue();
+                assertEquals(expected, hashinator.partitionForToken(hash));
+                assertEquals(expected, lite.partitionForToken(hash));
+            }
+        }
+    }
+
     @Test
     public void testElasticAddPartitions() throws Exception {
         ElasticHashinator hashinator = new ElasticHashinator(ElasticHashinator.getConfigureBytes(3,
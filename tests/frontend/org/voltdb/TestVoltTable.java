@@ -31,8 +31,11 @@ import java.util.Random;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.json_voltpatches.JSONException;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.TableHelper.RandomTable;
 import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.client.ClientResponse;
 import org.voltdb.types.GeographyPointValue;
 import org.voltdb.types.GeographyValue;
 import org.voltdb.types.TimestampType;
@@ -1563,4 +1566,56 @@ public class TestVoltTable extends TestCase {
             }
         }
     }
+
+    public void testPooledBackingOwnership() {
+        for (int i = 0; i < 100; ++i) {
+            LONG_FIVE.addRow((long) i);
+        }
+        BBContainer pooled = DBBPool.allocateDirectAndPool(LONG_FIVE.getSerializedSize() * 2);
+        ByteBuffer buf = pooled.b();
+        LONG_FIVE.flattenToBuffer(buf);
+        LONG_FIVE.flattenToBuffer(buf);
+        buf.flip();
+
+        VoltTable[] tables = new VoltTable[2];
+        for (int i = 0; i < tables.length; ++i) {
+            int len = buf.getInt();
+            ByteBuffer slice = buf.slice();
+            slice.limit(len);
+            buf.position(buf.position() + len);
+            tables[i] = PrivateVoltTableFactory.createVoltTableFromBuffer(slice, true);
+            tables[i].m_pooledBacking = pooled;
+        }
+
+        // a pooled table owns its buffer and is not copied for the response
+        tables[0].convertToHeapBuffer();
+        assertTrue(tables[0].m_buffer.isDirect());
+
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS, tables, null);
+        assertTrue(response.hasPooledResults());
+        response.copyPooledResultsToHeap();
+        assertFalse(response.hasPooledResults());
+        for (VoltTable table : tables) {
+            assertFalse(table.m_buffer.isDirect());
+            assertEquals(LONG_FIVE, table);
+        }
+        // nothing left to release, the buffer was returned to the pool exactly once
+        response.releasePooledResults();
+    }
+
+    public void testReleasePooledResults() {
+        BBContainer pooled = DBBPool.allocateDirectAndPool(LONG_FIVE.getSerializedSize());
+        LONG_FIVE.flattenToBuffer(pooled.b());
+        pooled.b().flip();
+        pooled.b().getInt();
+        VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(pooled.b().slice(), true);
+        table.m_pooledBacking = pooled;
+
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { table, table }, null);
+        ByteBuffer out = ByteBuffer.allocate(response.getSerializedSize());
+        response.flattenToBuffer(out);
+        response.releasePooledResults();
+        assertFalse(response.hasPooledResults());
+        assertNull(table.m_pooledBacking);
+    }
 }
@@ -368,4 +368,11 @@ public class MockVoltClient implements Client {
         // TODO Auto-generated method stub
         return false;
     }
+
+    @Override
+    public boolean callProcedureBatch(BatchProcedureCallback callback, String procName,
+            Object[]... paramSets) throws IOException, NoConnectionsException {
+        // TODO Auto-generated method stub
+        return false;
+    }
 }
@@ -0,0 +1,154 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram_voltpatches.Histogram;
+import org.HdrHistogram_voltpatches.HistogramLogReader;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TestClientStats extends TestCase {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testIntendedSendTime() {
+        RateLimiter limiter = new RateLimiter();
+        // no rate, no schedule
+        assertEquals(5 * MS, limiter.intendedSendTimeNanos(5 * MS, false));
+
+        limiter.setLimits(1000, 100);
+        assertEquals(10 * MS, limiter.intendedSendTimeNanos(10 * MS, false));
+        // running below the cap with work outstanding: the schedule follows the calls
+        limiter.m_outstandingTxns = 1;
+        assertEquals(50 * MS, limiter.intendedSendTimeNanos(50 * MS, false));
+        // calling faster than the cap: the schedule keeps its pace
+        assertEquals(51 * MS, limiter.intendedSendTimeNanos(50 * MS, false));
+        // held up by the limiter or backpressure: the schedule keeps its place
+        limiter.m_callerBlocked = true;
+        assertEquals(52 * MS, limiter.intendedSendTimeNanos(90 * MS, false));
+        assertEquals(53 * MS, limiter.intendedSendTimeNanos(90 * MS, false));
+        // not paced by the limiter
+        assertEquals(90 * MS, limiter.intendedSendTimeNanos(90 * MS, true));
+        // no longer held up: the schedule restarts at the call
+        limiter.m_callerBlocked = false;
+        assertEquals(100 * MS, limiter.intendedSendTimeNanos(100 * MS, false));
+        assertEquals(101 * MS, limiter.intendedSendTimeNanos(100 * MS, false));
+
+        limiter.enableAutoTuning(5);
+        assertEquals(200 * MS, limiter.intendedSendTimeNanos(200 * MS, false));
+    }
+
+    @Test
+    public void testCallerBlockedTracking() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        limiter.setLimits(1000000, 100);
+        long now = System.nanoTime();
+        limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(now, TimeUnit.SECONDS.toNanos(1), false);
+        assertFalse(limiter.m_callerBlocked);
+
+        // backpressure before the admission marks the caller as held up
+        limiter.backpressureBlockedCaller();
+        limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(now, TimeUnit.SECONDS.toNanos(1), false);
+        assertTrue(limiter.m_callerBlocked);
+        // transactions that bypass backpressure leave it alone
+        limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(now, TimeUnit.SECONDS.toNanos(1), true);
+        assertTrue(limiter.m_callerBlocked);
+        // until the next paced admission goes through without waiting
+        limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(now, TimeUnit.SECONDS.toNanos(1), false);
+        assertFalse(limiter.m_callerBlocked);
+    }
+
+    @Test
+    public void testCorrectedLatency() {
+        ClientStats stats = new ClientStats();
+        for (int i = 0; i < 100; i++) {
+            stats.update(MS, i == 99 ? 500 * MS : MS, 0, false, false, false);
+        }
+        assertEquals(1.0, stats.kPercentileLatencyAsDouble(1.0), 0.1);
+        assertEquals(500.0, stats.kPercentileCorrectedLatencyAsDouble(1.0), 5.0);
+        assertEquals(1.0, stats.kPercentileCorrectedLatencyAsDouble(0.5), 0.1);
+
+        // never below the uncorrected latency
+        ClientStats other = new ClientStats();
+        other.update(20 * MS, 0, 0, false, false, false);
+        assertEquals(20.0, other.kPercentileCorrectedLatencyAsDouble(1.0), 0.5);
+
+        ClientStats merged = (ClientStats) stats.clone();
+        merged.add(other);
+        assertEquals(101, merged.getLatencyHistogram(true).getTotalCount());
+        ClientStats diff = ClientStats.diff(merged, stats);
+        assertEquals(1, diff.getLatencyHistogram(true).getTotalCount());
+        assertEquals(20.0, diff.kPercentileCorrectedLatencyAsDouble(1.0), 0.5);
+    }
+
+    @Test
+    public void testLatencyLog() throws Exception {
+        ClientStats stats = new ClientStats();
+        stats.m_procName = "Foo";
+        stats.m_connectionId = 1;
+        for (int i = 0; i < 10; i++) {
+            stats.update(MS, 3 * MS, 0, false, false, false);
+        }
+        Map<String, ClientStats> byProc = new TreeMap<>();
+        byProc.put("Foo", stats);
+        Map<Long, Map<String, ClientStats>> current = new TreeMap<>();
+        current.put(1L, byProc);
+        ClientStatsContext context = new ClientStatsContext(null, current,
+                new TreeMap<Long, ClientIOStats>(), new HashMap<Integer, ClientAffinityStats>());
+
+        File dir = File.createTempFile("latencylog", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        try {
+            ClientLatencyLogWriter writer = new ClientLatencyLogWriter(dir, "client", true);
+            writer.logInterval(context);
+            writer.logInterval(context);
+            writer.close();
+
+            for (String name : new String[] { "client.hlog", "client-Foo.hlog" }) {
+                HistogramLogReader reader = new HistogramLogReader(new File(dir, name));
+                for (int i = 0; i < 2; i++) {
+                    Histogram h = (Histogram) reader.nextIntervalHistogram();
+                    assertNotNull(h);
+                    assertEquals(10, h.getTotalCount());
+                    assertEquals(3.0, h.getMaxValue() / 1000.0, 0.1);
+                }
+                assertNull(reader.nextIntervalHistogram());
+            }
+        }
+        finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+}
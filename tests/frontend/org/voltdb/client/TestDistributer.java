@@ -36,6 +36,7 @@ import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 import org.voltcore.network.Connection;
@@ -47,6 +48,7 @@ import org.voltdb.ClientResponseImpl;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
+import org.voltdb.utils.SerializationHelper;
 
 import junit.framework.TestCase;
 
@@ -60,6 +62,7 @@ public class TestDistributer extends TestCase {
         volatile Semaphore invokedSubscribe = new Semaphore(0);
         volatile Semaphore invokedTopology = new Semaphore(0);
         volatile Semaphore invokedSystemInformation = new Semaphore(0);
+        AtomicInteger batches = new AtomicInteger(0);
 
         @Override
         public int getMaxRead() {
@@ -69,46 +72,21 @@ public class TestDistributer extends TestCase {
         @Override
         public void handleMessage(ByteBuffer message, Connection c) {
             try {
-                StoredProcedureInvocation spi = new StoredProcedureInvocation();
-                spi.initFromBuffer(message);
-
-                final String proc = spi.getProcName();
-
-                // record if we got a ping
-                if (proc.equals("@Ping"))
-                    gotPing = true;
-
-                if (sendResponses.get()) {
-                    VoltTable vt[] = new VoltTable[0];
-                    if (proc.equals("@Subscribe")) {
-                        invokedSubscribe.release();
-                    } else if (proc.equals("@Statistics")) {
-                        invokedTopology.release();
-                    } else if (proc.equals("@SystemCatalog")) {
-                        invokedSystemInformation.release();
-                    } else {
-                        vt = new VoltTable[1];
-                        vt[0] = new VoltTable(new VoltTable.ColumnInfo("Foo", VoltType.BIGINT));
-                        vt[0].addRow(1);
+                if (message.get(message.position()) == ProcedureInvocationType.BATCH.getValue()) {
+                    message.get();
+                    byte[] procNameBytes = SerializationHelper.getVarbinary(message);
+                    int count = message.getInt();
+                    for (int i = 0; i < count; i++) {
+                        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+                        spi.initFromBatchEntry(procNameBytes, message);
+                        handleInvocation(spi, c);
                     }
-                    ClientResponseImpl response;
-                    if (sendProcTimeout.get()) {
-                        response = new ClientResponseImpl(ClientResponseImpl.CONNECTION_TIMEOUT, vt,
-                                "Timeout String", spi.getClientHandle());
-                    } else {
-                        response = new ClientResponseImpl(ClientResponseImpl.SUCCESS, vt,
-                                "Extra String", spi.getClientHandle());
-                    }
-                    ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
-                    buf.putInt(buf.capacity() - 4);
-                    response.flattenToBuffer(buf);
-                    buf.clear();
-                    c.writeStream().enqueue(buf);
-                    roundTrips.incrementAndGet();
-                    System.err.println("Sending response.");
+                    batches.incrementAndGet();
                 }
                 else {
-                    System.err.println("Witholding response.");
+                    StoredProcedureInvocation spi = new StoredProcedureInvocation();
+                    spi.initFromBuffer(message);
+                    handleInvocation(spi, c);
                 }
             }
             catch (Exception ex) {
@@ -116,6 +94,47 @@ public class TestDistributer extends TestCase {
             }
         }
 
+        private void handleInvocation(StoredProcedureInvocation spi, Connection c) {
+            final String proc = spi.getProcName();
+
+            // record if we got a ping
+            if (proc.equals("@Ping"))
+                gotPing = true;
+
+            if (sendResponses.get()) {
+                VoltTable vt[] = new VoltTable[0];
+                if (proc.equals("@Subscribe")) {
+                    invokedSubscribe.release();
+                } else if (proc.equals("@Statistics")) {
+                    invokedTopology.release();
+                } else if (proc.equals("@SystemCatalog")) {
+                    invokedSystemInformation.release();
+                } else {
+                    vt = new VoltTable[1];
+                    vt[0] = new VoltTable(new VoltTable.ColumnInfo("Foo", VoltType.BIGINT));
+                    vt[0].addRow(1);
+                }
+                ClientResponseImpl response;
+                if (sendProcTimeout.get()) {
+                    response = new ClientResponseImpl(ClientResponseImpl.CONNECTION_TIMEOUT, vt,
+                            "Timeout String", spi.getClientHandle());
+                } else {
+                    response = new ClientResponseImpl(ClientResponseImpl.SUCCESS, vt,
+                            "Extra String", spi.getClientHandle());
+                }
+                ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
+                buf.putInt(buf.capacity() - 4);
+                response.flattenToBuffer(buf);
+                buf.clear();
+                c.writeStream().enqueue(buf);
+                roundTrips.incrementAndGet();
+                System.err.println("Sending response.");
+            }
+            else {
+                System.err.println("Witholding response.");
+            }
+        }
+
         @Override
         public void started(Connection c) {
             // TODO Auto-generated method stub
@@ -528,6 +547,146 @@ public class TestDistributer extends TestCase {
         }
     }
 
+    @Test
+    public void testStripedQueue() throws Exception {
+        // TODO: write a mock server that can grock ssl
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+
+        // Each submitting thread sticks to its own connection.
+        MockVolt volt0, volt1, volt2;
+        volt0 = volt1 = volt2 = null;
+        try {
+            volt0 = new MockVolt(20000);
+            volt0.start();
+            volt1 = new MockVolt(20001);
+            volt1.start();
+            volt2 = new MockVolt(20002);
+            volt2.start();
+
+            final Distributer dist = new Distributer(false,
+                    ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                    ClientConfig.DEFAULT_CONNECTION_TIMOUT_MS,
+                    false, false, null /* subject */, null);
+            dist.setStripedSubmission(true);
+            dist.createConnection("localhost", "", "", 20000, ClientAuthScheme.HASH_SHA1);
+            dist.createConnection("localhost", "", "", 20001, ClientAuthScheme.HASH_SHA1);
+            dist.createConnection("localhost", "", "", 20002, ClientAuthScheme.HASH_SHA1);
+
+            final AtomicLong handle = new AtomicLong(0);
+            Thread[] submitters = new Thread[3];
+            for (int i = 0; i < submitters.length; i++) {
+                submitters[i] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int j = 0; j < 10; j++) {
+                                ProcedureInvocation pi = new ProcedureInvocation(handle.incrementAndGet(), "i1", new Integer(1));
+                                assertTrue(dist.queue(pi, new ProcCallback(), true, System.nanoTime(), 0));
+                            }
+                        } catch (NoConnectionsException e) {
+                            fail(e.getMessage());
+                        }
+                    }
+                };
+                submitters[i].start();
+            }
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+            dist.drain();
+
+            assertEquals(10, volt0.handler.roundTrips.get());
+            assertEquals(10, volt1.handler.roundTrips.get());
+            assertEquals(10, volt2.handler.roundTrips.get());
+        }
+        finally {
+            if (volt0 != null) {
+                volt0.shutdown();
+            }
+            if (volt1 != null) {
+                volt1.shutdown();
+            }
+            if (volt2 != null) {
+                volt2.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testQueueBatch() throws Exception {
+        // TODO: write a mock server that can grock ssl
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+
+        MockVolt volt0 = null;
+        try {
+            volt0 = new MockVolt(20000);
+            volt0.start();
+
+            Distributer dist = new Distributer(false,
+                    ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                    ClientConfig.DEFAULT_CONNECTION_TIMOUT_MS,
+                    false, false, null /* subject */, null);
+            dist.createConnection("localhost", "", "", 20000, ClientAuthScheme.HASH_SHA1);
+
+            final AtomicInteger responses = new AtomicInteger(0);
+            ProcedureInvocation[] invocations = new ProcedureInvocation[5];
+            ProcedureCallback[] callbacks = new ProcedureCallback[5];
+            for (int i = 0; i < invocations.length; i++) {
+                invocations[i] = new ProcedureInvocation(i, "i1", new Integer(i));
+                callbacks[i] = new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse clientResponse) {
+                        assertEquals(ClientResponse.SUCCESS, clientResponse.getStatus());
+                        responses.incrementAndGet();
+                    }
+                };
+            }
+            assertTrue(dist.queueBatch(invocations, callbacks, true, System.nanoTime(), 0));
+            dist.drain();
+
+            // every invocation answered, all from a single message
+            assertEquals(5, responses.get());
+            assertEquals(5, volt0.handler.roundTrips.get());
+            assertEquals(1, volt0.handler.batches.get());
+        }
+        finally {
+            if (volt0 != null) {
+                volt0.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testCallbackRing() throws Exception {
+        Distributer dist = new Distributer();
+        try {
+            Distributer.CallbackRing ring = new Distributer.CallbackRing(4);
+            // 1, 5 and 9 share a slot
+            for (long handle : new long[] { 1, 2, 5, 9 }) {
+                ring.put(dist.new CallbackBookeeping(handle, 0, new ProcCallback(), "i1", 0, false));
+            }
+            assertEquals(4, ring.snapshot().size());
+            for (long handle : new long[] { 1, 2, 5, 9 }) {
+                assertTrue(ring.containsKey(handle));
+                assertEquals(handle, ring.get(handle).handle);
+            }
+            assertFalse(ring.containsKey(13));
+
+            // every callback is handed out by remove exactly once
+            assertEquals(5, ring.remove(5).handle);
+            assertNull(ring.remove(5));
+            assertEquals(1, ring.remove(1).handle);
+            assertNull(ring.remove(1));
+            ring.put(dist.new CallbackBookeeping(13, 0, new ProcCallback(), "i1", 0, false));
+            assertEquals(13, ring.get(13).handle);
+            assertEquals(9, ring.get(9).handle);
+            assertEquals(3, ring.snapshot().size());
+        }
+        finally {
+            dist.shutdown();
+        }
+    }
+
     @Test
     public void testQueueMixed() throws Exception {
         // TODO: write a mock server that can grock ssl
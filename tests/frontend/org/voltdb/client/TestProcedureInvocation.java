@@ -225,4 +225,29 @@ public class TestProcedureInvocation extends TestCase{
 
         verifySpi(spi);
     }
+
+    public void testStreamResultsRoundTrip() throws Exception {
+        ProcedureInvocation streamed = new ProcedureInvocation(10, BatchTimeoutOverrideType.NO_TIMEOUT, 3,
+                true, "invocation1", stringparam);
+        ByteBuffer buf = ByteBuffer.allocate(streamed.getSerializedSize());
+        streamed.flattenToBuffer(buf);
+        assertFalse(buf.hasRemaining());
+        buf.flip();
+
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.initFromBuffer(buf);
+        assertTrue(spi.getStreamResults());
+        assertEquals(3, spi.getPartitionDestination());
+        assertEquals(stringparam, spi.getParams().toArray()[0]);
+
+        // the server side serialization keeps the flag
+        buf = ByteBuffer.allocate(spi.getSerializedSize());
+        spi.flattenToBuffer(buf);
+        assertFalse(buf.hasRemaining());
+        buf.flip();
+        StoredProcedureInvocation copy = new StoredProcedureInvocation();
+        copy.initFromBuffer(buf);
+        assertTrue(copy.getStreamResults());
+        assertTrue(spi.getShallowCopy().getStreamResults());
+    }
 }
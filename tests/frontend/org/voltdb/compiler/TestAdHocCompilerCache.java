@@ -0,0 +1,154 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+import org.voltdb.planner.BoundPlan;
+import org.voltdb.planner.CorePlan;
+
+import com.google_voltpatches.common.cache.Weigher;
+
+import junit.framework.TestCase;
+
+public class TestAdHocCompilerCache extends TestCase {
+
+    private static final byte[] HASH1 = new byte[] { 1 };
+    private static final byte[] HASH2 = new byte[] { 2 };
+
+    private static final Weigher<String, String> LENGTH_WEIGHER = new Weigher<String, String>() {
+        @Override
+        public int weigh(String key, String value) {
+            return value.length();
+        }
+    };
+
+    private static AdHocPlannedStatement makePlan(String sql, byte[] catalogHash, String... tables) {
+        byte[] fragment = sql.getBytes(Constants.UTF8ENCODING);
+        CorePlan core = new CorePlan(fragment, null, fragment, null, false, true, new VoltType[0], catalogHash);
+        core.setReferencedTables(new HashSet<>(Arrays.asList(tables)));
+        return new AdHocPlannedStatement(fragment, core, ParameterSet.emptyParameterSet(), null);
+    }
+
+    public void testFrequentEntriesSurviveScan() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, Long.MAX_VALUE, LENGTH_WEIGHER);
+        // Between two uses of a hot key 60 hot and 60 one-off keys go by,
+        // so an LRU cache of 100 entries would never hit.
+        int hotHits = 0;
+        for (int i = 0; i < 12000; ++i) {
+            String hot = "hot" + (i % 60);
+            if (cache.get(hot) != null) {
+                ++hotHits;
+            }
+            else {
+                cache.put(hot, "v");
+            }
+            String cold = "cold" + i;
+            if (cache.get(cold) == null) {
+                cache.put(cold, "v");
+            }
+            assertTrue(cache.size() <= 100);
+        }
+        assertTrue("only " + hotHits + " hits on frequent keys", hotHits > 10000);
+        assertTrue(cache.evictionCount() > 0);
+        assertEquals(hotHits, cache.hitCount());
+        assertEquals(24000, cache.hitCount() + cache.missCount());
+    }
+
+    public void testWeightBound() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(1000, 1000, LENGTH_WEIGHER);
+        char[] value = new char[10];
+        for (int i = 0; i < 500; ++i) {
+            Arrays.fill(value, (char) ('a' + i % 26));
+            cache.put("key" + i, new String(value, 0, 1 + i % 10));
+            assertTrue(cache.weightedSize() <= 1000);
+        }
+        assertTrue(cache.evictionCount() > 0);
+
+        // an entry heavier than the whole cache is dropped at once
+        char[] huge = new char[2000];
+        cache.put("huge", new String(huge));
+        assertNull(cache.peek("huge"));
+        assertTrue(cache.weightedSize() <= 1000);
+
+        // growing an entry in place is accounted for too
+        cache.put("grow", "x");
+        long before = cache.weightedSize();
+        cache.put("grow", "xxxx");
+        assertEquals(before + 3, cache.weightedSize());
+    }
+
+    public void testStatsAndBytes() {
+        AdHocCompilerCache cache = new AdHocCompilerCache(10, 10);
+        for (int i = 0; i < 30; ++i) {
+            String sql = "select * from t where a = " + i;
+            assertNull(cache.getWithSQL(sql));
+            cache.put(sql, "select * from t where a = ?" + i, makePlan(sql, HASH1, "T"), new String[0], false, false);
+        }
+        assertTrue(cache.getLiteralCacheSize() <= 10);
+        assertTrue(cache.getCoreCacheSize() <= 10);
+        assertEquals(30 - cache.getLiteralCacheSize(), cache.getLiteralCacheEvictions());
+        assertEquals(30 - cache.getCoreCacheSize(), cache.getCoreCacheEvictions());
+        assertTrue(cache.getLiteralCacheBytes() > 0);
+        assertTrue(cache.getCoreCacheBytes() > 0);
+    }
+
+    public void testInheritAcrossCatalogs() {
+        AdHocCompilerCache previous = new AdHocCompilerCache(10, 10);
+        previous.put("select a from t", "select a from t", makePlan("select a from t", HASH1, "T"),
+                new String[0], false, false);
+        previous.put("select a from u", "select a from u", makePlan("select a from u", HASH1, "U"),
+                new String[0], false, false);
+        previous.put("select a from t, u", "select a from t, u", makePlan("select a from t, u", HASH1, "T", "U"),
+                new String[0], false, false);
+
+        // only T is unchanged
+        AdHocCompilerCache next = new AdHocCompilerCache(10, 10);
+        assertEquals(2, next.inheritFrom(previous, HASH2, Collections.singleton("T")));
+        AdHocPlannedStatement kept = next.getWithSQL("select a from t");
+        assertNotNull(kept);
+        assertTrue(kept.core.wasPlannedAgainstHash(HASH2));
+        assertNull(next.getWithSQL("select a from u"));
+        assertNull(next.getWithSQL("select a from t, u"));
+        List<BoundPlan> core = next.getWithParsedToken("select a from t");
+        assertEquals(1, core.size());
+        // the literal and parameterized caches keep sharing one core plan
+        assertSame(kept.core, core.get(0).m_core);
+        assertNull(next.getWithParsedToken("select a from u"));
+
+        // the previous cache is untouched
+        assertTrue(previous.getWithSQL("select a from u").core.wasPlannedAgainstHash(HASH1));
+
+        // without a schema change every plan is kept
+        AdHocCompilerCache all = new AdHocCompilerCache(10, 10);
+        assertEquals(6, all.inheritFrom(previous, HASH2, null));
+        assertTrue(all.getWithSQL("select a from t, u").core.wasPlannedAgainstHash(HASH2));
+    }
+}
@@ -858,6 +858,169 @@ public class TestExportDataSource extends TestCase {
         }
     }
 
+    public void testPollAhead() throws Exception {
+        System.out.println("Running testPollAhead");
+        Table table = m_mockVoltDB.getCatalogContext().database.getTables().get("TableName");
+        ExportDataSource s = new MockExportDataSource(null, m_processor, "database",
+                table.getTypeName(),
+                m_part,
+                CoreUtils.getSiteIdFromHSId(m_site),
+                0,
+                table.getColumns(),
+                table.getPartitioncolumn(),
+                TEST_DIR.getAbsolutePath());
+        try {
+            s.setReadyForPolling(true);
+            s.becomeLeader();
+            waitForMaster(s);
+
+            // Push 4 buffers with contiguous sequence numbers
+            int buffSize = 20 + StreamBlock.HEADER_SIZE;
+            for (int seqNo = 1; seqNo <= 4; seqNo++) {
+                ByteBuffer foo = ByteBuffer.allocateDirect(buffSize);
+                foo.duplicate().put(new byte[buffSize]);
+                s.pushExportBuffer(seqNo, seqNo, 1, 0, foo);
+            }
+
+            // Poll 3 buffers ahead of acking any
+            AckingContainer cont1 = s.poll().get();
+            cont1.updateStartTime(System.currentTimeMillis());
+            assertEquals( 1, cont1.m_lastSeqNo);
+            AckingContainer cont2 = s.poll().get();
+            cont2.updateStartTime(System.currentTimeMillis());
+            assertEquals( 2, cont2.m_lastSeqNo);
+            AckingContainer cont3 = s.poll().get();
+            cont3.updateStartTime(System.currentTimeMillis());
+            assertEquals( 3, cont3.m_lastSeqNo);
+
+            // Ack them in order
+            cont1.discard();
+            cont2.discard();
+            cont3.discard();
+
+            // Polling resumes after the acked buffers
+            AckingContainer cont4 = s.poll().get();
+            cont4.updateStartTime(System.currentTimeMillis());
+            assertEquals( 4, cont4.m_lastSeqNo);
+            assertEquals( 3, s.getLastReleaseSeqNo());
+            cont4.discard();
+
+            ListenableFuture<AckingContainer> fut = s.poll();
+            try {
+                fut.get(100,TimeUnit.MILLISECONDS);
+                fail("did not get expected timeout");
+            }
+            catch( TimeoutException ignoreIt) {}
+        } finally {
+            s.close();
+        }
+    }
+
+    public void testRewindPolledContainer() throws Exception {
+        System.out.println("Running testRewindPolledContainer");
+        Table table = m_mockVoltDB.getCatalogContext().database.getTables().get("TableName");
+        ExportDataSource s = new MockExportDataSource(null, m_processor, "database",
+                table.getTypeName(),
+                m_part,
+                CoreUtils.getSiteIdFromHSId(m_site),
+                0,
+                table.getColumns(),
+                table.getPartitioncolumn(),
+                TEST_DIR.getAbsolutePath());
+        try {
+            s.setReadyForPolling(true);
+            s.becomeLeader();
+            waitForMaster(s);
+
+            // Push 4 buffers with contiguous sequence numbers
+            int buffSize = 20 + StreamBlock.HEADER_SIZE;
+            for (int seqNo = 1; seqNo <= 4; seqNo++) {
+                ByteBuffer foo = ByteBuffer.allocateDirect(buffSize);
+                foo.duplicate().put(new byte[buffSize]);
+                s.pushExportBuffer(seqNo, seqNo, 1, 0, foo);
+            }
+
+            // Poll 3 buffers, ack the first and hand back the 2 polled ahead of it
+            AckingContainer cont1 = s.poll().get();
+            cont1.updateStartTime(System.currentTimeMillis());
+            AckingContainer cont2 = s.poll().get();
+            cont2.updateStartTime(System.currentTimeMillis());
+            AckingContainer cont3 = s.poll().get();
+            cont3.updateStartTime(System.currentTimeMillis());
+            cont1.discard();
+            s.rewindPolledContainer(cont2);
+            s.rewindPolledContainer(cont3);
+
+            // The rewound buffers are polled again, followed by the last one
+            for (int seqNo = 2; seqNo <= 4; seqNo++) {
+                AckingContainer cont = s.poll().get();
+                cont.updateStartTime(System.currentTimeMillis());
+                assertEquals( seqNo, cont.m_lastSeqNo);
+                cont.discard();
+            }
+
+            ListenableFuture<AckingContainer> fut = s.poll();
+            try {
+                fut.get(100,TimeUnit.MILLISECONDS);
+                fail("did not get expected timeout");
+            }
+            catch( TimeoutException ignoreIt) {}
+        } finally {
+            s.close();
+        }
+    }
+
+    public void testRewindPastRemoteAck() throws Exception {
+        System.out.println("Running testRewindPastRemoteAck");
+        Table table = m_mockVoltDB.getCatalogContext().database.getTables().get("TableName");
+        ExportDataSource s = new MockExportDataSource(null, m_processor, "database",
+                table.getTypeName(),
+                m_part,
+                CoreUtils.getSiteIdFromHSId(m_site),
+                0,
+                table.getColumns(),
+                table.getPartitioncolumn(),
+                TEST_DIR.getAbsolutePath());
+        try {
+            s.setReadyForPolling(true);
+            s.becomeLeader();
+            waitForMaster(s);
+
+            // Push 4 buffers with contiguous sequence numbers
+            int buffSize = 20 + StreamBlock.HEADER_SIZE;
+            for (int seqNo = 1; seqNo <= 4; seqNo++) {
+                ByteBuffer foo = ByteBuffer.allocateDirect(buffSize);
+                foo.duplicate().put(new byte[buffSize]);
+                s.pushExportBuffer(seqNo, seqNo, 1, 0, foo);
+            }
+
+            // Poll 3 buffers ahead of acking any
+            AckingContainer cont1 = s.poll().get();
+            cont1.updateStartTime(System.currentTimeMillis());
+            AckingContainer cont2 = s.poll().get();
+            cont2.updateStartTime(System.currentTimeMillis());
+            AckingContainer cont3 = s.poll().get();
+            cont3.updateStartTime(System.currentTimeMillis());
+
+            // Simulate a remote ack of the second buffer, then rewind the buffers
+            // polled ahead of the first one
+            s.localAck(2, 2);
+            cont1.discard();
+            s.rewindPolledContainer(cont2);
+            s.rewindPolledContainer(cont3);
+
+            // The rewind does not go back past the ack
+            for (int seqNo = 3; seqNo <= 4; seqNo++) {
+                AckingContainer cont = s.poll().get();
+                cont.updateStartTime(System.currentTimeMillis());
+                assertEquals( seqNo, cont.m_lastSeqNo);
+                cont.discard();
+            }
+        } finally {
+            s.close();
+        }
+    }
+
     //    /**
 //     * Test that releasing everything in steps and then polling results in
 //     * the right StreamBlock
@@ -0,0 +1,253 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.export.processors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.VoltType;
+import org.voltdb.export.AckingContainer;
+import org.voltdb.export.ExportDataSource;
+import org.voltdb.exportclient.ExportDecoderBase;
+import org.voltdb.exportclient.ExportDecoderBase.RestartBlockException;
+import org.voltdb.exportclient.ExportRow;
+import org.voltdb.exportclient.ExportRowSchema;
+
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
+
+/**
+ * Delivery and shutdown of the pipelined export block processing in {@link GuestProcessor}
+ */
+public class TestGuestProcessor {
+    private static final long TIMEOUT_MS = 10000;
+    // Length prefix excluded: partition column index, column count, null flags and an INTEGER
+    private static final int ROW_SIZE = 4 + 4 + 1 + 4;
+
+    private ExportRowSchema m_schema;
+    private GuestProcessor m_processor;
+    private ExportDataSource m_source;
+    private ExportDecoderBase m_decoder;
+    private ListeningExecutorService m_deliveryExecutor;
+    private ListeningExecutorService m_decodeExecutor;
+    // Blocks handed out by the next polls, further polls never complete
+    private final Queue<AckingContainer> m_pollable = new ConcurrentLinkedQueue<>();
+    // Ids of the rows in each delivered batch
+    private final Queue<List<Integer>> m_delivered = new ConcurrentLinkedQueue<>();
+
+    @Before
+    public void setUp() throws IOException, RestartBlockException {
+        m_schema = schema();
+        m_processor = new GuestProcessor();
+        m_deliveryExecutor = CoreUtils.getListeningSingleThreadExecutor("Test export delivery");
+        m_decodeExecutor = CoreUtils.getListeningExecutorService("Test export decoder", 4);
+
+        m_source = mock(ExportDataSource.class);
+        doAnswer(invocation -> {
+            AckingContainer cont = m_pollable.poll();
+            return cont == null ? SettableFuture.create() : Futures.immediateFuture(cont);
+        }).when(m_source).poll();
+
+        m_decoder = mock(ExportDecoderBase.class);
+        doReturn(m_deliveryExecutor).when(m_decoder).getExecutor();
+        doAnswer(invocation -> {
+            List<ExportRow> rows = invocation.getArgument(0);
+            List<Integer> ids = new ArrayList<>();
+            for (ExportRow row : rows) {
+                ids.add((Integer) row.values[0]);
+            }
+            m_delivered.add(ids);
+            return null;
+        }).when(m_decoder).onBlockBatch(anyList());
+    }
+
+    @After
+    public void tearDown() {
+        m_deliveryExecutor.shutdownNow();
+        m_decodeExecutor.shutdownNow();
+    }
+
+    // A schema of one INTEGER column, the row id
+    private static ExportRowSchema schema() throws IOException {
+        byte[] table = "T".getBytes(StandardCharsets.UTF_8);
+        byte[] column = "ID".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        buf.put((byte) ExportRowSchema.EXPORT_BUFFER_VERSION);
+        buf.putLong(0L);
+        buf.putLong(0L);
+        buf.putInt(0);
+        buf.putInt(4 + table.length + 4 + column.length + 1 + 4);
+        buf.putInt(table.length).put(table);
+        buf.putInt(column.length).put(column);
+        buf.put(VoltType.INTEGER.getValue());
+        buf.putInt(4);
+        buf.flip();
+        return ExportRowSchema.deserialize(buf);
+    }
+
+    private AckingContainer block(int... ids) {
+        return block(new CountDownLatch(0), ids);
+    }
+
+    /**
+     * Queue a block for polling
+     *
+     * @param decodeGate  decoding of the block waits for it to open
+     * @param ids         ids of the rows in the block
+     */
+    private AckingContainer block(CountDownLatch decodeGate, int... ids) {
+        ByteBuffer buf = ByteBuffer.allocate(ids.length * (4 + ROW_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+        for (int id : ids) {
+            buf.putInt(ROW_SIZE);
+            buf.putInt(-1);
+            buf.putInt(1);
+            buf.put((byte) 0);
+            buf.putInt(id);
+        }
+        buf.flip();
+        AckingContainer cont = mock(AckingContainer.class);
+        doAnswer(invocation -> {
+            decodeGate.await();
+            return buf;
+        }).when(cont).b();
+        doReturn(m_schema).when(cont).getSchema();
+        doReturn(ExportDataSource.NULL_COMMITTED_SEQNO).when(cont).getCommittedSeqNo();
+        m_pollable.add(cont);
+        return cont;
+    }
+
+    private void start() {
+        m_processor.new PipelinedBlockProcessor(m_source, m_decoder, m_decodeExecutor).poll();
+    }
+
+    // Have the first delivery wait for the returned latch, then fail so that the block is retried
+    private CountDownLatch holdFirstDelivery(CountDownLatch delivering) throws RestartBlockException {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            delivering.countDown();
+            release.await();
+            throw new RestartBlockException(false);
+        }).when(m_decoder).onBlockBatch(anyList());
+        return release;
+    }
+
+    @Test
+    public void testDeliversBlocksInPollOrder() {
+        CountDownLatch firstDecode = new CountDownLatch(1);
+        AckingContainer[] blocks = new AckingContainer[] {
+                block(firstDecode, 1, 2), block(3), block(4, 5, 6), block(7), block(8) };
+
+        start();
+
+        // Polls ahead up to the limit while the first block is still decoding, and delivers nothing
+        verify(m_source, timeout(TIMEOUT_MS).times(GuestProcessor.EXPORT_MAX_INFLIGHT_BLOCKS)).poll();
+        assertTrue(m_delivered.isEmpty());
+
+        firstDecode.countDown();
+        verify(blocks[blocks.length - 1], timeout(TIMEOUT_MS)).discard();
+        InOrder acks = inOrder((Object[]) blocks);
+        for (AckingContainer cont : blocks) {
+            acks.verify(cont).discard();
+        }
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3), Arrays.asList(4, 5, 6),
+                Arrays.asList(7), Arrays.asList(8)), new ArrayList<>(m_delivered));
+        verify(m_source, never()).rewindPolledContainer(any());
+    }
+
+    @Test
+    public void testShutdownWhileDelivering() throws Exception {
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = holdFirstDelivery(delivering);
+        AckingContainer first = block(1);
+        AckingContainer second = block(2);
+        AckingContainer third = block(3);
+
+        start();
+        assertTrue(delivering.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        m_processor.shutdown();
+        release.countDown();
+
+        // The block being delivered is pended, the ones decoded ahead are rewound once
+        verify(m_source, timeout(TIMEOUT_MS)).setPendingContainer(first);
+        verify(m_source, timeout(TIMEOUT_MS)).rewindPolledContainer(second);
+        verify(m_source, timeout(TIMEOUT_MS)).rewindPolledContainer(third);
+        verify(m_source, never()).rewindPolledContainer(first);
+        verify(first, never()).discard();
+        verify(second, never()).discard();
+        verify(third, never()).discard();
+    }
+
+    @Test
+    public void testRejectedDeliveryWhileDelivering() throws Exception {
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = holdFirstDelivery(delivering);
+        CountDownLatch secondDecode = new CountDownLatch(1);
+        AckingContainer first = block(1);
+        AckingContainer second = block(secondDecode, 2);
+
+        start();
+        assertTrue(delivering.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        m_processor.shutdown();
+        m_deliveryExecutor.shutdown();
+
+        // The second block finishes decoding but can't be scheduled for delivery
+        secondDecode.countDown();
+        m_decodeExecutor.shutdown();
+        assertTrue(m_decodeExecutor.awaitTermination(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        verify(m_source, never()).rewindPolledContainer(any());
+
+        // The delivering thread hands everything back once it is done with the first block
+        release.countDown();
+        verify(m_source, timeout(TIMEOUT_MS)).setPendingContainer(first);
+        verify(m_source, timeout(TIMEOUT_MS)).rewindPolledContainer(second);
+        verify(m_source, never()).rewindPolledContainer(first);
+    }
+}
@@ -0,0 +1,156 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.exportclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Properties;
+
+import org.json_voltpatches.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.voltdb.export.AdvertisedDataSource;
+import org.voltdb.utils.VoltFile;
+
+public class TestExportToColumnarFileClient extends ExportClientTestBase {
+
+    static final String m_dir = "/tmp" + File.separator + System.getProperty("user.name") + File.separator + "columnar";
+
+    @Override
+    @Before
+    public void setup()
+    {
+        super.setup();
+        try {
+            VoltFile.recursivelyDelete(new File(m_dir));
+            (new File(m_dir)).mkdirs();
+        } catch (IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    private static ExportRow makeRow(long l) throws Exception {
+        vtable.clearRowData();
+        vtable.addRow(l, l, l, 0, l, l, (byte) 1,
+                /* partitioning column */ (short) 2,
+                3, l, 5.5, 6, "xx", new BigDecimal(88),
+                GEOG_POINT, GEOG);
+        vtable.advanceRow();
+        byte[] rowBytes = ExportEncoder.encodeRow(vtable, "mytable", 0, 1L);
+        ByteBuffer bb = ByteBuffer.wrap(rowBytes);
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        int schemaSize = bb.getInt();
+        ExportRow schemaRow = ExportRow.decodeBufferSchema(bb, schemaSize, 1, 0);
+        bb.getInt(); // row size
+        return ExportRow.decodeRow(schemaRow, 0, 0L, bb);
+    }
+
+    @Test
+    public void testConfiguration() throws Exception {
+        Properties props = new Properties();
+        props.put("outdir", m_dir);
+        try {
+            new ExportToColumnarFileClient().configure(props);
+            fail("Missing nonce");
+        } catch (IllegalArgumentException ex) {}
+
+        props.put("nonce", "mynonce");
+        props.put("compression", "gzip");
+        try {
+            new ExportToColumnarFileClient().configure(props);
+            fail("Invalid compression");
+        } catch (IllegalArgumentException ex) {}
+
+        props.put("compression", "none");
+        props.put("rowgroupsize", "0");
+        try {
+            new ExportToColumnarFileClient().configure(props);
+            fail("Invalid row group size");
+        } catch (IllegalArgumentException ex) {}
+
+        props.put("rowgroupsize", "1000");
+        ExportToColumnarFileClient client = new ExportToColumnarFileClient();
+        client.configure(props);
+        client.shutdown();
+    }
+
+    @Test
+    public void testRowGroupsAndRoll() throws Exception {
+        ExportToColumnarFileClient client = new ExportToColumnarFileClient();
+        Properties props = new Properties();
+        props.put("nonce", "columnar");
+        props.put("outdir", m_dir);
+        props.put("rowgroupsize", "2");
+        props.put("skipinternals", "true");
+        client.configure(props);
+
+        final AdvertisedDataSource source = constructTestSource(false, 0);
+        final ExportToColumnarFileClient.ColumnarFileDecoder decoder = client.constructExportDecoder(source);
+
+        // one block of 5 rows makes 3 row groups, the second block of 1 row another one
+        ExportRow row = makeRow(0);
+        decoder.onBlockStart(row);
+        for (long l = 0; l < 5; ++l) {
+            decoder.processRow(makeRow(l));
+        }
+        decoder.onBlockCompletion(row);
+        decoder.onBlockStart(row);
+        decoder.processRow(makeRow(5));
+        decoder.onBlockCompletion(row);
+
+        decoder.sourceNoLongerAdvertised(source);
+        client.shutdown();
+
+        File[] files = new File(m_dir).listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        assertFalse(files[0].getName().startsWith("active"));
+
+        JSONObject footer = ExportToColumnarFileClient.readFooter(files[0]);
+        assertEquals("mytable", footer.getString("table name"));
+        assertEquals(4, footer.getJSONArray("row groups").length());
+        assertEquals(COLUMN_NAMES.length - ExportRow.INTERNAL_FIELD_COUNT, footer.getJSONArray("columns").length());
+
+        List<Object[]> rows = ExportToColumnarFileClient.readRows(files[0]);
+        assertEquals(6, rows.size());
+        for (int i = 0; i < rows.size(); ++i) {
+            Object[] values = rows.get(i);
+            assertEquals((byte) 1, values[0]);
+            assertEquals((long) i, values[3]);
+            assertEquals("xx", values[6]);
+            assertEquals(0, new BigDecimal(88).compareTo((BigDecimal) values[7]));
+            assertEquals(GEOG_POINT, values[8]);
+            assertEquals(GEOG.toWKT(), values[9].toString());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.exportclient.decode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Test;
+import org.voltdb.VoltType;
+import org.voltdb.exportclient.ExportRow;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+
+public class TestColumnarRowGroupDecoder extends BaseForDecoderTests {
+
+    private static void assertRowEquals(Object [] expected, Object [] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; ++i) {
+            if (expected[i] instanceof byte[]) {
+                assertArrayEquals((byte[])expected[i], (byte[])actual[i]);
+            } else if (expected[i] instanceof BigDecimal) {
+                assertEquals(0, ((BigDecimal)expected[i]).compareTo((BigDecimal)actual[i]));
+            } else if (expected[i] instanceof Number && !(expected[i] instanceof Double)) {
+                assertEquals(((Number)expected[i]).longValue(), ((Number)actual[i]).longValue());
+            } else if (expected[i] == null) {
+                assertNull(actual[i]);
+            } else {
+                assertEquals(expected[i].toString(), actual[i].toString());
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTripWithInternals() throws Exception {
+        ColumnarRowGroupDecoder decoder = ColumnarRowGroupDecoder.builder().skipInternalFields(false).build();
+        Object [] withNulls = row.clone();
+        for (int i = ExportRow.INTERNAL_FIELD_COUNT; i < withNulls.length; i += 2) {
+            withNulls[i] = null;
+        }
+        for (int i = 0; i < 100; ++i) {
+            decoder.add(0L, "mytable", TYPES, NAMES, i % 3 == 0 ? withNulls : row);
+        }
+        assertEquals(100, decoder.getRowCount(0L));
+
+        byte [] rowGroup = decoder.harvest(0L);
+        assertEquals(0, decoder.getRowCount(0L));
+        assertNull(decoder.harvest(0L));
+
+        List<Object[]> rows = ColumnarRowGroupDecoder.decodeRowGroup(ByteBuffer.wrap(rowGroup), TYPES);
+        assertEquals(100, rows.size());
+        for (int i = 0; i < 100; ++i) {
+            assertRowEquals(i % 3 == 0 ? withNulls : row, rows.get(i));
+        }
+    }
+
+    @Test
+    public void testRoundTripWithoutInternals() throws Exception {
+        ColumnarRowGroupDecoder decoder = ColumnarRowGroupDecoder.builder().skipInternalFields(true).build();
+        decoder.add(0L, "mytable", TYPES, NAMES, row);
+        List<VoltType> types = TYPES.subList(ExportRow.INTERNAL_FIELD_COUNT, TYPES.size());
+        List<Object[]> rows = ColumnarRowGroupDecoder.decodeRowGroup(ByteBuffer.wrap(decoder.harvest(0L)), types);
+        assertEquals(1, rows.size());
+        Object [] expected = new Object[types.size()];
+        System.arraycopy(row, ExportRow.INTERNAL_FIELD_COUNT, expected, 0, expected.length);
+        assertRowEquals(expected, rows.get(0));
+    }
+
+    @Test
+    public void testDictionaryAndPlainEncodings() throws Exception {
+        ColumnarRowGroupDecoder uncompressed = ColumnarRowGroupDecoder.builder()
+                .skipInternalFields(false).compress(false).maxDictionarySize(16).build();
+        ColumnarRowGroupDecoder compressed = ColumnarRowGroupDecoder.builder()
+                .skipInternalFields(false).build();
+
+        // a low cardinality string column is dictionary encoded, a unique one falls back to plain
+        List<VoltType> types = TYPES.subList(0, 1);
+        List<String> names = NAMES.subList(0, 1);
+        ColumnarRowGroupDecoder lowCardinality = ColumnarRowGroupDecoder.builder()
+                .skipInternalFields(false).compress(false).maxDictionarySize(16).build();
+        int plainBytes = 0;
+        for (int i = 0; i < 10000; ++i) {
+            Object [] fields = row.clone();
+            fields[0] = i;
+            uncompressed.add(0L, "mytable", TYPES, NAMES, fields);
+            compressed.add(0L, "mytable", TYPES, NAMES, fields);
+            lowCardinality.add(0L, "mytable", types, names, new Object[] { i % 5 });
+            plainBytes += 4;
+        }
+        byte [] dictionaryEncoded = lowCardinality.harvest(0L);
+        assertTrue(dictionaryEncoded.length < plainBytes / 10);
+        List<Object[]> rows = ColumnarRowGroupDecoder.decodeRowGroup(ByteBuffer.wrap(dictionaryEncoded), types);
+        for (int i = 0; i < rows.size(); ++i) {
+            assertEquals(i % 5, rows.get(i)[0]);
+        }
+
+        long buffered = uncompressed.getBufferedBytes(0L);
+        byte [] uncompressedGroup = uncompressed.harvest(0L);
+        byte [] compressedGroup = compressed.harvest(0L);
+        assertTrue(uncompressedGroup.length < buffered);
+        assertTrue(compressedGroup.length <= uncompressedGroup.length);
+
+        rows = ColumnarRowGroupDecoder.decodeRowGroup(ByteBuffer.wrap(compressedGroup), TYPES);
+        assertEquals(10000, rows.size());
+        for (int i = 0; i < rows.size(); ++i) {
+            Object [] expected = row.clone();
+            expected[0] = i;
+            assertRowEquals(expected, rows.get(i));
+        }
+    }
+
+    @Test
+    public void testHybridEncodingRuns() throws Exception {
+        int [] values = new int[1000];
+        for (int i = 0; i < values.length; ++i) {
+            // alternate long repeated runs with short literal stretches
+            values[i] = (i / 100) % 2 == 0 ? 7 : i % 13;
+        }
+        FastSerializer fs = new FastSerializer();
+        ColumnarRowGroupDecoder.RleBitPackedHybrid.encode(fs, values, values.length, 4);
+        int [] decoded = new int[values.length];
+        ColumnarRowGroupDecoder.RleBitPackedHybrid.decode(
+                new FastDeserializer(fs.getBytes()), values.length, 4, decoded);
+        fs.discard();
+        assertArrayEquals(values, decoded);
+    }
+}
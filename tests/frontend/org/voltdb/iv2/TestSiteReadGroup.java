@@ -0,0 +1,184 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package org.voltdb.iv2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.voltdb.BackendTarget;
+import org.voltdb.CatalogContext;
+import org.voltdb.ProcedureRunner;
+import org.voltdb.SiteProcedureConnection;
+import org.voltdb.StarvationTracker;
+import org.voltdb.StartAction;
+import org.voltdb.TheHashinator;
+import org.voltdb.dtxn.TransactionState;
+
+/**
+ * Which queued SP tasks {@link Site#runReadGroup(SpProcedureTask, int)} runs together
+ */
+public class TestSiteReadGroup {
+    private SiteTaskerQueue m_queue;
+    private Site m_site;
+    private ProcedureRunner m_runner;
+    // what the site passed to each executeGroupedReads call, copied because the site reuses its list
+    private final List<List<TransactionState>> m_groups = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        TheHashinator.initialize(TheHashinator.getConfiguredHashinatorClass(), TheHashinator.getConfigureBytes(1));
+        m_queue = new SiteTaskerQueue(0);
+        m_queue.setStarvationTracker(new StarvationTracker(0));
+        m_queue.setupQueueDepthTracker(0);
+        m_site = spy(new Site(m_queue, 0, BackendTarget.NATIVE_EE_JNI, mock(CatalogContext.class), null,
+                0, 1, StartAction.CREATE, 0, null, null, null, null, null, false));
+        m_runner = mock(ProcedureRunner.class);
+        doReturn(100).when(m_runner).getMaxGroupedReads();
+        doAnswer(invocation -> m_groups.add(new ArrayList<>(invocation.getArgument(0))))
+                .when(m_runner).executeGroupedReads(any());
+        doReturn(m_runner).when(m_site).getProcedureRunner(any());
+    }
+
+    private static SpProcedureTask read(boolean groupable) {
+        SpProcedureTask task = mock(SpProcedureTask.class);
+        doReturn(groupable).when(task).isGroupableRead();
+        doReturn(mock(TransactionState.class)).when(task).getTransactionState();
+        return task;
+    }
+
+    // Make the tasks invocations of one procedure, so they can group with each other when groupable
+    private static void sameProcedure(SpProcedureTask... tasks) {
+        for (SpProcedureTask task : tasks) {
+            for (SpProcedureTask other : tasks) {
+                boolean groupable = other.isGroupableRead();
+                doReturn(groupable).when(task).canGroupReadWith(other);
+            }
+        }
+    }
+
+    private static List<TransactionState> txns(SpProcedureTask... tasks) {
+        List<TransactionState> txns = new ArrayList<>();
+        for (SpProcedureTask task : tasks) {
+            txns.add(task.getTransactionState());
+        }
+        return txns;
+    }
+
+    @Test
+    public void testGroupsQueuedReadsOfSameProcedure() {
+        SpProcedureTask first = read(true);
+        SpProcedureTask second = read(true);
+        SpProcedureTask third = read(true);
+        // another procedure
+        SpProcedureTask other = read(true);
+        sameProcedure(first, second, third);
+        m_queue.offer(second);
+        m_queue.offer(third);
+        m_queue.offer(other);
+
+        m_site.runReadGroup(first, 8);
+
+        assertEquals(Collections.singletonList(txns(first, second, third)), m_groups);
+        // every task still runs on its own, in queue order, after the grouped call
+        InOrder order = inOrder(m_runner, first, second, third);
+        order.verify(m_runner).executeGroupedReads(any());
+        order.verify(first).run(any(SiteProcedureConnection.class));
+        order.verify(second).run(any(SiteProcedureConnection.class));
+        order.verify(third).run(any(SiteProcedureConnection.class));
+        order.verify(m_runner).clearGroupedReads();
+        verify(other, never()).run(any(SiteProcedureConnection.class));
+        assertSame(other, m_queue.poll());
+    }
+
+    @Test
+    public void testGroupSizeLimits() {
+        SpProcedureTask[] tasks = new SpProcedureTask[4];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = read(true);
+        }
+        sameProcedure(tasks);
+        for (int i = 1; i < tasks.length; i++) {
+            m_queue.offer(tasks[i]);
+        }
+
+        // the configured size
+        m_site.runReadGroup(tasks[0], 2);
+        assertEquals(Collections.singletonList(txns(tasks[0], tasks[1])), m_groups);
+
+        // and what the procedure allows
+        doReturn(1).when(m_runner).getMaxGroupedReads();
+        assertSame(tasks[2], m_queue.poll());
+        m_site.runReadGroup(tasks[2], 8);
+        assertEquals(1, m_groups.size());
+        verify(tasks[2]).run(any(SiteProcedureConnection.class));
+        assertSame(tasks[3], m_queue.poll());
+    }
+
+    @Test
+    public void testUngroupableTaskRunsAlone() {
+        SpProcedureTask write = read(false);
+        SpProcedureTask next = read(true);
+        sameProcedure(write, next);
+        m_queue.offer(next);
+
+        m_site.runReadGroup(write, 8);
+
+        verify(write).run(any(SiteProcedureConnection.class));
+        verify(m_runner, never()).executeGroupedReads(any());
+        assertSame(next, m_queue.poll());
+    }
+
+    @Test
+    public void testGroupStopsAtFirstUngroupableTask() {
+        SpProcedureTask first = read(true);
+        SpProcedureTask blocker = read(false);
+        SpProcedureTask later = read(true);
+        sameProcedure(first, blocker, later);
+        m_queue.offer(blocker);
+        m_queue.offer(later);
+
+        m_site.runReadGroup(first, 8);
+
+        verify(first).run(any(SiteProcedureConnection.class));
+        verify(m_runner, never()).executeGroupedReads(any());
+        assertSame(blocker, m_queue.poll());
+        assertSame(later, m_queue.poll());
+    }
+}
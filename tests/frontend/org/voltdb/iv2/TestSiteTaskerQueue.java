@@ -0,0 +1,213 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.voltdb.QueueDepthTracker;
+import org.voltdb.StarvationTracker;
+import org.voltdb.VoltTable;
+
+public class TestSiteTaskerQueue {
+
+    private static SiteTaskerQueue getSiteTaskerQueue(boolean lockFree) {
+        SiteTaskerQueue queue = new SiteTaskerQueue(0, lockFree);
+        queue.setStarvationTracker(new StarvationTracker(0));
+        queue.setupQueueDepthTracker(0);
+        return queue;
+    }
+
+    private static long getParkCount(QueueDepthTracker tracker) {
+        VoltTable stats = new VoltTable(tracker.getColumnSchema().toArray(new VoltTable.ColumnInfo[0]));
+        stats.addRow(tracker.getStatsRows(false, System.currentTimeMillis())[0]);
+        stats.advanceRow();
+        return stats.getLong("PARK_COUNT");
+    }
+
+    // Wait for the consumer to block on the empty queue
+    private static void awaitWaiting(Thread consumer) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (consumer.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, consumer.getState());
+    }
+
+    private static class NumberedTask extends SiteTasker.SiteTaskerRunnable {
+        final int m_producer;
+        final int m_seq;
+
+        NumberedTask(int producer, int seq) {
+            m_producer = producer;
+            m_seq = seq;
+        }
+
+        @Override
+        void run() {}
+    }
+
+    @Test
+    public void testPollAndPeek() throws Exception {
+        for (boolean lockFree : new boolean[] { false, true }) {
+            SiteTaskerQueue queue = getSiteTaskerQueue(lockFree);
+            assertTrue(queue.isEmpty());
+            assertNull(queue.poll());
+            NumberedTask first = new NumberedTask(0, 0);
+            NumberedTask second = new NumberedTask(0, 1);
+            queue.offer(first);
+            queue.offer(second);
+            assertEquals(2, queue.size());
+            assertSame(first, queue.peek());
+            assertSame(first, queue.take());
+            assertSame(second, queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    /*
+     * Several producers offer while the consumer takes. Every task has to arrive exactly once and in the order
+     * it was offered by its producer, whether the consumer found it by spinning or after parking.
+     */
+    @Test
+    public void testMultipleProducers() throws Exception {
+        final int producers = 4;
+        final int tasksPerProducer = 20000;
+        final SiteTaskerQueue queue = getSiteTaskerQueue(true);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; ++p) {
+            final int producer = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < tasksPerProducer; ++i) {
+                    queue.offer(new NumberedTask(producer, i));
+                    if (i % 1000 == 0) {
+                        // give the consumer a chance to go idle and park
+                        try {
+                            Thread.sleep(2);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        int[] nextSeq = new int[producers];
+        for (int i = 0; i < producers * tasksPerProducer; ++i) {
+            NumberedTask task = (NumberedTask) queue.take();
+            assertEquals(nextSeq[task.m_producer]++, task.m_seq);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int p = 0; p < producers; ++p) {
+            assertEquals(tasksPerProducer, nextSeq[p]);
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testParkedConsumerIsWoken() throws Exception {
+        final SiteTaskerQueue queue = getSiteTaskerQueue(true);
+        final AtomicReference<SiteTasker> taken = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            try {
+                taken.set(queue.take());
+            } catch (InterruptedException e) {
+            } finally {
+                done.countDown();
+            }
+        });
+        consumer.start();
+
+        // wait well past the spin and yield phases so the consumer is parked
+        awaitWaiting(consumer);
+
+        NumberedTask task = new NumberedTask(0, 0);
+        queue.offer(task);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertSame(task, taken.get());
+    }
+
+    @Test
+    public void testParkedConsumerIsInterruptible() throws Exception {
+        final SiteTaskerQueue queue = getSiteTaskerQueue(true);
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                queue.take();
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        consumer.start();
+        Thread.sleep(50);
+        consumer.interrupt();
+        consumer.join(10000);
+        assertTrue(thrown.get() instanceof InterruptedException);
+    }
+
+    /*
+     * Only a take that blocked on the empty queue counts as a park, for both kinds of queue.
+     */
+    @Test
+    public void testParkCount() throws Exception {
+        for (boolean lockFree : new boolean[] { false, true }) {
+            SiteTaskerQueue queue = getSiteTaskerQueue(lockFree);
+            QueueDepthTracker tracker = queue.setupQueueDepthTracker(0);
+
+            queue.offer(new NumberedTask(0, 0));
+            queue.take();
+            assertEquals(0, getParkCount(tracker));
+
+            final CountDownLatch done = new CountDownLatch(1);
+            Thread consumer = new Thread(() -> {
+                try {
+                    queue.take();
+                } catch (InterruptedException e) {
+                } finally {
+                    done.countDown();
+                }
+            });
+            consumer.start();
+            awaitWaiting(consumer);
+            queue.offer(new NumberedTask(0, 1));
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(1, getParkCount(tracker));
+        }
+    }
+}
@@ -63,6 +63,7 @@ public class PlannerTestAideDeCamp {
     int compileCounter = 0;
 
     private CompiledPlan m_currentPlan = null;
+    private boolean m_isLargeQuery = false;
 
     /**
      * Loads the schema at ddlurl and setups a voltcompiler / hsql instance.
@@ -81,6 +82,13 @@ public class PlannerTestAideDeCamp {
         proc = db.getProcedures().add(basename);
     }
 
+    /**
+     * Plan the statements compiled from now on as large queries, which may use large temp tables.
+     */
+    void setLargeQuery(boolean isLargeQuery) {
+        m_isLargeQuery = isLargeQuery;
+    }
+
     public void tearDown() {
     }
 
@@ -157,7 +165,7 @@ public class PlannerTestAideDeCamp {
         // This is required until we figure out how to do parallel planning.
         try (QueryPlanner planner = new QueryPlanner(sql, stmtLabel, procName, db,
                 partitioning, hsql, estimates, false,
-                costModel, null, joinOrder, detMode, false)) {
+                costModel, null, joinOrder, detMode, m_isLargeQuery)) {
 
             switch (plannerType) {
                 case VOLTDB: {
@@ -281,6 +281,17 @@ public class PlannerTestCase extends TestCase {
         return compileSPWithJoinOrder(sql, paramCount, null);
     }
 
+    /** A helper here where the junit test can assert success */
+    protected AbstractPlanNode compileLargeQuery(String sql) {
+        m_aide.setLargeQuery(true);
+        try {
+            return compile(sql);
+        }
+        finally {
+            m_aide.setLargeQuery(false);
+        }
+    }
+
     /** A helper here where the junit test can assert success */
     protected AbstractPlanNode compileForSinglePartition(String sql) {
         // Yes, we ARE assuming that test queries don't contain quoted question marks.
@@ -31,6 +31,7 @@ import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
@@ -3076,6 +3077,52 @@ public class TestPlansJoin extends PlannerTestCase {
         }
     }
 
+    public void testHashJoinsInLargeQueries() {
+        String query;
+        AbstractPlanNode pn;
+        HashJoinPlanNode hjn;
+
+        // No index on R2.A, so a single pass over R2 into a hash table
+        // beats scanning R2 for every tuple of R1.
+        query = "SELECT R1.A, R2.C FROM R1 JOIN R2 ON R1.A = R2.A";
+        pn = compileLargeQuery(query);
+        assertTopDownTree(pn, PlanNodeType.SEND,
+                PlanNodeType.PROJECTION,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.SEQSCAN,
+                PlanNodeType.SEQSCAN);
+        hjn = (HashJoinPlanNode) pn.findAllNodesOfType(PlanNodeType.HASHJOIN).get(0);
+        assertEquals(JoinType.INNER, hjn.getJoinType());
+        assertEquals(1, hjn.getOuterHashKeys().size());
+        assertEquals(1, hjn.getInnerHashKeys().size());
+        assertTrue(pn.toExplainPlanString().contains("HASH INNER JOIN"));
+
+        query = "SELECT R1.A, R2.C FROM R1 LEFT JOIN R2 ON R1.A = R2.A AND R1.C = R2.C";
+        pn = compileLargeQuery(query);
+        hjn = (HashJoinPlanNode) pn.findAllNodesOfType(PlanNodeType.HASHJOIN).get(0);
+        assertEquals(JoinType.LEFT, hjn.getJoinType());
+        assertEquals(2, hjn.getOuterHashKeys().size());
+
+        // Without an equality between the two sides there is nothing to hash on.
+        query = "SELECT R1.A, R2.C FROM R1 JOIN R2 ON R1.A < R2.A";
+        pn = compileLargeQuery(query);
+        assertTrue(pn.findAllNodesOfType(PlanNodeType.HASHJOIN).isEmpty());
+        assertEquals(1, pn.findAllNodesOfType(PlanNodeType.NESTLOOP).size());
+
+        // An index on the inner join column still wins over the hash join.
+        query = "SELECT R1.A, R3.C FROM R1 JOIN R3 ON R1.A = R3.A";
+        pn = compileLargeQuery(query);
+        assertTrue(pn.findAllNodesOfType(PlanNodeType.HASHJOIN).isEmpty());
+        assertEquals(1, pn.findAllNodesOfType(PlanNodeType.NESTLOOPINDEX).size());
+
+        // Hash joins need large temp tables to spill to,
+        // so ordinary queries keep the nested loop join.
+        query = "SELECT R1.A, R2.C FROM R1 JOIN R2 ON R1.A = R2.A";
+        pn = compile(query);
+        assertTrue(pn.findAllNodesOfType(PlanNodeType.HASHJOIN).isEmpty());
+        assertEquals(1, pn.findAllNodesOfType(PlanNodeType.NESTLOOP).size());
+    }
+
     @Override
     protected void setUp() throws Exception {
         setupSchema(TestJoinOrder.class.getResource("testplans-join-ddl.sql"),
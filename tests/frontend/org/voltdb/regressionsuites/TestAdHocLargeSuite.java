@@ -169,6 +169,38 @@ public class TestAdHocLargeSuite extends RegressionSuite {
             {"long 99--long 99"},
         }, cr.getResults()[0]);
 
+        // A GROUP BY with one group per joined row.  The groups need a lot more memory
+        // than the 25MB of temp table storage, so hash aggregation has to spill them
+        // to large temp table partitions and aggregate those in later passes.
+        String groupByQuery =
+                "select count(*), max(cnt), min(cnt), max(vals) "
+              + "from (select theval1 || '--' || theval2 as vals, count(*) as cnt "
+              + "      from (select t1.i,  t1.inl_vc00,  t1.inl_vc01 as t1_inl_vc01,  t1.longval as theval1, "
+              +  "                  t2.i,  t2.inl_vc00,  t2.inl_vc01,                 t2.longval as theval2 "
+              + "            from t as t1, t  as t2) as dtbl "
+              + "      group by theval1, theval2) as grouped";
+        cr = client.callProcedure("@AdHocLarge", groupByQuery);
+        assertContentOfTable(new Object[][] {{NUM_ROWS * NUM_ROWS, 1, 1, "long 99--long 99"}}, cr.getResults()[0]);
+
+        // Equi-joins get hash joins in large mode.  Joining the derived table, which is
+        // bigger than the temp table storage, needs both sides partitioned to disk
+        // whenever it ends up on the hashed side.
+        String equiJoinQuery =
+                "select count(*), max(dtbl.theval), max(t3.inl_vc00) "
+              + "from (select t1.i as i1, t2.longval as theval "
+              + "      from t as t1, t as t2) as dtbl "
+              + "     join t as t3 on dtbl.i1 = t3.i";
+        cr = client.callProcedure("@AdHocLarge", equiJoinQuery);
+        assertContentOfTable(new Object[][] {{NUM_ROWS * NUM_ROWS, "long 99", "short 99"}}, cr.getResults()[0]);
+
+        String leftEquiJoinQuery =
+                "select count(*), count(t2.i) "
+              + "from t as t1 left join t as t2 on t1.i = t2.i and t2.i < 250";
+        cr = client.callProcedure("@AdHocLarge", leftEquiJoinQuery);
+        assertContentOfTable(new Object[][] {{NUM_ROWS, 250}}, cr.getResults()[0]);
+        cr = client.callProcedure("@AdHoc", leftEquiJoinQuery);
+        assertContentOfTable(new Object[][] {{NUM_ROWS, 250}}, cr.getResults()[0]);
+
         // Delete some rows
         validateTableOfScalarLongs(client, "delete from t where i >= 5", new long[] {NUM_ROWS - 5});
 
@@ -700,6 +700,73 @@ public class TestSaveRestoreSysprocSuite extends SaveRestoreBase {
         }
     }
 
+    @Test
+    public void testPipelinedPartitionedTableRestore()
+            throws Exception
+    {
+        if (isValgrind()) {
+            return; // snapshot doesn't run in valgrind ENG-4034
+        }
+
+        System.out.println("Starting testPipelinedPartitionedTableRestore");
+        m_config.shutDown();
+
+        // Enough rows for the save files of each host to hold more chunks than
+        // the restore pipeline does, so loads are sent ahead of earlier results
+        int num_partitioned_items_per_chunk = 1000;
+        int num_partitioned_chunks = 40;
+
+        SaveRestoreTestProjectBuilder project = new SaveRestoreTestProjectBuilder();
+        project.addAllDefaults();
+        LocalCluster lc = new LocalCluster(JAR_NAME, 2, 2, 0, BackendTarget.NATIVE_EE_JNI);
+        lc.setNewCli(false);
+        lc.setJavaProperty("RESTORE_PIPELINE_DEPTH", "2");
+        lc.setJavaProperty("RESTORE_PREPARER_THREADS", "2");
+        // Fails if local server flag is true. Collides with m_config.
+        lc.setHasLocalServer(false);
+
+        lc.compile(project);
+        lc.startUp();
+        try {
+            Client client = ClientFactory.createClient();
+            client.createConnection(lc.getListenerAddresses().get(0));
+            try {
+                loadLargePartitionedTable(client, "PARTITION_TESTER",
+                                          num_partitioned_items_per_chunk,
+                                          num_partitioned_chunks);
+                VoltTable[] results = saveTablesWithDefaultOptions(client, TESTNONCE);
+                while (results[0].advanceRow()) {
+                    assertEquals("SUCCESS", results[0].getString("RESULT"));
+                }
+            }
+            finally {
+                client.close();
+            }
+            lc.shutDown();
+            lc.startUp(false);
+
+            client = ClientFactory.createClient();
+            client.createConnection(lc.getListenerAddresses().get(0));
+            try {
+                VoltTable[] results = client.callProcedure("@SnapshotRestore", TMPDIR, TESTNONCE).getResults();
+                while (results[0].advanceRow()) {
+                    if (results[0].getString("RESULT").equals("FAILURE")) {
+                        fail(results[0].getString("ERR_MSG"));
+                    }
+                }
+
+                checkTable(client, "PARTITION_TESTER", "PT_ID",
+                           num_partitioned_items_per_chunk * num_partitioned_chunks);
+            }
+            finally {
+                client.close();
+            }
+        }
+        finally {
+            lc.shutDown();
+        }
+    }
+
     @Test
     public void testRestoreWithGhostPartitionAndJoin()
             throws IOException, InterruptedException, ProcCallException
@@ -656,7 +656,7 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
     public void testQueueDepthStatistics() throws Exception {
         System.out.println("\n\nTESTING QUEUEDEPTH STATS\n\n\n");
         Client client  = getFullyConnectedClient();
-        ColumnInfo[] expectedSchema = new ColumnInfo[8];
+        ColumnInfo[] expectedSchema = new ColumnInfo[11];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -665,6 +665,9 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         expectedSchema[5] = new ColumnInfo("POLL_COUNT", VoltType.BIGINT);
         expectedSchema[6] = new ColumnInfo("AVG_WAIT", VoltType.BIGINT);
         expectedSchema[7] = new ColumnInfo("MAX_WAIT", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("PARK_COUNT", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("AVG_WAKE_LATENCY", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("MAX_WAKE_LATENCY", VoltType.BIGINT);
 
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
@@ -336,6 +336,10 @@ public class TestLowImpactDelete extends TestCase {
             Thread.sleep(90*1000);
             vt = m_client.callProcedure("@Statistics", "TTL").getResults()[0];
             System.out.println(vt.toFormattedString());
+            while (vt.advanceRow()) {
+                assertTrue(vt.getLong("BATCH_SIZE") > 0);
+                assertTrue(vt.getLong("ROWS_PER_SECOND") >= 0);
+            }
             vt = m_client.callProcedure("@AdHoc", "select count(*) from TTL").getResults()[0];
             assertEquals(0, vt.asScalarLong());
         } catch (Exception e) {
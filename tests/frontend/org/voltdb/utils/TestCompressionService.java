@@ -24,7 +24,11 @@
 package org.voltdb.utils;
 
 import java.io.IOException;
+import java.util.Arrays;
 
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.SnapshotFormat;
 import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
 
 import junit.framework.TestCase;
@@ -47,4 +51,35 @@ public class TestCompressionService extends TestCase {
 
         assertEquals(someText, result);
     }
+
+    public void testSnapshotCodecRoundTrip() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append("row ").append(i % 100).append(" of some compressible snapshot data\n");
+        }
+        byte someBytes[] = sb.toString().getBytes("UTF-8");
+        for (SnapshotFormat.Codec codec : SnapshotFormat.Codec.values()) {
+            BBContainer input = DBBPool.allocateDirect(someBytes.length);
+            BBContainer compressed = DBBPool.allocateDirect(CompressionService.maxCompressedLength(someBytes.length) + 8);
+            BBContainer output = DBBPool.allocateDirect(someBytes.length);
+            try {
+                input.b().put(someBytes).flip();
+                compressed.b().position(4);
+                int compressedLength = CompressionService.compressBuffer(input.b(), compressed.b(), codec);
+                assertEquals(4, compressed.b().position());
+                assertEquals(compressedLength, compressed.b().remaining());
+                assertEquals(someBytes.length, CompressionService.uncompressedLength(compressed.b(), codec));
+
+                int length = CompressionService.decompressBuffer(compressed.b(), output.b(), codec);
+                assertEquals(someBytes.length, length);
+                byte result[] = new byte[length];
+                output.b().get(result);
+                assertTrue(Arrays.equals(someBytes, result));
+            } finally {
+                input.discard();
+                compressed.discard();
+                output.discard();
+            }
+        }
+    }
 }
@@ -0,0 +1,140 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.types.GeographyPointValue;
+import org.voltdb.types.GeographyValue;
+import org.voltdb.types.TimestampType;
+
+import junit.framework.TestCase;
+
+public class TestJsonOutputBuffer extends TestCase {
+
+    private static String serialize(ClientResponse response) throws Exception {
+        JsonOutputBuffer buffer = JsonOutputBuffer.acquire();
+        try {
+            ClientResponseToJsonApiV2.writeJSONV2(response, buffer);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            buffer.writeTo(out);
+            assertEquals(out.size(), buffer.size());
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    public void testMatchesJSONStringer() throws Exception {
+        VoltTable table = new VoltTable(
+                new VoltTable.ColumnInfo("TINY", VoltType.TINYINT),
+                new VoltTable.ColumnInfo("SMALL", VoltType.SMALLINT),
+                new VoltTable.ColumnInfo("INT", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("BIG", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("FLT", VoltType.FLOAT),
+                new VoltTable.ColumnInfo("TS", VoltType.TIMESTAMP),
+                new VoltTable.ColumnInfo("STR \"quoted\"", VoltType.STRING),
+                new VoltTable.ColumnInfo("BIN", VoltType.VARBINARY),
+                new VoltTable.ColumnInfo("DEC", VoltType.DECIMAL),
+                new VoltTable.ColumnInfo("PT", VoltType.GEOGRAPHY_POINT),
+                new VoltTable.ColumnInfo("GEO", VoltType.GEOGRAPHY));
+        table.addRow((byte) 1, (short) -2, 3, Long.MIN_VALUE, 1.5, new TimestampType(123456789L),
+                "plain", new byte[] { 0, 15, (byte) 0xAB }, new BigDecimal("12.5"),
+                GeographyPointValue.fromWKT("point(-122 37)"),
+                GeographyValue.fromWKT("polygon((0 0, 1 1, 0 1, 0 0))"));
+        table.addRow(null, null, null, null, null, null, null, null, null, null, null);
+        table.addRow((byte) 0, (short) 0, 0, Long.MAX_VALUE, Double.NaN, new TimestampType(0),
+                "esc \\ \" </tag> \b\f\n\r\t \u0001 \u0085 \u2028 \u00e9 \u4e2d\u6587 \ud83d\ude00 \ud83d", new byte[0],
+                new BigDecimal("-0.000000000001"), null, null);
+        table.addRow((byte) 0, (short) 0, 0, 0L, Double.POSITIVE_INFINITY, new TimestampType(0),
+                "", new byte[0], BigDecimal.ZERO, null, null);
+
+        VoltTable empty = new VoltTable(new VoltTable.ColumnInfo("C", VoltType.BIGINT));
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS, (byte) 3, "app \"status\"",
+                new VoltTable[] { table, empty }, null);
+
+        assertEquals(ClientResponseToJsonApiV2.toJSONStringV2(response), serialize(response));
+
+        ClientResponseImpl failure = new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE,
+                new VoltTable[0], "failed\nbadly");
+        assertEquals(ClientResponseToJsonApiV2.toJSONStringV2(failure), serialize(failure));
+    }
+
+    public void testBufferGrowthAndReuse() throws Exception {
+        JsonOutputBuffer buffer = JsonOutputBuffer.acquire();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            buffer.appendLong(i).append(',');
+            expected.append(i).append(',');
+        }
+        assertEquals(expected.toString(), buffer.toString());
+        buffer.release();
+
+        JsonOutputBuffer reused = JsonOutputBuffer.acquire();
+        assertEquals(0, reused.size());
+        reused.appendQuoted(null).appendQuotedHex(null);
+        assertEquals("nullnull", reused.toString());
+        reused.release();
+    }
+
+    public void testRawUtf8AndGzipStream() throws Exception {
+        String text = "{\"k\":\"caf" + (char) 0xe9 + "\"}";
+        JsonOutputBuffer buffer = JsonOutputBuffer.acquire();
+        JsonOutputBuffer compressed = JsonOutputBuffer.acquire();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                buffer.appendUtf8(text);
+            }
+            assertEquals(1000 * text.getBytes(StandardCharsets.UTF_8).length, buffer.size());
+
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed.asOutputStream())) {
+                buffer.writeTo(gzip);
+            }
+            assertTrue(compressed.size() < buffer.size());
+            ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+            compressed.writeTo(zipped);
+            ByteArrayOutputStream unzipped = new ByteArrayOutputStream();
+            try (GZIPInputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(zipped.toByteArray()))) {
+                byte chunk[] = new byte[4096];
+                int read;
+                while ((read = gunzip.read(chunk)) > 0) {
+                    unzipped.write(chunk, 0, read);
+                }
+            }
+            assertEquals(buffer.toString(), new String(unzipped.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+            buffer.release();
+            compressed.release();
+        }
+    }
+}
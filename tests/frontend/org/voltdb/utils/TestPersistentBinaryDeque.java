@@ -799,6 +799,36 @@ public class TestPersistentBinaryDeque {
         assertEquals(1, listing.size());
     }
 
+    @Test
+    public void testMemoryMappedOfferCloseThenReopen() throws Exception {
+        System.out.println("Running testMemoryMappedOfferCloseThenReopen");
+        m_pbd.close();
+        m_pbd = PersistentBinaryDeque.builder(TEST_NONCE, TEST_DIR, logger).compression(true)
+                .initialExtraHeader(m_metadata, SERIALIZER).memoryMapped(true).build();
+        //Make it create two full segments
+        for (int ii = 0; ii < 96; ii++) {
+            m_pbd.offer(defaultContainer());
+        }
+
+        //Full segments are read through the mapping while the reopened deque writes to a new one
+        m_pbd.sync();
+        m_pbd.close();
+        m_pbd = PersistentBinaryDeque.builder(TEST_NONCE, TEST_DIR, logger)
+                .initialExtraHeader(m_metadata, SERIALIZER).memoryMapped(true).build();
+        BinaryDequeReader<ExtraHeaderMetadata> reader = m_pbd.openForRead(CURSOR_ID);
+
+        ByteBuffer defaultBuffer = defaultBuffer();
+        for (int ii = 0; ii < 96; ii++) {
+            defaultBuffer.clear();
+            pollOnceAndVerify(reader, defaultBuffer);
+        }
+
+        m_pbd.offer(defaultContainer());
+        defaultBuffer.clear();
+        pollOnceAndVerify(reader, defaultBuffer);
+        assertEquals(1, getSortedDirectoryListing().size());
+    }
+
     @Test
     public void testInvalidDirectory() throws Exception {
         System.out.println("Running testInvalidDirectory");
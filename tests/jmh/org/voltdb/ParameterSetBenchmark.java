@@ -0,0 +1,109 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Measures building, flattening and decoding a {@link ParameterSet} holding the mix of types a typical single
+ * partition procedure call carries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterSetBenchmark {
+
+    private Object[] m_params;
+    private ParameterSet m_paramSet;
+    private ByteBuffer m_heapBuffer;
+    private ByteBuffer m_directBuffer;
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        m_params = new Object[] {
+                5551234567L,
+                7,
+                "the quick brown fox jumps over the lazy dog",
+                3.14159,
+                new TimestampType(1500000000000000L),
+                new BigDecimal("12345.678901234567"),
+                new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 },
+                new long[] { 1L, 2L, 3L, 4L }
+        };
+        m_paramSet = ParameterSet.fromArrayNoCopy(m_params);
+        m_heapBuffer = ByteBuffer.allocate(m_paramSet.getSerializedSize());
+        m_directBuffer = ByteBuffer.allocateDirect(m_paramSet.getSerializedSize());
+
+        m_serialized = ByteBuffer.allocate(m_paramSet.getSerializedSize());
+        m_paramSet.flattenToBuffer(m_serialized);
+        m_serialized.flip();
+    }
+
+    @Benchmark
+    public ParameterSet fromArray() {
+        return ParameterSet.fromArrayNoCopy(m_params);
+    }
+
+    @Benchmark
+    public ByteBuffer flattenToHeapBuffer() throws IOException {
+        m_heapBuffer.clear();
+        m_paramSet.flattenToBuffer(m_heapBuffer);
+        return m_heapBuffer;
+    }
+
+    @Benchmark
+    public ByteBuffer flattenToDirectBuffer() throws IOException {
+        m_directBuffer.clear();
+        m_paramSet.flattenToBuffer(m_directBuffer);
+        return m_directBuffer;
+    }
+
+    @Benchmark
+    public ParameterSet fromByteBuffer() throws IOException {
+        return ParameterSet.fromByteBuffer(m_serialized.duplicate());
+    }
+}
@@ -0,0 +1,130 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link VoltTable} construction through addRow, row iteration with typed getters, and wrapping and
+ * flattening the serialized form the way results move between the EE, the site and the client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoltTableBenchmark {
+
+    private static final VoltTable.ColumnInfo[] COLUMNS = new VoltTable.ColumnInfo[] {
+            new VoltTable.ColumnInfo("ID", VoltType.BIGINT),
+            new VoltTable.ColumnInfo("VAL", VoltType.INTEGER),
+            new VoltTable.ColumnInfo("NAME", VoltType.STRING),
+            new VoltTable.ColumnInfo("SCORE", VoltType.FLOAT)
+    };
+
+    @Param({"1", "100", "10000"})
+    public int rowCount;
+
+    private String[] m_names;
+    private VoltTable m_table;
+    private ByteBuffer m_serialized;
+    private ByteBuffer m_flattenTarget;
+
+    @Setup
+    public void setup() {
+        m_names = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            m_names[i] = "name-" + i;
+        }
+        m_table = buildTable();
+
+        m_serialized = ByteBuffer.allocate(m_table.getSerializedSize());
+        m_table.flattenToBuffer(m_serialized);
+        // skip the length prefix, the rest is what the EE hands back for a result table
+        m_serialized.position(4);
+        m_serialized = m_serialized.slice();
+        m_flattenTarget = ByteBuffer.allocate(m_table.getSerializedSize());
+    }
+
+    private VoltTable buildTable() {
+        VoltTable table = new VoltTable(COLUMNS);
+        for (int i = 0; i < rowCount; i++) {
+            table.addRow((long) i, i, m_names[i], i * 0.5);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public VoltTable construct() {
+        return buildTable();
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0;
+        m_table.resetRowPosition();
+        while (m_table.advanceRow()) {
+            sum += m_table.getLong(0);
+            sum += m_table.getLong(1);
+            sum += m_table.getString(2).length();
+            sum += (long) m_table.getDouble(3);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long wrapAndIterate() {
+        VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(m_serialized.duplicate(), true);
+        long sum = 0;
+        while (table.advanceRow()) {
+            sum += table.getLong(0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public ByteBuffer flatten() {
+        m_flattenTarget.clear();
+        m_table.flattenToBuffer(m_flattenTarget);
+        return m_flattenTarget;
+    }
+}
@@ -0,0 +1,142 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.voltdb.StoredProcedureInvocation;
+
+/**
+ * Measures the primitive write and read paths of {@link FastSerializer} and {@link FastDeserializer}, including
+ * the string and invocation encodings used for every client request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastSerializerBenchmark {
+
+    @Param({"16", "256"})
+    public int stringLength;
+
+    private FastSerializer m_heapSerializer;
+    private FastSerializer m_directSerializer;
+    private String m_string;
+    private StoredProcedureInvocation m_invocation;
+    private ByteBuffer m_serialized;
+    private ByteBuffer m_serializedInvocation;
+
+    @Setup
+    public void setup() throws IOException {
+        m_heapSerializer = new FastSerializer(true, false);
+        m_directSerializer = new FastSerializer(true, true);
+
+        StringBuilder sb = new StringBuilder(stringLength);
+        for (int i = 0; i < stringLength; i++) {
+            sb.append((char) ('a' + (i % 26)));
+        }
+        m_string = sb.toString();
+
+        m_invocation = new StoredProcedureInvocation();
+        m_invocation.setProcName("Vote");
+        m_invocation.setClientHandle(42);
+        m_invocation.setParams(5551234567L, 3, m_string);
+
+        FastSerializer fs = new FastSerializer();
+        writePrimitives(fs);
+        m_serialized = fs.getBuffer();
+
+        fs = new FastSerializer();
+        fs.writeInvocation(m_invocation);
+        m_serializedInvocation = fs.getBuffer();
+    }
+
+    private void writePrimitives(FastSerializer fs) throws IOException {
+        fs.writeByte(1);
+        fs.writeShort(2);
+        fs.writeInt(3);
+        fs.writeLong(4L);
+        fs.writeDouble(5.0);
+        fs.writeString(m_string);
+    }
+
+    @Benchmark
+    public int writePrimitivesHeap() throws IOException {
+        m_heapSerializer.clear();
+        writePrimitives(m_heapSerializer);
+        return m_heapSerializer.size();
+    }
+
+    @Benchmark
+    public int writePrimitivesDirect() throws IOException {
+        m_directSerializer.clear();
+        writePrimitives(m_directSerializer);
+        return m_directSerializer.size();
+    }
+
+    @Benchmark
+    public int writeInvocation() throws IOException {
+        m_heapSerializer.clear();
+        m_heapSerializer.writeInvocation(m_invocation);
+        return m_heapSerializer.size();
+    }
+
+    @Benchmark
+    public void readPrimitives(Blackhole bh) throws IOException {
+        FastDeserializer fds = new FastDeserializer(m_serialized.duplicate());
+        bh.consume(fds.readByte());
+        bh.consume(fds.readShort());
+        bh.consume(fds.readInt());
+        bh.consume(fds.readLong());
+        bh.consume(fds.readDouble());
+        bh.consume(fds.readString());
+    }
+
+    @Benchmark
+    public StoredProcedureInvocation readInvocation() throws IOException {
+        StoredProcedureInvocation invocation = new StoredProcedureInvocation();
+        invocation.initFromBuffer(m_serializedInvocation.duplicate());
+        return invocation;
+    }
+}
@@ -0,0 +1,99 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltcore.messaging.VoltMessage;
+import org.voltdb.StoredProcedureInvocation;
+
+/**
+ * Measures flattening an {@link Iv2InitiateTaskMessage} the way the mailbox does before handing it to the network,
+ * and decoding it back through {@link VoltDbMessageFactory} as the receiving host does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Iv2InitiateTaskMessageBenchmark {
+
+    private Iv2InitiateTaskMessage m_message;
+    private VoltDbMessageFactory m_factory;
+    private ByteBuffer m_flattenTarget;
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setClientHandle(25);
+        spi.setProcName("Vote");
+        spi.setParams(5551234567L, 3, 2);
+
+        m_message = new Iv2InitiateTaskMessage(23, 8, 10L, 100045, 99, false, true, spi, 2101, 3101, false);
+        m_message.setSpHandle(31337);
+        m_factory = new VoltDbMessageFactory();
+
+        m_flattenTarget = ByteBuffer.allocate(m_message.getSerializedSize());
+        m_serialized = ByteBuffer.allocate(m_message.getSerializedSize());
+        m_message.flattenToBuffer(m_serialized);
+        m_serialized.flip();
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() throws IOException {
+        m_flattenTarget.clear();
+        m_message.flattenToBuffer(m_flattenTarget);
+        return m_flattenTarget;
+    }
+
+    @Benchmark
+    public ByteBuffer serializeWithAllocation() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(m_message.getSerializedSize());
+        m_message.flattenToBuffer(buf);
+        return buf;
+    }
+
+    @Benchmark
+    public VoltMessage decode() throws IOException {
+        return m_factory.createMessageFromBuffer(m_serialized.duplicate(), -1);
+    }
+}